@@ -0,0 +1,59 @@
+package io.kestra.plugin.kvm;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Cost of opening and closing a {@link LibvirtConnection}.
+ *
+ * <p>
+ * The test driver loads the node file on every new connection, so the cost grows with the number of domains
+ * of the host, like the initial listing of a real hypervisor would.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ConnectionBenchmark {
+    @Param({"10", "100", "1000"})
+    public int domains;
+
+    private String uri;
+
+    private Path node;
+
+    @Setup
+    public void setUp() throws Exception {
+        node = Files.createTempFile("kvm-bench-", ".xml");
+        uri = TestDriverNode.builder().domains(domains).build().write(node);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(node);
+    }
+
+    @Benchmark
+    public boolean openAndClose() throws Exception {
+        try (LibvirtConnection connection = new LibvirtConnection(uri)) {
+            return connection.get().isAlive();
+        }
+    }
+
+    @Benchmark
+    public boolean openAndCloseDefault() throws Exception {
+        try (LibvirtConnection connection = new LibvirtConnection("test:///default")) {
+            return connection.get().isAlive();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package io.kestra.plugin.kvm;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.libvirt.Domain;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Volume discovery in {@link LibvirtXmlParser#getVolumesGroupedByPool}, as run by {@link DeleteVm} before storage
+ * cleanup, on domain definitions with a growing number of disks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class LibvirtXmlParserBenchmark {
+    @Param({"1", "8", "32"})
+    public int disks;
+
+    private LibvirtConnection connection;
+
+    private Domain domain;
+
+    private Path node;
+
+    @Setup
+    public void setUp() throws Exception {
+        node = Files.createTempFile("kvm-bench-", ".xml");
+        String uri = TestDriverNode.builder().disksPerDomain(disks).pools(4).build().write(node);
+
+        connection = new LibvirtConnection(uri);
+        domain = connection.get().domainLookupByName(TestDriverNode.domainName(0));
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        connection.close();
+        Files.deleteIfExists(node);
+    }
+
+    @Benchmark
+    public Map<String, List<String>> volumesGroupedByPool() throws Exception {
+        return LibvirtXmlParser.getVolumesGroupedByPool(domain);
+    }
+}
@@ -0,0 +1,68 @@
+package io.kestra.plugin.kvm;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import io.kestra.core.models.property.Property;
+import io.kestra.core.runners.RunContext;
+import io.kestra.core.runners.RunContextFactory;
+
+import io.micronaut.context.ApplicationContext;
+import io.micronaut.context.env.Environment;
+
+/**
+ * Enumeration cost of {@link ListVms} against test-driver hosts of growing size.
+ *
+ * <p>
+ * Each run opens its own connection, as the task does in a flow, so the figures include connection setup;
+ * {@link ConnectionBenchmark} measures that part alone on the same hosts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ListVmsBenchmark {
+    @Param({"10", "100", "1000"})
+    public int domains;
+
+    private ApplicationContext applicationContext;
+
+    private RunContext runContext;
+
+    private ListVms task;
+
+    private Path node;
+
+    @Setup
+    public void setUp() throws Exception {
+        node = Files.createTempFile("kvm-bench-", ".xml");
+        String uri = TestDriverNode.builder().domains(domains).build().write(node);
+
+        applicationContext = ApplicationContext.run(Environment.TEST);
+        runContext = applicationContext.getBean(RunContextFactory.class).of();
+        task = ListVms.builder()
+            .uri(Property.ofValue(uri))
+            .build();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        applicationContext.close();
+        Files.deleteIfExists(node);
+    }
+
+    @Benchmark
+    public ListVms.Output list() throws Exception {
+        return task.run(runContext);
+    }
+}
@@ -0,0 +1,102 @@
+package io.kestra.plugin.kvm;
+
+import java.util.concurrent.TimeUnit;
+
+import org.libvirt.Connect;
+import org.libvirt.Domain;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import io.kestra.core.models.property.Property;
+import io.kestra.core.runners.RunContext;
+import io.kestra.core.runners.RunContextFactory;
+
+import io.micronaut.context.ApplicationContext;
+import io.micronaut.context.env.Environment;
+
+/**
+ * Overhead of the state-wait loops of {@link StartVm} and {@link StopVm}.
+ *
+ * <p>
+ * Uses {@code test:///default}, whose state is shared by every connection of the process, so the domain can be
+ * put back in its initial state between invocations. The test driver changes state immediately, so the figures
+ * measure the loop itself rather than a guest boot or shutdown.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class StateWaitBenchmark {
+    private static final String URI = "test:///default";
+
+    private static final String DOMAIN = "test";
+
+    private ApplicationContext applicationContext;
+
+    private RunContext runContext;
+
+    private Connect conn;
+
+    @Setup
+    public void setUp() throws Exception {
+        applicationContext = ApplicationContext.run(Environment.TEST);
+        runContext = applicationContext.getBean(RunContextFactory.class).of();
+        // Keeps the shared test driver state alive between task connections.
+        conn = new Connect(URI);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        conn.close();
+        applicationContext.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Stopped {
+        @Setup(Level.Invocation)
+        public void stop(StateWaitBenchmark benchmark) throws Exception {
+            Domain domain = benchmark.conn.domainLookupByName(DOMAIN);
+            if (domain.isActive() == 1) {
+                domain.destroy();
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Running {
+        @Setup(Level.Invocation)
+        public void start(StateWaitBenchmark benchmark) throws Exception {
+            Domain domain = benchmark.conn.domainLookupByName(DOMAIN);
+            if (domain.isActive() != 1) {
+                domain.create();
+            }
+        }
+    }
+
+    @Benchmark
+    public StartVm.Output startAndWait(Stopped stopped) throws Exception {
+        return StartVm.builder()
+            .uri(Property.ofValue(URI))
+            .name(Property.ofValue(DOMAIN))
+            .waitForRunning(Property.ofValue(true))
+            .build()
+            .run(runContext);
+    }
+
+    @Benchmark
+    public StopVm.Output stopAndWait(Running running) throws Exception {
+        return StopVm.builder()
+            .uri(Property.ofValue(URI))
+            .name(Property.ofValue(DOMAIN))
+            .force(Property.ofValue(true))
+            .waitForStopped(Property.ofValue(true))
+            .build()
+            .run(runContext);
+    }
+}
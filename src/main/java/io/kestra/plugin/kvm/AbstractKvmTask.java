@@ -1,15 +1,25 @@
 package io.kestra.plugin.kvm;
 
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
 import org.libvirt.Connect;
 import org.libvirt.Domain;
 import org.libvirt.LibvirtException;
 
 import io.kestra.core.models.annotations.PluginProperty;
+import io.kestra.core.models.executions.metrics.Counter;
+import io.kestra.core.models.executions.metrics.Gauge;
 import io.kestra.core.models.property.Property;
 import io.kestra.core.models.tasks.Task;
 import io.kestra.core.runners.RunContext;
 
 import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Builder;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -34,8 +44,23 @@ public abstract class AbstractKvmTask extends Task {
     @ToString.Exclude
     protected Property<String> uri;
 
+    @Builder.Default
+    @Schema(
+        title = "Backend",
+        description = "How the task talks to libvirt: NATIVE uses the libvirt client library installed on the worker, REMOTE speaks the libvirt remote protocol directly in Java over tcp, tls, unix or ssh URIs. REMOTE only supports daemons without SASL authentication and is only available on tasks that document it. Default NATIVE."
+    )
+    @PluginProperty(group = "advanced")
+    protected Property<LibvirtBackend> backend = Property.ofValue(LibvirtBackend.NATIVE);
+
+    @Schema(
+        title = "Inventory cache TTL",
+        description = "On ListVms, caches the state of every listed domain on the worker, per URI. On StartVm and StopVm, a cached state younger than this TTL that already is the target state skips the call to the hypervisor. Tasks of this plugin that change a domain drop its entry, but changes made outside Kestra are only seen once the entry expires, so keep the TTL short."
+    )
+    @PluginProperty(group = "advanced")
+    protected Property<Duration> inventoryCacheTtl;
+
     /**
-     * Creates a connection to the Libvirt instance.
+     * Creates a connection to the Libvirt instance, failing fast while the host's circuit breaker is open.
      *
      * @param runContext The run context.
      * @return A {@link LibvirtConnection} object.
@@ -43,7 +68,95 @@ public abstract class AbstractKvmTask extends Task {
      */
     protected LibvirtConnection getConnection(RunContext runContext) throws Exception {
         String renderedUri = runContext.render(this.uri).as(String.class).orElse(null);
-        return new LibvirtConnection(renderedUri);
+        LibvirtBackend rBackend = runContext.render(this.backend).as(LibvirtBackend.class).orElse(LibvirtBackend.NATIVE);
+
+        HostCircuitBreaker breaker = HostCircuitBreaker.of(renderedUri);
+        try {
+            try {
+                breaker.acquire();
+            } catch (HypervisorException e) {
+                runContext.metric(Counter.of("host.circuit.rejected", 1));
+                throw e;
+            }
+            return breaker.open(renderedUri, rBackend);
+        } finally {
+            runContext.metric(Gauge.of("host.circuit.state", breaker.state().ordinal()));
+        }
+    }
+
+    /**
+     * Returns the cached entry of a domain, if the inventory cache is enabled and the entry is fresh.
+     *
+     * @param runContext The run context.
+     * @param name The name of the domain.
+     * @return The cached entry, or empty.
+     * @throws Exception If a property cannot be rendered.
+     */
+    protected Optional<InventoryCache.Entry> cachedDomain(RunContext runContext, String name) throws Exception {
+        Optional<Duration> rTtl = runContext.render(this.inventoryCacheTtl).as(Duration.class);
+        if (rTtl.isEmpty()) {
+            return Optional.empty();
+        }
+
+        return InventoryCache.get(runContext.render(this.uri).as(String.class).orElse(null), name, rTtl.get());
+    }
+
+    /**
+     * Drops a domain from the inventory cache; called by every task that changes a domain.
+     *
+     * @param runContext The run context.
+     * @param name The name of the domain.
+     * @throws Exception If a property cannot be rendered.
+     */
+    protected void invalidateDomain(RunContext runContext, String name) throws Exception {
+        String rUri = runContext.render(this.uri).as(String.class).orElse(null);
+        InventoryCache.invalidate(rUri, name);
+        LabelIndex.invalidate(rUri, name);
+    }
+
+    /**
+     * Renders and parses a label selector property.
+     *
+     * @param runContext The run context.
+     * @param selector The property holding a selector such as {@code team=ci,pool!=gpu}.
+     * @return The parsed selector, or null when the property is not set.
+     * @throws IllegalArgumentException If the selector renders blank or is invalid, so that a template rendering to
+     * an empty string is never taken for "every domain".
+     * @throws Exception If the property cannot be rendered.
+     */
+    protected LabelSelector renderLabelSelector(RunContext runContext, Property<String> selector) throws Exception {
+        if (selector == null) {
+            return null;
+        }
+        return LabelSelector.parse(runContext.render(selector).as(String.class).orElse(""));
+    }
+
+    /**
+     * Resolves a label selector against the worker's label index of the host.
+     *
+     * @param runContext The run context.
+     * @param client The hypervisor to list and, for domains not indexed yet, describe.
+     * @param selector The parsed selector.
+     * @param parallelism The maximum number of domain descriptions fetched concurrently.
+     * @return The names of the matching domains.
+     * @throws Exception If the domains cannot be read.
+     */
+    protected List<String> selectByLabels(RunContext runContext, HypervisorClient client, LabelSelector selector, int parallelism) throws Exception {
+        List<String> selected = LabelIndex.select(client, runContext.render(this.uri).as(String.class).orElse(null), selector, parallelism);
+        runContext.logger().debug("Label selector '{}' matches {} domain(s).", selector, selected.size());
+        return selected;
+    }
+
+    /**
+     * Narrows the domains named by a task to those matching its label selector, or selects every matching domain
+     * when none is named.
+     */
+    protected static Set<String> retainLabelled(Set<String> targets, List<String> labelled) {
+        if (targets.isEmpty()) {
+            return new LinkedHashSet<>(labelled);
+        }
+        targets.retainAll(new HashSet<>(labelled));
+        return targets;
     }
 
     /**
@@ -52,12 +165,16 @@ public abstract class AbstractKvmTask extends Task {
      * @param conn The Libvirt connection.
      * @param name The name of the domain.
      * @return The Domain object, or null if not found.
+     * @throws LibvirtException If the lookup fails for any other reason than a missing domain.
      */
-    protected Domain getDomain(Connect conn, String name) {
+    protected Domain getDomain(Connect conn, String name) throws LibvirtException {
         try {
             return conn.domainLookupByName(name);
         } catch (LibvirtException e) {
-            return null;
+            if (LibvirtErrors.isNotFound(e)) {
+                return null;
+            }
+            throw e;
         }
     }
 }
@@ -0,0 +1,68 @@
+package io.kestra.plugin.kvm;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Poll interval of a trigger that speeds up while domains are changing and backs off while they are stable.
+ *
+ * <p>
+ * Intervals are kept per trigger in memory: the evaluation records what it saw, and the next evaluation date is
+ * computed from it. A trigger never evaluated by this JVM starts at the fast interval, and the interval of a trigger
+ * that stops evaluating is dropped with its host watcher lease.
+ */
+final class AdaptiveInterval {
+    private static final Map<String, AdaptiveInterval> INTERVALS = new ConcurrentHashMap<>();
+
+    private Map<String, String> lastStates = Map.of();
+
+    private Duration current;
+
+    private AdaptiveInterval() {
+    }
+
+    static AdaptiveInterval of(String triggerUid) {
+        return INTERVALS.computeIfAbsent(triggerUid, k -> new AdaptiveInterval());
+    }
+
+    /**
+     * Drops the interval of a trigger that stopped evaluating, once {@link HostWatcher} lets its lease expire.
+     */
+    static void forget(String triggerUid) {
+        INTERVALS.remove(triggerUid);
+    }
+
+    static Optional<Duration> current(String triggerUid) {
+        return Optional.ofNullable(INTERVALS.get(triggerUid)).map(AdaptiveInterval::current);
+    }
+
+    /**
+     * Records the states seen by a poll and computes the interval until the next one.
+     *
+     * @param states The polled state of each domain.
+     * @param busy Whether any domain is in a transitional state.
+     * @param min The interval used while domains change or are transitional.
+     * @param max The ceiling of the back-off.
+     * @param multiplier The factor applied to the interval after each stable poll.
+     * @return The interval until the next poll.
+     */
+    synchronized Duration update(Map<String, String> states, boolean busy, Duration min, Duration max, double multiplier) {
+        boolean changed = !lastStates.isEmpty() && !lastStates.equals(states);
+        lastStates = Map.copyOf(states);
+
+        if (busy || changed || current == null) {
+            current = min;
+        } else {
+            long next = (long) (current.toMillis() * multiplier);
+            current = Duration.ofMillis(Math.min(Math.max(next, min.toMillis()), max.toMillis()));
+        }
+
+        return current;
+    }
+
+    synchronized Duration current() {
+        return current;
+    }
+}
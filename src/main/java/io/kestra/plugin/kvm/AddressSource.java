@@ -0,0 +1,33 @@
+package io.kestra.plugin.kvm;
+
+import org.libvirt.Domain.InterfaceAddressesSource;
+
+/**
+ * Where the IP addresses of a guest are read from.
+ */
+public enum AddressSource {
+    /**
+     * DHCP leases of the libvirt networks the guest's interfaces are attached to.
+     */
+    LEASE(InterfaceAddressesSource.VIR_DOMAIN_INTERFACE_ADDRESSES_SRC_LEASE),
+
+    /**
+     * The QEMU guest agent, which must be installed and running in the guest.
+     */
+    AGENT(InterfaceAddressesSource.VIR_DOMAIN_INTERFACE_ADDRESSES_SRC_AGENT),
+
+    /**
+     * The host's ARP table, which only knows guests that recently sent traffic.
+     */
+    ARP(InterfaceAddressesSource.VIR_DOMAIN_INTERFACE_ADDRESSES_SRC_ARP);
+
+    private final int flag;
+
+    AddressSource(int flag) {
+        this.flag = flag;
+    }
+
+    int flag() {
+        return flag;
+    }
+}
@@ -0,0 +1,100 @@
+package io.kestra.plugin.kvm;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Conversions between libvirt cpuset strings such as {@code 0-3,^2,8}, CPU sets and the byte-per-int CPU maps
+ * used by the libvirt bindings.
+ */
+final class Cpuset {
+    private Cpuset() {
+    }
+
+    static Set<Integer> parse(String cpuset) {
+        Set<Integer> cpus = new TreeSet<>();
+        Set<Integer> excluded = new HashSet<>();
+
+        for (String part : cpuset.split(",")) {
+            String token = part.trim();
+            if (token.isEmpty()) {
+                continue;
+            }
+            Set<Integer> target = token.startsWith("^") ? excluded : cpus;
+            token = token.startsWith("^") ? token.substring(1) : token;
+
+            int dash = token.indexOf('-');
+            if (dash > 0) {
+                int from = Integer.parseInt(token.substring(0, dash).trim());
+                int to = Integer.parseInt(token.substring(dash + 1).trim());
+                for (int cpu = from; cpu <= to; cpu++) {
+                    target.add(cpu);
+                }
+            } else {
+                target.add(Integer.parseInt(token));
+            }
+        }
+
+        cpus.removeAll(excluded);
+        return cpus;
+    }
+
+    /**
+     * Formats CPUs as a compact cpuset, collapsing consecutive CPUs into ranges.
+     */
+    static String format(Collection<Integer> cpus) {
+        List<String> parts = new ArrayList<>();
+        Integer start = null;
+        Integer previous = null;
+
+        for (int cpu : new TreeSet<>(cpus)) {
+            if (previous != null && cpu == previous + 1) {
+                previous = cpu;
+                continue;
+            }
+            if (start != null) {
+                parts.add(start.equals(previous) ? start.toString() : start + "-" + previous);
+            }
+            start = cpu;
+            previous = cpu;
+        }
+        if (start != null) {
+            parts.add(start.equals(previous) ? start.toString() : start + "-" + previous);
+        }
+
+        return String.join(",", parts);
+    }
+
+    /**
+     * Builds a CPU map of {@code length} bytes, one array element per byte, as expected by {@code Domain.pinVcpu}.
+     */
+    static int[] toCpumap(Collection<Integer> cpus, int length) {
+        int[] cpumap = new int[length];
+        for (int cpu : cpus) {
+            if (cpu / 8 >= length) {
+                throw new IllegalArgumentException("CPU " + cpu + " does not exist on this host");
+            }
+            cpumap[cpu / 8] |= 1 << (cpu % 8);
+        }
+        return cpumap;
+    }
+
+    /**
+     * Reads the CPUs set in a slice of a CPU map, such as one vCPU's entry of {@code Domain.getVcpusCpuMaps}.
+     */
+    static Set<Integer> fromCpumap(int[] cpumaps, int offset, int length) {
+        Set<Integer> cpus = new TreeSet<>();
+        for (int i = 0; i < length; i++) {
+            for (int bit = 0; bit < 8; bit++) {
+                if ((cpumaps[offset + i] & (1 << bit)) != 0) {
+                    cpus.add(i * 8 + bit);
+                }
+            }
+        }
+        return cpus;
+    }
+}
@@ -1,8 +1,16 @@
 package io.kestra.plugin.kvm;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
 import org.libvirt.Connect;
 import org.libvirt.Domain;
 import org.libvirt.DomainInfo.DomainState;
+import org.libvirt.Error.ErrorNumber;
+import org.libvirt.LibvirtException;
+import org.w3c.dom.Document;
 
 import io.kestra.core.models.annotations.Example;
 import io.kestra.core.models.annotations.Plugin;
@@ -15,7 +23,9 @@ import jakarta.validation.constraints.NotNull;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 import lombok.experimental.SuperBuilder;
+import lombok.extern.jackson.Jacksonized;
 import io.kestra.core.models.annotations.PluginProperty;
 
 /**
@@ -76,6 +86,81 @@ import io.kestra.core.models.annotations.PluginProperty;
                       UUID: {{ outputs.create_vm.uuid }}
                       State: {{ outputs.create_vm.state }}
                 """
+        ),
+        @Example(
+            title = "Place the VM on the least loaded of several hypervisors.",
+            full = true,
+            code = """
+                id: place_kvm_vm
+                namespace: kvmtest.ssh
+
+                tasks:
+                  - id: create_vm
+                    type: io.kestra.plugin.kvm.CreateVm
+                    candidateUris:
+                      - qemu+ssh://root@10.0.0.11/system
+                      - qemu+ssh://root@10.0.0.12/system
+                      - qemu+ssh://root@10.0.0.13/system
+                    placementStrategy: LEAST_LOADED
+                    storagePool: default
+                    name: ci-runner-42
+                    xmlDefinition: |
+                      <domain type='kvm'>
+                        <name>ci-runner-42</name>
+                        <memory unit='GiB'>4</memory>
+                        <vcpu placement='static'>2</vcpu>
+                        <os>
+                          <type arch='x86_64' machine='pc-q35-6.2'>hvm</type>
+                        </os>
+                      </domain>
+
+                  - id: log_host
+                    type: io.kestra.plugin.core.log.Log
+                    message: "VM placed on {{ outputs.create_vm.host }}"
+                """
+        ),
+        @Example(
+            title = "Boot a cloud image with a cloud-init seed built and uploaded by the task.",
+            full = true,
+            code = """
+                id: cloud_init_vm
+                namespace: kvmtest.ssh
+
+                inputs:
+                  - id: hostname
+                    type: STRING
+                    defaults: web-01
+
+                tasks:
+                  - id: create_vm
+                    type: io.kestra.plugin.kvm.CreateVm
+                    uri: qemu+ssh://root@10.0.0.11/system
+                    name: "{{ inputs.hostname }}"
+                    cloudInit:
+                      storagePool: default
+                      userData: |
+                        #cloud-config
+                        hostname: {{ inputs.hostname }}
+                        ssh_authorized_keys:
+                          - {{ secret('SSH_PUBLIC_KEY') }}
+                    startAfterCreate: true
+                    xmlDefinition: |
+                      <domain type='kvm'>
+                        <name>{{ inputs.hostname }}</name>
+                        <memory unit='GiB'>2</memory>
+                        <vcpu placement='static'>2</vcpu>
+                        <os>
+                          <type arch='x86_64' machine='q35'>hvm</type>
+                        </os>
+                        <devices>
+                          <disk type='volume' device='disk'>
+                            <driver name='qemu' type='qcow2'/>
+                            <source pool='default' volume='{{ inputs.hostname }}-os.qcow2'/>
+                            <target dev='vda' bus='virtio'/>
+                          </disk>
+                        </devices>
+                      </domain>
+                """
         )
     }
 )
@@ -109,18 +194,222 @@ public class CreateVm extends AbstractKvmTask implements RunnableTask<CreateVm.O
     @PluginProperty(group = "destination")
     private Property<Boolean> startAfterCreate = Property.ofValue(false);
 
+    @Schema(
+        title = "Candidate hypervisor URIs",
+        description = "When set, the task ignores uri and places the domain on one of these hosts, chosen by placementStrategy from node info, free memory, the allocation of every defined domain and storagePool free space gathered concurrently. A domain already defined on one of the candidates is kept on that host. A host is only chosen if it has at least as many CPUs as the domain has vCPUs and stays within 4 vCPUs per CPU."
+    )
+    @PluginProperty(group = "advanced", secret = true)
+    @ToString.Exclude
+    private Property<List<String>> candidateUris;
+
+    @Builder.Default
+    @Schema(
+        title = "Placement strategy",
+        description = "How candidateUris are ranked: LEAST_LOADED picks the host with the lowest vCPU/memory allocation ratio, BIN_PACK fills the fullest host that still fits, SPREAD picks the host running the fewest domains. Default LEAST_LOADED."
+    )
+    @PluginProperty(group = "advanced")
+    private Property<PlacementStrategy> placementStrategy = Property.ofValue(PlacementStrategy.LEAST_LOADED);
+
+    @Schema(
+        title = "Target storage pool",
+        description = "Storage pool that must exist and have free space on the chosen host. Only used with candidateUris."
+    )
+    @PluginProperty(group = "advanced")
+    private Property<String> storagePool;
+
+    @Schema(
+        title = "Required pool space (bytes)",
+        description = "Free space storagePool must have on a candidate host for the domain to be placed there, such as the size of the volumes created for it after placement. The space is reserved like vCPUs and memory, so a burst of placements does not overcommit a pool. Default: any free space. Only used with candidateUris and storagePool."
+    )
+    @PluginProperty(group = "advanced")
+    private Property<Long> requiredPoolBytes;
+
+    @Builder.Default
+    @Schema(
+        title = "Host snapshot TTL",
+        description = "How long host snapshots gathered for placement are reused by later placements on the same worker. Each placement reserves its vCPU and memory on the cached snapshot, so bursts are spread across hosts. Default PT30S."
+    )
+    @PluginProperty(group = "advanced")
+    private Property<Duration> placementCacheTtl = Property.ofValue(Duration.ofSeconds(30));
+
+    @Builder.Default
+    @Schema(
+        title = "NUMA-aware placement",
+        description = "If true, reads the host NUMA topology and the CPUs already pinned by other domains, picks the NUMA node (or the fewest nodes) with enough free cores and memory, and injects vcpupin, emulatorpin and numatune into the definition before it is defined. Definitions that already pin vCPUs or the emulator, or set numatune, are left untouched. Default false."
+    )
+    @PluginProperty(group = "advanced")
+    private Property<Boolean> numaPlacement = Property.ofValue(false);
+
+    @Schema(
+        title = "Performance profile",
+        description = "Preset applied to the rendered XML through a DOM transformation before define: THROUGHPUT sets host-passthrough CPU, cache='none' io='native' on file and block disks that set neither (others are reported as skipped), iothreads and multiqueue virtio-net; LATENCY adds hugepage memory backing and disables the memory balloon; DENSITY sets host-model CPU, discard/detect_zeroes on disks and a free-page-reporting balloon. The applied changes are returned in profileChanges."
+    )
+    @PluginProperty(group = "advanced")
+    private Property<PerformanceProfile> performanceProfile;
+
+    @Schema(
+        title = "cloud-init NoCloud seed",
+        description = "When set and the domain is newly defined, builds a NoCloud seed ISO (volume label cidata) from the rendered user-data, meta-data and network-config, uploads it into a volume of the given storage pool through a libvirt stream, and attaches it to the definition as a read-only SATA CD-ROM. The task fails if the pool already holds a volume of that name, and the seed volume is deleted again if the domain cannot be defined."
+    )
+    @PluginProperty(group = "processing")
+    private Property<CloudInit> cloudInit;
+
+    @Schema(
+        title = "Labels",
+        description = "Key/value labels written into the `<metadata>` element of a newly defined domain, under the plugin's namespace, so that DeleteVm, GetVmAddresses, TuneVm and MigrateVm can select it with labelSelector. Keys and values follow the Kubernetes label syntax."
+    )
+    @PluginProperty(group = "processing")
+    private Property<Map<String, String>> labels;
+
+    @Builder.Default
+    @Schema(
+        title = "Validate definition",
+        description = "If true, the rendered definition is checked against the cached capabilities of a QEMU host before defineXML: OS type, architecture, machine type, emulator, CPU mode and model, firmware and device models. Unsupported values fail the task before anything is sent to the host, and the architecture, machine type and emulator are filled in when missing. A CPU model the host reports as not usable is only logged as a warning. Default false."
+    )
+    @PluginProperty(group = "reliability")
+    private Property<Boolean> validateDefinition = Property.ofValue(false);
+
+    @Builder.Default
+    @Schema(
+        title = "Host capabilities TTL",
+        description = "How long the capabilities and domain capabilities of a host are cached on the worker for definition validation. Default 10 minutes."
+    )
+    @PluginProperty(group = "advanced")
+    private Property<Duration> capabilitiesCacheTtl = Property.ofValue(HostCapabilities.DEFAULT_TTL);
+
     @Override
     public Output run(RunContext runContext) throws Exception {
-        try (LibvirtConnection connection = getConnection(runContext)) {
+        String rXml = runContext.render(this.xmlDefinition).as(String.class).orElseThrow();
+        String rName = runContext.render(this.name).as(String.class).orElseThrow();
+        List<String> rCandidateUris = runContext.render(this.candidateUris).asList(String.class);
+
+        String host = null;
+        HostSnapshot chosen = null;
+        String rStoragePool = runContext.render(this.storagePool).as(String.class).orElse(null);
+        int vcpus = 0;
+        long memoryKiB = 0L;
+        long rRequiredPoolBytes = runContext.render(this.requiredPoolBytes).as(Long.class).orElse(0L);
+        if (!rCandidateUris.isEmpty()) {
+            // A re-run or a retry must find the domain where it was defined rather than place a second one.
+            host = HostPlacement.locate(runContext.logger(), rCandidateUris, rName);
+            if (host != null) {
+                runContext.logger().info("VM {} is already defined on host {}; keeping it there.", rName, host);
+            }
+        }
+        if (!rCandidateUris.isEmpty() && host == null) {
+            Document doc = LibvirtXmlParser.parse(rXml);
+            vcpus = LibvirtXmlParser.getVcpus(doc);
+            memoryKiB = LibvirtXmlParser.getMemoryKiB(doc);
+            chosen = HostPlacement.select(
+                runContext.logger(),
+                rCandidateUris,
+                rStoragePool,
+                runContext.render(this.placementStrategy).as(PlacementStrategy.class).orElse(PlacementStrategy.LEAST_LOADED),
+                vcpus,
+                memoryKiB,
+                rRequiredPoolBytes,
+                runContext.render(this.placementCacheTtl).as(Duration.class).orElse(Duration.ofSeconds(30))
+            );
+            host = chosen.getUri();
+            runContext.logger().info("Placing VM {} on host {}.", rName, host);
+        }
+
+        // The reservations made on the chosen host and its CPUs are only kept once a new domain is defined there.
+        boolean placed = false;
+        String numaUri = null;
+        NumaPlanner.Plan numaPlan = null;
+        try (LibvirtConnection connection = host != null ? HostCircuitBreaker.connect(host, LibvirtBackend.NATIVE) : getConnection(runContext)) {
             Connect conn = connection.get();
-            String rXml = runContext.render(this.xmlDefinition).as(String.class).orElseThrow();
-            String rName = runContext.render(this.name).as(String.class).orElseThrow();
 
             // This updates the XML if it exists, or creates a new one if it doesn't.
             // Libvirt's defineXML is natively idempotent for configuration.
             Domain domain = getDomain(conn, rName);
+            String numaNodeset = null;
+            List<String> profileChanges = List.of();
+            List<String> hostDefaults = List.of();
+            String cloudInitVolume = null;
             if (domain == null) {
-                domain = conn.domainDefineXML(rXml);
+                DomainXmlEditor editor = DomainXmlEditor.of(rXml);
+                boolean rewritten = false;
+
+                PerformanceProfile rProfile = runContext.render(this.performanceProfile).as(PerformanceProfile.class).orElse(null);
+                if (rProfile != null) {
+                    rProfile.apply(editor);
+                    profileChanges = List.copyOf(editor.changes());
+                    rewritten = true;
+                    runContext.logger().info("Applied {} profile to VM {}: {} change(s).", rProfile, rName, profileChanges.size());
+                }
+
+                Duration rCapabilitiesCacheTtl = runContext.render(this.capabilitiesCacheTtl).as(Duration.class).orElse(HostCapabilities.DEFAULT_TTL);
+                if (runContext.render(this.validateDefinition).as(Boolean.class).orElse(false)) {
+                    hostDefaults = DomainValidator.apply(runContext.logger(), conn, rCapabilitiesCacheTtl, editor);
+                    if (!hostDefaults.isEmpty()) {
+                        rewritten = true;
+                        runContext.logger().info("Completed VM {} definition from host capabilities: {}", rName, hostDefaults);
+                    }
+                }
+
+                if (runContext.render(this.numaPlacement).as(Boolean.class).orElse(false)) {
+                    numaUri = conn.getURI();
+                    numaPlan = NumaPlanner.apply(conn, numaUri, editor.document(), rCapabilitiesCacheTtl);
+                    if (numaPlan != null) {
+                        rewritten = true;
+                        numaNodeset = numaPlan.nodeset();
+                        runContext.logger().info("Pinned VM {} to NUMA node(s) {} on CPUs {}.", rName, numaNodeset, numaPlan.cpus());
+                    } else {
+                        runContext.logger().info("VM {} definition already carries its own pinning; skipping NUMA placement.", rName);
+                    }
+                }
+
+                Map<String, String> rLabels = runContext.render(this.labels).asMap(String.class, String.class);
+                if (!rLabels.isEmpty()) {
+                    DomainLabels.write(editor, rLabels);
+                    rewritten = true;
+                }
+
+                // The seed is uploaded last, so that nothing but the define itself can fail once it exists.
+                String seedPool = null;
+                String seedVolume = null;
+                CloudInit rCloudInit = runContext.render(this.cloudInit).as(CloudInit.class).orElse(null);
+                if (rCloudInit != null) {
+                    String pool = rCloudInit.getStoragePool() != null ? rCloudInit.getStoragePool()
+                        : rStoragePool != null ? rStoragePool : "default";
+                    String volume = rCloudInit.getVolumeName() != null ? rCloudInit.getVolumeName() : rName + "-cidata.iso";
+                    String metaData = rCloudInit.getMetaData() != null ? rCloudInit.getMetaData()
+                        : "instance-id: " + rName + "\nlocal-hostname: " + rName + "\n";
+
+                    byte[] seed = NoCloudSeed.build(
+                        rCloudInit.getUserData() != null ? rCloudInit.getUserData() : "#cloud-config\n",
+                        metaData,
+                        rCloudInit.getNetworkConfig(),
+                        Instant.now()
+                    );
+                    NoCloudSeed.attach(editor, pool, volume);
+                    NoCloudSeed.upload(conn, pool, volume, seed);
+                    seedPool = pool;
+                    seedVolume = volume;
+                    cloudInitVolume = pool + "/" + volume;
+                    rewritten = true;
+                    runContext.logger().info("Uploaded {} byte cloud-init seed for VM {} to volume {}.", seed.length, rName, cloudInitVolume);
+                }
+
+                try {
+                    domain = conn.domainDefineXML(rewritten ? editor.toXml() : rXml);
+                    placed = true;
+                } catch (Exception e) {
+                    // The host may have changed since its capabilities were cached.
+                    if (LibvirtErrors.code(e) == ErrorNumber.VIR_ERR_CONFIG_UNSUPPORTED) {
+                        HostCapabilities.invalidate(conn.getURI());
+                    }
+                    if (seedVolume != null) {
+                        try {
+                            NoCloudSeed.delete(conn, seedPool, seedVolume);
+                        } catch (LibvirtException deleteError) {
+                            e.addSuppressed(deleteError);
+                        }
+                    }
+                    throw e;
+                }
             }
             runContext.logger().info("VM definition synchronized for {}.", domain.getName());
 
@@ -132,11 +421,30 @@ public class CreateVm extends AbstractKvmTask implements RunnableTask<CreateVm.O
                 runContext.logger().info("VM {} booted.", domain.getName());
             }
 
+            if (host != null) {
+                InventoryCache.invalidate(host, rName);
+                LabelIndex.invalidate(host, rName);
+            } else {
+                invalidateDomain(runContext, rName);
+            }
+
             return Output.builder()
                 .name(domain.getName())
                 .uuid(domain.getUUIDString())
                 .state(domain.getInfo().state.toString())
+                .host(host)
+                .numaNodeset(numaNodeset)
+                .profileChanges(profileChanges)
+                .hostDefaults(hostDefaults)
+                .cloudInitVolume(cloudInitVolume)
                 .build();
+        } finally {
+            if (chosen != null && !placed) {
+                HostPlacement.release(chosen, rStoragePool, vcpus, memoryKiB, rRequiredPoolBytes);
+            }
+            if (numaPlan != null && !placed) {
+                NumaPlanner.release(numaUri, numaPlan);
+            }
         }
     }
 
@@ -163,5 +471,58 @@ public class CreateVm extends AbstractKvmTask implements RunnableTask<CreateVm.O
             description = "Libvirt domain state after definition and optional start."
         )
         private String state;
+
+        @Schema(
+            title = "Chosen host",
+            description = "Candidate URI the domain was placed on; null when candidateUris is not used."
+        )
+        private String host;
+
+        @Schema(
+            title = "NUMA nodeset",
+            description = "NUMA node(s) the domain was bound to when numaPlacement is true and the domain was newly defined."
+        )
+        private String numaNodeset;
+
+        @Schema(
+            title = "Performance profile changes",
+            description = "Changes made to the definition by performanceProfile, as 'path: change' entries."
+        )
+        private List<String> profileChanges;
+
+        @Schema(
+            title = "Host defaults",
+            description = "Values filled in from the host capabilities by validateDefinition, as 'path: change' entries."
+        )
+        private List<String> hostDefaults;
+
+        @Schema(
+            title = "cloud-init seed volume",
+            description = "Volume the cloud-init seed was uploaded to, as 'pool/volume'; null when cloudInit is not set or the domain already existed."
+        )
+        private String cloudInitVolume;
+    }
+
+    /**
+     * Documents of a cloud-init NoCloud seed and where to store it.
+     */
+    @Builder
+    @Getter
+    @Jacksonized
+    public static class CloudInit {
+        @Schema(title = "user-data", description = "cloud-config or script passed to the guest. Default an empty `#cloud-config`.")
+        private String userData;
+
+        @Schema(title = "meta-data", description = "Instance metadata. Default sets instance-id and local-hostname to the domain name.")
+        private String metaData;
+
+        @Schema(title = "network-config", description = "Network configuration (version 1 or 2). Omitted from the seed when not set.")
+        private String networkConfig;
+
+        @Schema(title = "Storage pool", description = "Pool the seed volume is created in. Defaults to storagePool, then `default`.")
+        private String storagePool;
+
+        @Schema(title = "Volume name", description = "Name of the seed volume. Default `<name>-cidata.iso`.")
+        private String volumeName;
     }
 }
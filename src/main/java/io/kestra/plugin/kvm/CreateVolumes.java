@@ -0,0 +1,226 @@
+package io.kestra.plugin.kvm;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.libvirt.Connect;
+import org.libvirt.LibvirtException;
+import org.libvirt.StoragePool;
+
+import io.kestra.core.models.annotations.Example;
+import io.kestra.core.models.annotations.Plugin;
+import io.kestra.core.models.annotations.PluginProperty;
+import io.kestra.core.models.executions.metrics.Counter;
+import io.kestra.core.models.property.Property;
+import io.kestra.core.models.tasks.RunnableTask;
+import io.kestra.core.runners.RunContext;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+import lombok.experimental.SuperBuilder;
+import lombok.extern.jackson.Jacksonized;
+
+/**
+ * Task to create storage volumes on a KVM host.
+ */
+@SuperBuilder
+@NoArgsConstructor
+@Getter
+@EqualsAndHashCode
+@ToString
+@Plugin(
+    examples = {
+        @Example(
+            title = "Create a preallocated qcow2 system disk and a sparse raw data disk.",
+            full = true,
+            code = """
+                id: kvm_create_volumes
+                namespace: kvmtest.ssh
+
+                tasks:
+                  - id: create_volumes
+                    type: io.kestra.plugin.kvm.CreateVolumes
+                    uri: qemu+ssh://root@167.99.104.163/system
+                    storagePool: default
+                    volumes:
+                      - name: web-01-system.qcow2
+                        capacity: 20GiB
+                        format: qcow2
+                        preallocation: METADATA
+                        clusterSize: 64KiB
+                      - name: web-01-data.img
+                        capacity: 100GiB
+                        format: raw
+                """
+        )
+    }
+)
+@Schema(
+    title = "Create storage volumes",
+    description = "Creates many volumes in parallel, each with its own format, preallocation mode and qcow2 cluster size. Volumes that already exist are left untouched."
+)
+public class CreateVolumes extends AbstractKvmTask implements RunnableTask<CreateVolumes.Output> {
+    @Builder.Default
+    @Schema(
+        title = "Storage pool",
+        description = "Pool the volumes are created in, unless a volume sets its own. Default `default`."
+    )
+    @PluginProperty(group = "destination")
+    private Property<String> storagePool = Property.ofValue("default");
+
+    @NotNull
+    @Schema(title = "Volumes to create")
+    @PluginProperty(group = "main")
+    private Property<List<VolumeSpec>> volumes;
+
+    @Builder.Default
+    @Schema(
+        title = "Max parallelism",
+        description = "Maximum number of volumes created concurrently. Fully preallocated raw volumes are written by the host, so keep it low on slow storage. Default 4."
+    )
+    @PluginProperty(group = "execution")
+    private Property<Integer> maxParallelism = Property.ofValue(4);
+
+    @Builder.Default
+    @Schema(
+        title = "Fail on error",
+        description = "If true, the task fails when any volume could not be created, after every volume has been processed. Default true."
+    )
+    @PluginProperty(group = "reliability")
+    private Property<Boolean> failOnError = Property.ofValue(true);
+
+    @Override
+    public Output run(RunContext runContext) throws Exception {
+        String rStoragePool = runContext.render(this.storagePool).as(String.class).orElse("default");
+        List<VolumeSpec> rVolumes = runContext.render(this.volumes).asList(VolumeSpec.class);
+        int rMaxParallelism = runContext.render(this.maxParallelism).as(Integer.class).orElse(4);
+
+        List<ListVolumes.Volume> created = new ArrayList<>();
+        int skipped = 0;
+        List<Failure> failures = new ArrayList<>();
+
+        try (LibvirtConnection connection = getConnection(runContext)) {
+            Connect conn = connection.get();
+
+            for (KvmExecutors.Outcome<VolumeSpec, ListVolumes.Volume> outcome : KvmExecutors.fanOut(
+                rVolumes,
+                rMaxParallelism,
+                spec -> create(conn, spec.getStoragePool() != null ? spec.getStoragePool() : rStoragePool, spec)
+            )) {
+                if (!outcome.isSuccess()) {
+                    runContext.logger().error("Failed to create volume {}: {}", outcome.item().getName(), outcome.error().getMessage());
+                    failures.add(new Failure(outcome.item().getName(), outcome.error().getMessage()));
+                } else if (outcome.value() == null) {
+                    runContext.logger().debug("Volume {} already exists. Skipping.", outcome.item().getName());
+                    skipped++;
+                } else {
+                    created.add(outcome.value());
+                }
+            }
+        }
+
+        runContext.metric(Counter.of("volumes.created", created.size()));
+        runContext.metric(Counter.of("volumes.skipped", skipped));
+        runContext.metric(Counter.of("volumes.failed", failures.size()));
+        runContext.logger().info("Created {} volume(s), {} already existed, {} failed.", created.size(), skipped, failures.size());
+
+        if (!failures.isEmpty() && runContext.render(this.failOnError).as(Boolean.class).orElse(true)) {
+            throw new Exception("Failed to create " + failures.size() + " of " + rVolumes.size() + " volume(s)");
+        }
+
+        return Output.builder()
+            .volumes(created)
+            .skipped(skipped)
+            .failures(failures)
+            .build();
+    }
+
+    /**
+     * Creates one volume, or returns null if a volume of the same name already exists in the pool.
+     */
+    private static ListVolumes.Volume create(Connect conn, String poolName, VolumeSpec spec) throws Exception {
+        String format = spec.getFormat() != null ? spec.getFormat() : "qcow2";
+        Preallocation preallocation = spec.getPreallocation() != null ? spec.getPreallocation() : Preallocation.SPARSE;
+        String xml = StorageVolumes.volumeXml(
+            spec.getName(),
+            StorageVolumes.parseSize(spec.getCapacity()),
+            format,
+            preallocation,
+            spec.getClusterSize() != null ? StorageVolumes.parseSize(spec.getClusterSize()) : null
+        );
+
+        StoragePool pool = conn.storagePoolLookupByName(poolName);
+        try {
+            pool.storageVolLookupByName(spec.getName());
+            return null;
+        } catch (LibvirtException e) {
+            if (!LibvirtErrors.isNotFound(e)) {
+                throw e;
+            }
+        }
+
+        return StorageVolumes.describe(poolName, pool.storageVolCreateXML(xml, StorageVolumes.createFlags(format, preallocation)));
+    }
+
+    /**
+     * Output for the CreateVolumes task.
+     */
+    @Builder
+    @Getter
+    public static class Output implements io.kestra.core.models.tasks.Output {
+        @Schema(title = "Created volumes")
+        private List<ListVolumes.Volume> volumes;
+
+        @Schema(title = "Number of volumes skipped because they already existed")
+        private int skipped;
+
+        @Schema(title = "Volumes that could not be created")
+        private List<Failure> failures;
+    }
+
+    /**
+     * Definition of a volume to create.
+     */
+    @Builder
+    @Getter
+    @Jacksonized
+    public static class VolumeSpec {
+        @NotNull
+        @Schema(title = "Volume name")
+        private String name;
+
+        @NotNull
+        @Schema(title = "Capacity", description = "Size seen by the guest, such as `20GiB`; bytes when no unit is given.")
+        private String capacity;
+
+        @Schema(title = "Format", description = "Target format, such as `qcow2` or `raw`. Default `qcow2`.")
+        private String format;
+
+        @Schema(
+            title = "Preallocation",
+            description = "SPARSE allocates on write. METADATA (qcow2 only) allocates the qcow2 metadata. FALLOC (qcow2 only) makes qemu-img fallocate the whole image. FULL (raw only) allocates every block; libvirt uses fallocate where the filesystem supports it and writes zeros otherwise. Default SPARSE."
+        )
+        private Preallocation preallocation;
+
+        @Schema(title = "Cluster size", description = "qcow2 cluster size, a power of two between 512 bytes and 2 MiB such as `64KiB`. Needs libvirt 7.4 or later. Default the qemu-img default.")
+        private String clusterSize;
+
+        @Schema(title = "Storage pool", description = "Pool this volume is created in. Defaults to the task's storagePool.")
+        private String storagePool;
+    }
+
+    /**
+     * A volume that could not be created.
+     */
+    @Builder
+    @AllArgsConstructor
+    @Getter
+    public static class Failure {
+        @Schema(title = "Volume name")
+        private String name;
+
+        @Schema(title = "Error message")
+        private String error;
+    }
+}
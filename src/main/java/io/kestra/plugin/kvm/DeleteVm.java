@@ -1,25 +1,24 @@
 package io.kestra.plugin.kvm;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
-import org.libvirt.Connect;
-import org.libvirt.Domain;
 import org.libvirt.DomainInfo.DomainState;
 import org.libvirt.Error.ErrorNumber;
-import org.libvirt.LibvirtException;
-import org.libvirt.StoragePool;
-import org.libvirt.StorageVol;
 
 import io.kestra.core.models.annotations.Example;
 import io.kestra.core.models.annotations.Plugin;
+import io.kestra.core.models.executions.metrics.Counter;
 import io.kestra.core.models.property.Property;
 import io.kestra.core.models.tasks.RunnableTask;
 import io.kestra.core.runners.RunContext;
+import io.kestra.plugin.kvm.HypervisorClient.HypervisorDomain;
+import io.kestra.plugin.kvm.HypervisorClient.HypervisorPool;
 
 import io.swagger.v3.oas.annotations.media.Schema;
-import jakarta.validation.constraints.NotNull;
 import lombok.*;
 import lombok.experimental.SuperBuilder;
 import io.kestra.core.models.annotations.PluginProperty;
@@ -48,26 +47,68 @@ import io.kestra.core.models.annotations.PluginProperty;
                     deleteStorage: true
                     failIfNotFound: true
                 """
+        ),
+        @Example(
+            title = "Tear down every ephemeral CI VM of a host with its disks, 16 at a time.",
+            full = true,
+            code = """
+                id: kvm_ci_teardown
+                namespace: kvmtest.ssh
+
+                tasks:
+                  - id: delete_ci_vms
+                    type: io.kestra.plugin.kvm.DeleteVm
+                    uri: "qemu+ssh://root@167.99.104.163/system"
+                    names:
+                      - ci-*
+                    metadata:
+                      pipeline: nightly
+                    deleteStorage: true
+                    maxParallelism: 16
+                """
         )
     }
 )
 @Schema(
     title = "Delete or undefine KVM domain",
-    description = "Looks up a libvirt domain by name, stops it if running, and undefines it. Can also delete attached storage volumes parsed from the domain XML when deleteStorage is true (default false). Fails when the domain is missing unless failIfNotFound is set to false (default true)."
+    description = "Looks up a libvirt domain by name, stops it if running, and undefines it together with its managed save image and snapshot metadata. Can also delete attached storage volumes parsed from the domain XML when deleteStorage is true (default false). Fails when the domain is missing unless failIfNotFound is set to false (default true). With names, metadata or labelSelector, deletes every matching domain in parallel and reports the outcome of each domain and volume. Supports the REMOTE backend, except for deleteStorage."
 )
 public class DeleteVm extends AbstractKvmTask implements RunnableTask<DeleteVm.Output> {
+    private static final int UNDEFINE_MANAGED_SAVE = 1;
+    private static final int UNDEFINE_SNAPSHOTS_METADATA = 2;
+
     @Schema(
         title = "Domain name",
-        description = "Name of the libvirt domain to delete."
+        description = "Name of the libvirt domain to delete; combined with names."
     )
-    @NotNull
     @PluginProperty(group = "main")
     private Property<String> name;
 
+    @Schema(
+        title = "Domain names",
+        description = "Names or glob patterns (`*`, `?`) of the domains to delete. Setting names, metadata or labelSelector deletes the matching domains in parallel and reports failures per domain instead of stopping at the first one."
+    )
+    @PluginProperty(group = "main")
+    private Property<List<String>> names;
+
+    @Schema(
+        title = "Metadata selector",
+        description = "Only delete domains whose `<metadata>` element holds every given value, by element name without namespace prefix: `job: ci-1234` matches `<ci:job xmlns:ci='...'>ci-1234</ci:job>`. Without names or labelSelector, every domain of the host is considered."
+    )
+    @PluginProperty(group = "main")
+    private Property<Map<String, String>> metadata;
+
+    @Schema(
+        title = "Label selector",
+        description = "Only delete domains whose labels, set by CreateVm or UpdateVm, match every comma-separated requirement: `key=value`, `key!=value`, `key` (set) or `!key` (not set). Resolved from an index kept on the worker, so that only domains not seen before are described. Combined with names and metadata. A selector that renders blank is rejected rather than matching every domain."
+    )
+    @PluginProperty(group = "main")
+    private Property<String> labelSelector;
+
     @Builder.Default
     @Schema(
         title = "Delete storage volumes",
-        description = "If true, deletes volumes referenced in the domain XML by pool/name before undefine. Default false."
+        description = "If true, deletes volumes referenced in the domain XML by pool/name. Default false."
     )
     @PluginProperty(group = "destination")
     private Property<Boolean> deleteStorage = Property.ofValue(false);
@@ -75,83 +116,243 @@ public class DeleteVm extends AbstractKvmTask implements RunnableTask<DeleteVm.O
     @Builder.Default
     @Schema(
         title = "Fail if missing",
-        description = "If true, throws when the domain does not exist; if false, logs a warning and continues. Default true."
+        description = "If true, throws when a domain given by exact name does not exist; if false, logs a warning and continues. Default true."
     )
     @PluginProperty(group = "reliability")
     private Property<Boolean> failIfNotFound = Property.ofValue(true);
 
+    @Builder.Default
+    @Schema(
+        title = "Fail on error",
+        description = "If true, a bulk delete fails when any domain could not be deleted, after every domain has been processed. Volumes that could not be deleted are only reported. Default true."
+    )
+    @PluginProperty(group = "reliability")
+    private Property<Boolean> failOnError = Property.ofValue(true);
+
+    @Builder.Default
+    @Schema(
+        title = "Max parallelism",
+        description = "Maximum number of domains deleted concurrently in a bulk delete. Default 8."
+    )
+    @PluginProperty(group = "execution")
+    private Property<Integer> maxParallelism = Property.ofValue(8);
+
     @Override
     public Output run(RunContext runContext) throws Exception {
-        try (LibvirtConnection connection = getConnection(runContext)) {
-            Connect conn = connection.get();
-            String rName = runContext.render(this.name).as(String.class).orElseThrow();
-            List<String> deletedVolumes = new ArrayList<>();
-            boolean success = false;
+        String rName = runContext.render(this.name).as(String.class).orElse(null);
+        List<String> rNames = runContext.render(this.names).asList(String.class);
+        Map<String, String> rMetadata = runContext.render(this.metadata).asMap(String.class, String.class);
+        LabelSelector rLabelSelector = renderLabelSelector(runContext, this.labelSelector);
+        boolean rDeleteStorage = runContext.render(this.deleteStorage).as(Boolean.class).orElse(false);
+        boolean rFailIfNotFound = runContext.render(this.failIfNotFound).as(Boolean.class).orElse(true);
 
-            try {
-                Domain domain = conn.domainLookupByName(rName);
+        try (LibvirtConnection connection = getConnection(runContext)) {
+            HypervisorClient client = connection.client();
 
-                if (runContext.render(this.deleteStorage).as(Boolean.class).orElse(false)) {
-                    deletedVolumes = findAndDeleteVolumes(domain, conn, runContext);
+            if (rNames.isEmpty() && rMetadata.isEmpty() && rLabelSelector == null) {
+                if (rName == null) {
+                    throw new IllegalArgumentException("Either name, names, metadata or labelSelector must be set");
                 }
+                return deleteOne(runContext, client, rName, rDeleteStorage, rFailIfNotFound);
+            }
+
+            List<String> entries = new ArrayList<>(rNames);
+            if (rName != null) {
+                entries.add(rName);
+            }
+            return deleteMany(runContext, client, DomainSelector.of(entries), rMetadata, rLabelSelector, rDeleteStorage, rFailIfNotFound);
+        }
+    }
+
+    private Output deleteOne(RunContext runContext, HypervisorClient client, String rName, boolean rDeleteStorage, boolean rFailIfNotFound) throws Exception {
+        try {
+            DomainResult result = delete(client, client.domain(rName), rDeleteStorage, Map.of(), null);
+            invalidateDomain(runContext, rName);
+            logVolumes(runContext, result);
+            runContext.logger().info("VM {} deleted successfully.", rName);
+
+            return Output.builder()
+                .success(true)
+                .deletedVolumes(deletedVolumes(List.of(result)))
+                .domains(List.of(result))
+                .build();
+        } catch (HypervisorException e) {
+            if (e.getCode() == ErrorNumber.VIR_ERR_NO_DOMAIN && !rFailIfNotFound) {
+                runContext.logger().warn("VM {} not found. Skipping deletion.", rName);
+                return Output.builder()
+                    .success(false)
+                    .deletedVolumes(List.of())
+                    .domains(List.of())
+                    .build();
+            }
+            throw e;
+        }
+    }
+
+    private Output deleteMany(
+        RunContext runContext,
+        HypervisorClient client,
+        DomainSelector selector,
+        Map<String, String> rMetadata,
+        LabelSelector rLabelSelector,
+        boolean rDeleteStorage,
+        boolean rFailIfNotFound
+    ) throws Exception {
+        int rMaxParallelism = runContext.render(this.maxParallelism).as(Integer.class).orElse(8);
 
-                // A VM must be stopped before it can be undefined (deleted)
-                if (domain.getInfo().state != DomainState.VIR_DOMAIN_SHUTOFF) {
-                    domain.destroy();
+        boolean listed = selector.isEmpty() || !selector.isExact();
+        List<String> labelled = rLabelSelector == null ? null : selectByLabels(runContext, client, rLabelSelector, rMaxParallelism);
+        List<String> candidates = new ArrayList<>();
+        if (!listed) {
+            candidates.addAll(selector.names());
+        } else if (selector.isEmpty() && labelled != null) {
+            candidates.addAll(labelled);
+        } else {
+            for (String domainName : client.domainNames()) {
+                if (selector.isEmpty() || selector.matches(domainName)) {
+                    candidates.add(domainName);
                 }
+            }
+        }
+        if (labelled != null) {
+            candidates.retainAll(new HashSet<>(labelled));
+        }
 
-                domain.undefine();
-                runContext.logger().info("VM {} deleted successfully.", rName);
-                success = true;
-            } catch (LibvirtException e) {
-                if (
-                    e.getError().getCode() == ErrorNumber.VIR_ERR_NO_DOMAIN
-                        && !runContext.render(this.failIfNotFound).as(Boolean.class).orElse(true)
-                ) {
-                    runContext.logger().warn("VM {} not found. Skipping deletion.", rName);
-                } else {
-                    throw e;
+        List<DomainResult> results = new ArrayList<>();
+        int failed = 0;
+        for (KvmExecutors.Outcome<String, DomainResult> outcome : KvmExecutors.fanOut(
+            candidates,
+            rMaxParallelism,
+            candidate -> delete(client, client.domain(candidate), rDeleteStorage, rMetadata, rLabelSelector)
+        )) {
+            if (outcome.isSuccess()) {
+                if (outcome.value() != null) {
+                    invalidateDomain(runContext, outcome.item());
+                    logVolumes(runContext, outcome.value());
+                    results.add(outcome.value());
                 }
+            } else if (
+                LibvirtErrors.code(outcome.error()) == ErrorNumber.VIR_ERR_NO_DOMAIN
+                    && (listed || !rFailIfNotFound)
+            ) {
+                // Exact names may be missing; domains found by listing may have been deleted since.
+                runContext.logger().warn("VM {} not found. Skipping deletion.", outcome.item());
+            } else {
+                runContext.logger().error("Failed to delete VM {}: {}", outcome.item(), outcome.error().getMessage());
+                results.add(DomainResult.builder()
+                    .name(outcome.item())
+                    .deleted(false)
+                    .error(outcome.error().getMessage())
+                    .volumes(List.of())
+                    .build()
+                );
+                failed++;
             }
+        }
 
-            return Output.builder()
-                .success(success)
-                .deletedVolumes(deletedVolumes)
-                .build();
+        int deleted = results.size() - failed;
+        long failedVolumes = results.stream().flatMap(r -> r.getVolumes().stream()).filter(v -> !v.isDeleted()).count();
+        runContext.metric(Counter.of("domains.deleted", deleted));
+        runContext.metric(Counter.of("domains.failed", failed));
+        runContext.metric(Counter.of("volumes.failed", failedVolumes));
+        runContext.logger().info("Deleted {} VM(s), {} failed; {} volume(s) could not be deleted.", deleted, failed, failedVolumes);
+
+        if (failed > 0 && runContext.render(this.failOnError).as(Boolean.class).orElse(true)) {
+            throw new Exception("Failed to delete " + failed + " of " + results.size() + " VM(s)");
+        }
+
+        return Output.builder()
+            .success(failed == 0 && deleted > 0)
+            .deletedVolumes(deletedVolumes(results))
+            .domains(results)
+            .build();
+    }
+
+    /**
+     * Stops, undefines and optionally deletes the volumes of a domain, or returns null if its metadata or labels do not
+     * match. Labels are checked again on the live definition, since the domain may have been defined again under the
+     * same name since the labels were indexed. Volumes are deleted once the domain is undefined, so that a domain that
+     * could not be deleted keeps its disks.
+     */
+    private static DomainResult delete(
+        HypervisorClient client,
+        HypervisorDomain domain,
+        boolean deleteStorage,
+        Map<String, String> metadata,
+        LabelSelector labelSelector
+    ) throws Exception {
+        String xml = deleteStorage || !metadata.isEmpty() || labelSelector != null ? domain.xmlDesc(0) : null;
+        if (!metadata.isEmpty()) {
+            Map<String, String> values = LibvirtXmlParser.getMetadata(xml);
+            if (!metadata.entrySet().stream().allMatch(e -> Objects.equals(values.get(e.getKey()), e.getValue()))) {
+                return null;
+            }
+        }
+        if (labelSelector != null && !labelSelector.matches(DomainLabels.read(xml))) {
+            return null;
+        }
+
+        // A VM must be stopped before it can be undefined (deleted)
+        if (domain.state() != DomainState.VIR_DOMAIN_SHUTOFF) {
+            domain.destroy();
         }
+        domain.undefine(UNDEFINE_MANAGED_SAVE | UNDEFINE_SNAPSHOTS_METADATA);
+
+        return DomainResult.builder()
+            .name(domain.name())
+            .deleted(true)
+            .volumes(deleteStorage ? deleteVolumes(client, xml) : List.of())
+            .build();
     }
 
-    private List<String> findAndDeleteVolumes(Domain domain, Connect conn, RunContext runContext) throws Exception {
-        List<String> paths = new ArrayList<>();
-        Map<String, List<String>> poolToVolumes = LibvirtXmlParser.getVolumesGroupedByPool(domain);
+    private static List<VolumeResult> deleteVolumes(HypervisorClient client, String xml) throws Exception {
+        List<VolumeResult> results = new ArrayList<>();
+        Map<String, List<String>> poolToVolumes = LibvirtXmlParser.getVolumesGroupedByPool(xml);
 
         for (Map.Entry<String, List<String>> entry : poolToVolumes.entrySet()) {
             String poolName = entry.getKey();
             List<String> volumeNames = entry.getValue();
 
+            HypervisorPool pool;
             try {
                 // Lookup pool once per group
-                StoragePool pool = conn.storagePoolLookupByName(poolName);
-
+                pool = client.pool(poolName);
+            } catch (HypervisorException e) {
                 for (String volName : volumeNames) {
-                    try {
-                        StorageVol vol = pool.storageVolLookupByName(volName);
-                        vol.delete(0);
-                        paths.add(poolName + "/" + volName);
-                        runContext.logger().info("Successfully deleted volume {} from pool {}", volName, poolName);
-                    } catch (LibvirtException e) {
-                        runContext.logger().warn(
-                            "Failed to delete volume {} in pool {}: {}", volName, poolName,
-                            e.getMessage()
-                        );
-                    }
+                    results.add(new VolumeResult(poolName, volName, false, "Could not access pool: " + e.getMessage()));
                 }
-            } catch (LibvirtException e) {
-                runContext.logger().error("Could not access pool {}: {}", poolName, e.getMessage());
+                continue;
+            }
+
+            for (String volName : volumeNames) {
+                try {
+                    pool.deleteVolume(volName);
+                    results.add(new VolumeResult(poolName, volName, true, null));
+                } catch (HypervisorException e) {
+                    results.add(new VolumeResult(poolName, volName, false, e.getMessage()));
+                }
+            }
+        }
+
+        return results;
+    }
+
+    private static void logVolumes(RunContext runContext, DomainResult result) {
+        for (VolumeResult volume : result.getVolumes()) {
+            if (volume.isDeleted()) {
+                runContext.logger().info("Successfully deleted volume {} from pool {}", volume.getName(), volume.getPool());
+            } else {
+                runContext.logger().warn("Failed to delete volume {} in pool {}: {}", volume.getName(), volume.getPool(), volume.getError());
             }
         }
+    }
 
-        return paths;
+    private static List<String> deletedVolumes(List<DomainResult> results) {
+        return results.stream()
+            .flatMap(r -> r.getVolumes().stream())
+            .filter(VolumeResult::isDeleted)
+            .map(v -> v.getPool() + "/" + v.getName())
+            .toList();
     }
 
     /**
@@ -162,7 +363,7 @@ public class DeleteVm extends AbstractKvmTask implements RunnableTask<DeleteVm.O
     public static class Output implements io.kestra.core.models.tasks.Output {
         @Schema(
             title = "Delete succeeded",
-            description = "True when the domain was found and undefined; false when skipped."
+            description = "True when every selected domain was found and undefined; false when skipped or when a domain of a bulk delete failed."
         )
         private boolean success;
 
@@ -171,5 +372,50 @@ public class DeleteVm extends AbstractKvmTask implements RunnableTask<DeleteVm.O
             description = "Volume identifiers removed when deleteStorage is true."
         )
         private List<String> deletedVolumes;
+
+        @Schema(
+            title = "Domains",
+            description = "Outcome of every selected domain and of its volumes."
+        )
+        private List<DomainResult> domains;
+    }
+
+    /**
+     * Outcome of the deletion of one domain.
+     */
+    @Builder
+    @Getter
+    public static class DomainResult {
+        @Schema(title = "VM Name")
+        private String name;
+
+        @Schema(title = "Whether the domain was undefined")
+        private boolean deleted;
+
+        @Schema(title = "Error message")
+        private String error;
+
+        @Schema(title = "Volumes", description = "Outcome of every volume of the domain when deleteStorage is true.")
+        private List<VolumeResult> volumes;
+    }
+
+    /**
+     * Outcome of the deletion of one volume.
+     */
+    @Builder
+    @AllArgsConstructor
+    @Getter
+    public static class VolumeResult {
+        @Schema(title = "Storage pool")
+        private String pool;
+
+        @Schema(title = "Volume name")
+        private String name;
+
+        @Schema(title = "Whether the volume was deleted")
+        private boolean deleted;
+
+        @Schema(title = "Error message")
+        private String error;
     }
 }
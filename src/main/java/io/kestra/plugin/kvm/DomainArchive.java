@@ -0,0 +1,100 @@
+package io.kestra.plugin.kvm;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.kestra.core.serializers.JacksonMapper;
+
+/**
+ * Gzip-compressed JSON lines archive of domain definitions, written by {@link ExportVms} and read by {@link ImportVms}.
+ *
+ * <p>
+ * Each line holds one domain, so both sides stream the archive and only keep the current batch in memory,
+ * whatever the number of domains on the host.
+ */
+final class DomainArchive {
+    private static final ObjectMapper MAPPER = JacksonMapper.ofJson();
+
+    private DomainArchive() {
+    }
+
+    /**
+     * One archived domain.
+     *
+     * @param name The domain name.
+     * @param uuid The domain UUID.
+     * @param autostart Whether the domain starts with the host.
+     * @param xml The persistent (inactive) definition, including secure fields.
+     * @param snapshots The snapshot definitions, parents before children.
+     * @param currentSnapshot The name of the current snapshot, or null.
+     */
+    record Entry(String name, String uuid, boolean autostart, String xml, List<Snapshot> snapshots, String currentSnapshot) {
+    }
+
+    /**
+     * One archived snapshot definition.
+     */
+    record Snapshot(String name, String xml) {
+    }
+
+    static final class Writer implements Closeable {
+        private final BufferedWriter writer;
+
+        Writer(OutputStream output) throws IOException {
+            this.writer = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(output), StandardCharsets.UTF_8));
+        }
+
+        void write(Entry entry) throws IOException {
+            writer.write(MAPPER.writeValueAsString(entry));
+            writer.newLine();
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.close();
+        }
+    }
+
+    static final class Reader implements Closeable {
+        private final BufferedReader reader;
+
+        Reader(InputStream input) throws IOException {
+            this.reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(input), StandardCharsets.UTF_8));
+        }
+
+        /**
+         * Reads the next entries of the archive.
+         *
+         * @param max The maximum number of entries to read.
+         * @return Up to max entries; empty once the archive is exhausted.
+         */
+        List<Entry> next(int max) throws IOException {
+            List<Entry> entries = new ArrayList<>(max);
+            String line;
+            while (entries.size() < max && (line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    entries.add(MAPPER.readValue(line, Entry.class));
+                }
+            }
+            return entries;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+}
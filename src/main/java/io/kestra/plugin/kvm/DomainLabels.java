@@ -0,0 +1,135 @@
+package io.kestra.plugin.kvm;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+/**
+ * Key/value labels of a domain, stored in its {@code <metadata>} element under the plugin namespace:
+ *
+ * <pre>{@code
+ * <metadata>
+ *   <kestra:labels xmlns:kestra="https://kestra.io/plugin-kvm/labels">
+ *     <kestra:label key="team">ci</kestra:label>
+ *   </kestra:labels>
+ * </metadata>
+ * }</pre>
+ *
+ * <p>
+ * libvirt keeps one metadata element per namespace and returns it unchanged, so labels survive redefinition and
+ * migration. Keys and values follow the Kubernetes label syntax, which keeps selectors such as
+ * {@code team=ci,pool!=gpu} unambiguous.
+ */
+final class DomainLabels {
+    static final String NAMESPACE = "https://kestra.io/plugin-kvm/labels";
+
+    private static final String PREFIX = "kestra";
+
+    private static final Pattern KEY = Pattern.compile("([a-z0-9]([-a-z0-9.]*[a-z0-9])?/)?[A-Za-z0-9]([-A-Za-z0-9_.]{0,61}[A-Za-z0-9])?");
+
+    private static final Pattern VALUE = Pattern.compile("([A-Za-z0-9]([-A-Za-z0-9_.]{0,61}[A-Za-z0-9])?)?");
+
+    private DomainLabels() {
+    }
+
+    /**
+     * Reads the labels of a domain XML description.
+     *
+     * @return The labels, empty when the domain has none.
+     */
+    static Map<String, String> read(String xml) throws Exception {
+        Element metadata = LibvirtXmlParser.firstChild(LibvirtXmlParser.parse(xml).getDocumentElement(), "metadata");
+        Element labels = metadata == null ? null : find(metadata);
+        return labels == null ? new LinkedHashMap<>() : read(labels);
+    }
+
+    /**
+     * Replaces the labels of a definition.
+     *
+     * @throws IllegalArgumentException If a key or value is not a valid label.
+     */
+    static void write(DomainXmlEditor editor, Map<String, String> labels) {
+        labels.forEach(DomainLabels::validate);
+
+        Element metadata = editor.child(editor.root(), "metadata");
+        Element existing = find(metadata);
+        if (existing != null) {
+            if (read(existing).equals(labels)) {
+                return;
+            }
+            editor.remove(existing);
+        }
+        if (labels.isEmpty()) {
+            return;
+        }
+
+        Element element = editor.document().createElement(PREFIX + ":labels");
+        metadata.appendChild(element);
+        editor.attribute(element, "xmlns:" + PREFIX, NAMESPACE);
+        labels.forEach((key, value) -> {
+            Element label = editor.document().createElement(PREFIX + ":label");
+            element.appendChild(label);
+            editor.attribute(label, "key", key);
+            editor.text(label, value);
+        });
+    }
+
+    /**
+     * Returns whether a definition already holds a labels element.
+     */
+    static boolean isPresent(DomainXmlEditor editor) {
+        Element metadata = LibvirtXmlParser.firstChild(editor.root(), "metadata");
+        return metadata != null && find(metadata) != null;
+    }
+
+    static void validate(String key, String value) {
+        if (key == null || !KEY.matcher(key).matches()) {
+            throw new IllegalArgumentException("Invalid label key '" + key + "': expected an optional DNS prefix and '/', then up to 63 letters, digits, '-', '_' or '.'");
+        }
+        if (value == null || !VALUE.matcher(value).matches()) {
+            throw new IllegalArgumentException("Invalid value '" + value + "' for label '" + key + "': expected up to 63 letters, digits, '-', '_' or '.'");
+        }
+    }
+
+    private static Map<String, String> read(Element labels) {
+        Map<String, String> values = new LinkedHashMap<>();
+        for (Node child = labels.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child instanceof Element label && "label".equals(localName(label))) {
+                values.put(label.getAttribute("key"), label.getTextContent().trim());
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Finds the labels element of a metadata element by namespace, whatever prefix libvirt or the template used.
+     */
+    private static Element find(Element metadata) {
+        for (Node child = metadata.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child instanceof Element element && "labels".equals(localName(element)) && declaresNamespace(element)) {
+                return element;
+            }
+        }
+        return null;
+    }
+
+    private static boolean declaresNamespace(Element element) {
+        NamedNodeMap attributes = element.getAttributes();
+        for (int i = 0; i < attributes.getLength(); i++) {
+            Node attribute = attributes.item(i);
+            if (attribute.getNodeName().startsWith("xmlns") && NAMESPACE.equals(attribute.getNodeValue())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String localName(Element element) {
+        String tagName = element.getTagName();
+        return tagName.substring(tagName.indexOf(':') + 1);
+    }
+}
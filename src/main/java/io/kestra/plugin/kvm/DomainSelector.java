@@ -0,0 +1,74 @@
+package io.kestra.plugin.kvm;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Selects domains by name, where each entry is an exact name or a glob using {@code *} and {@code ?}.
+ *
+ * <p>
+ * A single {@code *} entry selects every domain of the host.
+ */
+final class DomainSelector {
+    private final List<String> names;
+
+    private final List<Pattern> patterns;
+
+    private DomainSelector(List<String> names, List<Pattern> patterns) {
+        this.names = names;
+        this.patterns = patterns;
+    }
+
+    static DomainSelector of(List<String> entries) {
+        List<String> names = new ArrayList<>();
+        List<Pattern> patterns = new ArrayList<>();
+        for (String entry : entries) {
+            if (entry.contains("*") || entry.contains("?")) {
+                patterns.add(toPattern(entry));
+            } else {
+                names.add(entry);
+            }
+        }
+        return new DomainSelector(List.copyOf(names), List.copyOf(patterns));
+    }
+
+    boolean isEmpty() {
+        return names.isEmpty() && patterns.isEmpty();
+    }
+
+    /**
+     * Returns whether the selector only lists exact names, so domains can be looked up directly instead of listed.
+     */
+    boolean isExact() {
+        return patterns.isEmpty();
+    }
+
+    List<String> names() {
+        return names;
+    }
+
+    boolean matches(String name) {
+        return names.contains(name) || patterns.stream().anyMatch(p -> p.matcher(name).matches());
+    }
+
+    private static Pattern toPattern(String glob) {
+        StringBuilder regex = new StringBuilder();
+        StringBuilder literal = new StringBuilder();
+        for (char c : glob.toCharArray()) {
+            if (c == '*' || c == '?') {
+                if (!literal.isEmpty()) {
+                    regex.append(Pattern.quote(literal.toString()));
+                    literal.setLength(0);
+                }
+                regex.append(c == '*' ? ".*" : ".");
+            } else {
+                literal.append(c);
+            }
+        }
+        if (!literal.isEmpty()) {
+            regex.append(Pattern.quote(literal.toString()));
+        }
+        return Pattern.compile(regex.toString());
+    }
+}
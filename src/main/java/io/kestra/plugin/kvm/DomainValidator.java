@@ -0,0 +1,327 @@
+package io.kestra.plugin.kvm;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.libvirt.Connect;
+import org.slf4j.Logger;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * Checks a rendered domain definition against the capabilities of the host before it is defined, and fills in the
+ * values the host would default.
+ *
+ * <p>
+ * The QEMU driver only reports an unknown machine type, CPU model or device model once the definition has travelled
+ * to the host, and some of them only when the domain starts. The checks here reproduce those against the cached
+ * {@link HostCapabilities}, so a typo fails in milliseconds with every problem listed at once. Only the values the
+ * definition sets are checked, and only against capabilities the host reports; anything else is left to libvirt.
+ * A CPU model the host reports as not usable is only a warning: libvirt's own check may still accept it, for
+ * example when the missing features are disabled in the definition. Other drivers accept definitions the QEMU rules would refuse, so they are not validated.
+ */
+final class DomainValidator {
+    private static final int MAX_LISTED = 20;
+
+    private static final List<DeviceRule> DEVICE_RULES = List.of(
+        new DeviceRule("disk", null, "device", "disk", "diskDevice"),
+        new DeviceRule("disk", "target", "bus", "disk", "bus"),
+        new DeviceRule("graphics", null, "type", "graphics", "type"),
+        new DeviceRule("video", "model", "type", "video", "modelType"),
+        new DeviceRule("hostdev", null, "mode", "hostdev", "mode"),
+        new DeviceRule("rng", null, "model", "rng", "model"),
+        new DeviceRule("rng", "backend", "model", "rng", "backendModel"),
+        new DeviceRule("tpm", null, "model", "tpm", "model"),
+        new DeviceRule("filesystem", "driver", "type", "filesystem", "driverType"),
+        new DeviceRule("redirdev", null, "bus", "redirdev", "bus")
+    );
+
+    private DomainValidator() {
+    }
+
+    /**
+     * Validates and completes a definition against the cached capabilities of the host of a connection.
+     *
+     * @return The values filled in from the host, as {@link DomainXmlEditor} changes.
+     * @throws IllegalArgumentException If the host does not support the definition.
+     */
+    static List<String> apply(Logger logger, Connect conn, Duration ttl, DomainXmlEditor editor) throws Exception {
+        HostCapabilities capabilities = HostCapabilities.get(conn, ttl);
+        if (!"QEMU".equals(capabilities.driver())) {
+            logger.debug("Skipping definition validation on {} driver.", capabilities.driver());
+            return List.of();
+        }
+
+        List<String> warnings = new ArrayList<>();
+        List<String> changes = validate(
+            editor,
+            capabilities.xml(),
+            (emulator, arch, machine, virtType) -> capabilities.domainCapabilities(conn, emulator, arch, machine, virtType),
+            warnings
+        );
+        warnings.forEach(warning -> logger.warn("Domain definition may not run on the host: {}", warning));
+        return changes;
+    }
+
+    /**
+     * Validates and completes a definition against capabilities XML.
+     *
+     * @param editor The definition, completed in place.
+     * @param capabilities The host capabilities XML.
+     * @param lookup Source of the domain capabilities for the guest.
+     * @param warnings Receives the problems libvirt may still accept, such as a CPU model the host reports as not
+     * usable.
+     * @return The values filled in from the host, as {@link DomainXmlEditor} changes.
+     * @throws IllegalArgumentException If the host does not support the definition.
+     */
+    static List<String> validate(DomainXmlEditor editor, String capabilities, DomainCapabilitiesLookup lookup, List<String> warnings) throws Exception {
+        int before = editor.changes().size();
+        List<String> problems = new ArrayList<>();
+        Document caps = LibvirtXmlParser.parse(capabilities);
+        Element root = editor.root();
+
+        String virtType = root.getAttribute("type");
+        Element os = LibvirtXmlParser.firstChild(root, "os");
+        Element type = os == null ? null : LibvirtXmlParser.firstChild(os, "type");
+        if (virtType.isEmpty()) {
+            problems.add("/domain/@type: missing");
+        }
+        if (type == null) {
+            problems.add("/domain/os/type: missing");
+        }
+        if (!problems.isEmpty()) {
+            throw unsupported(problems);
+        }
+
+        // Guest architectures the host runs for this OS type
+        String osType = type.getTextContent().trim();
+        Map<String, Element> arches = new LinkedHashMap<>();
+        for (Element guest : editor.children(caps.getDocumentElement(), "guest")) {
+            Element guestOsType = LibvirtXmlParser.firstChild(guest, "os_type");
+            if (guestOsType != null && guestOsType.getTextContent().trim().equals(osType)) {
+                for (Element arch : editor.children(guest, "arch")) {
+                    arches.putIfAbsent(arch.getAttribute("name"), arch);
+                }
+            }
+        }
+        if (arches.isEmpty()) {
+            throw unsupported(List.of("/domain/os/type: OS type '" + osType + "' is not supported by the host"));
+        }
+
+        String arch = type.getAttribute("arch");
+        if (arch.isEmpty()) {
+            String hostArch = LibvirtXmlParser.xpath().evaluate("/capabilities/host/cpu/arch", caps);
+            arch = arches.containsKey(hostArch) ? hostArch : arches.keySet().iterator().next();
+            editor.attribute(type, "arch", arch);
+        } else if (!arches.containsKey(arch)) {
+            throw unsupported(List.of("/domain/os/type/@arch: '" + arch + "' is not supported by the host (supported: " + list(arches.keySet()) + ")"));
+        }
+
+        Element archCaps = arches.get(arch);
+        Element domainCaps = find(editor.children(archCaps, "domain"), "type", virtType);
+        if (domainCaps == null) {
+            Set<String> types = new LinkedHashSet<>();
+            editor.children(archCaps, "domain").forEach(d -> types.add(d.getAttribute("type")));
+            throw unsupported(List.of("/domain/@type: '" + virtType + "' is not supported for " + arch + " guests (supported: " + list(types) + ")"));
+        }
+
+        // Machine types of the domain type override those of the architecture
+        List<Element> machines = editor.children(domainCaps, "machine");
+        if (machines.isEmpty()) {
+            machines = editor.children(archCaps, "machine");
+        }
+        String machine = type.getAttribute("machine");
+        String capsMachine = machine.isEmpty() ? null : machine;
+        if (!machines.isEmpty()) {
+            if (machine.isEmpty()) {
+                machine = machines.get(0).getTextContent().trim();
+                capsMachine = machine;
+                editor.attribute(type, "machine", machine);
+            } else {
+                Set<String> names = new LinkedHashSet<>();
+                machines.forEach(m -> names.add(m.getTextContent().trim()));
+                if (!names.contains(machine)) {
+                    problems.add("/domain/os/type/@machine: '" + machine + "' is not supported for " + arch + " guests (supported: " + list(names) + ")");
+                    // Check the rest against the default machine, so every problem is still listed
+                    capsMachine = null;
+                }
+            }
+        }
+
+        String defaultEmulator = text(LibvirtXmlParser.firstChild(domainCaps, "emulator"));
+        if (defaultEmulator == null) {
+            defaultEmulator = text(LibvirtXmlParser.firstChild(archCaps, "emulator"));
+        }
+        Element devices = LibvirtXmlParser.firstChild(root, "devices");
+        String emulator = text(devices == null ? null : LibvirtXmlParser.firstChild(devices, "emulator"));
+        boolean knownEmulator = true;
+        if (emulator == null) {
+            if (defaultEmulator != null) {
+                editor.prepend(editor.child(root, "devices"), "emulator", defaultEmulator);
+            }
+            emulator = defaultEmulator;
+        } else {
+            knownEmulator = false;
+            NodeList emulators = caps.getElementsByTagName("emulator");
+            for (int i = 0; i < emulators.getLength() && !knownEmulator; i++) {
+                knownEmulator = emulator.equals(emulators.item(i).getTextContent().trim());
+            }
+        }
+
+        HostCapabilities.DomainCapabilities domCaps = lookup.get(emulator, arch, capsMachine, virtType);
+        if (domCaps.error() == null) {
+            validateDomainCapabilities(editor, LibvirtXmlParser.parse(domCaps.xml()).getDocumentElement(), problems, warnings);
+        } else if (!knownEmulator) {
+            problems.add("/domain/devices/emulator: '" + emulator + "' is not usable on the host: " + domCaps.error());
+        }
+
+        if (!problems.isEmpty()) {
+            throw unsupported(problems);
+        }
+        return List.copyOf(editor.changes().subList(before, editor.changes().size()));
+    }
+
+    private static void validateDomainCapabilities(DomainXmlEditor editor, Element domCaps, List<String> problems, List<String> warnings) {
+        Element root = editor.root();
+
+        Element os = LibvirtXmlParser.firstChild(root, "os");
+        if (os != null && os.hasAttribute("firmware")) {
+            Set<String> firmwares = values(LibvirtXmlParser.firstChild(domCaps, "os"), "firmware");
+            if (firmwares != null && !firmwares.contains(os.getAttribute("firmware"))) {
+                problems.add("/domain/os/@firmware: '" + os.getAttribute("firmware") + "' is not supported (supported: " + list(firmwares) + ")");
+            }
+        }
+
+        Element cpu = LibvirtXmlParser.firstChild(root, "cpu");
+        Element cpuCaps = LibvirtXmlParser.firstChild(domCaps, "cpu");
+        if (cpu != null && cpuCaps != null) {
+            Element model = LibvirtXmlParser.firstChild(cpu, "model");
+            String modelName = text(model);
+            String mode = cpu.hasAttribute("mode") ? cpu.getAttribute("mode") : modelName != null ? "custom" : null;
+
+            Element modeCaps = mode == null ? null : find(editor.children(cpuCaps, "mode"), "name", mode);
+            if (modeCaps != null && "no".equals(modeCaps.getAttribute("supported"))) {
+                problems.add("/domain/cpu/@mode: '" + mode + "' is not supported by the host");
+            } else if ("custom".equals(mode) && modelName != null && modeCaps != null) {
+                List<Element> models = editor.children(modeCaps, "model");
+                Element known = models.stream().filter(m -> modelName.equals(text(m))).findFirst().orElse(null);
+                if (!models.isEmpty() && known == null) {
+                    Set<String> names = new LinkedHashSet<>();
+                    models.forEach(m -> names.add(text(m)));
+                    problems.add("/domain/cpu/model: '" + modelName + "' is unknown to the host (supported: " + list(names) + ")");
+                } else if (known != null && "no".equals(known.getAttribute("usable")) && !"none".equals(cpu.getAttribute("check"))) {
+                    warnings.add("/domain/cpu/model: '" + modelName + "' is reported as not usable on the host CPU");
+                }
+            }
+        }
+
+        Element devices = LibvirtXmlParser.firstChild(root, "devices");
+        Element devicesCaps = LibvirtXmlParser.firstChild(domCaps, "devices");
+        if (devices == null || devicesCaps == null) {
+            return;
+        }
+
+        Set<String> unsupported = new LinkedHashSet<>();
+        for (DeviceRule rule : DEVICE_RULES) {
+            Element capability = LibvirtXmlParser.firstChild(devicesCaps, rule.capability());
+            if (capability == null) {
+                continue;
+            }
+
+            List<Element> elements = editor.children(devices, rule.element());
+            if (!elements.isEmpty() && "no".equals(capability.getAttribute("supported"))) {
+                if (unsupported.add(rule.element())) {
+                    problems.add("/domain/devices/" + rule.element() + ": " + rule.element() + " devices are not supported by the host");
+                }
+                continue;
+            }
+
+            Set<String> allowed = values(capability, rule.enumName());
+            if (allowed == null) {
+                continue;
+            }
+            for (int i = 0; i < elements.size(); i++) {
+                Element target = rule.child() == null ? elements.get(i) : LibvirtXmlParser.firstChild(elements.get(i), rule.child());
+                if (target == null || !target.hasAttribute(rule.attribute()) || allowed.contains(target.getAttribute(rule.attribute()))) {
+                    continue;
+                }
+                problems.add(
+                    "/domain/devices/" + rule.element() + (elements.size() > 1 ? "[" + (i + 1) + "]" : "")
+                        + (rule.child() == null ? "" : "/" + rule.child()) + "/@" + rule.attribute()
+                        + ": '" + target.getAttribute(rule.attribute()) + "' is not supported (supported: " + list(allowed) + ")"
+                );
+            }
+        }
+    }
+
+    /**
+     * Returns the values of a named {@code <enum>} of a capability element, or null when the host does not list it.
+     */
+    private static Set<String> values(Element capability, String name) {
+        if (capability == null) {
+            return null;
+        }
+        for (Node child = capability.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child instanceof Element element && "enum".equals(element.getTagName()) && name.equals(element.getAttribute("name"))) {
+                Set<String> values = new LinkedHashSet<>();
+                for (Node value = element.getFirstChild(); value != null; value = value.getNextSibling()) {
+                    if (value instanceof Element v && "value".equals(v.getTagName())) {
+                        values.add(v.getTextContent().trim());
+                    }
+                }
+                return values;
+            }
+        }
+        return null;
+    }
+
+    private static Element find(List<Element> elements, String attribute, String value) {
+        return elements.stream().filter(e -> value.equals(e.getAttribute(attribute))).findFirst().orElse(null);
+    }
+
+    private static String text(Element element) {
+        if (element == null) {
+            return null;
+        }
+        String text = element.getTextContent().trim();
+        return text.isEmpty() ? null : text;
+    }
+
+    private static String list(Set<String> values) {
+        if (values.size() <= MAX_LISTED) {
+            return String.join(", ", values);
+        }
+        return String.join(", ", values.stream().limit(MAX_LISTED).toList()) + ", ... " + (values.size() - MAX_LISTED) + " more";
+    }
+
+    private static IllegalArgumentException unsupported(List<String> problems) {
+        return new IllegalArgumentException("Domain definition is not supported by the host:\n- " + String.join("\n- ", problems));
+    }
+
+    /**
+     * Source of the domain capabilities of a guest configuration.
+     */
+    @FunctionalInterface
+    interface DomainCapabilitiesLookup {
+        HostCapabilities.DomainCapabilities get(String emulator, String arch, String machine, String virtType) throws Exception;
+    }
+
+    /**
+     * An attribute of a device element checked against an {@code <enum>} of the domain capabilities.
+     *
+     * @param element The device element under {@code <devices>}.
+     * @param child The child element holding the attribute, or null for the device element itself.
+     * @param attribute The checked attribute.
+     * @param capability The element under {@code /domainCapabilities/devices}.
+     * @param enumName The name of the enum listing the supported values.
+     */
+    private record DeviceRule(String element, String child, String attribute, String capability, String enumName) {
+    }
+}
@@ -0,0 +1,144 @@
+package io.kestra.plugin.kvm;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * DOM-based editor for domain definitions that records every change it makes.
+ *
+ * <p>
+ * Changes are described as {@code <path>: <change>} strings, where the path is an XPath-like location such as
+ * {@code /domain/devices/disk[2]/driver/@cache}, so tasks can report exactly how a rendered definition was rewritten.
+ */
+class DomainXmlEditor {
+    private final Document document;
+
+    private final List<String> changes = new ArrayList<>();
+
+    DomainXmlEditor(Document document) {
+        this.document = document;
+    }
+
+    static DomainXmlEditor of(String xml) throws Exception {
+        return new DomainXmlEditor(LibvirtXmlParser.parse(xml));
+    }
+
+    Document document() {
+        return document;
+    }
+
+    Element root() {
+        return document.getDocumentElement();
+    }
+
+    List<String> changes() {
+        return changes;
+    }
+
+    String toXml() throws Exception {
+        return LibvirtXmlParser.toXml(document);
+    }
+
+    /**
+     * Returns the existing child element with that name, or creates and appends it.
+     */
+    Element child(Element parent, String name) {
+        Element existing = LibvirtXmlParser.firstChild(parent, name);
+        if (existing != null) {
+            return existing;
+        }
+
+        Element created = document.createElement(name);
+        parent.appendChild(created);
+        changes.add(path(created) + ": added");
+        return created;
+    }
+
+    /**
+     * Returns all direct child elements with that name.
+     */
+    List<Element> children(Element parent, String name) {
+        List<Element> elements = new ArrayList<>();
+        for (Node child = parent.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child instanceof Element element && name.equals(element.getTagName())) {
+                elements.add(element);
+            }
+        }
+        return elements;
+    }
+
+    /**
+     * Inserts a new child element before the first existing child, e.g. to keep {@code <uuid>} next to {@code <name>}.
+     */
+    Element prepend(Element parent, String name, String text) {
+        Element created = document.createElement(name);
+        created.setTextContent(text);
+        parent.insertBefore(created, parent.getFirstChild());
+        changes.add(path(created) + ": added '" + text + "'");
+        return created;
+    }
+
+    void attribute(Element element, String name, String value) {
+        String previous = element.hasAttribute(name) ? element.getAttribute(name) : null;
+        if (Objects.equals(previous, value)) {
+            return;
+        }
+
+        element.setAttribute(name, value);
+        changes.add(path(element) + "/@" + name + ": " + (previous == null ? "set '" + value + "'" : "'" + previous + "' -> '" + value + "'"));
+    }
+
+    void text(Element element, String value) {
+        String previous = element.getTextContent().trim();
+        if (previous.equals(value)) {
+            return;
+        }
+
+        element.setTextContent(value);
+        changes.add(path(element) + ": " + (previous.isEmpty() ? "set '" + value + "'" : "'" + previous + "' -> '" + value + "'"));
+    }
+
+    void remove(Element element) {
+        changes.add(path(element) + ": removed");
+        element.getParentNode().removeChild(element);
+    }
+
+    /**
+     * Records that an element was deliberately left as it is, so the report explains why a setting is missing.
+     */
+    void skip(Element element, String reason) {
+        changes.add(path(element) + ": skipped (" + reason + ")");
+    }
+
+    private static String path(Element element) {
+        StringBuilder path = new StringBuilder();
+        for (Node node = element; node instanceof Element current; node = node.getParentNode()) {
+            String segment = "/" + current.getTagName();
+
+            Node parent = current.getParentNode();
+            if (parent instanceof Element) {
+                int index = 0;
+                int count = 0;
+                for (Node sibling = parent.getFirstChild(); sibling != null; sibling = sibling.getNextSibling()) {
+                    if (sibling instanceof Element e && e.getTagName().equals(current.getTagName())) {
+                        count++;
+                        if (sibling == current) {
+                            index = count;
+                        }
+                    }
+                }
+                if (count > 1) {
+                    segment += "[" + index + "]";
+                }
+            }
+
+            path.insert(0, segment);
+        }
+        return path.toString();
+    }
+}
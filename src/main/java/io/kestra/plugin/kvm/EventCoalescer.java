@@ -0,0 +1,104 @@
+package io.kestra.plugin.kvm;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Collects the events of a trigger over a window so that bursts of state changes produce a single execution.
+ *
+ * <p>
+ * Events are deduplicated by domain: each domain keeps the ordered list of distinct states it went through, starting
+ * with the state it was in before the first change of the batch. Batches are kept per trigger in the memory of the
+ * JVM evaluating it and are not persisted: a batch still open when that JVM stops is lost, while the last seen states
+ * in the trigger state already include its changes, so they are not reported again.
+ */
+final class EventCoalescer {
+    private static final Map<String, EventCoalescer> BATCHES = new ConcurrentHashMap<>();
+
+    private final Map<String, List<String>> histories = new LinkedHashMap<>();
+
+    private Instant openedAt;
+
+    private EventCoalescer() {
+    }
+
+    static EventCoalescer of(String triggerUid) {
+        return BATCHES.computeIfAbsent(triggerUid, k -> new EventCoalescer());
+    }
+
+    /**
+     * Drops the pending batch of a trigger that stopped evaluating, once {@link HostWatcher} lets its lease expire.
+     */
+    static void forget(String triggerUid) {
+        BATCHES.remove(triggerUid);
+    }
+
+    /**
+     * Returns when the pending batch of a trigger is due, if it has one.
+     */
+    static Optional<Instant> deadline(String triggerUid, Duration window) {
+        EventCoalescer coalescer = BATCHES.get(triggerUid);
+        if (coalescer == null) {
+            return Optional.empty();
+        }
+
+        synchronized (coalescer) {
+            return Optional.ofNullable(coalescer.openedAt).map(opened -> opened.plus(window));
+        }
+    }
+
+    synchronized void add(List<VmEventTrigger.Event> events) {
+        for (VmEventTrigger.Event event : events) {
+            List<String> history = histories.computeIfAbsent(event.getName(), k -> {
+                List<String> states = new ArrayList<>();
+                if (event.getPreviousState() != null) {
+                    states.add(event.getPreviousState());
+                }
+                return states;
+            });
+            // In EVERY_POLL mode a domain is reported on each poll; only actual changes belong in its history.
+            if (history.isEmpty() || !history.get(history.size() - 1).equals(event.getState())) {
+                history.add(event.getState());
+            }
+        }
+
+        if (openedAt == null && !histories.isEmpty()) {
+            openedAt = Instant.now();
+        }
+    }
+
+    /**
+     * Returns the coalesced events and starts a new batch if the window has elapsed or the batch is full.
+     *
+     * @param window How long a batch stays open after its first event.
+     * @param maxBatchSize The number of distinct domains that closes a batch early.
+     * @return One event per domain, or empty if the batch is not due yet.
+     */
+    synchronized List<VmEventTrigger.Event> drainIfDue(Duration window, int maxBatchSize) {
+        if (openedAt == null) {
+            return List.of();
+        }
+
+        if (histories.size() < maxBatchSize && Instant.now().isBefore(openedAt.plus(window))) {
+            return List.of();
+        }
+
+        List<VmEventTrigger.Event> events = histories.entrySet().stream()
+            .map(e -> {
+                List<String> history = e.getValue();
+                String previous = history.size() > 1 ? history.get(0) : null;
+                return new VmEventTrigger.Event(e.getKey(), previous, history.get(history.size() - 1), List.copyOf(history));
+            })
+            .toList();
+
+        histories.clear();
+        openedAt = null;
+        return events;
+    }
+}
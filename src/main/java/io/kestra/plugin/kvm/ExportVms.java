@@ -0,0 +1,168 @@
+package io.kestra.plugin.kvm;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.libvirt.Connect;
+import org.libvirt.Domain;
+import org.libvirt.Error.ErrorNumber;
+import org.w3c.dom.Element;
+
+import io.kestra.core.models.annotations.Example;
+import io.kestra.core.models.annotations.Plugin;
+import io.kestra.core.models.annotations.PluginProperty;
+import io.kestra.core.models.executions.metrics.Counter;
+import io.kestra.core.models.property.Property;
+import io.kestra.core.models.tasks.RunnableTask;
+import io.kestra.core.runners.RunContext;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+import lombok.experimental.SuperBuilder;
+
+/**
+ * Task to export the definitions of all KVM Virtual Machines of a host.
+ */
+@SuperBuilder
+@NoArgsConstructor
+@Getter
+@EqualsAndHashCode
+@ToString
+@Plugin(
+    examples = {
+        @Example(
+            title = "Nightly backup of every VM definition of a host.",
+            full = true,
+            code = """
+                id: kvm_definitions_backup
+                namespace: kvmtest.ssh
+
+                tasks:
+                  - id: export_vms
+                    type: io.kestra.plugin.kvm.ExportVms
+                    uri: qemu+ssh://root@167.99.104.163/system
+
+                triggers:
+                  - id: nightly
+                    type: io.kestra.plugin.core.trigger.Schedule
+                    cron: "0 2 * * *"
+                """
+        )
+    }
+)
+@Schema(
+    title = "Export VM definitions",
+    description = "Streams the persistent XML definition, autostart flag and snapshot definitions of every domain of the host into a single gzip-compressed JSON lines archive in internal storage, to be restored with ImportVms. Domains are read in parallel batches, so memory use does not grow with the number of domains; a domain undefined while the export runs is skipped with a warning. The archive contains secure fields such as VNC passwords."
+)
+public class ExportVms extends AbstractKvmTask implements RunnableTask<ExportVms.Output> {
+    private static final int DOMAIN_XML_SECURE = 1;
+    private static final int DOMAIN_XML_INACTIVE = 2;
+    private static final int SNAPSHOT_LIST_TOPOLOGICAL = 256;
+
+    @Builder.Default
+    @Schema(
+        title = "Max parallelism",
+        description = "Maximum number of domains read concurrently. Default 8."
+    )
+    @PluginProperty(group = "execution")
+    private Property<Integer> maxParallelism = Property.ofValue(8);
+
+    @Builder.Default
+    @Schema(
+        title = "Include snapshots",
+        description = "If true, the definitions of every snapshot are archived with their domain. Default true."
+    )
+    @PluginProperty(group = "processing")
+    private Property<Boolean> includeSnapshots = Property.ofValue(true);
+
+    @Override
+    public Output run(RunContext runContext) throws Exception {
+        int rMaxParallelism = runContext.render(this.maxParallelism).as(Integer.class).orElse(8);
+        boolean rIncludeSnapshots = runContext.render(this.includeSnapshots).as(Boolean.class).orElse(true);
+        int batchSize = Math.max(1, rMaxParallelism) * 4;
+
+        File archive = runContext.workingDir().createTempFile(".jsonl.gz").toFile();
+        int count = 0;
+        int snapshots = 0;
+
+        try (LibvirtConnection connection = getConnection(runContext);
+             OutputStream output = new BufferedOutputStream(Files.newOutputStream(archive.toPath()));
+             DomainArchive.Writer writer = new DomainArchive.Writer(output)) {
+            Connect conn = connection.get();
+            List<Domain> domains = Arrays.asList(conn.listAllDomains(0));
+
+            for (int from = 0; from < domains.size(); from += batchSize) {
+                List<Domain> batch = domains.subList(from, Math.min(from + batchSize, domains.size()));
+                for (KvmExecutors.Outcome<Domain, DomainArchive.Entry> outcome : KvmExecutors.fanOut(
+                    batch,
+                    rMaxParallelism,
+                    domain -> read(domain, rIncludeSnapshots)
+                )) {
+                    if (!outcome.isSuccess()) {
+                        if (LibvirtErrors.code(outcome.error()) == ErrorNumber.VIR_ERR_NO_DOMAIN) {
+                            runContext.logger().warn("VM {} was undefined while exporting; skipping it.", outcome.item().getName());
+                            continue;
+                        }
+                        throw new Exception("Failed to export VM " + outcome.item().getName() + ": " + outcome.error().getMessage(), outcome.error());
+                    }
+                    writer.write(outcome.value());
+                    count++;
+                    snapshots += outcome.value().snapshots().size();
+                }
+            }
+        }
+
+        URI uri = runContext.storage().putFile(archive);
+        runContext.metric(Counter.of("domains", count));
+        runContext.metric(Counter.of("snapshots", snapshots));
+        runContext.logger().info("Exported {} VM definition(s) with {} snapshot(s).", count, snapshots);
+
+        return Output.builder()
+            .uri(uri)
+            .count(count)
+            .build();
+    }
+
+    private static DomainArchive.Entry read(Domain domain, boolean includeSnapshots) throws Exception {
+        List<DomainArchive.Snapshot> snapshots = new ArrayList<>();
+        String currentSnapshot = null;
+        if (includeSnapshots) {
+            // Topological order lists parents first, which is the order they must be redefined in.
+            for (String snapshot : domain.snapshotListNames(SNAPSHOT_LIST_TOPOLOGICAL)) {
+                snapshots.add(new DomainArchive.Snapshot(snapshot, domain.snapshotLookupByName(snapshot).getXMLDesc(DOMAIN_XML_SECURE)));
+            }
+            if (!snapshots.isEmpty() && domain.hasCurrentSnapshot() == 1) {
+                Element root = LibvirtXmlParser.parse(domain.snapshotCurrent().getXMLDesc()).getDocumentElement();
+                currentSnapshot = LibvirtXmlParser.firstChild(root, "name").getTextContent();
+            }
+        }
+
+        return new DomainArchive.Entry(
+            domain.getName(),
+            domain.getUUIDString(),
+            domain.getAutostart(),
+            domain.getXMLDesc(DOMAIN_XML_INACTIVE | DOMAIN_XML_SECURE),
+            snapshots,
+            currentSnapshot
+        );
+    }
+
+    /**
+     * Output for the ExportVms task.
+     */
+    @Builder
+    @Getter
+    public static class Output implements io.kestra.core.models.tasks.Output {
+        @Schema(title = "URI of the archive in internal storage")
+        private URI uri;
+
+        @Schema(title = "Number of exported VMs")
+        private Integer count;
+    }
+}
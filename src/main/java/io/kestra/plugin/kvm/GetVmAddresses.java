@@ -0,0 +1,220 @@
+package io.kestra.plugin.kvm;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.libvirt.Connect;
+import org.libvirt.Domain;
+
+import io.kestra.core.models.annotations.Example;
+import io.kestra.core.models.annotations.Plugin;
+import io.kestra.core.models.annotations.PluginProperty;
+import io.kestra.core.models.property.Property;
+import io.kestra.core.models.tasks.RunnableTask;
+import io.kestra.core.runners.RunContext;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import lombok.experimental.SuperBuilder;
+
+/**
+ * Task to resolve the IP addresses of KVM Virtual Machines.
+ */
+@SuperBuilder
+@NoArgsConstructor
+@Getter
+@EqualsAndHashCode
+@ToString
+@Plugin(
+    examples = {
+        @Example(
+            title = "Resolve the addresses of every web VM and log them.",
+            full = true,
+            code = """
+                id: kvm_addresses
+                namespace: kvmtest.ssh
+
+                tasks:
+                  - id: addresses
+                    type: io.kestra.plugin.kvm.GetVmAddresses
+                    uri: qemu+ssh://root@167.99.104.163/system
+                    names:
+                      - web-*
+                    sources:
+                      - LEASE
+                      - AGENT
+
+                  - id: log_addresses
+                    type: io.kestra.plugin.core.log.Log
+                    message: "{{ outputs.addresses.vms }}"
+                """
+        )
+    }
+)
+@Schema(
+    title = "Get VM IP addresses",
+    description = "Resolves the IP addresses of many running domains at once. DHCP leases are read once per libvirt network and joined to the MAC addresses of the domains' interfaces; domains still without an address are then asked to the next sources, such as the guest agent or the host's ARP table."
+)
+public class GetVmAddresses extends AbstractKvmTask implements RunnableTask<GetVmAddresses.Output> {
+    private static final int ACTIVE_DOMAINS = 1;
+
+    @Schema(
+        title = "Domain names",
+        description = "Names or glob patterns (`*`, `?`) of the domains to resolve. Default every running domain."
+    )
+    @PluginProperty(group = "main")
+    private Property<List<String>> names;
+
+    @Schema(
+        title = "Label selector",
+        description = "Only resolve domains whose labels, set by CreateVm or UpdateVm, match every comma-separated requirement: `key=value`, `key!=value`, `key` or `!key`. Combined with names."
+    )
+    @PluginProperty(group = "main")
+    private Property<String> labelSelector;
+
+    @Builder.Default
+    @Schema(
+        title = "Address sources",
+        description = "Sources tried in order; a domain is only asked to the next source while it has no address. LEASE reads libvirt network DHCP leases, AGENT needs the QEMU guest agent, ARP reads the host's ARP table. Default LEASE then ARP."
+    )
+    @PluginProperty(group = "processing")
+    private Property<List<AddressSource>> sources = Property.ofValue(List.of(AddressSource.LEASE, AddressSource.ARP));
+
+    @Builder.Default
+    @Schema(
+        title = "Maximum parallelism",
+        description = "Maximum number of domains read or queried concurrently. Default 8."
+    )
+    @PluginProperty(group = "execution")
+    private Property<Integer> maxParallelism = Property.ofValue(8);
+
+    @Override
+    public Output run(RunContext runContext) throws Exception {
+        DomainSelector selector = DomainSelector.of(runContext.render(this.names).asList(String.class));
+        List<AddressSource> rSources = runContext.render(this.sources).asList(AddressSource.class);
+        int rParallelism = runContext.render(this.maxParallelism).as(Integer.class).orElse(8);
+        LabelSelector rLabelSelector = renderLabelSelector(runContext, this.labelSelector);
+
+        try (LibvirtConnection connection = getConnection(runContext)) {
+            Connect conn = connection.get();
+
+            List<Domain> domains = new ArrayList<>();
+            if (!selector.isEmpty() && selector.isExact()) {
+                for (String name : selector.names()) {
+                    Domain domain = getDomain(conn, name);
+                    if (domain == null) {
+                        runContext.logger().warn("VM {} not found. Skipping.", name);
+                    } else {
+                        domains.add(domain);
+                    }
+                }
+            } else {
+                for (Domain domain : conn.listAllDomains(ACTIVE_DOMAINS)) {
+                    if (selector.isEmpty() || selector.matches(domain.getName())) {
+                        domains.add(domain);
+                    }
+                }
+            }
+            if (rLabelSelector != null) {
+                Set<String> labelled = new HashSet<>(selectByLabels(runContext, connection.client(), rLabelSelector, rParallelism));
+                List<Domain> matching = new ArrayList<>(domains.size());
+                for (Domain domain : domains) {
+                    if (labelled.contains(domain.getName())) {
+                        matching.add(domain);
+                    }
+                }
+                domains = matching;
+            }
+
+            Map<String, List<GuestAddresses.Address>> resolved = GuestAddresses.resolve(
+                runContext.logger(),
+                conn,
+                domains,
+                rSources.isEmpty() ? List.of(AddressSource.LEASE, AddressSource.ARP) : rSources,
+                rParallelism
+            );
+
+            List<VmAddresses> vms = new ArrayList<>(resolved.size());
+            int unresolved = 0;
+            for (Map.Entry<String, List<GuestAddresses.Address>> entry : resolved.entrySet()) {
+                if (entry.getValue().isEmpty()) {
+                    unresolved++;
+                }
+                vms.add(
+                    VmAddresses.builder()
+                        .name(entry.getKey())
+                        .addresses(
+                            entry.getValue().stream()
+                                .map(address -> Address.builder()
+                                    .mac(address.mac())
+                                    .ip(address.ip())
+                                    .prefix(address.prefix())
+                                    .source(address.source())
+                                    .build()
+                                )
+                                .toList()
+                        )
+                        .build()
+                );
+            }
+            runContext.logger().info("Resolved addresses of {} of {} VM(s).", vms.size() - unresolved, vms.size());
+
+            return Output.builder()
+                .vms(vms)
+                .unresolved(unresolved)
+                .build();
+        }
+    }
+
+    /**
+     * Output for the GetVmAddresses task.
+     */
+    @Builder
+    @Getter
+    public static class Output implements io.kestra.core.models.tasks.Output {
+        @Schema(title = "Virtual machines", description = "Addresses of every selected domain, empty when none is known yet.")
+        private List<VmAddresses> vms;
+
+        @Schema(title = "Unresolved VMs", description = "Number of selected domains without any known address.")
+        private int unresolved;
+    }
+
+    /**
+     * Addresses of one VM.
+     */
+    @Builder
+    @Getter
+    public static class VmAddresses {
+        @Schema(title = "VM Name")
+        private String name;
+
+        @Schema(title = "Addresses")
+        private List<Address> addresses;
+    }
+
+    /**
+     * One IP address of a VM interface.
+     */
+    @Builder
+    @Getter
+    public static class Address {
+        @Schema(title = "MAC address of the interface")
+        private String mac;
+
+        @Schema(title = "IP address")
+        private String ip;
+
+        @Schema(title = "Prefix length")
+        private int prefix;
+
+        @Schema(title = "Source the address was read from")
+        private AddressSource source;
+    }
+}
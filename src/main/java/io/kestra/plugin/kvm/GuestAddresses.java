@@ -0,0 +1,169 @@
+package io.kestra.plugin.kvm;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.libvirt.Connect;
+import org.libvirt.Domain;
+import org.libvirt.DomainInterface;
+import org.slf4j.Logger;
+
+/**
+ * Resolves the IP addresses of many guests at once.
+ *
+ * <p>
+ * Sources are tried in order, and each guest is only asked to the next source while it has no address. DHCP
+ * leases are read once per libvirt network, whatever the number of guests attached to it, and joined to the
+ * guests by the MAC addresses of their interfaces. The agent and ARP sources are queried per running guest, with
+ * the given parallelism.
+ */
+final class GuestAddresses {
+    private GuestAddresses() {
+    }
+
+    /**
+     * Resolves the addresses of domains.
+     *
+     * @param logger The logger of the calling task.
+     * @param conn The connection the domains belong to.
+     * @param domains The domains.
+     * @param sources The sources to try, in order.
+     * @param parallelism The maximum number of concurrent per-domain calls.
+     * @return The addresses of every domain, by name, in the order of {@code domains}; empty for a domain without
+     * known address.
+     * @throws Exception If a domain cannot be read.
+     */
+    static Map<String, List<Address>> resolve(
+        Logger logger,
+        Connect conn,
+        List<Domain> domains,
+        List<AddressSource> sources,
+        int parallelism
+    ) throws Exception {
+        List<Guest> guests = new ArrayList<>(domains.size());
+        for (KvmExecutors.Outcome<Domain, Guest> outcome : KvmExecutors.fanOut(
+            domains,
+            parallelism,
+            domain -> new Guest(
+                domain,
+                domain.getName(),
+                domain.isActive() == 1,
+                LibvirtXmlParser.getInterfaces(domain.getXMLDesc(0)),
+                new ArrayList<>()
+            )
+        )) {
+            if (!outcome.isSuccess()) {
+                throw outcome.error();
+            }
+            guests.add(outcome.value());
+        }
+
+        for (AddressSource source : sources) {
+            List<Guest> pending = guests.stream()
+                .filter(guest -> guest.running() && guest.addresses().isEmpty() && !guest.interfaces().isEmpty())
+                .toList();
+            if (pending.isEmpty()) {
+                break;
+            }
+
+            if (source == AddressSource.LEASE) {
+                fromLeases(logger, conn, pending);
+            } else {
+                fromDomains(logger, source, pending, parallelism);
+            }
+        }
+
+        Map<String, List<Address>> addresses = new LinkedHashMap<>();
+        for (Guest guest : guests) {
+            addresses.put(guest.name(), List.copyOf(guest.addresses()));
+        }
+        return addresses;
+    }
+
+    private static void fromLeases(Logger logger, Connect conn, List<Guest> guests) {
+        Set<String> networks = new LinkedHashSet<>();
+        for (Guest guest : guests) {
+            guest.interfaces().values().stream().filter(network -> network != null).forEach(networks::add);
+        }
+
+        Map<String, List<LibvirtNative.DhcpLease>> leasesByMac = new HashMap<>();
+        for (String network : networks) {
+            try {
+                index(leasesByMac, LibvirtNative.dhcpLeases(conn.networkLookupByName(network), null));
+            } catch (Exception e) {
+                logger.warn("Unable to read the DHCP leases of network {}: {}", network, e.getMessage());
+            }
+        }
+
+        for (Guest guest : guests) {
+            guest.addresses().addAll(leaseAddresses(guest.interfaces().keySet(), leasesByMac));
+        }
+    }
+
+    /**
+     * Adds the leases of one network to an index by lower-case MAC address, ignoring leases without MAC or IP.
+     */
+    static void index(Map<String, List<LibvirtNative.DhcpLease>> leasesByMac, List<LibvirtNative.DhcpLease> leases) {
+        for (LibvirtNative.DhcpLease lease : leases) {
+            if (lease.mac() != null && lease.ip() != null) {
+                leasesByMac.computeIfAbsent(lease.mac().toLowerCase(), mac -> new ArrayList<>()).add(lease);
+            }
+        }
+    }
+
+    /**
+     * Joins the leases to the interfaces of a guest.
+     *
+     * @param macs The lower-case MAC addresses of the guest interfaces.
+     * @param leasesByMac The leases, as indexed by {@link #index(Map, List)}.
+     * @return One address per lease of each interface, in the order of {@code macs}.
+     */
+    static List<Address> leaseAddresses(Collection<String> macs, Map<String, List<LibvirtNative.DhcpLease>> leasesByMac) {
+        List<Address> addresses = new ArrayList<>();
+        for (String mac : macs) {
+            for (LibvirtNative.DhcpLease lease : leasesByMac.getOrDefault(mac, List.of())) {
+                addresses.add(new Address(mac, lease.ip(), lease.prefix(), AddressSource.LEASE));
+            }
+        }
+        return addresses;
+    }
+
+    private static void fromDomains(Logger logger, AddressSource source, List<Guest> guests, int parallelism) throws InterruptedException {
+        for (KvmExecutors.Outcome<Guest, List<Address>> outcome : KvmExecutors.fanOut(guests, parallelism, guest -> {
+            List<Address> found = new ArrayList<>();
+            for (DomainInterface iface : guest.domain().interfaceAddresses(source.flag(), 0)) {
+                String mac = iface.hwAddr == null ? null : iface.hwAddr.toLowerCase();
+                if (mac == null || !guest.interfaces().containsKey(mac) || iface.addrs == null) {
+                    continue;
+                }
+                for (DomainInterface.InterfaceAddress address : iface.addrs) {
+                    if (!address.address.isLoopbackAddress() && !address.address.isLinkLocalAddress()) {
+                        found.add(new Address(mac, address.address.getHostAddress(), address.prefixLength, source));
+                    }
+                }
+            }
+            return found;
+        })) {
+            if (outcome.isSuccess()) {
+                outcome.item().addresses().addAll(outcome.value());
+            } else {
+                logger.debug("No {} addresses for VM {}: {}", source, outcome.item().name(), outcome.error().getMessage());
+            }
+        }
+    }
+
+    /**
+     * One IP address of a guest interface.
+     */
+    record Address(String mac, String ip, int prefix, AddressSource source) {
+    }
+
+    private record Guest(Domain domain, String name, boolean running, Map<String, String> interfaces, List<Address> addresses) {
+    }
+}
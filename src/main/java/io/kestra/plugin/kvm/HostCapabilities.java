@@ -0,0 +1,119 @@
+package io.kestra.plugin.kvm;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.libvirt.Connect;
+import org.libvirt.Error.ErrorNumber;
+import org.libvirt.LibvirtException;
+
+/**
+ * Worker-local cache of the capabilities of each host, per libvirt URI.
+ *
+ * <p>
+ * The capabilities XML (guest architectures, machine types, emulators, host topology) and the domain capabilities
+ * XML of each emulator, architecture, machine and virtualization type only change when the host's hypervisor is
+ * upgraded or reconfigured, yet each is a round trip that returns tens of kilobytes. Entries are served while younger
+ * than the TTL requested by the reader, and dropped by {@link #invalidate(String)} when a host rejects a definition
+ * that passed validation against them.
+ */
+final class HostCapabilities {
+    static final Duration DEFAULT_TTL = Duration.ofMinutes(10);
+
+    private static final Map<String, HostCapabilities> HOSTS = new ConcurrentHashMap<>();
+
+    private static final Set<ErrorNumber> UNSUPPORTED = EnumSet.of(ErrorNumber.VIR_ERR_NO_SUPPORT, ErrorNumber.VIR_ERR_OPERATION_UNSUPPORTED);
+
+    private final String driver;
+
+    private final String xml;
+
+    private final Instant fetchedAt;
+
+    private final Map<String, DomainCapabilities> domains = new ConcurrentHashMap<>();
+
+    private HostCapabilities(String driver, String xml, Instant fetchedAt) {
+        this.driver = driver;
+        this.xml = xml;
+        this.fetchedAt = fetchedAt;
+    }
+
+    /**
+     * Returns the capabilities of the host of a connection, read again if the cached ones are older than ttl.
+     */
+    static HostCapabilities get(Connect conn, Duration ttl) throws LibvirtException {
+        String key = key(conn.getURI());
+        HostCapabilities cached = HOSTS.get(key);
+        if (cached != null && cached.fetchedAt.plus(ttl).isAfter(Instant.now())) {
+            return cached;
+        }
+
+        HostCapabilities fresh = new HostCapabilities(conn.getType(), conn.getCapabilities(), Instant.now());
+        HOSTS.put(key, fresh);
+        return fresh;
+    }
+
+    static void invalidate(String uri) {
+        HOSTS.remove(key(uri));
+    }
+
+    private static String key(String uri) {
+        return uri == null ? "" : uri;
+    }
+
+    /**
+     * Returns the name of the libvirt driver, such as {@code QEMU} or {@code TEST}.
+     */
+    String driver() {
+        return driver;
+    }
+
+    String xml() {
+        return xml;
+    }
+
+    /**
+     * Returns the domain capabilities for a combination of emulator, architecture, machine type and virtualization
+     * type; a null argument lets the host pick its default. Failures saying that the driver or the libvirt library
+     * has no domain capabilities are cached too, so such a host is only asked once; other failures, such as a lost
+     * connection, are asked again on the next call.
+     */
+    DomainCapabilities domainCapabilities(Connect conn, String emulator, String arch, String machine, String virtType) {
+        return domainCapabilities(
+            emulator + "|" + arch + "|" + machine + "|" + virtType,
+            () -> LibvirtNative.domainCapabilities(conn, emulator, arch, machine, virtType)
+        );
+    }
+
+    DomainCapabilities domainCapabilities(String key, Callable<String> fetch) {
+        DomainCapabilities cached = domains.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        DomainCapabilities fresh;
+        try {
+            fresh = new DomainCapabilities(fetch.call(), null);
+        } catch (LinkageError e) {
+            fresh = new DomainCapabilities(null, e.getMessage());
+        } catch (Exception e) {
+            fresh = new DomainCapabilities(null, e.getMessage());
+            if (!UNSUPPORTED.contains(LibvirtErrors.code(e))) {
+                return fresh;
+            }
+        }
+        domains.put(key, fresh);
+        return fresh;
+    }
+
+    /**
+     * Domain capabilities XML, or the error the host returned instead.
+     */
+    record DomainCapabilities(String xml, String error) {
+    }
+}
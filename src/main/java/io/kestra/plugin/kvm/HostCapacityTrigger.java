@@ -0,0 +1,362 @@
+package io.kestra.plugin.kvm;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.libvirt.Connect;
+import org.libvirt.StoragePoolInfo;
+
+import io.kestra.core.models.annotations.Example;
+import io.kestra.core.models.annotations.Plugin;
+import io.kestra.core.models.annotations.PluginProperty;
+import io.kestra.core.models.conditions.ConditionContext;
+import io.kestra.core.models.executions.Execution;
+import io.kestra.core.models.property.Property;
+import io.kestra.core.models.triggers.AbstractTrigger;
+import io.kestra.core.models.triggers.PollingTriggerInterface;
+import io.kestra.core.models.triggers.StatefulTriggerInterface;
+import io.kestra.core.models.triggers.StatefulTriggerService;
+import io.kestra.core.models.triggers.TriggerContext;
+import io.kestra.core.models.triggers.TriggerOutput;
+import io.kestra.core.models.triggers.TriggerService;
+import io.kestra.core.runners.RunContext;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+import lombok.experimental.SuperBuilder;
+
+/**
+ * Trigger that polls a hypervisor's capacity and fires when utilisation thresholds are crossed.
+ */
+@SuperBuilder
+@ToString
+@EqualsAndHashCode
+@Getter
+@NoArgsConstructor
+@Plugin(
+    examples = {
+        @Example(
+            full = true,
+            code = """
+                id: kvm_host_capacity
+                namespace: kvmtest.ssh
+
+                tasks:
+                  - id: alert
+                    type: io.kestra.plugin.core.log.Log
+                    level: WARN
+                    message: "{{ trigger.alerts | json }}"
+
+                triggers:
+                  - id: capacity
+                    type: io.kestra.plugin.kvm.HostCapacityTrigger
+                    uri: qemu+ssh://root@167.99.104.163/system
+                    interval: PT5M
+                    memoryUsageThreshold: 0.9
+                    cpuUsageThreshold: 0.85
+                    vcpuOvercommitThreshold: 4.0
+                    storagePools:
+                      - default
+                    poolUsageThreshold: 0.8
+                """
+        )
+    }
+)
+@Schema(
+    title = "Poll KVM host capacity",
+    description = "Polling trigger that samples node info, free memory, node CPU time and storage pool capacity/allocation on each interval. It computes memory, CPU and pool utilisation plus vCPU and memory overcommit ratios (allocated to running domains against physical), and emits an execution when a ratio rises above its threshold. A ratio fires once, then re-arms only after it has dropped below threshold minus hysteresis, so values hovering around a threshold do not flap."
+)
+public class HostCapacityTrigger extends AbstractTrigger implements PollingTriggerInterface, StatefulTriggerInterface, TriggerOutput<HostCapacityTrigger.Output> {
+    private static final String ABOVE = "ABOVE";
+
+    private static final String BELOW = "BELOW";
+
+    // State entry holding the node CPU time counters of the previous sample, as total:idle nanoseconds.
+    private static final String CPU_COUNTERS = "cpu.counters";
+
+    @Builder.Default
+    @Schema(
+        title = "Poll interval",
+        description = "Time between capacity samples. Default PT5M."
+    )
+    @PluginProperty(group = "execution")
+    private Duration interval = Duration.ofMinutes(5);
+
+    @Schema(
+        title = "Libvirt URI",
+        description = "Connection URI rendered before use; required to reach the hypervisor."
+    )
+    @PluginProperty(group = "advanced", secret = true)
+    @ToString.Exclude
+    protected Property<String> uri;
+
+    @Schema(
+        title = "Memory usage threshold",
+        description = "Fires when used host memory divided by physical memory rises above this ratio, for example 0.9."
+    )
+    @PluginProperty(group = "main")
+    private Property<Double> memoryUsageThreshold;
+
+    @Schema(
+        title = "CPU usage threshold",
+        description = "Fires when the share of non-idle node CPU time since the previous sample rises above this ratio. The node CPU time counters are kept in the trigger state, so the first sample only records them."
+    )
+    @PluginProperty(group = "main")
+    private Property<Double> cpuUsageThreshold;
+
+    @Schema(
+        title = "vCPU overcommit threshold",
+        description = "Fires when vCPUs of running domains divided by physical CPUs rises above this ratio."
+    )
+    @PluginProperty(group = "main")
+    private Property<Double> vcpuOvercommitThreshold;
+
+    @Schema(
+        title = "Memory overcommit threshold",
+        description = "Fires when memory of running domains divided by physical memory rises above this ratio."
+    )
+    @PluginProperty(group = "main")
+    private Property<Double> memoryOvercommitThreshold;
+
+    @Schema(
+        title = "Storage pools",
+        description = "Names of the storage pools whose allocation is compared with poolUsageThreshold."
+    )
+    @PluginProperty(group = "main")
+    private Property<List<String>> storagePools;
+
+    @Schema(
+        title = "Storage pool usage threshold",
+        description = "Fires when a pool's allocation divided by its capacity rises above this ratio."
+    )
+    @PluginProperty(group = "main")
+    private Property<Double> poolUsageThreshold;
+
+    @Builder.Default
+    @Schema(
+        title = "Hysteresis",
+        description = "How far below its threshold a ratio must drop before it can fire again. Default 0.05."
+    )
+    @PluginProperty(group = "processing")
+    private Property<Double> hysteresis = Property.ofValue(0.05);
+
+    @Builder.Default
+    @Schema(
+        title = "Fire on recovery",
+        description = "If true, also emits an execution when a ratio that fired drops back below threshold minus hysteresis. Default false."
+    )
+    @PluginProperty(group = "processing")
+    private Property<Boolean> fireOnRecovery = Property.ofValue(false);
+
+    @Builder.Default
+    @Schema(
+        title = "Crossings to fire on",
+        description = "UPDATE fires when a ratio crosses its threshold between two samples, CREATE when the first sample of a ratio is already above its threshold, CREATE_OR_UPDATE on both. Default CREATE_OR_UPDATE."
+    )
+    @PluginProperty(group = "processing")
+    private Property<On> on = Property.ofValue(On.CREATE_OR_UPDATE);
+
+    @Schema(
+        title = "State key",
+        description = "Key of the trigger state that remembers which thresholds are currently exceeded and the previous node CPU time counters. Defaults to a key derived from the namespace, flow and trigger id."
+    )
+    @PluginProperty(group = "advanced")
+    private Property<String> stateKey;
+
+    @Schema(
+        title = "State TTL",
+        description = "How long the state of a ratio is kept without being sampled before it is forgotten."
+    )
+    @PluginProperty(group = "advanced")
+    private Property<Duration> stateTtl;
+
+    @Override
+    public Optional<Execution> evaluate(ConditionContext conditionContext, TriggerContext context) throws Exception {
+        RunContext runContext = conditionContext.getRunContext();
+        String rUri = runContext.render(this.uri).as(String.class).orElse(null);
+
+        Map<String, Double> thresholds = new LinkedHashMap<>();
+        runContext.render(this.memoryUsageThreshold).as(Double.class).ifPresent(t -> thresholds.put("memory.usage", t));
+        runContext.render(this.cpuUsageThreshold).as(Double.class).ifPresent(t -> thresholds.put("cpu.usage", t));
+        runContext.render(this.vcpuOvercommitThreshold).as(Double.class).ifPresent(t -> thresholds.put("vcpu.overcommit", t));
+        runContext.render(this.memoryOvercommitThreshold).as(Double.class).ifPresent(t -> thresholds.put("memory.overcommit", t));
+        List<String> rStoragePools = runContext.render(this.storagePools).asList(String.class);
+        Optional<Double> rPoolUsageThreshold = runContext.render(this.poolUsageThreshold).as(Double.class);
+        rPoolUsageThreshold.ifPresent(t -> rStoragePools.forEach(pool -> thresholds.put("pool." + pool + ".usage", t)));
+
+        if (thresholds.isEmpty()) {
+            throw new IllegalArgumentException("At least one threshold must be set");
+        }
+
+        String rStateKey = runContext.render(this.stateKey).as(String.class)
+            .orElse(StatefulTriggerService.defaultKey(context.getNamespace(), context.getFlowId(), this.getId()));
+        Optional<Duration> rStateTtl = runContext.render(this.stateTtl).as(Duration.class);
+        Map<String, StatefulTriggerService.Entry> state = StatefulTriggerService.readState(runContext, rStateKey, rStateTtl);
+        Instant now = Instant.now();
+
+        Map<String, Double> ratios;
+        try (LibvirtConnection connection = HostCircuitBreaker.connect(rUri, LibvirtBackend.NATIVE)) {
+            ratios = sample(runContext, connection.get(), rUri, rStoragePools);
+
+            if (thresholds.containsKey("cpu.usage")) {
+                String counters = cpuCounters(runContext, connection.get());
+                if (counters != null) {
+                    StatefulTriggerService.Entry previous = state.get(CPU_COUNTERS);
+                    Double usage = previous == null ? null : cpuUsage(previous.version(), counters);
+                    if (usage != null) {
+                        ratios.put("cpu.usage", usage);
+                    }
+                    state.put(CPU_COUNTERS, new StatefulTriggerService.Entry(CPU_COUNTERS, counters, now, now));
+                }
+            }
+        } catch (Exception e) {
+            runContext.logger().error("KVM capacity trigger failed for host: {}", e.getMessage());
+            return Optional.empty();
+        }
+
+        double rHysteresis = runContext.render(this.hysteresis).as(Double.class).orElse(0.05);
+        boolean rFireOnRecovery = runContext.render(this.fireOnRecovery).as(Boolean.class).orElse(false);
+        On rOn = runContext.render(this.on).as(On.class).orElse(On.CREATE_OR_UPDATE);
+
+        List<Alert> alerts = new ArrayList<>();
+        for (Map.Entry<String, Double> threshold : thresholds.entrySet()) {
+            Double ratio = ratios.get(threshold.getKey());
+            if (ratio == null) {
+                continue;
+            }
+
+            StatefulTriggerService.Entry previous = state.get(threshold.getKey());
+            boolean wasAbove = previous != null && ABOVE.equals(previous.version());
+
+            String next = wasAbove
+                ? (ratio < threshold.getValue() - rHysteresis ? BELOW : ABOVE)
+                : (ratio > threshold.getValue() ? ABOVE : BELOW);
+
+            StatefulTriggerService.StateUpdate update = StatefulTriggerService.computeAndUpdateState(
+                state,
+                StatefulTriggerService.Entry.candidate(threshold.getKey(), next, now),
+                rOn
+            );
+
+            if (update.fire() && ABOVE.equals(next)) {
+                alerts.add(new Alert(threshold.getKey(), ratio, threshold.getValue(), ABOVE));
+            } else if (update.fire() && wasAbove && rFireOnRecovery) {
+                alerts.add(new Alert(threshold.getKey(), ratio, threshold.getValue(), BELOW));
+            }
+        }
+
+        StatefulTriggerService.writeState(runContext, rStateKey, state, rStateTtl);
+
+        if (alerts.isEmpty()) {
+            return Optional.empty();
+        }
+
+        var output = Output.builder()
+            .ratios(ratios)
+            .alerts(alerts)
+            .build();
+        Execution execution = TriggerService.generateExecution(this, conditionContext, context, output);
+
+        return Optional.of(execution);
+    }
+
+    /**
+     * Reads the host and computes the memory, overcommit and pool ratios.
+     */
+    private static Map<String, Double> sample(RunContext runContext, Connect conn, String uri, List<String> pools) throws Exception {
+        Map<String, Double> ratios = new LinkedHashMap<>();
+
+        HostSnapshot host = HostSnapshot.capture(conn, uri, null);
+        ratios.put("memory.usage", 1.0 - (double) host.getFreeMemoryKiB() / host.getMemoryKiB());
+        ratios.put("vcpu.overcommit", host.vcpuRatio());
+        ratios.put("memory.overcommit", host.memoryRatio());
+
+        for (String pool : pools) {
+            StoragePoolInfo info = conn.storagePoolLookupByName(pool).getInfo();
+            if (info.capacity > 0) {
+                ratios.put("pool." + pool + ".usage", (double) info.allocation / info.capacity);
+            }
+        }
+
+        return ratios;
+    }
+
+    /**
+     * Reads the cumulative node CPU time counters as {@code total:idle} nanoseconds, or null if the driver does not
+     * report them.
+     */
+    private static String cpuCounters(RunContext runContext, Connect conn) throws Exception {
+        try {
+            Map<String, Long> stats = LibvirtNative.nodeCpuStats(conn);
+            long idle = stats.getOrDefault("idle", 0L) + stats.getOrDefault("iowait", 0L);
+            long total = idle + stats.getOrDefault("kernel", 0L) + stats.getOrDefault("user", 0L);
+            return total + ":" + idle;
+        } catch (IllegalStateException e) {
+            runContext.logger().warn("Node CPU usage is not available: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Computes the share of non-idle CPU time between two readings of {@link #cpuCounters}.
+     *
+     * @return The usage ratio, or null if the counters did not advance or were reset, as after a host reboot.
+     */
+    static Double cpuUsage(String previous, String current) {
+        String[] before = previous.split(":");
+        String[] after = current.split(":");
+        if (before.length != 2 || after.length != 2) {
+            return null;
+        }
+
+        long total = Long.parseLong(after[0]) - Long.parseLong(before[0]);
+        long idle = Long.parseLong(after[1]) - Long.parseLong(before[1]);
+        if (total <= 0 || idle < 0 || idle > total) {
+            return null;
+        }
+        return (double) (total - idle) / total;
+    }
+
+    /**
+     * A threshold crossing.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Alert {
+        @Schema(title = "Ratio name", description = "memory.usage, cpu.usage, vcpu.overcommit, memory.overcommit or pool.<name>.usage.")
+        private final String name;
+
+        @Schema(title = "Sampled value")
+        private final double value;
+
+        @Schema(title = "Threshold")
+        private final double threshold;
+
+        @Schema(title = "Direction", description = "ABOVE when the threshold was crossed, BELOW when the ratio recovered.")
+        private final String state;
+    }
+
+    /**
+     * Output for the HostCapacityTrigger.
+     */
+    @Builder
+    @Getter
+    public static class Output implements io.kestra.core.models.tasks.Output {
+        @Schema(
+            title = "Sampled ratios",
+            description = "Every utilisation and overcommit ratio computed from this sample."
+        )
+        private Map<String, Double> ratios;
+
+        @Schema(
+            title = "Alerts",
+            description = "Thresholds crossed by this sample."
+        )
+        private List<Alert> alerts;
+    }
+}
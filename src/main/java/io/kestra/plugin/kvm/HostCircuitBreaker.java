@@ -0,0 +1,152 @@
+package io.kestra.plugin.kvm;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+import org.libvirt.Error.ErrorNumber;
+
+/**
+ * Worker-wide circuit breaker per libvirt URI, so that tasks targeting an unreachable host fail in milliseconds
+ * instead of each waiting for the connect timeout.
+ *
+ * <p>
+ * After {@link #FAILURE_THRESHOLD} consecutive connection failures classified as
+ * {@link LibvirtErrors.Category#TRANSIENT}, the breaker opens and rejects connections for {@link #OPEN_DURATION}.
+ * It then lets a single connection through as a probe: success closes the breaker, failure opens it again. Other
+ * errors prove that the host answered and count as successes.
+ *
+ * <p>
+ * Closed breakers left unused for {@link #IDLE_EVICTION} are dropped, so a worker reaching many short-lived hosts
+ * does not keep one breaker per URI forever.
+ */
+final class HostCircuitBreaker {
+    static final int FAILURE_THRESHOLD = 3;
+
+    static final Duration OPEN_DURATION = Duration.ofSeconds(30);
+
+    static final Duration IDLE_EVICTION = Duration.ofMinutes(10);
+
+    private static final Map<String, HostCircuitBreaker> HOSTS = new ConcurrentHashMap<>();
+
+    private State state = State.CLOSED;
+
+    private int failures;
+
+    private long openedAt;
+
+    private boolean probing;
+
+    private long lastUsed;
+
+    private final LongSupplier clock;
+
+    HostCircuitBreaker(LongSupplier clock) {
+        this.clock = clock;
+        this.lastUsed = clock.getAsLong();
+    }
+
+    static HostCircuitBreaker of(String uri) {
+        evictIdle(System.nanoTime());
+        return HOSTS.computeIfAbsent(uri == null ? "" : uri, k -> new HostCircuitBreaker(System::nanoTime));
+    }
+
+    /**
+     * Drops the closed breakers not used since {@link #IDLE_EVICTION} before {@code now}; they hold no state that a
+     * new breaker would not start with.
+     */
+    static void evictIdle(long now) {
+        HOSTS.values().removeIf(breaker -> breaker.idle(now));
+    }
+
+    /**
+     * Opens a connection through the breaker of its URI.
+     *
+     * @throws HypervisorException With {@code VIR_ERR_NO_CONNECT} if the breaker is open.
+     * @throws Exception If the connection fails.
+     */
+    static LibvirtConnection connect(String uri, LibvirtBackend backend) throws Exception {
+        HostCircuitBreaker breaker = of(uri);
+        breaker.acquire();
+        return breaker.open(uri, backend);
+    }
+
+    /**
+     * Opens a connection already let through by {@link #acquire()} and records its outcome.
+     */
+    LibvirtConnection open(String uri, LibvirtBackend backend) throws Exception {
+        LibvirtConnection connection;
+        try {
+            connection = new LibvirtConnection(uri, backend);
+        } catch (Exception e) {
+            onFailure(e);
+            throw e;
+        }
+        onSuccess();
+        return connection;
+    }
+
+    /**
+     * Lets a connection attempt through, or rejects it while the breaker is open or a probe is in flight.
+     */
+    synchronized void acquire() throws HypervisorException {
+        long now = clock.getAsLong();
+        lastUsed = now;
+        if (state == State.CLOSED) {
+            return;
+        }
+
+        long remaining = OPEN_DURATION.toNanos() - (now - openedAt);
+        if (state == State.OPEN && remaining <= 0) {
+            state = State.HALF_OPEN;
+        }
+        if (state == State.HALF_OPEN && !probing) {
+            probing = true;
+            return;
+        }
+
+        throw new HypervisorException(
+            ErrorNumber.VIR_ERR_NO_CONNECT,
+            "Host is unavailable after " + failures + " consecutive connection failures; not retrying for another "
+                + Math.max(0, Duration.ofNanos(remaining).toSeconds()) + "s"
+        );
+    }
+
+    synchronized void onSuccess() {
+        state = State.CLOSED;
+        failures = 0;
+        probing = false;
+    }
+
+    synchronized void onFailure(Throwable error) {
+        if (LibvirtErrors.classify(error) != LibvirtErrors.Category.TRANSIENT) {
+            onSuccess();
+            return;
+        }
+
+        failures++;
+        probing = false;
+        if (state == State.HALF_OPEN || failures >= FAILURE_THRESHOLD) {
+            state = State.OPEN;
+            openedAt = clock.getAsLong();
+        }
+    }
+
+    synchronized State state() {
+        return state;
+    }
+
+    private synchronized boolean idle(long now) {
+        return state == State.CLOSED && now - lastUsed > IDLE_EVICTION.toNanos();
+    }
+
+    /**
+     * State of a breaker; the ordinal is reported as the {@code host.circuit.state} metric.
+     */
+    enum State {
+        CLOSED,
+        HALF_OPEN,
+        OPEN
+    }
+}
@@ -0,0 +1,165 @@
+package io.kestra.plugin.kvm;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.libvirt.LibvirtException;
+import org.slf4j.Logger;
+
+/**
+ * Chooses the hypervisor a new domain is defined on.
+ *
+ * <p>
+ * Snapshots are gathered from all candidate hosts concurrently and kept in a worker-wide cache for a short
+ * time. Each placement reserves the new domain's resources on the cached snapshot of the chosen host, so a
+ * burst of creations within the cache TTL is spread according to the strategy instead of all landing on the
+ * host that looked best at the start of the burst.
+ */
+final class HostPlacement {
+    private static final Map<String, HostSnapshot> CACHE = new ConcurrentHashMap<>();
+
+    private HostPlacement() {
+    }
+
+    /**
+     * Selects a host for a domain and reserves the domain's resources on its cached snapshot.
+     *
+     * @param logger The logger of the calling task.
+     * @param uris The candidate libvirt URIs.
+     * @param pool The storage pool that must exist on the host, or null.
+     * @param strategy The ranking strategy.
+     * @param vcpus The vCPU count of the new domain.
+     * @param memoryKiB The memory of the new domain in KiB.
+     * @param poolBytes The space the new domain needs in the pool, in bytes.
+     * @param cacheTtl How long a host snapshot can be reused.
+     * @return The snapshot of the chosen host, before the reservation.
+     * @throws Exception If no candidate host is reachable or able to fit the domain.
+     */
+    static HostSnapshot select(
+        Logger logger,
+        List<String> uris,
+        String pool,
+        PlacementStrategy strategy,
+        int vcpus,
+        long memoryKiB,
+        long poolBytes,
+        Duration cacheTtl
+    ) throws Exception {
+        return choose(snapshots(logger, uris, pool, cacheTtl), pool, strategy, vcpus, memoryKiB, poolBytes);
+    }
+
+    /**
+     * Ranks snapshots, preferring the cached copy of each host so that earlier reservations count, and reserves the
+     * domain's resources on the chosen one.
+     */
+    static HostSnapshot choose(List<HostSnapshot> snapshots, String pool, PlacementStrategy strategy, int vcpus, long memoryKiB, long poolBytes) {
+        // Ranking and reservation must be atomic so that concurrent placements see each other.
+        synchronized (CACHE) {
+            HostSnapshot chosen = snapshots.stream()
+                .map(s -> CACHE.getOrDefault(key(s.getUri(), pool), s))
+                .filter(s -> s.fits(vcpus, memoryKiB, poolBytes))
+                .min(strategy.comparator())
+                .orElseThrow(
+                    () -> new IllegalStateException(
+                        "No candidate host can fit a domain with " + vcpus + " vCPU(s), " + memoryKiB
+                            + " KiB of memory" + (pool == null ? "" : " and " + poolBytes + " bytes in pool " + pool)
+                    )
+                );
+
+            CACHE.put(key(chosen.getUri(), pool), chosen.reserve(vcpus, memoryKiB, poolBytes));
+            return chosen;
+        }
+    }
+
+    /**
+     * Gives back a reservation made by {@link #select} for a domain that was not defined on the chosen host.
+     *
+     * @param chosen The snapshot returned by {@link #select}.
+     */
+    static void release(HostSnapshot chosen, String pool, int vcpus, long memoryKiB, long poolBytes) {
+        synchronized (CACHE) {
+            // A snapshot captured since the reservation already reflects the host as it is.
+            CACHE.computeIfPresent(
+                key(chosen.getUri(), pool),
+                (key, cached) -> cached.getCapturedAt().equals(chosen.getCapturedAt()) ? cached.release(vcpus, memoryKiB, poolBytes) : cached
+            );
+        }
+    }
+
+    /**
+     * Finds the candidate host that already defines a domain, so that creating it again keeps it where it is.
+     * Candidates that cannot be reached are skipped with a warning.
+     *
+     * @param logger The logger of the calling task.
+     * @param uris The candidate libvirt URIs.
+     * @param name The domain name.
+     * @return The URI of the first candidate defining the domain, or null if none does.
+     * @throws Exception If the lookup is interrupted.
+     */
+    static String locate(Logger logger, List<String> uris, String name) throws Exception {
+        for (KvmExecutors.Outcome<String, Boolean> outcome : KvmExecutors.fanOut(uris, uris.size(), uri -> defines(uri, name))) {
+            if (!outcome.isSuccess()) {
+                logger.warn("Unable to check whether candidate host {} defines VM {}: {}", outcome.item(), name, outcome.error().getMessage());
+            } else if (outcome.value()) {
+                return outcome.item();
+            }
+        }
+        return null;
+    }
+
+    private static boolean defines(String uri, String name) throws Exception {
+        try (LibvirtConnection connection = HostCircuitBreaker.connect(uri, LibvirtBackend.NATIVE)) {
+            connection.get().domainLookupByName(name);
+            return true;
+        } catch (LibvirtException e) {
+            if (LibvirtErrors.isNotFound(e)) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    private static List<HostSnapshot> snapshots(Logger logger, List<String> uris, String pool, Duration cacheTtl) throws Exception {
+        Instant freshAfter = Instant.now().minus(cacheTtl);
+        List<HostSnapshot> snapshots = new ArrayList<>();
+        List<String> stale = new ArrayList<>();
+
+        for (String uri : uris) {
+            HostSnapshot cached = CACHE.get(key(uri, pool));
+            if (cached != null && cached.getCapturedAt().isAfter(freshAfter)) {
+                snapshots.add(cached);
+            } else {
+                stale.add(uri);
+            }
+        }
+
+        for (KvmExecutors.Outcome<String, HostSnapshot> outcome : KvmExecutors.fanOut(stale, stale.size(), uri -> capture(uri, pool))) {
+            if (outcome.isSuccess()) {
+                CACHE.put(key(outcome.item(), pool), outcome.value());
+                snapshots.add(outcome.value());
+            } else {
+                logger.warn("Skipping candidate host {}: {}", outcome.item(), outcome.error().getMessage());
+            }
+        }
+
+        if (snapshots.isEmpty()) {
+            throw new IllegalStateException("None of the " + uris.size() + " candidate hosts could be reached");
+        }
+
+        return snapshots;
+    }
+
+    private static HostSnapshot capture(String uri, String pool) throws Exception {
+        try (LibvirtConnection connection = HostCircuitBreaker.connect(uri, LibvirtBackend.NATIVE)) {
+            return HostSnapshot.capture(connection.get(), uri, pool);
+        }
+    }
+
+    private static String key(String uri, String pool) {
+        return pool == null ? uri : uri + "#" + pool;
+    }
+}
@@ -0,0 +1,139 @@
+package io.kestra.plugin.kvm;
+
+import java.time.Instant;
+
+import org.libvirt.Connect;
+import org.libvirt.Domain;
+import org.libvirt.DomainInfo;
+import org.libvirt.NodeInfo;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Point-in-time view of a hypervisor's capacity and of what its defined domains already hold, running or not.
+ */
+@Builder(toBuilder = true)
+@Getter
+class HostSnapshot {
+    /**
+     * The number of vCPUs a host may allocate per physical CPU.
+     */
+    static final double MAX_VCPU_OVERCOMMIT = 4.0;
+
+    private final String uri;
+
+    private final int cpus;
+
+    private final long memoryKiB;
+
+    /**
+     * Free memory once every stopped domain is started again.
+     */
+    private final long freeMemoryKiB;
+
+    private final int allocatedVcpus;
+
+    private final long allocatedMemoryKiB;
+
+    private final int activeDomains;
+
+    /**
+     * Free space of the target storage pool in bytes, or null when no pool was requested.
+     */
+    private final Long poolAvailableBytes;
+
+    private final Instant capturedAt;
+
+    /**
+     * Reads node info, free memory, the allocation of every defined domain and the target pool's free space. Stopped
+     * domains count too, since they take their resources back when they start.
+     *
+     * @param conn The connection to the hypervisor.
+     * @param uri The URI the connection was opened with.
+     * @param pool The storage pool to inspect, or null to skip it.
+     * @return The captured snapshot.
+     * @throws Exception If any libvirt call fails.
+     */
+    static HostSnapshot capture(Connect conn, String uri, String pool) throws Exception {
+        NodeInfo node = conn.nodeInfo();
+
+        int allocatedVcpus = 0;
+        long allocatedMemory = 0L;
+        long stoppedMemory = 0L;
+        int activeDomains = 0;
+        for (Domain domain : conn.listAllDomains(0)) {
+            DomainInfo info = domain.getInfo();
+            allocatedVcpus += info.nrVirtCpu;
+            allocatedMemory += info.memory;
+            if (domain.isActive() == 1) {
+                activeDomains++;
+            } else {
+                stoppedMemory += info.memory;
+            }
+        }
+
+        return HostSnapshot.builder()
+            .uri(uri)
+            .cpus(node.cpus)
+            .memoryKiB(node.memory)
+            .freeMemoryKiB(Math.max(0L, conn.getFreeMemory() / 1024 - stoppedMemory))
+            .allocatedVcpus(allocatedVcpus)
+            .allocatedMemoryKiB(allocatedMemory)
+            .activeDomains(activeDomains)
+            .poolAvailableBytes(pool == null ? null : conn.storagePoolLookupByName(pool).getInfo().available)
+            .capturedAt(Instant.now())
+            .build();
+    }
+
+    /**
+     * Returns a copy of this snapshot that accounts for a domain about to be placed on the host.
+     */
+    HostSnapshot reserve(int vcpus, long memoryKiB, long poolBytes) {
+        return this.toBuilder()
+            .freeMemoryKiB(Math.max(0L, freeMemoryKiB - memoryKiB))
+            .allocatedVcpus(allocatedVcpus + vcpus)
+            .allocatedMemoryKiB(allocatedMemoryKiB + memoryKiB)
+            .activeDomains(activeDomains + 1)
+            .poolAvailableBytes(poolAvailableBytes == null ? null : Math.max(0L, poolAvailableBytes - poolBytes))
+            .build();
+    }
+
+    /**
+     * Returns a copy of this snapshot without a reservation made by {@link #reserve(int, long, long)}, for a domain
+     * that was finally not placed on the host.
+     */
+    HostSnapshot release(int vcpus, long memoryKiB, long poolBytes) {
+        return this.toBuilder()
+            .freeMemoryKiB(Math.min(this.memoryKiB, freeMemoryKiB + memoryKiB))
+            .allocatedVcpus(Math.max(0, allocatedVcpus - vcpus))
+            .allocatedMemoryKiB(Math.max(0L, allocatedMemoryKiB - memoryKiB))
+            .activeDomains(Math.max(0, activeDomains - 1))
+            .poolAvailableBytes(poolAvailableBytes == null ? null : poolAvailableBytes + poolBytes)
+            .build();
+    }
+
+    /**
+     * Whether the host has enough CPUs, free memory and free space in the target pool for the requested domain. A
+     * domain never gets more vCPUs than the host has CPUs, and the host never allocates more than
+     * {@link #MAX_VCPU_OVERCOMMIT} vCPUs per CPU.
+     *
+     * @param vcpus The vCPU count of the domain.
+     * @param memoryKiB The memory of the domain in KiB.
+     * @param poolBytes The space the domain needs in the target pool; a pool with no free space never fits.
+     */
+    boolean fits(int vcpus, long memoryKiB, long poolBytes) {
+        return vcpus <= cpus
+            && allocatedVcpus + vcpus <= cpus * MAX_VCPU_OVERCOMMIT
+            && freeMemoryKiB >= memoryKiB
+            && (poolAvailableBytes == null || poolAvailableBytes >= Math.max(1L, poolBytes));
+    }
+
+    double vcpuRatio() {
+        return cpus == 0 ? Double.MAX_VALUE : (double) allocatedVcpus / cpus;
+    }
+
+    double memoryRatio() {
+        return memoryKiB == 0 ? Double.MAX_VALUE : (double) allocatedMemoryKiB / memoryKiB;
+    }
+}
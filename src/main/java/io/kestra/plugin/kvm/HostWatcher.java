@@ -0,0 +1,196 @@
+package io.kestra.plugin.kvm;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * One libvirt connection per hypervisor, shared by every trigger of the JVM that watches it.
+ *
+ * <p>
+ * Each evaluation takes a lease on the watcher of its host; the watcher reads the state of all domains with
+ * {@link HypervisorClient#domainStates()}, a fixed number of bulk listings whatever the number of domains, and serves
+ * that snapshot to every subscriber polling within its max age. Subscribers are counted by lease: a trigger that
+ * stops evaluating (because it was removed or disabled) lets its lease expire, which also drops its
+ * {@link AdaptiveInterval} and {@link EventCoalescer} batch, and the watcher closes its connection once no lease is
+ * left.
+ *
+ * <p>
+ * Leases are guarded by the watcher's monitor and never wait on the host. Calls to the host are serialized by a
+ * separate poll lock, so subscribers of a slow host wait for the poll in flight instead of starting another one,
+ * while the sweeper and the subscribers of other hosts go on.
+ */
+final class HostWatcher {
+    private static final Map<String, HostWatcher> WATCHERS = new ConcurrentHashMap<>();
+
+    private static final Duration SWEEP_INTERVAL = Duration.ofSeconds(30);
+
+    private static final ScheduledExecutorService SWEEPER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "kvm-host-watcher-sweeper");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        SWEEPER.scheduleWithFixedDelay(HostWatcher::sweep, SWEEP_INTERVAL.toMillis(), SWEEP_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private final String uri;
+
+    private final Map<String, Instant> leases = new HashMap<>();
+
+    private final ReentrantLock polling = new ReentrantLock();
+
+    private boolean closed;
+
+    // Guarded by the poll lock.
+    private LibvirtConnection connection;
+
+    private volatile Snapshot snapshot;
+
+    private HostWatcher(String uri) {
+        this.uri = uri;
+    }
+
+    /**
+     * Returns the state of every domain of a host, polling it only if the shared snapshot is older than maxAge.
+     *
+     * @param uri The libvirt URI of the host, or null for the default hypervisor.
+     * @param subscriber A stable identifier of the calling trigger.
+     * @param lease How long the subscriber keeps the watcher open without polling again.
+     * @param maxAge The maximum age of a snapshot that can be served.
+     * @return The state of each domain, by name.
+     * @throws Exception If the host cannot be reached or polled.
+     */
+    static Map<String, String> states(String uri, String subscriber, Duration lease, Duration maxAge) throws Exception {
+        String key = uri == null ? "" : uri;
+        while (true) {
+            HostWatcher watcher = WATCHERS.computeIfAbsent(key, k -> new HostWatcher(uri));
+            // A sweep may have closed this watcher between the lookup and the lease.
+            if (watcher.lease(subscriber, lease)) {
+                return watcher.poll(maxAge);
+            }
+        }
+    }
+
+    private synchronized boolean lease(String subscriber, Duration lease) {
+        if (closed) {
+            return false;
+        }
+        leases.put(subscriber, Instant.now().plus(lease));
+        return true;
+    }
+
+    private synchronized boolean isClosed() {
+        return closed;
+    }
+
+    private Map<String, String> poll(Duration maxAge) throws Exception {
+        Snapshot current = snapshot;
+        if (current != null && current.isFresh(maxAge)) {
+            return current.states();
+        }
+
+        polling.lock();
+        try {
+            // Another subscriber may have polled while this one waited for the lock.
+            current = snapshot;
+            if (current != null && current.isFresh(maxAge)) {
+                return current.states();
+            }
+
+            Instant now = Instant.now();
+            try {
+                if (connection == null) {
+                    connection = new LibvirtConnection(uri, LibvirtBackend.NATIVE);
+                }
+
+                Map<String, String> polled = new LinkedHashMap<>();
+                connection.client().domainStates().forEach((name, state) -> polled.put(name, state.toString()));
+
+                snapshot = new Snapshot(Collections.unmodifiableMap(polled), now);
+                return snapshot.states();
+            } catch (Exception e) {
+                // Reconnect on the next poll rather than reusing a connection in an unknown state.
+                closeConnection();
+                throw e;
+            }
+        } finally {
+            polling.unlock();
+            // The sweeper could not close the connection while this poll held it.
+            if (isClosed()) {
+                release();
+            }
+        }
+    }
+
+    /**
+     * Closes the connection unless a poll holds it, in which case that poll closes it when done.
+     */
+    private void release() {
+        if (polling.tryLock()) {
+            try {
+                closeConnection();
+                snapshot = null;
+            } finally {
+                polling.unlock();
+            }
+        }
+    }
+
+    private void closeConnection() {
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (Exception ignored) {
+                // The connection is discarded either way.
+            }
+            connection = null;
+        }
+    }
+
+    /**
+     * Drops expired leases, with the adaptive interval and pending batch of their subscribers, and closes the
+     * watchers that have no lease left.
+     */
+    static void sweep() {
+        Instant now = Instant.now();
+        WATCHERS.forEach((key, watcher) -> {
+            boolean close;
+            List<String> expired = new ArrayList<>();
+            synchronized (watcher) {
+                watcher.leases.entrySet().removeIf(lease -> lease.getValue().isBefore(now) && expired.add(lease.getKey()));
+                close = watcher.leases.isEmpty();
+                if (close) {
+                    watcher.closed = true;
+                    WATCHERS.remove(key, watcher);
+                }
+            }
+            if (close) {
+                watcher.release();
+            }
+
+            // A trigger that stopped evaluating no longer needs the state it kept between evaluations.
+            expired.forEach(subscriber -> {
+                AdaptiveInterval.forget(subscriber);
+                EventCoalescer.forget(subscriber);
+            });
+        });
+    }
+
+    private record Snapshot(Map<String, String> states, Instant polledAt) {
+        boolean isFresh(Duration maxAge) {
+            return polledAt.plus(maxAge).isAfter(Instant.now());
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package io.kestra.plugin.kvm;
+
+import java.util.List;
+import java.util.Map;
+
+import org.libvirt.DomainInfo.DomainState;
+
+/**
+ * The operations tasks perform on a hypervisor, independent of how it is reached.
+ *
+ * <p>
+ * {@link LibvirtConnection#client()} returns the implementation for the selected backend: the libvirt-java bindings
+ * or the remote protocol client for real hosts, or an in-process implementation registered for a URI, such as the
+ * simulator used by tests and benchmarks. Every call may block for a round trip; failures are reported as {@link HypervisorException}.
+ */
+public interface HypervisorClient {
+    /**
+     * Looks a domain up by name.
+     *
+     * @throws HypervisorException With {@code VIR_ERR_NO_DOMAIN} if there is no such domain.
+     */
+    HypervisorDomain domain(String name) throws HypervisorException;
+
+    /**
+     * Returns the names of every domain, running or not.
+     */
+    List<String> domainNames() throws HypervisorException;
+
+    /**
+     * Returns the UUID of every domain, running or not, by name, in listing order.
+     */
+    Map<String, String> domainUuids() throws HypervisorException;
+
+    /**
+     * Returns the state of every domain, read with bulk listings rather than one call per domain.
+     */
+    Map<String, DomainState> domainStates() throws HypervisorException;
+
+    /**
+     * Looks a storage pool up by name.
+     *
+     * @throws HypervisorException With {@code VIR_ERR_NO_STORAGE_POOL} if there is no such pool.
+     */
+    HypervisorPool pool(String name) throws HypervisorException;
+
+    /**
+     * A domain of the hypervisor.
+     */
+    interface HypervisorDomain {
+        String name();
+
+        String uuid() throws HypervisorException;
+
+        DomainState state() throws HypervisorException;
+
+        String xmlDesc(int flags) throws HypervisorException;
+
+        void create() throws HypervisorException;
+
+        void shutdown() throws HypervisorException;
+
+        void destroy() throws HypervisorException;
+
+        /**
+         * Removes the persistent definition of the domain.
+         *
+         * @param flags {@code virDomainUndefineFlagsValues}, such as {@code VIR_DOMAIN_UNDEFINE_MANAGED_SAVE} to
+         * also remove a managed save image.
+         */
+        void undefine(int flags) throws HypervisorException;
+
+        /**
+         * Returns the IP addresses of the guest, from the DHCP leases of its networks and then the host's ARP
+         * table; empty while none is known.
+         */
+        List<String> addresses() throws HypervisorException;
+    }
+
+    /**
+     * A storage pool of the hypervisor.
+     */
+    interface HypervisorPool {
+        /**
+         * Deletes a volume of the pool.
+         *
+         * @throws HypervisorException With {@code VIR_ERR_NO_STORAGE_VOL} if there is no such volume.
+         */
+        void deleteVolume(String name) throws HypervisorException;
+    }
+}
@@ -0,0 +1,31 @@
+package io.kestra.plugin.kvm;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-process hypervisor clients registered for a URI, used by {@link LibvirtConnection} instead of libvirt.
+ *
+ * <p>
+ * This lets tests, benchmarks and soak runs point unmodified tasks at a simulated host by URI. Nothing is
+ * registered in production, where every URI goes to libvirt.
+ */
+final class HypervisorClients {
+    private static final Map<String, HypervisorClient> CLIENTS = new ConcurrentHashMap<>();
+
+    private HypervisorClients() {
+    }
+
+    static void register(String uri, HypervisorClient client) {
+        CLIENTS.put(uri, client);
+    }
+
+    static void unregister(String uri) {
+        CLIENTS.remove(uri);
+    }
+
+    static Optional<HypervisorClient> lookup(String uri) {
+        return uri == null ? Optional.empty() : Optional.ofNullable(CLIENTS.get(uri));
+    }
+}
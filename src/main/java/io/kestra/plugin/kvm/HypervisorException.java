@@ -0,0 +1,23 @@
+package io.kestra.plugin.kvm;
+
+import org.libvirt.Error.ErrorNumber;
+
+import lombok.Getter;
+
+/**
+ * An error raised by a {@link HypervisorClient}, carrying the libvirt error number whatever the backend.
+ */
+@Getter
+public class HypervisorException extends Exception {
+    private final ErrorNumber code;
+
+    public HypervisorException(ErrorNumber code, String message) {
+        super(message);
+        this.code = code;
+    }
+
+    public HypervisorException(ErrorNumber code, String message, Throwable cause) {
+        super(message, cause);
+        this.code = code;
+    }
+}
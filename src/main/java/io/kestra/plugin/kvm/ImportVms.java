@@ -0,0 +1,219 @@
+package io.kestra.plugin.kvm;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.libvirt.Connect;
+import org.libvirt.Domain;
+import org.libvirt.LibvirtException;
+
+import io.kestra.core.models.annotations.Example;
+import io.kestra.core.models.annotations.Plugin;
+import io.kestra.core.models.annotations.PluginProperty;
+import io.kestra.core.models.executions.metrics.Counter;
+import io.kestra.core.models.property.Property;
+import io.kestra.core.models.tasks.RunnableTask;
+import io.kestra.core.runners.RunContext;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+import lombok.experimental.SuperBuilder;
+
+/**
+ * Task to redefine KVM Virtual Machines from an archive produced by {@link ExportVms}.
+ */
+@SuperBuilder
+@NoArgsConstructor
+@Getter
+@EqualsAndHashCode
+@ToString
+@Plugin(
+    examples = {
+        @Example(
+            title = "Restore the VM definitions of a host from the archive of an earlier export.",
+            full = true,
+            code = """
+                id: kvm_definitions_restore
+                namespace: kvmtest.ssh
+
+                inputs:
+                  - id: archive
+                    type: FILE
+
+                tasks:
+                  - id: import_vms
+                    type: io.kestra.plugin.kvm.ImportVms
+                    uri: qemu+ssh://root@167.99.104.163/system
+                    from: "{{ inputs.archive }}"
+                    maxParallelism: 16
+                """
+        )
+    }
+)
+@Schema(
+    title = "Import VM definitions",
+    description = "Streams an archive produced by ExportVms and redefines its domains in parallel, restoring their autostart flag and snapshot definitions. Domains whose persistent definition, autostart flag and snapshots already match the archive are skipped. Domains are only defined, not started, and their disks must already be present on the host."
+)
+public class ImportVms extends AbstractKvmTask implements RunnableTask<ImportVms.Output> {
+    private static final int DOMAIN_XML_SECURE = 1;
+    private static final int DOMAIN_XML_INACTIVE = 2;
+    private static final int SNAPSHOT_CREATE_REDEFINE = 1;
+    private static final int SNAPSHOT_CREATE_CURRENT = 2;
+
+    @NotNull
+    @Schema(title = "Archive URI", description = "Internal storage URI of an archive produced by ExportVms.")
+    @PluginProperty(group = "main", internalStorageURI = true)
+    private Property<String> from;
+
+    @Builder.Default
+    @Schema(
+        title = "Max parallelism",
+        description = "Maximum number of domains redefined concurrently. Default 8."
+    )
+    @PluginProperty(group = "execution")
+    private Property<Integer> maxParallelism = Property.ofValue(8);
+
+    @Builder.Default
+    @Schema(
+        title = "Restore snapshots",
+        description = "If true, snapshot definitions missing on the host are redefined from the archive. Default true."
+    )
+    @PluginProperty(group = "processing")
+    private Property<Boolean> restoreSnapshots = Property.ofValue(true);
+
+    @Builder.Default
+    @Schema(
+        title = "Fail on error",
+        description = "If true, the task fails when any domain could not be redefined, after the whole archive has been processed. Default true."
+    )
+    @PluginProperty(group = "reliability")
+    private Property<Boolean> failOnError = Property.ofValue(true);
+
+    @Override
+    public Output run(RunContext runContext) throws Exception {
+        URI rFrom = URI.create(runContext.render(this.from).as(String.class).orElseThrow());
+        int rMaxParallelism = runContext.render(this.maxParallelism).as(Integer.class).orElse(8);
+        boolean rRestoreSnapshots = runContext.render(this.restoreSnapshots).as(Boolean.class).orElse(true);
+        int batchSize = Math.max(1, rMaxParallelism) * 4;
+
+        int defined = 0;
+        int skipped = 0;
+        List<Failure> failures = new ArrayList<>();
+
+        try (LibvirtConnection connection = getConnection(runContext);
+             InputStream input = runContext.storage().getFile(rFrom);
+             DomainArchive.Reader reader = new DomainArchive.Reader(input)) {
+            Connect conn = connection.get();
+
+            List<DomainArchive.Entry> batch;
+            while (!(batch = reader.next(batchSize)).isEmpty()) {
+                for (KvmExecutors.Outcome<DomainArchive.Entry, Boolean> outcome : KvmExecutors.fanOut(
+                    batch,
+                    rMaxParallelism,
+                    entry -> redefine(conn, entry, rRestoreSnapshots)
+                )) {
+                    if (!outcome.isSuccess()) {
+                        runContext.logger().error("Failed to import VM {}: {}", outcome.item().name(), outcome.error().getMessage());
+                        failures.add(new Failure(outcome.item().name(), outcome.error().getMessage()));
+                    } else if (outcome.value()) {
+                        invalidateDomain(runContext, outcome.item().name());
+                        defined++;
+                    } else {
+                        skipped++;
+                    }
+                }
+            }
+        }
+
+        runContext.metric(Counter.of("domains.defined", defined));
+        runContext.metric(Counter.of("domains.skipped", skipped));
+        runContext.metric(Counter.of("domains.failed", failures.size()));
+        runContext.logger().info("Imported VM definitions: {} defined, {} unchanged, {} failed.", defined, skipped, failures.size());
+
+        if (!failures.isEmpty() && runContext.render(this.failOnError).as(Boolean.class).orElse(true)) {
+            throw new Exception("Failed to import " + failures.size() + " of " + (defined + skipped + failures.size()) + " VM(s)");
+        }
+
+        return Output.builder()
+            .defined(defined)
+            .skipped(skipped)
+            .failures(failures)
+            .build();
+    }
+
+    /**
+     * Redefines one archived domain unless the host already holds the same definition.
+     *
+     * @return true if anything was defined, false if the domain was identical.
+     */
+    private static boolean redefine(Connect conn, DomainArchive.Entry entry, boolean restoreSnapshots) throws Exception {
+        Domain existing = lookup(conn, entry.uuid());
+        Set<String> existingSnapshots = existing == null ? Set.of() : Set.of(existing.snapshotListNames());
+        List<DomainArchive.Snapshot> missingSnapshots = restoreSnapshots
+            ? entry.snapshots().stream().filter(s -> !existingSnapshots.contains(s.name())).toList()
+            : List.of();
+
+        if (existing != null
+            && missingSnapshots.isEmpty()
+            && existing.getAutostart() == entry.autostart()
+            && existing.getXMLDesc(DOMAIN_XML_INACTIVE | DOMAIN_XML_SECURE).equals(entry.xml())) {
+            return false;
+        }
+
+        Domain domain = conn.domainDefineXML(entry.xml());
+        if (domain.getAutostart() != entry.autostart()) {
+            domain.setAutostart(entry.autostart());
+        }
+        for (DomainArchive.Snapshot snapshot : missingSnapshots) {
+            int flags = SNAPSHOT_CREATE_REDEFINE | (snapshot.name().equals(entry.currentSnapshot()) ? SNAPSHOT_CREATE_CURRENT : 0);
+            domain.snapshotCreateXML(snapshot.xml(), flags);
+        }
+
+        return true;
+    }
+
+    private static Domain lookup(Connect conn, String uuid) throws LibvirtException {
+        try {
+            return conn.domainLookupByUUIDString(uuid);
+        } catch (LibvirtException e) {
+            if (LibvirtErrors.isNotFound(e)) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Output for the ImportVms task.
+     */
+    @Builder
+    @Getter
+    public static class Output implements io.kestra.core.models.tasks.Output {
+        @Schema(title = "Number of VMs defined or updated")
+        private Integer defined;
+
+        @Schema(title = "Number of VMs skipped because they already matched the archive")
+        private Integer skipped;
+
+        @Schema(title = "VMs that could not be imported")
+        private List<Failure> failures;
+    }
+
+    /**
+     * A VM that could not be imported.
+     */
+    @Builder
+    @AllArgsConstructor
+    @Getter
+    public static class Failure {
+        @Schema(title = "VM Name")
+        private String name;
+
+        @Schema(title = "Error message")
+        private String error;
+    }
+}
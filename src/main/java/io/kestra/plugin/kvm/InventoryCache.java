@@ -0,0 +1,82 @@
+package io.kestra.plugin.kvm;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Worker-local cache of domain states, per libvirt URI.
+ *
+ * <p>
+ * Entries are filled by reads such as {@link ListVms} and dropped by every task that changes a domain. Each host
+ * keeps at most {@link #MAX_ENTRIES_PER_HOST} domains, evicting the least recently used one, and an entry is only
+ * served while it is younger than the TTL requested by the reader.
+ */
+final class InventoryCache {
+    static final int MAX_ENTRIES_PER_HOST = 4096;
+
+    private static final Map<String, Map<String, Entry>> HOSTS = new ConcurrentHashMap<>();
+
+    private InventoryCache() {
+    }
+
+    /**
+     * Returns the cached entry of a domain if it was cached less than ttl ago.
+     */
+    static Optional<Entry> get(String uri, String name, Duration ttl) {
+        Map<String, Entry> host = HOSTS.get(key(uri));
+        if (host == null) {
+            return Optional.empty();
+        }
+
+        synchronized (host) {
+            Entry entry = host.get(name);
+            if (entry == null) {
+                return Optional.empty();
+            }
+            if (entry.cachedAt().plus(ttl).isBefore(Instant.now())) {
+                host.remove(name);
+                return Optional.empty();
+            }
+            return Optional.of(entry);
+        }
+    }
+
+    static void put(String uri, String name, String state) {
+        Map<String, Entry> host = HOSTS.computeIfAbsent(key(uri), k -> lru());
+        synchronized (host) {
+            host.put(name, new Entry(name, state, Instant.now()));
+        }
+    }
+
+    static void invalidate(String uri, String name) {
+        Map<String, Entry> host = HOSTS.get(key(uri));
+        if (host != null) {
+            synchronized (host) {
+                host.remove(name);
+            }
+        }
+    }
+
+    private static String key(String uri) {
+        return uri == null ? "" : uri;
+    }
+
+    private static Map<String, Entry> lru() {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > MAX_ENTRIES_PER_HOST;
+            }
+        };
+    }
+
+    /**
+     * What is known about a domain, and when it was read.
+     */
+    record Entry(String name, String state, Instant cachedAt) {
+    }
+}
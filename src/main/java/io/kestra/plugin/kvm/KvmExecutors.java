@@ -0,0 +1,219 @@
+package io.kestra.plugin.kvm;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared execution layer for libvirt calls issued against several hosts or domains at once.
+ *
+ * <p>
+ * Fan-outs are orchestrated on virtual threads, one per item, so waiting for a call, a migration or a nested fan-out
+ * costs no platform thread. Only the native calls themselves leave the virtual threads: a JNA call would hold its
+ * carrier for the whole round trip, so they run on a pool of platform threads bounded for the whole worker, and a
+ * caller beyond {@link #MAX_NATIVE_THREADS} waits for a permit on its virtual thread. A native call never waits for
+ * another permit: native work started from within a native call runs on the calling thread. A fan-out is
+ * structured: it returns once every item has completed, and if the caller is interrupted the items still running
+ * or queued are cancelled before it returns.
+ */
+final class KvmExecutors {
+    /**
+     * The maximum number of native libvirt calls in flight on the worker, across all tasks.
+     */
+    static final int MAX_NATIVE_THREADS = 64;
+
+    /**
+     * Platform threads for native libvirt calls, shared by all tasks of the worker; idle threads expire after a
+     * minute, so the pool only holds as many threads as there are native calls in flight.
+     */
+    private static final ThreadPoolExecutor NATIVE = new ThreadPoolExecutor(
+        MAX_NATIVE_THREADS,
+        MAX_NATIVE_THREADS,
+        1,
+        TimeUnit.MINUTES,
+        new LinkedBlockingQueue<>(),
+        daemonFactory("kvm-native-")
+    );
+
+    private static final Semaphore NATIVE_PERMITS = new Semaphore(MAX_NATIVE_THREADS, true);
+
+    private static final ThreadLocal<Boolean> IN_NATIVE_CALL = ThreadLocal.withInitial(() -> false);
+
+    private static final ThreadFactory ORCHESTRATION = Thread.ofVirtual().name("kvm-orchestration-", 0).factory();
+
+    static {
+        NATIVE.allowCoreThreadTimeOut(true);
+    }
+
+    private KvmExecutors() {
+    }
+
+    /**
+     * Applies a native libvirt action to every item with at most {@code parallelism} calls in flight.
+     *
+     * @param items The items to process.
+     * @param parallelism The maximum number of concurrent calls.
+     * @param action The blocking action to run for each item, on the native pool.
+     * @return One outcome per item, in the order of {@code items}.
+     * @throws InterruptedException If the calling thread is interrupted while waiting; calls not yet completed
+     * are cancelled.
+     */
+    static <T, R> List<Outcome<T, R>> fanOut(List<T> items, int parallelism, Action<T, R> action) throws InterruptedException {
+        if (IN_NATIVE_CALL.get()) {
+            // Already on a native thread holding a permit: waiting for more permits could starve the outer fan-out.
+            List<Outcome<T, R>> outcomes = new ArrayList<>(items.size());
+            for (T item : items) {
+                try {
+                    outcomes.add(new Outcome<>(item, action.apply(item), null));
+                } catch (InterruptedException e) {
+                    throw e;
+                } catch (Exception e) {
+                    outcomes.add(new Outcome<>(item, null, e));
+                }
+            }
+            return outcomes;
+        }
+
+        return fork(items, parallelism, item -> call(() -> action.apply(item)));
+    }
+
+    /**
+     * Runs an orchestration action for every item on virtual threads, with at most {@code parallelism} items in
+     * flight. The action waits on its virtual thread and sends its native calls through {@link #call(Callable)},
+     * {@link #submit(Callable)} or {@link #fanOut(List, int, Action)}.
+     *
+     * @param items The items to process.
+     * @param parallelism The maximum number of items in flight.
+     * @param action The action to run for each item.
+     * @return One outcome per item, in the order of {@code items}.
+     * @throws InterruptedException If the calling thread is interrupted while waiting; items not yet completed
+     * are cancelled.
+     */
+    static <T, R> List<Outcome<T, R>> fork(List<T> items, int parallelism, Action<T, R> action) throws InterruptedException {
+        if (items.isEmpty()) {
+            return List.of();
+        }
+
+        Semaphore permits = new Semaphore(Math.max(1, Math.min(parallelism, items.size())));
+        ExecutorService executor = Executors.newThreadPerTaskExecutor(ORCHESTRATION);
+        List<Future<R>> futures = new ArrayList<>(items.size());
+        try {
+            for (T item : items) {
+                futures.add(executor.submit(() -> {
+                    permits.acquire();
+                    try {
+                        return action.apply(item);
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+
+            List<Outcome<T, R>> outcomes = new ArrayList<>(items.size());
+            for (int i = 0; i < items.size(); i++) {
+                try {
+                    outcomes.add(new Outcome<>(items.get(i), futures.get(i).get(), null));
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    outcomes.add(new Outcome<>(items.get(i), null, cause instanceof Exception ex ? ex : new Exception(cause)));
+                }
+            }
+
+            return outcomes;
+        } catch (InterruptedException | CancellationException e) {
+            executor.shutdownNow();
+            throw e;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Runs one native libvirt call on the native pool and waits for its result.
+     *
+     * @throws InterruptedException If the caller is interrupted while waiting; the call is cancelled.
+     * @throws Exception The exception thrown by the call.
+     */
+    static <R> R call(Callable<R> call) throws Exception {
+        if (IN_NATIVE_CALL.get()) {
+            return call.call();
+        }
+
+        NATIVE_PERMITS.acquire();
+        try {
+            Future<R> future = NATIVE.submit(() -> {
+                IN_NATIVE_CALL.set(true);
+                try {
+                    return call.call();
+                } finally {
+                    IN_NATIVE_CALL.set(false);
+                }
+            });
+
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                future.cancel(true);
+                throw e;
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof Exception cause) {
+                    throw cause;
+                }
+                if (e.getCause() instanceof Error error) {
+                    throw error;
+                }
+                throw e;
+            }
+        } finally {
+            NATIVE_PERMITS.release();
+        }
+    }
+
+    /**
+     * Starts one long native call, such as a migration, while the caller monitors it; cancelling the returned
+     * future interrupts the call.
+     */
+    static <R> Future<R> submit(Callable<R> call) {
+        FutureTask<R> task = new FutureTask<>(() -> call(call));
+        ORCHESTRATION.newThread(task).start();
+        return task;
+    }
+
+    private static ThreadFactory daemonFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * A blocking action that may throw.
+     */
+    @FunctionalInterface
+    interface Action<T, R> {
+        R apply(T item) throws Exception;
+    }
+
+    /**
+     * The result of one item: either a value or the error raised while computing it.
+     */
+    record Outcome<T, R>(T item, R value, Exception error) {
+        boolean isSuccess() {
+            return error == null;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package io.kestra.plugin.kvm;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Worker-local index of the {@link DomainLabels labels} of every domain, per libvirt URI.
+ *
+ * <p>
+ * Labels live in each domain's XML, so selecting by label would otherwise fetch the description of every domain on
+ * every task. The index is filled in bulk on first use, then each selection only lists the domain names and UUIDs:
+ * domains that disappeared are dropped and only new ones are fetched. Entries are keyed by UUID, so a domain deleted
+ * and defined again under the same name, by another worker or outside Kestra, is read again rather than matched on
+ * the labels of its predecessor. Tasks of this plugin that change a domain drop its entry, and the whole index is
+ * rebuilt every {@link #RESYNC_INTERVAL} to catch labels changed outside of Kestra.
+ */
+final class LabelIndex {
+    static final Duration RESYNC_INTERVAL = Duration.ofMinutes(10);
+
+    private static final Map<String, LabelIndex> HOSTS = new ConcurrentHashMap<>();
+
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    private Instant syncedAt = Instant.EPOCH;
+
+    private LabelIndex() {
+    }
+
+    /**
+     * Returns the names of the domains whose labels match a selector, in the order the hypervisor lists them.
+     *
+     * @param parallelism The maximum number of domain descriptions fetched concurrently while filling the index.
+     * @throws Exception If the domains cannot be listed, or the description of a listed domain cannot be read.
+     */
+    static List<String> select(HypervisorClient client, String uri, LabelSelector selector, int parallelism) throws Exception {
+        LabelIndex index = HOSTS.computeIfAbsent(key(uri), k -> new LabelIndex());
+        synchronized (index) {
+            Map<String, String> uuids = index.refresh(client, parallelism);
+            return uuids.entrySet().stream()
+                .filter(domain -> {
+                    Entry entry = index.entries.get(domain.getValue());
+                    return entry != null && selector.matches(entry.labels());
+                })
+                .map(Map.Entry::getKey)
+                .toList();
+        }
+    }
+
+    static void invalidate(String uri, String name) {
+        LabelIndex index = HOSTS.get(key(uri));
+        if (index != null) {
+            synchronized (index) {
+                index.entries.values().removeIf(entry -> entry.name().equals(name));
+            }
+        }
+    }
+
+    private static String key(String uri) {
+        return uri == null ? "" : uri;
+    }
+
+    private Map<String, String> refresh(HypervisorClient client, int parallelism) throws Exception {
+        Map<String, String> uuids = client.domainUuids();
+
+        if (syncedAt.plus(RESYNC_INTERVAL).isBefore(Instant.now())) {
+            entries.clear();
+            syncedAt = Instant.now();
+        }
+        entries.keySet().retainAll(new HashSet<>(uuids.values()));
+
+        List<String> missing = new ArrayList<>();
+        uuids.forEach((name, uuid) -> {
+            if (!entries.containsKey(uuid)) {
+                missing.add(name);
+            }
+        });
+
+        for (KvmExecutors.Outcome<String, Map<String, String>> outcome : KvmExecutors.fanOut(missing, parallelism, name -> {
+            HypervisorClient.HypervisorDomain domain = client.domain(name);
+            // The name may already belong to a domain defined since the listing; it is read on the next refresh.
+            return domain.uuid().equals(uuids.get(name)) ? DomainLabels.read(domain.xmlDesc(0)) : null;
+        })) {
+            if (outcome.isSuccess()) {
+                if (outcome.value() != null) {
+                    entries.put(uuids.get(outcome.item()), new Entry(outcome.item(), outcome.value()));
+                }
+            } else if (!LibvirtErrors.isNotFound(outcome.error())) {
+                throw outcome.error();
+            }
+        }
+
+        return uuids;
+    }
+
+    private record Entry(String name, Map<String, String> labels) {
+    }
+}
@@ -0,0 +1,96 @@
+package io.kestra.plugin.kvm;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Selects domains by label, from a comma-separated list of requirements that must all hold: {@code key=value},
+ * {@code key!=value}, {@code key} (the label is set) or {@code !key} (the label is not set).
+ */
+final class LabelSelector {
+    private final List<Requirement> requirements;
+
+    private LabelSelector(List<Requirement> requirements) {
+        this.requirements = requirements;
+    }
+
+    /**
+     * Parses a selector such as {@code team=ci,pool!=gpu}.
+     *
+     * @throws IllegalArgumentException If the selector has no requirement, since it would match every domain, or if
+     * a requirement is not a valid label expression.
+     */
+    static LabelSelector parse(String selector) {
+        List<Requirement> requirements = new ArrayList<>();
+        if (selector != null) {
+            for (String part : selector.split(",")) {
+                String requirement = part.trim();
+                if (requirement.isEmpty()) {
+                    continue;
+                }
+
+                int notEquals = requirement.indexOf("!=");
+                int equals = requirement.indexOf('=');
+                if (notEquals > 0) {
+                    requirements.add(requirement(requirement.substring(0, notEquals), requirement.substring(notEquals + 2), Operator.NOT_EQUALS));
+                } else if (equals > 0) {
+                    requirements.add(requirement(requirement.substring(0, equals), requirement.substring(equals + 1), Operator.EQUALS));
+                } else if (requirement.startsWith("!")) {
+                    requirements.add(requirement(requirement.substring(1), "", Operator.ABSENT));
+                } else {
+                    requirements.add(requirement(requirement, "", Operator.PRESENT));
+                }
+            }
+        }
+        if (requirements.isEmpty()) {
+            throw new IllegalArgumentException("Label selector '" + (selector == null ? "" : selector) + "' has no requirement; omit labelSelector instead of selecting every domain");
+        }
+        return new LabelSelector(List.copyOf(requirements));
+    }
+
+    boolean matches(Map<String, String> labels) {
+        for (Requirement requirement : requirements) {
+            String value = labels.get(requirement.key());
+            boolean matches = switch (requirement.operator()) {
+                case EQUALS -> requirement.value().equals(value);
+                case NOT_EQUALS -> !requirement.value().equals(value);
+                case PRESENT -> value != null;
+                case ABSENT -> value == null;
+            };
+            if (!matches) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return String.join(",", requirements.stream().map(Requirement::toString).toList());
+    }
+
+    private static Requirement requirement(String key, String value, Operator operator) {
+        DomainLabels.validate(key.trim(), value.trim());
+        return new Requirement(key.trim(), value.trim(), operator);
+    }
+
+    private enum Operator {
+        EQUALS,
+        NOT_EQUALS,
+        PRESENT,
+        ABSENT
+    }
+
+    private record Requirement(String key, String value, Operator operator) {
+        @Override
+        public String toString() {
+            return switch (operator) {
+                case EQUALS -> key + "=" + value;
+                case NOT_EQUALS -> key + "!=" + value;
+                case PRESENT -> key;
+                case ABSENT -> "!" + key;
+            };
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package io.kestra.plugin.kvm;
+
+/**
+ * How a task talks to the libvirt daemon.
+ */
+public enum LibvirtBackend {
+    /**
+     * The libvirt-java bindings over the native libvirt client library, which must be installed on the worker.
+     */
+    NATIVE,
+
+    /**
+     * The pure-Java client of the libvirt remote protocol in {@code io.kestra.plugin.kvm.remote}, which needs no
+     * native library and pipelines calls on one connection. Only supported by tasks that document it.
+     */
+    REMOTE
+}
@@ -3,13 +3,22 @@ package io.kestra.plugin.kvm;
 import org.libvirt.Connect;
 import org.libvirt.LibvirtException;
 
+import io.kestra.plugin.kvm.remote.RemoteConnection;
+
 /**
- * A wrapper around a Libvirt {@link Connect} object that implements
- * {@link AutoCloseable}.
+ * A wrapper around a Libvirt {@link Connect} object, or a {@link RemoteConnection} when the remote backend is
+ * selected, that implements {@link AutoCloseable}. Tasks ported to {@link HypervisorClient} use {@link #client()},
+ * which also resolves in-process clients registered in {@link HypervisorClients}.
  */
 public class LibvirtConnection implements AutoCloseable {
+    private static final String DEFAULT_URI = "qemu:///system";
+
     private final Connect connect;
 
+    private final RemoteConnection remote;
+
+    private final HypervisorClient client;
+
     /**
      * Creates a new Libvirt connection.
      *
@@ -18,21 +27,73 @@ public class LibvirtConnection implements AutoCloseable {
      */
     public LibvirtConnection(String uri) throws LibvirtException {
         this.connect = new Connect(uri);
+        this.remote = null;
+        this.client = new NativeHypervisorClient(this.connect);
+    }
+
+    /**
+     * Creates a new connection through the given backend.
+     *
+     * @param uri The URI to connect to.
+     * @param backend The backend to connect with.
+     * @throws Exception If the connection fails.
+     */
+    public LibvirtConnection(String uri, LibvirtBackend backend) throws Exception {
+        HypervisorClient registered = HypervisorClients.lookup(uri).orElse(null);
+        if (registered != null) {
+            this.connect = null;
+            this.remote = null;
+            this.client = registered;
+        } else if (backend == LibvirtBackend.REMOTE) {
+            String target = uri != null ? uri : System.getenv().getOrDefault("LIBVIRT_DEFAULT_URI", DEFAULT_URI);
+            this.connect = null;
+            this.remote = RemoteConnection.open(target);
+            this.client = new RemoteHypervisorClient(this.remote);
+        } else {
+            this.connect = new Connect(uri);
+            this.remote = null;
+            this.client = new NativeHypervisorClient(this.connect);
+        }
     }
 
     /**
      * Gets the underlying {@link Connect} object.
      *
      * @return The {@link Connect} object.
+     * @throws IllegalStateException If the connection uses the remote backend.
      */
     public Connect get() {
+        if (this.connect == null) {
+            throw new IllegalStateException("This task only supports the NATIVE backend");
+        }
         return this.connect;
     }
 
+    /**
+     * Gets the {@link HypervisorClient} of this connection.
+     *
+     * @return The client, over the native bindings or the remote protocol depending on the backend.
+     */
+    public HypervisorClient client() {
+        return this.client;
+    }
+
+    /**
+     * Gets the underlying {@link RemoteConnection}, or null when the native backend is used.
+     *
+     * @return The {@link RemoteConnection} object.
+     */
+    public RemoteConnection remote() {
+        return this.remote;
+    }
+
     @Override
-    public void close() throws LibvirtException {
+    public void close() throws Exception {
         if (connect != null) {
             connect.close();
         }
+        if (remote != null) {
+            remote.close();
+        }
     }
 }
@@ -0,0 +1,131 @@
+package io.kestra.plugin.kvm;
+
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.Set;
+
+import org.libvirt.Error.ErrorNumber;
+import org.libvirt.LibvirtException;
+
+import io.kestra.plugin.kvm.remote.RemoteException;
+
+/**
+ * Classification of libvirt errors, whichever backend raised them.
+ *
+ * <p>
+ * Tasks use it to tell a missing object apart from a failed call, and {@link HostCircuitBreaker} to decide which
+ * failures say that a host is unreachable.
+ */
+final class LibvirtErrors {
+    private static final Set<ErrorNumber> NOT_FOUND = EnumSet.of(
+        ErrorNumber.VIR_ERR_NO_DOMAIN,
+        ErrorNumber.VIR_ERR_NO_NETWORK,
+        ErrorNumber.VIR_ERR_NO_STORAGE_POOL,
+        ErrorNumber.VIR_ERR_NO_STORAGE_VOL,
+        ErrorNumber.VIR_ERR_NO_NODE_DEVICE,
+        ErrorNumber.VIR_ERR_NO_INTERFACE,
+        ErrorNumber.VIR_ERR_NO_NWFILTER,
+        ErrorNumber.VIR_ERR_NO_SECRET,
+        ErrorNumber.VIR_ERR_NO_DOMAIN_SNAPSHOT,
+        ErrorNumber.VIR_ERR_NO_DOMAIN_METADATA,
+        ErrorNumber.VIR_ERR_NO_DOMAIN_CHECKPOINT,
+        ErrorNumber.VIR_ERR_NO_NETWORK_PORT
+    );
+
+    private static final Set<ErrorNumber> TRANSIENT = EnumSet.of(
+        ErrorNumber.VIR_ERR_NO_CONNECT,
+        ErrorNumber.VIR_ERR_INVALID_CONN,
+        ErrorNumber.VIR_ERR_UNKNOWN_HOST,
+        ErrorNumber.VIR_ERR_SYSTEM_ERROR,
+        ErrorNumber.VIR_ERR_RPC,
+        ErrorNumber.VIR_ERR_GNUTLS_ERROR,
+        ErrorNumber.VIR_ERR_SSH,
+        ErrorNumber.VIR_ERR_LIBSSH,
+        ErrorNumber.VIR_ERR_AUTH_UNAVAILABLE,
+        ErrorNumber.VIR_ERR_NO_SERVER
+    );
+
+    private static final Set<ErrorNumber> BUSY = EnumSet.of(
+        ErrorNumber.VIR_ERR_OPERATION_TIMEOUT,
+        ErrorNumber.VIR_ERR_RESOURCE_BUSY,
+        ErrorNumber.VIR_ERR_AGENT_UNRESPONSIVE,
+        ErrorNumber.VIR_ERR_AGENT_UNSYNCED,
+        ErrorNumber.VIR_ERR_BLOCK_COPY_ACTIVE
+    );
+
+    private LibvirtErrors() {
+    }
+
+    /**
+     * Returns the category of a libvirt error number.
+     */
+    static Category classify(ErrorNumber code) {
+        if (NOT_FOUND.contains(code)) {
+            return Category.NOT_FOUND;
+        }
+        if (TRANSIENT.contains(code)) {
+            return Category.TRANSIENT;
+        }
+        if (BUSY.contains(code)) {
+            return Category.BUSY;
+        }
+        return Category.PERMANENT;
+    }
+
+    /**
+     * Returns the category of an exception raised by a libvirt call: the error number of a
+     * {@link LibvirtException}, {@link HypervisorException} or {@link RemoteException}, {@link Category#TRANSIENT}
+     * for an I/O failure of the remote backend, and {@link Category#PERMANENT} for anything else.
+     */
+    static Category classify(Throwable error) {
+        ErrorNumber code = code(error);
+        if (code != null) {
+            return classify(code);
+        }
+        return error instanceof IOException ? Category.TRANSIENT : Category.PERMANENT;
+    }
+
+    static boolean isNotFound(Throwable error) {
+        return classify(error) == Category.NOT_FOUND;
+    }
+
+    /**
+     * Returns the libvirt error number carried by an exception, or null.
+     */
+    static ErrorNumber code(Throwable error) {
+        if (error instanceof HypervisorException e) {
+            return e.getCode();
+        }
+        if (error instanceof LibvirtException e) {
+            return e.getError() != null ? e.getError().getCode() : null;
+        }
+        if (error instanceof RemoteException e) {
+            // Error numbers are declared in the order of their libvirt values.
+            ErrorNumber[] values = ErrorNumber.values();
+            return e.getCode() >= 0 && e.getCode() < values.length ? values[e.getCode()] : ErrorNumber.VIR_ERR_UNKNOWN;
+        }
+        return null;
+    }
+
+    enum Category {
+        /**
+         * The object the call referred to does not exist.
+         */
+        NOT_FOUND,
+
+        /**
+         * The host or the connection to it failed; the same call may succeed later.
+         */
+        TRANSIENT,
+
+        /**
+         * The host is reachable but the object is busy or did not answer in time; the call may succeed later.
+         */
+        BUSY,
+
+        /**
+         * The call is invalid or unsupported and will fail again.
+         */
+        PERMANENT
+    }
+}
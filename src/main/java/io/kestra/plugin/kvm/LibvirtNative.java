@@ -0,0 +1,245 @@
+package io.kestra.plugin.kvm;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.libvirt.Connect;
+import org.libvirt.Domain;
+import org.libvirt.Error.ErrorNumber;
+import org.libvirt.Network;
+import org.libvirt.jna.ConnectionPointer;
+import org.libvirt.jna.DomainPointer;
+import org.libvirt.jna.NetworkPointer;
+
+import com.sun.jna.Library;
+import com.sun.jna.Native;
+import com.sun.jna.NativeLong;
+import com.sun.jna.Pointer;
+import com.sun.jna.Structure;
+import com.sun.jna.ptr.IntByReference;
+import com.sun.jna.ptr.PointerByReference;
+
+/**
+ * Direct calls to libvirt entry points that the libvirt-java binding does not expose.
+ *
+ * <p>
+ * The library is loaded lazily on first use, and the native domain handle is read from the binding's
+ * {@link Domain}, so these calls share the connection and reference counting of the regular API.
+ */
+final class LibvirtNative {
+    static final int AFFECT_LIVE = 1;
+
+    static final int AFFECT_CONFIG = 2;
+
+    private static final int ALL_CPUS = -1;
+
+    private LibvirtNative() {
+    }
+
+    /**
+     * Switches a running migration started with {@code VIR_MIGRATE_POSTCOPY} to post-copy mode.
+     *
+     * @param domain The migrating domain on the source connection.
+     * @throws IllegalStateException If libvirt refuses the switchover.
+     */
+    static void migrateStartPostCopy(Domain domain) throws ReflectiveOperationException {
+        if (Holder.LIBRARY.virDomainMigrateStartPostCopy(pointer(domain), 0) < 0) {
+            throw new IllegalStateException("Unable to switch migration to post-copy: " + Holder.LIBRARY.virGetLastErrorMessage());
+        }
+    }
+
+    /**
+     * Sets the current memory of a domain, live, in its persistent configuration, or both.
+     *
+     * @param domain The domain.
+     * @param kib The new memory target, in KiB.
+     * @param flags {@link #AFFECT_LIVE} and/or {@link #AFFECT_CONFIG}.
+     * @throws IllegalStateException If libvirt refuses the change.
+     */
+    static void setMemoryFlags(Domain domain, long kib, int flags) throws ReflectiveOperationException {
+        if (Holder.LIBRARY.virDomainSetMemoryFlags(pointer(domain), new NativeLong(kib), flags) < 0) {
+            throw new IllegalStateException("Unable to set memory: " + Holder.LIBRARY.virGetLastErrorMessage());
+        }
+    }
+
+    /**
+     * Reads the cumulative CPU time counters of the whole node, in nanoseconds.
+     *
+     * @param conn The connection to the hypervisor.
+     * @return The counters by name, typically {@code kernel}, {@code user}, {@code idle} and {@code iowait}.
+     * @throws IllegalStateException If the driver does not report node CPU statistics.
+     */
+    static Map<String, Long> nodeCpuStats(Connect conn) throws ReflectiveOperationException {
+        ConnectionPointer pointer = (ConnectionPointer) field(Connect.class, "vcp").get(conn);
+
+        IntByReference count = new IntByReference(0);
+        if (Holder.LIBRARY.virNodeGetCPUStats(pointer, ALL_CPUS, null, count, 0) < 0 || count.getValue() == 0) {
+            throw new IllegalStateException("Unable to read node CPU statistics: " + Holder.LIBRARY.virGetLastErrorMessage());
+        }
+
+        NodeCpuStats[] stats = (NodeCpuStats[]) new NodeCpuStats().toArray(count.getValue());
+        if (Holder.LIBRARY.virNodeGetCPUStats(pointer, ALL_CPUS, stats[0], count, 0) < 0) {
+            throw new IllegalStateException("Unable to read node CPU statistics: " + Holder.LIBRARY.virGetLastErrorMessage());
+        }
+
+        Map<String, Long> values = new LinkedHashMap<>();
+        for (int i = 0; i < count.getValue(); i++) {
+            stats[i].read();
+            values.put(Native.toString(stats[i].field), stats[i].value);
+        }
+        return values;
+    }
+
+    /**
+     * Reads the active DHCP leases of a libvirt network in one call.
+     *
+     * @param network The network.
+     * @param mac Only return the leases of this MAC address, or null for all leases.
+     * @return The leases.
+     * @throws IllegalStateException If the network or its driver does not report leases.
+     */
+    static List<DhcpLease> dhcpLeases(Network network, String mac) throws ReflectiveOperationException {
+        NetworkPointer pointer = (NetworkPointer) field(Network.class, "vnp").get(network);
+
+        PointerByReference array = new PointerByReference();
+        int count = Holder.LIBRARY.virNetworkGetDHCPLeases(pointer, mac, array, 0);
+        if (count < 0) {
+            throw new IllegalStateException("Unable to read DHCP leases: " + Holder.LIBRARY.virGetLastErrorMessage());
+        }
+        if (count == 0) {
+            return List.of();
+        }
+
+        List<DhcpLease> leases = new ArrayList<>(count);
+        for (Pointer entry : array.getValue().getPointerArray(0, count)) {
+            NetworkDhcpLease lease = Structure.newInstance(NetworkDhcpLease.class, entry);
+            lease.read();
+            leases.add(new DhcpLease(
+                lease.mac == null ? null : lease.mac.toLowerCase(),
+                lease.ipaddr,
+                lease.prefix,
+                lease.hostname,
+                lease.expirytime
+            ));
+            Holder.LIBRARY.virNetworkDHCPLeaseFree(entry);
+        }
+        Native.free(Pointer.nativeValue(array.getValue()));
+        return leases;
+    }
+
+    /**
+     * Reads the domain capabilities of the hypervisor for one emulator, architecture, machine type and virtualization
+     * type: supported CPU models, firmware and device models.
+     *
+     * @param conn The connection to the hypervisor.
+     * @param emulator The emulator binary, or null for the default of the architecture.
+     * @param arch The guest architecture, or null for the host's.
+     * @param machine The machine type, or null for the emulator's default.
+     * @param virtType The virtualization type, such as {@code kvm}, or null for the best available.
+     * @return The domain capabilities XML.
+     * @throws HypervisorException If the driver does not report domain capabilities or rejects the combination.
+     */
+    static String domainCapabilities(Connect conn, String emulator, String arch, String machine, String virtType)
+        throws ReflectiveOperationException, HypervisorException {
+        ConnectionPointer pointer = (ConnectionPointer) field(Connect.class, "vcp").get(conn);
+
+        Pointer xml = Holder.LIBRARY.virConnectGetDomainCapabilities(pointer, emulator, arch, machine, virtType, 0);
+        if (xml == null) {
+            throw new HypervisorException(lastErrorCode(), "Unable to read domain capabilities: " + Holder.LIBRARY.virGetLastErrorMessage());
+        }
+        try {
+            return xml.getString(0);
+        } finally {
+            Native.free(Pointer.nativeValue(xml));
+        }
+    }
+
+    private static ErrorNumber lastErrorCode() {
+        // Error numbers are declared in the order of their libvirt values.
+        int code = Holder.LIBRARY.virGetLastErrorCode();
+        ErrorNumber[] values = ErrorNumber.values();
+        return code >= 0 && code < values.length ? values[code] : ErrorNumber.VIR_ERR_UNKNOWN;
+    }
+
+    private static DomainPointer pointer(Domain domain) throws ReflectiveOperationException {
+        return (DomainPointer) field(Domain.class, "vdp").get(domain);
+    }
+
+    private static Field field(Class<?> type, String name) throws NoSuchFieldException {
+        Field field = type.getDeclaredField(name);
+        field.setAccessible(true);
+        return field;
+    }
+
+    /**
+     * Mirror of {@code virNodeCPUStats}.
+     */
+    @Structure.FieldOrder({"field", "value"})
+    public static class NodeCpuStats extends Structure {
+        public byte[] field = new byte[80];
+
+        public long value;
+    }
+
+    /**
+     * Mirror of {@code virNetworkDHCPLease}.
+     */
+    @Structure.FieldOrder({"iface", "expirytime", "type", "mac", "iaid", "ipaddr", "prefix", "hostname", "clientid"})
+    public static class NetworkDhcpLease extends Structure {
+        public String iface;
+
+        public long expirytime;
+
+        public int type;
+
+        public String mac;
+
+        public String iaid;
+
+        public String ipaddr;
+
+        public int prefix;
+
+        public String hostname;
+
+        public String clientid;
+
+        public NetworkDhcpLease() {
+        }
+
+        public NetworkDhcpLease(Pointer pointer) {
+            super(pointer);
+        }
+    }
+
+    /**
+     * A DHCP lease of a libvirt network.
+     */
+    record DhcpLease(String mac, String ip, int prefix, String hostname, long expiryTime) {
+    }
+
+    interface Virt extends Library {
+        int virDomainMigrateStartPostCopy(DomainPointer domain, int flags);
+
+        int virDomainSetMemoryFlags(DomainPointer domain, NativeLong memory, int flags);
+
+        int virNodeGetCPUStats(ConnectionPointer conn, int cpuNum, NodeCpuStats params, IntByReference nparams, int flags);
+
+        int virNetworkGetDHCPLeases(NetworkPointer network, String mac, PointerByReference leases, int flags);
+
+        void virNetworkDHCPLeaseFree(Pointer lease);
+
+        Pointer virConnectGetDomainCapabilities(ConnectionPointer conn, String emulatorbin, String arch, String machine, String virttype, int flags);
+
+        String virGetLastErrorMessage();
+
+        int virGetLastErrorCode();
+    }
+
+    private static final class Holder {
+        private static final Virt LIBRARY = Native.load("virt", Virt.class);
+    }
+}
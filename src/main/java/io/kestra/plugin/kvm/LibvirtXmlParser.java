@@ -1,12 +1,19 @@
 package io.kestra.plugin.kvm;
 
 import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
 import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathFactory;
@@ -14,6 +21,7 @@ import javax.xml.xpath.XPathFactory;
 import org.libvirt.Domain;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
+import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 import org.xml.sax.InputSource;
 
@@ -29,22 +37,20 @@ class LibvirtXmlParser {
      * @throws Exception If XML parsing or XPath evaluation fails.
      */
     static Map<String, List<String>> getVolumesGroupedByPool(Domain domain) throws Exception {
-        String xml = domain.getXMLDesc(0);
-
-        DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-        dbf.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
-        dbf.setFeature("http://xml.org/sax/features/external-general-entities", false);
-        dbf.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
-        dbf.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
-        dbf.setXIncludeAware(false);
-        dbf.setExpandEntityReferences(false);
-
-        Document doc = dbf.newDocumentBuilder()
-            .parse(new InputSource(new StringReader(xml)));
+        return getVolumesGroupedByPool(domain.getXMLDesc(0));
+    }
 
-        XPath xpathFactory = XPathFactory.newInstance().newXPath();
+    /**
+     * Extracts the volume disks of a domain XML description, grouped by storage pool.
+     *
+     * @param xml The domain XML.
+     * @return The volume names of 'volume' disks, by pool name.
+     * @throws Exception If XML parsing or XPath evaluation fails.
+     */
+    static Map<String, List<String>> getVolumesGroupedByPool(String xml) throws Exception {
+        Document doc = parse(xml);
 
-        NodeList nodes = (NodeList) xpathFactory.evaluate(
+        NodeList nodes = (NodeList) xpath().evaluate(
             "/domain/devices/disk[@type='volume' and @device='disk']/source",
             doc,
             XPathConstants.NODESET
@@ -59,4 +65,152 @@ class LibvirtXmlParser {
                 )
             );
     }
-}
\ No newline at end of file
+
+    /**
+     * Extracts the network interfaces of a domain XML description.
+     *
+     * @param xml The domain XML.
+     * @return The MAC address (lower case) of every interface, mapped to the libvirt network it is attached to, or
+     * to null for interfaces not attached to a libvirt network, such as bridges.
+     * @throws Exception If XML parsing or XPath evaluation fails.
+     */
+    static Map<String, String> getInterfaces(String xml) throws Exception {
+        NodeList nodes = (NodeList) xpath().evaluate("/domain/devices/interface", parse(xml), XPathConstants.NODESET);
+
+        Map<String, String> interfaces = new LinkedHashMap<>();
+        for (int i = 0; i < nodes.getLength(); i++) {
+            Element element = (Element) nodes.item(i);
+            Element mac = firstChild(element, "mac");
+            if (mac == null || mac.getAttribute("address").isEmpty()) {
+                continue;
+            }
+
+            Element source = firstChild(element, "source");
+            String network = "network".equals(element.getAttribute("type")) && source != null ? source.getAttribute("network") : null;
+            interfaces.put(mac.getAttribute("address").toLowerCase(), network);
+        }
+        return interfaces;
+    }
+
+    /**
+     * Extracts the text values of the custom metadata of a domain XML description.
+     *
+     * @param xml The domain XML.
+     * @return The trimmed text of every element under {@code <metadata>} that has no child element, by local name
+     * (without namespace prefix); the first element wins when a name repeats.
+     * @throws Exception If XML parsing or XPath evaluation fails.
+     */
+    static Map<String, String> getMetadata(String xml) throws Exception {
+        NodeList nodes = (NodeList) xpath().evaluate("/domain/metadata//*[not(*)]", parse(xml), XPathConstants.NODESET);
+
+        Map<String, String> metadata = new LinkedHashMap<>();
+        for (int i = 0; i < nodes.getLength(); i++) {
+            Element element = (Element) nodes.item(i);
+            String tagName = element.getTagName();
+            metadata.putIfAbsent(tagName.substring(tagName.indexOf(':') + 1), element.getTextContent().trim());
+        }
+        return metadata;
+    }
+
+    /**
+     * Reads the memory allocated to a domain definition, normalized to KiB.
+     *
+     * @param doc The parsed domain XML.
+     * @return The memory in KiB, or 0 when the definition has no memory element.
+     * @throws Exception If XPath evaluation fails.
+     */
+    static long getMemoryKiB(Document doc) throws Exception {
+        Element memory = (Element) xpath().evaluate("/domain/memory", doc, XPathConstants.NODE);
+        if (memory == null) {
+            return 0L;
+        }
+
+        return toKiB(Long.parseLong(memory.getTextContent().trim()), memory.getAttribute("unit"));
+    }
+
+    /**
+     * Reads the number of virtual CPUs of a domain definition.
+     *
+     * @param doc The parsed domain XML.
+     * @return The vCPU count, defaulting to 1 as libvirt does when the element is absent.
+     * @throws Exception If XPath evaluation fails.
+     */
+    static int getVcpus(Document doc) throws Exception {
+        String vcpu = xpath().evaluate("normalize-space(/domain/vcpu)", doc);
+        return vcpu.isEmpty() ? 1 : Integer.parseInt(vcpu);
+    }
+
+    /**
+     * Parses an XML document with external entities and DTDs disabled.
+     *
+     * @param xml The XML to parse.
+     * @return The parsed document.
+     * @throws Exception If the XML is not well-formed.
+     */
+    static Document parse(String xml) throws Exception {
+        DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+        dbf.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+        dbf.setFeature("http://xml.org/sax/features/external-general-entities", false);
+        dbf.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
+        dbf.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+        dbf.setXIncludeAware(false);
+        dbf.setExpandEntityReferences(false);
+
+        return dbf.newDocumentBuilder()
+            .parse(new InputSource(new StringReader(xml)));
+    }
+
+    /**
+     * Serializes a document or element back to XML without the XML declaration, as libvirt expects.
+     *
+     * @param node The document or element to serialize.
+     * @return The XML string.
+     * @throws Exception If serialization fails.
+     */
+    static String toXml(Node node) throws Exception {
+        Transformer transformer = TransformerFactory.newInstance().newTransformer();
+        transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
+
+        StringWriter writer = new StringWriter();
+        transformer.transform(new DOMSource(node), new StreamResult(writer));
+        return writer.toString();
+    }
+
+    /**
+     * Returns the first direct child element with the given name, or null.
+     */
+    static Element firstChild(Element parent, String name) {
+        for (Node child = parent.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child instanceof Element element && name.equals(element.getTagName())) {
+                return element;
+            }
+        }
+        return null;
+    }
+
+    static XPath xpath() {
+        return XPathFactory.newInstance().newXPath();
+    }
+
+    /**
+     * Converts a libvirt scaled integer to KiB, following the unit names accepted by libvirt.
+     */
+    static long toKiB(long value, String unit) {
+        if (unit == null || unit.isEmpty()) {
+            return value;
+        }
+
+        return switch (unit) {
+            case "b", "bytes" -> value / 1024;
+            case "KB" -> value * 1000 / 1024;
+            case "k", "KiB" -> value;
+            case "MB" -> value * 1000 * 1000 / 1024;
+            case "M", "MiB" -> value * 1024;
+            case "GB" -> value * 1000 * 1000 * 1000 / 1024;
+            case "G", "GiB" -> value * 1024 * 1024;
+            case "TB" -> value * 1000 * 1000 * 1000 * 1000 / 1024;
+            case "T", "TiB" -> value * 1024 * 1024 * 1024;
+            default -> throw new IllegalArgumentException("Unsupported memory unit '" + unit + "'");
+        };
+    }
+}
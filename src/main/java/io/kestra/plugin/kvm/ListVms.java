@@ -1,15 +1,33 @@
 package io.kestra.plugin.kvm;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 import org.libvirt.Connect;
 import org.libvirt.Domain;
+import org.libvirt.DomainInfo.DomainState;
 
 import io.kestra.core.models.annotations.Example;
 import io.kestra.core.models.annotations.Plugin;
 import io.kestra.core.models.property.Property;
 import io.kestra.core.models.tasks.RunnableTask;
 import io.kestra.core.runners.RunContext;
+import io.kestra.core.storages.kv.KVMetadata;
+import io.kestra.core.storages.kv.KVStore;
+import io.kestra.core.storages.kv.KVValueAndMetadata;
+import io.kestra.plugin.kvm.remote.RemoteConnection;
+import io.kestra.plugin.kvm.remote.RemoteDomain;
 
 import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.*;
@@ -37,70 +55,296 @@ import io.kestra.core.models.annotations.PluginProperty;
                     type: io.kestra.plugin.kvm.ListVms
                     uri: qemu+ssh://root@167.99.104.163/system
                 """
+        ),
+        @Example(
+            title = "Hourly inventory that only forwards the VMs added, removed or changed since the previous run.",
+            full = true,
+            code = """
+                id: kvm_inventory_delta
+                namespace: kvmtest.ssh
+
+                tasks:
+                  - id: inventory
+                    type: io.kestra.plugin.kvm.ListVms
+                    uri: qemu+ssh://root@167.99.104.163/system
+                    delta: true
+
+                  - id: log_changes
+                    type: io.kestra.plugin.core.log.Log
+                    message: |
+                      Added: {{ outputs.inventory.added | length }}
+                      Changed: {{ outputs.inventory.changed | length }}
+                      Removed: {{ outputs.inventory.removed | length }}
+
+                triggers:
+                  - id: hourly
+                    type: io.kestra.plugin.core.trigger.Schedule
+                    cron: "0 * * * *"
+                """
         )
     }
 )
 @Schema(
     title = "List VMs",
-    description = "Lists the KVM/Libvirt virtual machines, optionally filtered by status."
+    description = "Lists the KVM/Libvirt virtual machines, optionally filtered by status. In delta mode, only the VMs added, removed or changed since the previous run are returned. Supports the REMOTE backend, which lists every VM in one call and pipelines the state queries on the connection."
 )
 public class ListVms extends AbstractKvmTask implements RunnableTask<ListVms.Output> {
+    private static final int DOMAIN_XML_INACTIVE = 2;
+
+    // Concurrent XML reads of the native delta path, as ExportVms does by default.
+    private static final int XML_PARALLELISM = 8;
 
     @Schema(title = "Status Filter")
     @PluginProperty(group = "processing")
     private Property<String> statusFilter;
 
+    @Builder.Default
+    @Schema(
+        title = "Delta mode",
+        description = "If true, stores a fingerprint of every listed VM (UUID to name, state and a hash of its persistent XML) in the namespace KV store, and returns in vms only the VMs added or changed since the previous run, with added, changed and removed listed separately. The first run returns every VM as added. With a status filter, a VM that enters or leaves the filter is reported as changed. Default false."
+    )
+    @PluginProperty(group = "processing")
+    private Property<Boolean> delta = Property.ofValue(false);
+
+    @Schema(
+        title = "Delta state key",
+        description = "KV key holding the fingerprints of the previous run. Defaults to a key derived from the flow, the task id, the connection URI and the status filter, so that each task and each filter sees every change once. The fingerprints cover every VM whatever the filter."
+    )
+    @PluginProperty(group = "advanced")
+    private Property<String> stateKey;
+
     @Override
     public Output run(RunContext runContext) throws Exception {
         try (LibvirtConnection connection = getConnection(runContext)) {
-            Connect conn = connection.get();
-            java.util.List<VmEntry> vms = new java.util.ArrayList<>();
-
-            // 1. Get Active (Running) VMs
-            int[] activeIds = conn.listDomains();
-            for (int id : activeIds) {
-                Domain d = conn.domainLookupByID(id);
-                vms.add(
-                    VmEntry.builder()
-                        .name(d.getName())
-                        .uuid(d.getUUIDString())
-                        .state(d.getInfo().state.toString())
-                        .build()
-                );
+            RemoteConnection remote = connection.remote();
+            Map<String, Domain> handles = new HashMap<>();
+            java.util.List<VmEntry> vms = remote != null ? listRemote(remote) : listNative(connection.get(), handles);
+
+            Optional<Duration> rInventoryCacheTtl = runContext.render(this.inventoryCacheTtl).as(Duration.class);
+            if (rInventoryCacheTtl.isPresent()) {
+                String rUri = runContext.render(this.uri).as(String.class).orElse(null);
+                vms.forEach(vm -> InventoryCache.put(rUri, vm.getName(), vm.getState()));
             }
 
-            // 2. Get Inactive (Defined but stopped) VMs
-            String[] inactiveNames = conn.listDefinedDomains();
-            for (String name : inactiveNames) {
-                Domain d = conn.domainLookupByName(name);
-                vms.add(
-                    VmEntry.builder()
-                        .name(d.getName())
-                        .uuid(d.getUUIDString())
-                        .state(d.getInfo().state.toString())
-                        .build()
-                );
+            String rFilter = runContext.render(this.statusFilter).as(String.class).filter(f -> !f.isEmpty()).orElse(null);
+
+            if (runContext.render(this.delta).as(Boolean.class).orElse(false)) {
+                // The delta is computed on every VM, so that a VM leaving the filter is reported as changed, not removed.
+                return delta(runContext, vms, rFilter, remote != null ? list -> xmlHashes(remote, list) : list -> xmlHashes(handles, list));
             }
 
-            String rFilter = runContext.render(this.statusFilter).as(String.class).orElse(null);
-            if (rFilter != null && !rFilter.isEmpty()) {
+            if (rFilter != null) {
                 vms = vms.stream()
                     .filter(v -> v.getState().equalsIgnoreCase(rFilter))
                     .collect(Collectors.toList());
             }
-
             return Output.builder().vms(vms).build();
         }
     }
 
+    /**
+     * Lists every domain, keeping the handle of each by UUID so that the delta reads the XML without another lookup.
+     */
+    private static List<VmEntry> listNative(Connect conn, Map<String, Domain> handles) throws Exception {
+        java.util.List<VmEntry> vms = new java.util.ArrayList<>();
+
+        // 1. Get Active (Running) VMs
+        int[] activeIds = conn.listDomains();
+        for (int id : activeIds) {
+            Domain d = conn.domainLookupByID(id);
+            handles.put(d.getUUIDString(), d);
+            vms.add(
+                VmEntry.builder()
+                    .name(d.getName())
+                    .uuid(d.getUUIDString())
+                    .state(d.getInfo().state.toString())
+                    .build()
+            );
+        }
+
+        // 2. Get Inactive (Defined but stopped) VMs
+        String[] inactiveNames = conn.listDefinedDomains();
+        for (String name : inactiveNames) {
+            Domain d = conn.domainLookupByName(name);
+            handles.put(d.getUUIDString(), d);
+            vms.add(
+                VmEntry.builder()
+                    .name(d.getName())
+                    .uuid(d.getUUIDString())
+                    .state(d.getInfo().state.toString())
+                    .build()
+            );
+        }
+
+        return vms;
+    }
+
+    /**
+     * Lists every domain with one call, then pipelines the state queries of all domains on the connection.
+     */
+    private static List<VmEntry> listRemote(RemoteConnection remote) throws Exception {
+        List<RemoteDomain> domains = RemoteConnection.await(remote.listAllDomains(0));
+        List<CompletableFuture<DomainState>> states = domains.stream().map(remote::getState).toList();
+
+        List<VmEntry> vms = new ArrayList<>(domains.size());
+        for (int i = 0; i < domains.size(); i++) {
+            vms.add(
+                VmEntry.builder()
+                    .name(domains.get(i).name())
+                    .uuid(domains.get(i).uuid().toString())
+                    .state(RemoteConnection.await(states.get(i)).toString())
+                    .build()
+            );
+        }
+        return vms;
+    }
+
+    // The inactive XML leaves out runtime details such as allocated ports, which change on every boot.
+    private static Map<String, String> xmlHashes(Map<String, Domain> handles, List<VmEntry> vms) throws Exception {
+        Map<String, String> hashes = new LinkedHashMap<>();
+        for (KvmExecutors.Outcome<VmEntry, String> outcome : KvmExecutors.fanOut(
+            vms,
+            XML_PARALLELISM,
+            vm -> sha256(handles.get(vm.getUuid()).getXMLDesc(DOMAIN_XML_INACTIVE))
+        )) {
+            // A domain undefined since the listing has no hash and is left out of the delta.
+            if (outcome.isSuccess()) {
+                hashes.put(outcome.item().getUuid(), outcome.value());
+            } else if (!LibvirtErrors.isNotFound(outcome.error())) {
+                throw outcome.error();
+            }
+        }
+        return hashes;
+    }
+
+    private static Map<String, String> xmlHashes(RemoteConnection remote, List<VmEntry> vms) throws Exception {
+        Map<String, CompletableFuture<String>> pending = new LinkedHashMap<>();
+        for (VmEntry vm : vms) {
+            pending.put(
+                vm.getUuid(),
+                remote.lookupByUuid(UUID.fromString(vm.getUuid())).thenCompose(d -> remote.getXmlDesc(d, DOMAIN_XML_INACTIVE))
+            );
+        }
+
+        Map<String, String> hashes = new LinkedHashMap<>();
+        for (Map.Entry<String, CompletableFuture<String>> entry : pending.entrySet()) {
+            hashes.put(entry.getKey(), sha256(RemoteConnection.await(entry.getValue())));
+        }
+        return hashes;
+    }
+
+    /**
+     * Compares every listed VM with the fingerprints of the previous run, stores the new fingerprints, and returns
+     * the differences that concern the status filter: added and removed VMs whose state matches it, and changed VMs
+     * whose previous or current state matches it.
+     */
+    private Output delta(RunContext runContext, List<VmEntry> vms, String filter, XmlHashes xmlHashes) throws Exception {
+        String rUri = runContext.render(this.uri).as(String.class).orElse("");
+        String scope = runContext.flowInfo().id() + "#" + this.getId() + "#" + rUri;
+        String rStateKey = runContext.render(this.stateKey).as(String.class)
+            .orElse("kvm_inventory_" + sha256(filter == null ? scope : scope + "#" + filter.toUpperCase()).substring(0, 16));
+        KVStore kvStore = runContext.namespaceKv(runContext.flowInfo().namespace());
+
+        Map<String, Map<String, String>> previous = kvStore.getValue(rStateKey)
+            .map(value -> fingerprints(value.value()))
+            .orElse(Map.of());
+
+        Map<String, String> hashes = xmlHashes.of(vms);
+        Map<String, Map<String, String>> current = new LinkedHashMap<>();
+        List<VmEntry> added = new ArrayList<>();
+        List<VmEntry> changed = new ArrayList<>();
+        for (VmEntry vm : vms) {
+            String xmlHash = hashes.get(vm.getUuid());
+            if (xmlHash == null) {
+                continue;
+            }
+            Map<String, String> fingerprint = Map.of("name", vm.getName(), "state", vm.getState(), "xmlHash", xmlHash);
+            current.put(vm.getUuid(), fingerprint);
+
+            Map<String, String> before = previous.get(vm.getUuid());
+            if (before == null) {
+                if (matches(filter, vm.getState())) {
+                    added.add(vm);
+                }
+            } else if (!before.equals(fingerprint) && (matches(filter, vm.getState()) || matches(filter, before.get("state")))) {
+                changed.add(vm);
+            }
+        }
+
+        List<VmEntry> removed = previous.entrySet().stream()
+            .filter(e -> !current.containsKey(e.getKey()) && matches(filter, e.getValue().get("state")))
+            .map(e -> new VmEntry(e.getValue().get("name"), e.getKey(), e.getValue().get("state")))
+            .toList();
+
+        kvStore.put(rStateKey, new KVValueAndMetadata(new KVMetadata("KVM inventory fingerprints", (Duration) null), current));
+        runContext.logger().info("Inventory delta: {} added, {} changed, {} removed.", added.size(), changed.size(), removed.size());
+
+        List<VmEntry> delta = new ArrayList<>(added);
+        delta.addAll(changed);
+        return Output.builder()
+            .vms(delta)
+            .added(added)
+            .changed(changed)
+            .removed(removed)
+            .build();
+    }
+
+    /**
+     * Reads the fingerprints stored by a previous run from the deserialized KV value, a map of UUID to fingerprint
+     * fields; anything else is ignored, so that a foreign value under the key only makes every VM look added.
+     */
+    static Map<String, Map<String, String>> fingerprints(Object value) {
+        Map<String, Map<String, String>> fingerprints = new LinkedHashMap<>();
+        if (value instanceof Map<?, ?> map) {
+            map.forEach((uuid, fingerprint) -> {
+                if (uuid != null && fingerprint instanceof Map<?, ?> fields) {
+                    Map<String, String> converted = new LinkedHashMap<>();
+                    fields.forEach((field, fieldValue) -> {
+                        if (field != null && fieldValue != null) {
+                            converted.put(field.toString(), fieldValue.toString());
+                        }
+                    });
+                    fingerprints.put(uuid.toString(), converted);
+                }
+            });
+        }
+        return fingerprints;
+    }
+
+    private static boolean matches(String filter, String state) {
+        return filter == null || filter.equalsIgnoreCase(state);
+    }
+
+    private static String sha256(String value) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @FunctionalInterface
+    private interface XmlHashes {
+        Map<String, String> of(List<VmEntry> vms) throws Exception;
+    }
+
     /**
      * Output for the ListVms task.
      */
     @Builder
     @Getter
     public static class Output implements io.kestra.core.models.tasks.Output {
-        @Schema(title = "The listed virtual machines")
+        @Schema(
+            title = "The listed virtual machines",
+            description = "In delta mode, only the added and changed virtual machines."
+        )
         private java.util.List<VmEntry> vms;
+
+        @Schema(title = "Virtual machines added since the previous run", description = "Only set in delta mode.")
+        private java.util.List<VmEntry> added;
+
+        @Schema(title = "Virtual machines whose state or definition changed since the previous run", description = "Only set in delta mode.")
+        private java.util.List<VmEntry> changed;
+
+        @Schema(title = "Virtual machines removed since the previous run", description = "Only set in delta mode.")
+        private java.util.List<VmEntry> removed;
     }
 
     /**
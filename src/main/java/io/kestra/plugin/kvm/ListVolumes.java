@@ -0,0 +1,222 @@
+package io.kestra.plugin.kvm;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.libvirt.Connect;
+import org.libvirt.LibvirtException;
+import org.libvirt.StoragePool;
+
+import io.kestra.core.models.annotations.Example;
+import io.kestra.core.models.annotations.Plugin;
+import io.kestra.core.models.annotations.PluginProperty;
+import io.kestra.core.models.executions.metrics.Counter;
+import io.kestra.core.models.property.Property;
+import io.kestra.core.models.tasks.RunnableTask;
+import io.kestra.core.runners.RunContext;
+import io.kestra.core.serializers.FileSerde;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+import lombok.experimental.SuperBuilder;
+
+/**
+ * Task to list the storage volumes of a KVM host.
+ */
+@SuperBuilder
+@NoArgsConstructor
+@Getter
+@EqualsAndHashCode
+@ToString
+@Plugin(
+    examples = {
+        @Example(
+            title = "List the volumes of every active storage pool into internal storage.",
+            full = true,
+            code = """
+                id: kvm_list_volumes
+                namespace: kvmtest.ssh
+
+                tasks:
+                  - id: list_volumes
+                    type: io.kestra.plugin.kvm.ListVolumes
+                    uri: qemu+ssh://root@167.99.104.163/system
+                """
+        ),
+        @Example(
+            title = "Return the volumes of one pool in the task outputs.",
+            full = true,
+            code = """
+                id: kvm_list_images
+                namespace: kvmtest.ssh
+
+                tasks:
+                  - id: list_images
+                    type: io.kestra.plugin.kvm.ListVolumes
+                    uri: qemu+ssh://root@167.99.104.163/system
+                    pools:
+                      - images
+                    fetch: true
+                """
+        )
+    }
+)
+@Schema(
+    title = "List storage volumes",
+    description = "Streams the name, path, format, capacity and allocation of every volume of the selected storage pools into an ION file in internal storage. Volumes are read in parallel batches, so memory use does not grow with the number of volumes."
+)
+public class ListVolumes extends AbstractKvmTask implements RunnableTask<ListVolumes.Output> {
+    @Schema(
+        title = "Storage pools",
+        description = "Names of the pools to list. Default every active pool."
+    )
+    @PluginProperty(group = "main")
+    private Property<List<String>> pools;
+
+    @Builder.Default
+    @Schema(
+        title = "Fetch volumes",
+        description = "If true, the volumes are also returned in the `volumes` output. Default false, as hosts may hold many thousands of volumes."
+    )
+    @PluginProperty(group = "processing")
+    private Property<Boolean> fetch = Property.ofValue(false);
+
+    @Builder.Default
+    @Schema(
+        title = "Max parallelism",
+        description = "Maximum number of volumes described concurrently. Default 8."
+    )
+    @PluginProperty(group = "execution")
+    private Property<Integer> maxParallelism = Property.ofValue(8);
+
+    @Override
+    public Output run(RunContext runContext) throws Exception {
+        List<String> rPools = runContext.render(this.pools).asList(String.class);
+        boolean rFetch = runContext.render(this.fetch).as(Boolean.class).orElse(false);
+        int rMaxParallelism = runContext.render(this.maxParallelism).as(Integer.class).orElse(8);
+        int batchSize = Math.max(1, rMaxParallelism) * 4;
+
+        File file = runContext.workingDir().createTempFile(".ion").toFile();
+        List<Volume> fetched = rFetch ? new ArrayList<>() : null;
+        int count = 0;
+        long capacity = 0;
+        long allocation = 0;
+
+        try (LibvirtConnection connection = getConnection(runContext);
+             OutputStream output = new BufferedOutputStream(Files.newOutputStream(file.toPath()))) {
+            Connect conn = connection.get();
+            List<String> poolNames = rPools.isEmpty() ? Arrays.asList(conn.listStoragePools()) : rPools;
+
+            for (String poolName : poolNames) {
+                StoragePool pool = conn.storagePoolLookupByName(poolName);
+                List<String> names = Arrays.asList(pool.listVolumes());
+
+                for (int from = 0; from < names.size(); from += batchSize) {
+                    List<String> batch = names.subList(from, Math.min(from + batchSize, names.size()));
+                    for (KvmExecutors.Outcome<String, Volume> outcome : KvmExecutors.fanOut(
+                        batch,
+                        rMaxParallelism,
+                        name -> describe(pool, poolName, name)
+                    )) {
+                        if (!outcome.isSuccess()) {
+                            throw new Exception("Failed to read volume " + poolName + "/" + outcome.item() + ": " + outcome.error().getMessage(), outcome.error());
+                        }
+                        if (outcome.value() == null) {
+                            continue;
+                        }
+
+                        FileSerde.write(output, outcome.value());
+                        if (fetched != null) {
+                            fetched.add(outcome.value());
+                        }
+                        count++;
+                        capacity += outcome.value().getCapacity();
+                        allocation += outcome.value().getAllocation();
+                    }
+                }
+            }
+        }
+
+        URI uri = runContext.storage().putFile(file);
+        runContext.metric(Counter.of("volumes", count));
+        runContext.logger().info("Listed {} volume(s): {} bytes allocated of {} bytes of capacity.", count, allocation, capacity);
+
+        return Output.builder()
+            .uri(uri)
+            .count(count)
+            .capacity(capacity)
+            .allocation(allocation)
+            .volumes(fetched)
+            .build();
+    }
+
+    /**
+     * Describes a volume, or returns null if it was deleted since the pool was listed.
+     */
+    private static Volume describe(StoragePool pool, String poolName, String name) throws Exception {
+        try {
+            return StorageVolumes.describe(poolName, pool.storageVolLookupByName(name));
+        } catch (LibvirtException e) {
+            if (LibvirtErrors.isNotFound(e)) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Output for the ListVolumes task.
+     */
+    @Builder
+    @Getter
+    public static class Output implements io.kestra.core.models.tasks.Output {
+        @Schema(title = "URI of the ION file holding one volume per row")
+        private URI uri;
+
+        @Schema(title = "Number of volumes")
+        private int count;
+
+        @Schema(title = "Total capacity in bytes")
+        private long capacity;
+
+        @Schema(title = "Total allocation in bytes")
+        private long allocation;
+
+        @Schema(title = "Volumes", description = "Only set when `fetch` is true.")
+        private List<Volume> volumes;
+    }
+
+    /**
+     * A storage volume.
+     */
+    @Builder
+    @Getter
+    public static class Volume {
+        @Schema(title = "Storage pool")
+        private String pool;
+
+        @Schema(title = "Volume name")
+        private String name;
+
+        @Schema(title = "Volume type", description = "For example `file` or `block`.")
+        private String type;
+
+        @Schema(title = "Path on the host")
+        private String path;
+
+        @Schema(title = "Format", description = "For example `qcow2` or `raw`.")
+        private String format;
+
+        @Schema(title = "Capacity in bytes", description = "Size seen by the guest.")
+        private long capacity;
+
+        @Schema(title = "Allocation in bytes", description = "Space used on the host.")
+        private long allocation;
+    }
+}
@@ -0,0 +1,501 @@
+package io.kestra.plugin.kvm;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.libvirt.Connect;
+import org.libvirt.Domain;
+import org.libvirt.Domain.DomainMigrateParameters;
+import org.libvirt.Domain.MigrateFlags;
+import org.libvirt.DomainInfo;
+import org.libvirt.DomainJobStats;
+import org.libvirt.TypedIntParameter;
+import org.libvirt.TypedParameter;
+import org.libvirt.TypedStringParameter;
+import org.libvirt.TypedUlongParameter;
+import org.slf4j.Logger;
+
+import io.kestra.core.models.annotations.Example;
+import io.kestra.core.models.annotations.Plugin;
+import io.kestra.core.models.annotations.PluginProperty;
+import io.kestra.core.models.executions.metrics.Gauge;
+import io.kestra.core.models.executions.metrics.Timer;
+import io.kestra.core.models.property.Property;
+import io.kestra.core.models.tasks.RunnableTask;
+import io.kestra.core.runners.RunContext;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import lombok.experimental.SuperBuilder;
+
+/**
+ * Task to live migrate KVM Virtual Machines to another hypervisor.
+ */
+@SuperBuilder
+@NoArgsConstructor
+@Getter
+@Plugin(
+    examples = {
+        @Example(
+            title = "Live migrate one VM with parallel connections and compression.",
+            full = true,
+            code = """
+                id: migrate_kvm_vm
+                namespace: kvmtest.ssh
+
+                tasks:
+                  - id: migrate
+                    type: io.kestra.plugin.kvm.MigrateVm
+                    uri: qemu+ssh://root@10.0.0.11/system
+                    destinationUris:
+                      - qemu+ssh://root@10.0.0.12/system
+                    name: database-1
+                    parallelConnections: 4
+                    compression:
+                      - zstd
+                    autoConverge: true
+                """
+        ),
+        @Example(
+            title = "Evacuate a host before maintenance, two migrations at a time, spread across the remaining hosts.",
+            full = true,
+            code = """
+                id: evacuate_kvm_host
+                namespace: kvmtest.ssh
+
+                tasks:
+                  - id: evacuate
+                    type: io.kestra.plugin.kvm.MigrateVm
+                    uri: qemu+ssh://root@10.0.0.11/system
+                    evacuate: true
+                    maxConcurrent: 2
+                    destinationUris:
+                      - qemu+ssh://root@10.0.0.12/system
+                      - qemu+ssh://root@10.0.0.13/system
+                    placementStrategy: LEAST_LOADED
+                    postCopy: true
+                    postCopyAfter: PT2M
+                """
+        )
+    }
+)
+@Schema(
+    title = "Live migrate KVM domains between hypervisors",
+    description = "Migrates one or many running domains from uri to a destination host, with optional parallel migration connections, compression, auto-converge and post-copy switchover. Job progress (data remaining, dirty rate, downtime) is published as metrics while the migration runs. In evacuate mode every running domain of the source host is migrated, with at most maxConcurrent migrations in flight, each placed on one of destinationUris."
+)
+public class MigrateVm extends AbstractKvmTask implements RunnableTask<MigrateVm.Output> {
+    private static final int JOB_STATS_COMPLETED = 1;
+
+    // Long enough for the reservations of concurrent placements to be seen by each other during an evacuation.
+    private static final Duration PLACEMENT_CACHE_TTL = Duration.ofSeconds(30);
+
+    @Schema(
+        title = "Domain name",
+        description = "Name of a single domain to migrate; combined with names. Ignored in evacuate mode."
+    )
+    @PluginProperty(group = "main")
+    private Property<String> name;
+
+    @Schema(
+        title = "Domain names",
+        description = "Names of the domains to migrate; combined with name. Ignored in evacuate mode."
+    )
+    @PluginProperty(group = "main")
+    private Property<List<String>> names;
+
+    @Schema(
+        title = "Label selector",
+        description = "Migrate the domains whose labels, set by CreateVm or UpdateVm, match every comma-separated requirement: `key=value`, `key!=value`, `key` or `!key`. With name or names, only those of them that match are migrated. Ignored in evacuate mode."
+    )
+    @PluginProperty(group = "main")
+    private Property<String> labelSelector;
+
+    @Builder.Default
+    @Schema(
+        title = "Evacuate the source host",
+        description = "If true, migrates every running domain of the source host. Default false."
+    )
+    @PluginProperty(group = "main")
+    private Property<Boolean> evacuate = Property.ofValue(false);
+
+    @Schema(
+        title = "Destination hypervisor URIs",
+        description = "Libvirt URIs of the destination hosts. With several hosts, each domain is placed on one of them by placementStrategy. The source uri is skipped when listed, so the same fleet-wide list can be used to evacuate any of its hosts."
+    )
+    @PluginProperty(group = "destination", secret = true)
+    @ToString.Exclude
+    private Property<List<String>> destinationUris;
+
+    @Builder.Default
+    @Schema(
+        title = "Placement strategy",
+        description = "How destinationUris are ranked for each domain when more than one is given. Default LEAST_LOADED."
+    )
+    @PluginProperty(group = "destination")
+    private Property<PlacementStrategy> placementStrategy = Property.ofValue(PlacementStrategy.LEAST_LOADED);
+
+    @Builder.Default
+    @Schema(
+        title = "Persist on destination",
+        description = "If true, the domain is defined persistently on the destination and undefined from the source. Default true."
+    )
+    @PluginProperty(group = "destination")
+    private Property<Boolean> persist = Property.ofValue(true);
+
+    @Builder.Default
+    @Schema(
+        title = "Max concurrent migrations",
+        description = "Maximum number of migrations in flight at once. Default 2."
+    )
+    @PluginProperty(group = "execution")
+    private Property<Integer> maxConcurrent = Property.ofValue(2);
+
+    @Schema(
+        title = "Parallel migration connections",
+        description = "Number of connections used to transfer memory in parallel; enables parallel migration when set."
+    )
+    @PluginProperty(group = "processing")
+    private Property<Integer> parallelConnections;
+
+    @Schema(
+        title = "Compression methods",
+        description = "Compression methods applied to the migration stream, for example `xbzrle`, `mt` or `zstd`; enables compressed migration when not empty."
+    )
+    @PluginProperty(group = "processing")
+    private Property<List<String>> compression;
+
+    @Builder.Default
+    @Schema(
+        title = "Auto-converge",
+        description = "If true, throttles the guest vCPUs when memory is dirtied faster than it can be transferred. Default false."
+    )
+    @PluginProperty(group = "processing")
+    private Property<Boolean> autoConverge = Property.ofValue(false);
+
+    @Builder.Default
+    @Schema(
+        title = "Post-copy",
+        description = "If true, the migration is started in a post-copy capable mode and switched to post-copy once postCopyAfter has elapsed without completion. Default false."
+    )
+    @PluginProperty(group = "processing")
+    private Property<Boolean> postCopy = Property.ofValue(false);
+
+    @Builder.Default
+    @Schema(
+        title = "Post-copy switchover delay",
+        description = "How long the pre-copy phase may run before switching to post-copy. Default PT1M."
+    )
+    @PluginProperty(group = "processing")
+    private Property<Duration> postCopyAfter = Property.ofValue(Duration.ofMinutes(1));
+
+    @Schema(
+        title = "Bandwidth limit (MiB/s)",
+        description = "Maximum migration bandwidth."
+    )
+    @PluginProperty(group = "processing")
+    private Property<Long> bandwidthMiBs;
+
+    @Builder.Default
+    @Schema(
+        title = "Progress interval",
+        description = "How often job progress is read and published as metrics. Default PT5S."
+    )
+    @PluginProperty(group = "advanced")
+    private Property<Duration> progressInterval = Property.ofValue(Duration.ofSeconds(5));
+
+    @Builder.Default
+    @Schema(
+        title = "Fail on error",
+        description = "If true, the task fails when any migration failed, after all migrations have finished. Default true."
+    )
+    @PluginProperty(group = "reliability")
+    private Property<Boolean> failOnError = Property.ofValue(true);
+
+    @Override
+    public Output run(RunContext runContext) throws Exception {
+        List<String> rDestinationUris = runContext.render(this.destinationUris).asList(String.class);
+        if (rDestinationUris.isEmpty()) {
+            throw new IllegalArgumentException("At least one destination URI is required");
+        }
+        // A fleet-wide list of destinations may include the source host, which can never receive its own domains.
+        String rUri = runContext.render(this.uri).as(String.class).orElse(null);
+        if (rUri != null && rDestinationUris.contains(rUri)) {
+            rDestinationUris = rDestinationUris.stream().filter(destination -> !destination.equals(rUri)).toList();
+            if (rDestinationUris.isEmpty()) {
+                throw new IllegalArgumentException("destinationUris only lists the source host");
+            }
+            runContext.logger().info("destinationUris lists the source host; excluding it.");
+        }
+
+        Settings settings = new Settings(
+            rDestinationUris,
+            runContext.render(this.placementStrategy).as(PlacementStrategy.class).orElse(PlacementStrategy.LEAST_LOADED),
+            runContext.render(this.persist).as(Boolean.class).orElse(true),
+            runContext.render(this.parallelConnections).as(Integer.class).orElse(null),
+            runContext.render(this.compression).asList(String.class),
+            runContext.render(this.autoConverge).as(Boolean.class).orElse(false),
+            runContext.render(this.postCopy).as(Boolean.class).orElse(false),
+            runContext.render(this.postCopyAfter).as(Duration.class).orElse(Duration.ofMinutes(1)),
+            runContext.render(this.bandwidthMiBs).as(Long.class).orElse(null),
+            runContext.render(this.progressInterval).as(Duration.class).orElse(Duration.ofSeconds(5))
+        );
+        boolean rEvacuate = runContext.render(this.evacuate).as(Boolean.class).orElse(false);
+        int rMaxConcurrent = runContext.render(this.maxConcurrent).as(Integer.class).orElse(2);
+        Logger logger = runContext.logger();
+
+        try (LibvirtConnection connection = getConnection(runContext)) {
+            Connect conn = connection.get();
+
+            Set<String> targets = new LinkedHashSet<>();
+            if (rEvacuate) {
+                for (int id : conn.listDomains()) {
+                    targets.add(conn.domainLookupByID(id).getName());
+                }
+                logger.info("Evacuating {} running VM(s) from the source host.", targets.size());
+            } else {
+                runContext.render(this.name).as(String.class).ifPresent(targets::add);
+                targets.addAll(runContext.render(this.names).asList(String.class));
+                LabelSelector rLabelSelector = renderLabelSelector(runContext, this.labelSelector);
+                if (targets.isEmpty() && rLabelSelector == null) {
+                    throw new IllegalArgumentException("Either name, names, labelSelector or evacuate must be set");
+                }
+                if (rLabelSelector != null) {
+                    targets = retainLabelled(targets, selectByLabels(runContext, connection.client(), rLabelSelector, rMaxConcurrent));
+                }
+            }
+
+            List<MigrationResult> results = new ArrayList<>();
+            // Migrations are monitored on virtual threads; only their native calls take a thread of the native pool.
+            for (KvmExecutors.Outcome<String, MigrationResult> outcome : KvmExecutors.fork(
+                List.copyOf(targets),
+                rMaxConcurrent,
+                domainName -> migrate(runContext, conn, domainName, settings)
+            )) {
+                if (outcome.isSuccess()) {
+                    results.add(outcome.value());
+                } else {
+                    logger.error("Failed to migrate VM {}: {}", outcome.item(), outcome.error().getMessage());
+                    results.add(
+                        MigrationResult.builder()
+                            .name(outcome.item())
+                            .success(false)
+                            .error(outcome.error().getMessage())
+                            .build()
+                    );
+                }
+            }
+
+            for (String target : targets) {
+                invalidateDomain(runContext, target);
+            }
+
+            long failed = results.stream().filter(r -> !r.isSuccess()).count();
+            if (failed > 0 && runContext.render(this.failOnError).as(Boolean.class).orElse(true)) {
+                throw new Exception("Failed to migrate " + failed + " of " + results.size() + " VM(s)");
+            }
+
+            return Output.builder().migrations(results).build();
+        }
+    }
+
+    private static MigrationResult migrate(RunContext runContext, Connect conn, String domainName, Settings settings) throws Exception {
+        Logger logger = runContext.logger();
+        Domain domain = KvmExecutors.call(() -> conn.domainLookupByName(domainName));
+        DomainInfo info = KvmExecutors.call(domain::getInfo);
+
+        HostSnapshot placed = settings.destinationUris().size() == 1
+            ? null
+            : HostPlacement.select(logger, settings.destinationUris(), null, settings.strategy(), info.nrVirtCpu, info.memory, 0L, PLACEMENT_CACHE_TTL);
+        String destinationUri = placed != null ? placed.getUri() : settings.destinationUris().get(0);
+
+        logger.info("Migrating VM {} to {}.", domainName, destinationUri);
+        Instant start = Instant.now();
+
+        try (LibvirtConnection destination = HostCircuitBreaker.connect(destinationUri, LibvirtBackend.NATIVE)) {
+            TypedParameter[] parameters = settings.parameters();
+            int flags = settings.flags();
+
+            Future<Domain> job = KvmExecutors.submit(() -> domain.migrate(destination.get(), parameters, flags));
+
+            boolean switchedToPostCopy = false;
+            while (true) {
+                try {
+                    job.get(settings.progressInterval().toMillis(), TimeUnit.MILLISECONDS);
+                    break;
+                } catch (TimeoutException e) {
+                    publishProgress(runContext, domainName, domain, 0);
+
+                    if (settings.postCopy() && !switchedToPostCopy && Duration.between(start, Instant.now()).compareTo(settings.postCopyAfter()) >= 0) {
+                        logger.info("VM {} did not converge within {}, switching to post-copy.", domainName, settings.postCopyAfter());
+                        KvmExecutors.call(() -> {
+                            LibvirtNative.migrateStartPostCopy(domain);
+                            return null;
+                        });
+                        switchedToPostCopy = true;
+                    }
+                } catch (ExecutionException e) {
+                    throw e.getCause() instanceof Exception ex ? ex : e;
+                } catch (InterruptedException e) {
+                    job.cancel(true);
+                    domain.abortJob();
+                    throw e;
+                }
+            }
+
+            if (!settings.persist()) {
+                // The source keeps its inactive definition, so the completed job statistics are still available.
+                publishProgress(runContext, domainName, domain, JOB_STATS_COMPLETED);
+            }
+
+            Duration duration = Duration.between(start, Instant.now());
+            runContext.metric(Timer.of("migration.duration", duration, "vm", domainName));
+            logger.info("VM {} migrated to {} in {}.", domainName, destinationUri, duration);
+
+            return MigrationResult.builder()
+                .name(domainName)
+                .destination(destinationUri)
+                .success(true)
+                .postCopy(switchedToPostCopy)
+                .duration(duration)
+                .build();
+        } catch (Exception e) {
+            if (placed != null) {
+                HostPlacement.release(placed, null, info.nrVirtCpu, info.memory, 0L);
+            }
+            if (e instanceof InterruptedException) {
+                throw e;
+            }
+            logger.error("Failed to migrate VM {} to {}: {}", domainName, destinationUri, e.getMessage());
+            return MigrationResult.builder()
+                .name(domainName)
+                .destination(destinationUri)
+                .success(false)
+                .error(e.getMessage())
+                .build();
+        }
+    }
+
+    private static void publishProgress(RunContext runContext, String domainName, Domain domain, int flags) {
+        DomainJobStats stats;
+        try {
+            stats = KvmExecutors.call(() -> domain.getJobStats(flags));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (Exception e) {
+            // The job may have just completed; progress is best effort.
+            return;
+        }
+
+        for (TypedParameter stat : stats.stats) {
+            String metric = switch (stat.field) {
+                case "data_remaining" -> "migration.data.remaining";
+                case "data_total" -> "migration.data.total";
+                case "memory_dirty_rate" -> "migration.memory.dirty.rate";
+                case "memory_iteration" -> "migration.memory.iteration";
+                case "downtime" -> "migration.downtime";
+                default -> null;
+            };
+            if (metric != null) {
+                runContext.metric(Gauge.of(metric, Double.parseDouble(stat.getValueAsString()), "vm", domainName));
+            }
+        }
+    }
+
+    private record Settings(
+        List<String> destinationUris,
+        PlacementStrategy strategy,
+        boolean persist,
+        Integer parallelConnections,
+        List<String> compression,
+        boolean autoConverge,
+        boolean postCopy,
+        Duration postCopyAfter,
+        Long bandwidthMiBs,
+        Duration progressInterval
+    ) {
+        int flags() {
+            int flags = MigrateFlags.LIVE;
+            if (persist) {
+                flags |= MigrateFlags.PERSIST_DEST | MigrateFlags.UNDEFINE_SOURCE;
+            }
+            if (parallelConnections != null) {
+                flags |= MigrateFlags.PARALLEL;
+            }
+            if (!compression.isEmpty()) {
+                flags |= MigrateFlags.COMPRESSED;
+            }
+            if (autoConverge) {
+                flags |= MigrateFlags.AUTO_CONVERGE;
+            }
+            if (postCopy) {
+                flags |= MigrateFlags.POSTCOPY;
+            }
+            return flags;
+        }
+
+        TypedParameter[] parameters() {
+            List<TypedParameter> parameters = new ArrayList<>();
+            if (parallelConnections != null) {
+                parameters.add(new TypedIntParameter(DomainMigrateParameters.VIR_MIGRATE_PARAM_PARALLEL_CONNECTIONS, parallelConnections));
+            }
+            // libvirt accepts the compression parameter once per method.
+            for (String method : compression) {
+                parameters.add(new TypedStringParameter(DomainMigrateParameters.VIR_MIGRATE_PARAM_COMPRESSION, method));
+            }
+            if (bandwidthMiBs != null) {
+                parameters.add(new TypedUlongParameter(DomainMigrateParameters.VIR_MIGRATE_PARAM_BANDWIDTH, bandwidthMiBs));
+            }
+            return parameters.toArray(TypedParameter[]::new);
+        }
+    }
+
+    /**
+     * Output for the MigrateVm task.
+     */
+    @Builder
+    @Getter
+    public static class Output implements io.kestra.core.models.tasks.Output {
+        @Schema(
+            title = "Migrations",
+            description = "One result per domain, in the order they were requested."
+        )
+        private List<MigrationResult> migrations;
+    }
+
+    /**
+     * Result of migrating one domain.
+     */
+    @Builder
+    @Getter
+    public static class MigrationResult {
+        @Schema(title = "VM Name")
+        private String name;
+
+        @Schema(title = "Destination URI")
+        private String destination;
+
+        @Schema(title = "Migration succeeded")
+        private boolean success;
+
+        @Schema(title = "Error message", description = "Reason of the failure when success is false.")
+        private String error;
+
+        @Schema(title = "Switched to post-copy")
+        private boolean postCopy;
+
+        @Schema(title = "Migration duration")
+        private Duration duration;
+    }
+}
@@ -0,0 +1,180 @@
+package io.kestra.plugin.kvm;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.libvirt.Connect;
+import org.libvirt.Domain;
+import org.libvirt.DomainInfo.DomainState;
+import org.libvirt.Error.ErrorNumber;
+import org.libvirt.LibvirtException;
+import org.libvirt.StoragePool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link HypervisorClient} over the libvirt-java bindings.
+ */
+final class NativeHypervisorClient implements HypervisorClient {
+    private static final Logger LOGGER = LoggerFactory.getLogger(NativeHypervisorClient.class);
+
+    // virConnectListAllDomainsFlags state filters.
+    private static final Map<Integer, DomainState> STATE_BUCKETS = Map.of(
+        1 << 4, DomainState.VIR_DOMAIN_RUNNING,
+        1 << 5, DomainState.VIR_DOMAIN_PAUSED,
+        1 << 6, DomainState.VIR_DOMAIN_SHUTOFF
+    );
+
+    private static final int LIST_OTHER = 1 << 7;
+
+    private final Connect conn;
+
+    NativeHypervisorClient(Connect conn) {
+        this.conn = conn;
+    }
+
+    @Override
+    public HypervisorDomain domain(String name) throws HypervisorException {
+        return new NativeDomain(call(() -> conn.domainLookupByName(name)));
+    }
+
+    @Override
+    public List<String> domainNames() throws HypervisorException {
+        List<String> names = new ArrayList<>();
+        for (Domain domain : call(() -> conn.listAllDomains(0))) {
+            names.add(call(domain::getName));
+        }
+        return names;
+    }
+
+    @Override
+    public Map<String, String> domainUuids() throws HypervisorException {
+        Map<String, String> uuids = new LinkedHashMap<>();
+        for (Domain domain : call(() -> conn.listAllDomains(0))) {
+            uuids.put(call(domain::getName), call(domain::getUUIDString));
+        }
+        return uuids;
+    }
+
+    /**
+     * Lists the domains of each state with the {@code virConnectListAllDomains} state filters, so a poll costs four
+     * calls whatever the number of domains. Only domains in the OTHER bucket (crashed, blocked, shutting down,
+     * suspended), usually none, are asked for their exact state.
+     */
+    @Override
+    public Map<String, DomainState> domainStates() throws HypervisorException {
+        Map<String, DomainState> states = new LinkedHashMap<>();
+        for (Map.Entry<Integer, DomainState> bucket : STATE_BUCKETS.entrySet()) {
+            for (Domain domain : call(() -> conn.listAllDomains(bucket.getKey()))) {
+                states.put(call(domain::getName), bucket.getValue());
+            }
+        }
+        for (Domain domain : call(() -> conn.listAllDomains(LIST_OTHER))) {
+            try {
+                states.put(call(domain::getName), call(() -> domain.getInfo().state));
+            } catch (HypervisorException e) {
+                // Undefined between the listing and the lookup.
+                if (e.getCode() != ErrorNumber.VIR_ERR_NO_DOMAIN) {
+                    throw e;
+                }
+            }
+        }
+        return states;
+    }
+
+    @Override
+    public HypervisorPool pool(String name) throws HypervisorException {
+        StoragePool pool = call(() -> conn.storagePoolLookupByName(name));
+        return volume -> call(() -> {
+            pool.storageVolLookupByName(volume).delete(0);
+            return null;
+        });
+    }
+
+    private static <T> T call(LibvirtCall<T> call) throws HypervisorException {
+        try {
+            return call.run();
+        } catch (LibvirtException e) {
+            ErrorNumber code = e.getError() != null ? e.getError().getCode() : ErrorNumber.VIR_ERR_INTERNAL_ERROR;
+            throw new HypervisorException(code, e.getMessage(), e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface LibvirtCall<T> {
+        T run() throws LibvirtException;
+    }
+
+    private record NativeDomain(Domain domain) implements HypervisorDomain {
+        @Override
+        public String name() {
+            try {
+                return domain.getName();
+            } catch (LibvirtException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public String uuid() throws HypervisorException {
+            return call(domain::getUUIDString);
+        }
+
+        @Override
+        public DomainState state() throws HypervisorException {
+            return call(() -> domain.getInfo().state);
+        }
+
+        @Override
+        public String xmlDesc(int flags) throws HypervisorException {
+            return call(() -> domain.getXMLDesc(flags));
+        }
+
+        @Override
+        public void create() throws HypervisorException {
+            call(domain::create);
+        }
+
+        @Override
+        public void shutdown() throws HypervisorException {
+            call(() -> {
+                domain.shutdown();
+                return null;
+            });
+        }
+
+        @Override
+        public void destroy() throws HypervisorException {
+            call(() -> {
+                domain.destroy();
+                return null;
+            });
+        }
+
+        @Override
+        public void undefine(int flags) throws HypervisorException {
+            call(() -> {
+                domain.undefine(flags);
+                return null;
+            });
+        }
+
+        @Override
+        public List<String> addresses() throws HypervisorException {
+            try {
+                return GuestAddresses.resolve(LOGGER, domain.getConnect(), List.of(domain), List.of(AddressSource.LEASE, AddressSource.ARP), 1)
+                    .values().iterator().next()
+                    .stream()
+                    .map(GuestAddresses.Address::ip)
+                    .distinct()
+                    .toList();
+            } catch (LibvirtException e) {
+                throw new HypervisorException(e.getError() != null ? e.getError().getCode() : ErrorNumber.VIR_ERR_INTERNAL_ERROR, e.getMessage(), e);
+            } catch (Exception e) {
+                throw new HypervisorException(ErrorNumber.VIR_ERR_INTERNAL_ERROR, e.getMessage(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,328 @@
+package io.kestra.plugin.kvm;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.libvirt.Connect;
+import org.libvirt.LibvirtException;
+import org.libvirt.StoragePool;
+import org.libvirt.StorageVol;
+import org.libvirt.Stream;
+import org.w3c.dom.Element;
+
+/**
+ * cloud-init NoCloud seed image, built in memory and uploaded into a storage volume through a libvirt stream.
+ *
+ * <p>
+ * The image is the ISO 9660 file system that {@code genisoimage -volid cidata -joliet -rock} would produce for the
+ * same files, minus Rock Ridge: a primary volume descriptor with 8.3 names and a Joliet supplementary descriptor
+ * carrying the real {@code user-data}, {@code meta-data} and {@code network-config} names, both labelled
+ * {@code cidata}. All files live in the root directory, so each tree is a single directory sector.
+ */
+final class NoCloudSeed {
+    static final String LABEL = "cidata";
+
+    private static final int SECTOR = 2048;
+
+    private static final int FIRST_DESCRIPTOR = 16;
+
+    private static final int UPLOAD_CHUNK = 256 * 1024;
+
+    private NoCloudSeed() {
+    }
+
+    /**
+     * Builds the seed image.
+     *
+     * @param userData The {@code user-data} document.
+     * @param metaData The {@code meta-data} document.
+     * @param networkConfig The {@code network-config} document, or null to omit it.
+     * @param createdAt The time recorded in the volume and directory records.
+     * @return The ISO image.
+     */
+    static byte[] build(String userData, String metaData, String networkConfig, Instant createdAt) {
+        Map<String, byte[]> files = new LinkedHashMap<>();
+        files.put("meta-data", metaData.getBytes(StandardCharsets.UTF_8));
+        if (networkConfig != null) {
+            files.put("network-config", networkConfig.getBytes(StandardCharsets.UTF_8));
+        }
+        files.put("user-data", userData.getBytes(StandardCharsets.UTF_8));
+
+        // 16 system sectors, primary, Joliet and terminator descriptors, four path tables, two root directories
+        int primaryRoot = FIRST_DESCRIPTOR + 7;
+        int jolietRoot = primaryRoot + 1;
+        int next = jolietRoot + 1;
+
+        List<File> entries = new ArrayList<>();
+        for (Map.Entry<String, byte[]> file : files.entrySet()) {
+            entries.add(new File(file.getKey(), file.getValue(), next));
+            next += sectors(file.getValue().length);
+        }
+        int totalSectors = next;
+
+        ZonedDateTime time = createdAt.atZone(ZoneOffset.UTC);
+        ByteBuffer image = ByteBuffer.allocate(totalSectors * SECTOR);
+
+        volumeDescriptor(image, FIRST_DESCRIPTOR, false, totalSectors, primaryRoot, time);
+        volumeDescriptor(image, FIRST_DESCRIPTOR + 1, true, totalSectors, jolietRoot, time);
+        image.position((FIRST_DESCRIPTOR + 2) * SECTOR).put((byte) 255).put(ascii("CD001")).put((byte) 1);
+
+        pathTable(image, FIRST_DESCRIPTOR + 3, primaryRoot, ByteOrder.LITTLE_ENDIAN);
+        pathTable(image, FIRST_DESCRIPTOR + 4, primaryRoot, ByteOrder.BIG_ENDIAN);
+        pathTable(image, FIRST_DESCRIPTOR + 5, jolietRoot, ByteOrder.LITTLE_ENDIAN);
+        pathTable(image, FIRST_DESCRIPTOR + 6, jolietRoot, ByteOrder.BIG_ENDIAN);
+
+        directory(image, primaryRoot, entries, false, time);
+        directory(image, jolietRoot, entries, true, time);
+
+        for (File entry : entries) {
+            image.position(entry.sector() * SECTOR).put(entry.content());
+        }
+
+        return image.array();
+    }
+
+    /**
+     * Writes the image into a new volume of a storage pool. The volume is removed again if the upload fails.
+     *
+     * @return The path of the volume on the host.
+     * @throws LibvirtException With {@code VIR_ERR_STORAGE_VOL_EXIST} if the pool already holds a volume of that
+     * name, which is never overwritten.
+     */
+    static String upload(Connect conn, String poolName, String volumeName, byte[] image) throws LibvirtException {
+        StoragePool pool = conn.storagePoolLookupByName(poolName);
+        StorageVol volume = pool.storageVolCreateXML(
+            "<volume><name>" + StorageVolumes.escape(volumeName) + "</name>"
+                + "<capacity unit='bytes'>" + image.length + "</capacity>"
+                + "<target><format type='raw'/></target></volume>",
+            0
+        );
+
+        Stream stream = conn.streamNew(0);
+        try {
+            volume.upload(stream, 0, image.length, 0);
+            for (int offset = 0; offset < image.length; ) {
+                int length = Math.min(UPLOAD_CHUNK, image.length - offset);
+                byte[] chunk = new byte[length];
+                System.arraycopy(image, offset, chunk, 0, length);
+                offset += stream.send(chunk);
+            }
+            stream.finish();
+        } catch (LibvirtException e) {
+            stream.abort();
+            try {
+                volume.delete(0);
+            } catch (LibvirtException deleteError) {
+                e.addSuppressed(deleteError);
+            }
+            throw e;
+        } finally {
+            stream.free();
+        }
+
+        return volume.getPath();
+    }
+
+    /**
+     * Deletes a seed volume uploaded for a domain that could not be defined; a volume already gone is ignored.
+     */
+    static void delete(Connect conn, String poolName, String volumeName) throws LibvirtException {
+        try {
+            conn.storagePoolLookupByName(poolName).storageVolLookupByName(volumeName).delete(0);
+        } catch (LibvirtException e) {
+            if (!LibvirtErrors.isNotFound(e)) {
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Attaches the volume to a definition as a read-only SATA CD-ROM on the first free {@code sdX} target, unless
+     * the definition already uses it.
+     */
+    static void attach(DomainXmlEditor editor, String poolName, String volumeName) {
+        Element devices = editor.child(editor.root(), "devices");
+
+        Set<String> targets = new HashSet<>();
+        for (Element disk : editor.children(devices, "disk")) {
+            Element source = LibvirtXmlParser.firstChild(disk, "source");
+            if (source != null && poolName.equals(source.getAttribute("pool")) && volumeName.equals(source.getAttribute("volume"))) {
+                return;
+            }
+            Element target = LibvirtXmlParser.firstChild(disk, "target");
+            if (target != null) {
+                targets.add(target.getAttribute("dev"));
+            }
+        }
+
+        String dev = null;
+        for (char letter = 'a'; letter <= 'z' && dev == null; letter++) {
+            if (!targets.contains("sd" + letter)) {
+                dev = "sd" + letter;
+            }
+        }
+        if (dev == null) {
+            throw new IllegalArgumentException("No free sdX target left to attach the cloud-init seed");
+        }
+
+        Element disk = editor.document().createElement("disk");
+        devices.appendChild(disk);
+        editor.attribute(disk, "type", "volume");
+        editor.attribute(disk, "device", "cdrom");
+        editor.attribute(editor.child(disk, "driver"), "name", "qemu");
+        editor.attribute(editor.child(disk, "driver"), "type", "raw");
+        editor.attribute(editor.child(disk, "source"), "pool", poolName);
+        editor.attribute(editor.child(disk, "source"), "volume", volumeName);
+        editor.attribute(editor.child(disk, "target"), "dev", dev);
+        editor.attribute(editor.child(disk, "target"), "bus", "sata");
+        editor.child(disk, "readonly");
+    }
+
+    private static void volumeDescriptor(ByteBuffer image, int sector, boolean joliet, int totalSectors, int rootSector, ZonedDateTime time) {
+        int base = sector * SECTOR;
+        image.position(base).put((byte) (joliet ? 2 : 1)).put(ascii("CD001")).put((byte) 1).put((byte) 0);
+
+        image.position(base + 8).put(text("", 32, joliet));
+        image.position(base + 40).put(text(LABEL, 32, joliet));
+        image.position(base + 80);
+        bothEndian32(image, totalSectors);
+        if (joliet) {
+            // UCS-2 level 3
+            image.position(base + 88).put(ascii("%/E"));
+        }
+        image.position(base + 120);
+        bothEndian16(image, 1);
+        bothEndian16(image, 1);
+        bothEndian16(image, SECTOR);
+        bothEndian32(image, 10);
+
+        int pathTables = FIRST_DESCRIPTOR + (joliet ? 5 : 3);
+        image.order(ByteOrder.LITTLE_ENDIAN).putInt(base + 140, pathTables);
+        image.order(ByteOrder.BIG_ENDIAN).putInt(base + 148, pathTables + 1);
+
+        image.position(base + 156);
+        directoryRecord(image, new byte[] { 0 }, rootSector, SECTOR, true, time);
+
+        image.position(base + 190);
+        for (int field = 0; field < 4; field++) {
+            image.put(text("", 128, joliet));
+        }
+        for (int field = 0; field < 3; field++) {
+            image.put(text("", 37, joliet));
+        }
+
+        byte[] date = ascii(String.format("%04d%02d%02d%02d%02d%02d00",
+            time.getYear(), time.getMonthValue(), time.getDayOfMonth(), time.getHour(), time.getMinute(), time.getSecond()));
+        byte[] unset = ascii("0000000000000000");
+        image.position(base + 813).put(date).put((byte) 0).put(date).put((byte) 0).put(unset).put((byte) 0).put(unset).put((byte) 0);
+        image.put((byte) 1);
+    }
+
+    private static void pathTable(ByteBuffer image, int sector, int rootSector, ByteOrder order) {
+        image.position(sector * SECTOR).put((byte) 1).put((byte) 0);
+        image.order(order).putInt(rootSector).putShort((short) 1).put((byte) 0).put((byte) 0);
+        image.order(ByteOrder.BIG_ENDIAN);
+    }
+
+    private static void directory(ByteBuffer image, int sector, List<File> entries, boolean joliet, ZonedDateTime time) {
+        image.position(sector * SECTOR);
+        directoryRecord(image, new byte[] { 0 }, sector, SECTOR, true, time);
+        directoryRecord(image, new byte[] { 1 }, sector, SECTOR, true, time);
+
+        List<File> sorted = new ArrayList<>(entries);
+        sorted.sort(Comparator.comparing(entry -> entry.identifier(joliet), NoCloudSeed::compareBytes));
+        for (File entry : sorted) {
+            directoryRecord(image, entry.identifier(joliet), entry.sector(), entry.content().length, false, time);
+        }
+    }
+
+    private static void directoryRecord(ByteBuffer image, byte[] identifier, int sector, int length, boolean directory, ZonedDateTime time) {
+        int size = 33 + identifier.length + (identifier.length % 2 == 0 ? 1 : 0);
+        image.put((byte) size).put((byte) 0);
+        bothEndian32(image, sector);
+        bothEndian32(image, length);
+        image.put((byte) (time.getYear() - 1900))
+            .put((byte) time.getMonthValue())
+            .put((byte) time.getDayOfMonth())
+            .put((byte) time.getHour())
+            .put((byte) time.getMinute())
+            .put((byte) time.getSecond())
+            .put((byte) 0);
+        image.put((byte) (directory ? 2 : 0)).put((byte) 0).put((byte) 0);
+        bothEndian16(image, 1);
+        image.put((byte) identifier.length).put(identifier);
+        if (identifier.length % 2 == 0) {
+            image.put((byte) 0);
+        }
+    }
+
+    private static void bothEndian16(ByteBuffer image, int value) {
+        image.order(ByteOrder.LITTLE_ENDIAN).putShort((short) value);
+        image.order(ByteOrder.BIG_ENDIAN).putShort((short) value);
+    }
+
+    private static void bothEndian32(ByteBuffer image, int value) {
+        image.order(ByteOrder.LITTLE_ENDIAN).putInt(value);
+        image.order(ByteOrder.BIG_ENDIAN).putInt(value);
+    }
+
+    private static byte[] text(String value, int length, boolean joliet) {
+        byte[] field = new byte[length];
+        if (joliet) {
+            for (int i = 0; i < length / 2; i++) {
+                char c = i < value.length() ? value.charAt(i) : ' ';
+                field[2 * i] = (byte) (c >> 8);
+                field[2 * i + 1] = (byte) c;
+            }
+        } else {
+            byte[] bytes = ascii(value);
+            for (int i = 0; i < length; i++) {
+                field[i] = i < bytes.length ? bytes[i] : (byte) ' ';
+            }
+        }
+        return field;
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static int sectors(int length) {
+        return Math.max(1, (length + SECTOR - 1) / SECTOR);
+    }
+
+    private static int compareBytes(byte[] a, byte[] b) {
+        for (int i = 0; i < Math.min(a.length, b.length); i++) {
+            int diff = (a[i] & 0xff) - (b[i] & 0xff);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return a.length - b.length;
+    }
+
+    private record File(String name, byte[] content, int sector) {
+        /**
+         * The 8.3 identifier of the primary tree, such as {@code USER_DAT.;1}, or the UCS-2 name of the Joliet tree.
+         */
+        byte[] identifier(boolean joliet) {
+            if (joliet) {
+                return name.getBytes(StandardCharsets.UTF_16BE);
+            }
+
+            String base = name.toUpperCase().replaceAll("[^A-Z0-9]", "_");
+            return ascii(base.substring(0, Math.min(8, base.length())) + ".;1");
+        }
+    }
+}
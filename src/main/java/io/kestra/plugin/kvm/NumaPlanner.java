@@ -0,0 +1,280 @@
+package io.kestra.plugin.kvm;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathConstants;
+
+import org.libvirt.Connect;
+import org.libvirt.LibvirtException;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * Computes NUMA-local vCPU pinning and memory placement for a new domain and injects it into the definition.
+ *
+ * <p>
+ * The host topology comes from the capabilities XML, free memory per cell from the node, and the physical CPUs
+ * already taken from the {@code <cputune>} pins of the defined domains, running or not, since an inactive domain
+ * takes its pinned CPUs back when it starts. CPUs handed out by a recent plan are
+ * reserved for a short time so that concurrent creations on the same host do not pin onto the same cores
+ * before their definitions are visible; a caller that does not define the domain releases them.
+ */
+final class NumaPlanner {
+    private static final Duration RESERVATION_TTL = Duration.ofMinutes(1);
+
+    private static final Map<String, Map<Integer, Instant>> RESERVED = new ConcurrentHashMap<>();
+
+    private NumaPlanner() {
+    }
+
+    /**
+     * Plans and injects {@code vcpupin}, {@code emulatorpin} and {@code numatune} elements into a definition.
+     *
+     * @param conn The connection to the target host.
+     * @param uri The URI of the target host, used to scope reservations.
+     * @param doc The parsed domain definition, modified in place.
+     * @param capabilitiesTtl How long the host capabilities may be served from the cache.
+     * @return The plan that was applied, or null if the definition already carries its own pinning or NUMA tuning.
+     * @throws Exception If the topology cannot be read or no combination of NUMA nodes fits the domain.
+     */
+    static Plan apply(Connect conn, String uri, Document doc, Duration capabilitiesTtl) throws Exception {
+        XPath xpath = LibvirtXmlParser.xpath();
+        if ((Boolean) xpath.evaluate("boolean(/domain/cputune/vcpupin | /domain/cputune/emulatorpin | /domain/numatune)", doc, XPathConstants.BOOLEAN)) {
+            return null;
+        }
+
+        int vcpus = LibvirtXmlParser.getVcpus(doc);
+        long memoryKiB = LibvirtXmlParser.getMemoryKiB(doc);
+
+        synchronized (RESERVED) {
+            Set<Integer> taken = pinnedCpus(conn);
+            taken.addAll(reserved(uri));
+
+            List<Cell> cells = cells(conn, HostCapabilities.get(conn, capabilitiesTtl).xml(), taken);
+            Plan plan = plan(cells, vcpus, memoryKiB);
+            reserve(uri, plan);
+
+            inject(doc, plan);
+            return plan;
+        }
+    }
+
+    /**
+     * Returns the CPUs of a host still reserved by recent plans, dropping expired reservations.
+     */
+    static Set<Integer> reserved(String uri) {
+        synchronized (RESERVED) {
+            Map<Integer, Instant> reserved = RESERVED.computeIfAbsent(uri, k -> new ConcurrentHashMap<>());
+            reserved.values().removeIf(expiry -> expiry.isBefore(Instant.now()));
+            return new HashSet<>(reserved.keySet());
+        }
+    }
+
+    static void reserve(String uri, Plan plan) {
+        synchronized (RESERVED) {
+            Instant expiry = Instant.now().plus(RESERVATION_TTL);
+            Map<Integer, Instant> reserved = RESERVED.computeIfAbsent(uri, k -> new ConcurrentHashMap<>());
+            plan.cpus().forEach(cpu -> reserved.put(cpu, expiry));
+        }
+    }
+
+    /**
+     * Releases the CPUs reserved by a plan whose domain was not defined, so that the next creation can use them.
+     *
+     * @param uri The URI the plan was made for.
+     * @param plan The plan returned by {@link #apply(Connect, String, Document, Duration)}.
+     */
+    static void release(String uri, Plan plan) {
+        synchronized (RESERVED) {
+            Map<Integer, Instant> reserved = RESERVED.get(uri);
+            if (reserved != null) {
+                plan.cpus().forEach(reserved::remove);
+            }
+        }
+    }
+
+    static Plan plan(List<Cell> cells, int vcpus, long memoryKiB) {
+        // Best fit on a single node: the node with the fewest free CPUs that still fits keeps larger nodes for larger VMs.
+        Cell single = cells.stream()
+            .filter(c -> c.freeCpus().size() >= vcpus && c.freeMemoryKiB() >= memoryKiB)
+            .min(Comparator.comparingInt((Cell c) -> c.freeCpus().size()).thenComparing(Comparator.comparingLong(Cell::freeMemoryKiB).reversed()))
+            .orElse(null);
+
+        if (single != null) {
+            return new Plan(List.of(single.id()), single.freeCpus().subList(0, vcpus));
+        }
+
+        // Otherwise span the smallest number of nodes, largest first.
+        List<Cell> byFreeCpus = cells.stream()
+            .sorted(Comparator.comparingInt((Cell c) -> c.freeCpus().size()).reversed())
+            .toList();
+
+        List<Integer> nodes = new ArrayList<>();
+        List<Integer> cpus = new ArrayList<>();
+        long memory = 0L;
+        for (Cell cell : byFreeCpus) {
+            if (cpus.size() >= vcpus && memory >= memoryKiB) {
+                break;
+            }
+            if (cell.freeCpus().isEmpty()) {
+                continue;
+            }
+            nodes.add(cell.id());
+            memory += cell.freeMemoryKiB();
+            cell.freeCpus().stream().limit(vcpus - cpus.size()).forEach(cpus::add);
+        }
+
+        if (cpus.size() < vcpus || memory < memoryKiB) {
+            throw new IllegalStateException(
+                "Not enough unpinned CPUs or free NUMA memory for " + vcpus + " vCPU(s) and " + memoryKiB
+                    + " KiB: found " + cpus.size() + " CPU(s) and " + memory + " KiB"
+            );
+        }
+
+        return new Plan(nodes.stream().sorted().toList(), cpus);
+    }
+
+    private static List<Cell> cells(Connect conn, String capabilities, Set<Integer> taken) throws Exception {
+        Document doc = LibvirtXmlParser.parse(capabilities);
+        XPath xpath = LibvirtXmlParser.xpath();
+        NodeList cellNodes = (NodeList) xpath.evaluate("/capabilities/host/topology/cells/cell", doc, XPathConstants.NODESET);
+
+        List<Cell> cells = new ArrayList<>();
+        for (int i = 0; i < cellNodes.getLength(); i++) {
+            Element cell = (Element) cellNodes.item(i);
+            int id = Integer.parseInt(cell.getAttribute("id"));
+
+            NodeList cpuNodes = (NodeList) xpath.evaluate("cpus/cpu", cell, XPathConstants.NODESET);
+            List<Element> cpus = new ArrayList<>();
+            for (int j = 0; j < cpuNodes.getLength(); j++) {
+                cpus.add((Element) cpuNodes.item(j));
+            }
+
+            // Keep hyperthread siblings next to each other so small VMs get whole cores.
+            List<Integer> free = cpus.stream()
+                .sorted(
+                    Comparator.comparingInt((Element e) -> intAttribute(e, "socket_id"))
+                        .thenComparingInt(e -> intAttribute(e, "core_id"))
+                        .thenComparingInt(e -> intAttribute(e, "id"))
+                )
+                .map(e -> intAttribute(e, "id"))
+                .filter(cpu -> !taken.contains(cpu))
+                .toList();
+
+            cells.add(new Cell(id, free, conn.getCellsFreeMemory(id, 1) / 1024));
+        }
+
+        if (cells.isEmpty()) {
+            throw new IllegalStateException("Host capabilities do not describe any NUMA cell");
+        }
+
+        return cells;
+    }
+
+    private static Set<Integer> pinnedCpus(Connect conn) throws Exception {
+        Set<Integer> pinned = new HashSet<>();
+
+        for (int id : conn.listDomains()) {
+            try {
+                addPins(pinned, conn.domainLookupByID(id).getXMLDesc(0));
+            } catch (LibvirtException e) {
+                // The domain stopped since the listing
+                if (!LibvirtErrors.isNotFound(e)) {
+                    throw e;
+                }
+            }
+        }
+
+        for (String name : conn.listDefinedDomains()) {
+            try {
+                addPins(pinned, conn.domainLookupByName(name).getXMLDesc(0));
+            } catch (LibvirtException e) {
+                // The domain was undefined since the listing
+                if (!LibvirtErrors.isNotFound(e)) {
+                    throw e;
+                }
+            }
+        }
+
+        return pinned;
+    }
+
+    private static void addPins(Set<Integer> pinned, String xml) throws Exception {
+        NodeList pins = (NodeList) LibvirtXmlParser.xpath().evaluate(
+            "/domain/cputune/vcpupin/@cpuset | /domain/cputune/emulatorpin/@cpuset",
+            LibvirtXmlParser.parse(xml),
+            XPathConstants.NODESET
+        );
+        for (int i = 0; i < pins.getLength(); i++) {
+            pinned.addAll(Cpuset.parse(pins.item(i).getNodeValue()));
+        }
+    }
+
+    private static void inject(Document doc, Plan plan) {
+        Element domain = doc.getDocumentElement();
+
+        Element cputune = LibvirtXmlParser.firstChild(domain, "cputune");
+        if (cputune == null) {
+            cputune = doc.createElement("cputune");
+            insertAfterVcpu(domain, cputune);
+        }
+        for (int vcpu = 0; vcpu < plan.cpus().size(); vcpu++) {
+            Element pin = doc.createElement("vcpupin");
+            pin.setAttribute("vcpu", Integer.toString(vcpu));
+            pin.setAttribute("cpuset", plan.cpus().get(vcpu).toString());
+            cputune.appendChild(pin);
+        }
+        Element emulatorpin = doc.createElement("emulatorpin");
+        emulatorpin.setAttribute("cpuset", join(plan.cpus()));
+        cputune.appendChild(emulatorpin);
+
+        Element numatune = doc.createElement("numatune");
+        Element memory = doc.createElement("memory");
+        memory.setAttribute("mode", "strict");
+        memory.setAttribute("nodeset", plan.nodeset());
+        numatune.appendChild(memory);
+        insertAfterVcpu(domain, numatune);
+    }
+
+    private static void insertAfterVcpu(Element domain, Element element) {
+        Element vcpu = LibvirtXmlParser.firstChild(domain, "vcpu");
+        Node anchor = vcpu != null ? vcpu.getNextSibling() : null;
+        domain.insertBefore(element, anchor);
+    }
+
+    private static int intAttribute(Element element, String name) {
+        String value = element.getAttribute(name);
+        return value.isEmpty() ? 0 : Integer.parseInt(value);
+    }
+
+    private static String join(List<Integer> values) {
+        return values.stream().map(String::valueOf).collect(Collectors.joining(","));
+    }
+
+    /**
+     * A NUMA cell with the CPUs nobody is pinned to and its free memory.
+     */
+    record Cell(int id, List<Integer> freeCpus, long freeMemoryKiB) {
+    }
+
+    /**
+     * The NUMA nodes chosen for a domain and the physical CPU pinned to each of its vCPUs.
+     */
+    record Plan(List<Integer> nodes, List<Integer> cpus) {
+        String nodeset() {
+            return join(nodes);
+        }
+    }
+}
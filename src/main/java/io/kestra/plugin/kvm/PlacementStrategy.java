@@ -0,0 +1,46 @@
+package io.kestra.plugin.kvm;
+
+import java.util.Comparator;
+
+/**
+ * Strategies used to rank candidate hypervisors when {@link CreateVm} places a new domain.
+ *
+ * <p>
+ * Each strategy orders the hosts that can fit the domain; the first host in that order is chosen.
+ */
+public enum PlacementStrategy {
+    /**
+     * Prefers the host whose most loaded resource (vCPU or memory allocation ratio) is the lowest.
+     */
+    LEAST_LOADED {
+        @Override
+        Comparator<HostSnapshot> comparator() {
+            return Comparator.comparingDouble((HostSnapshot h) -> Math.max(h.vcpuRatio(), h.memoryRatio()))
+                .thenComparing(Comparator.comparingLong(HostSnapshot::getFreeMemoryKiB).reversed());
+        }
+    },
+
+    /**
+     * Fills hosts one after the other by preferring the host with the least free memory that still fits the domain.
+     */
+    BIN_PACK {
+        @Override
+        Comparator<HostSnapshot> comparator() {
+            return Comparator.comparingLong(HostSnapshot::getFreeMemoryKiB)
+                .thenComparing(Comparator.comparingDouble(HostSnapshot::vcpuRatio).reversed());
+        }
+    },
+
+    /**
+     * Spreads domains evenly by preferring the host running the fewest domains.
+     */
+    SPREAD {
+        @Override
+        Comparator<HostSnapshot> comparator() {
+            return Comparator.comparingInt(HostSnapshot::getActiveDomains)
+                .thenComparing(Comparator.comparingLong(HostSnapshot::getFreeMemoryKiB).reversed());
+        }
+    };
+
+    abstract Comparator<HostSnapshot> comparator();
+}
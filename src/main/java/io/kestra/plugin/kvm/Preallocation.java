@@ -0,0 +1,29 @@
+package io.kestra.plugin.kvm;
+
+/**
+ * How much of a storage volume is allocated on the host when it is created.
+ */
+public enum Preallocation {
+    /**
+     * Nothing is allocated up front; blocks are allocated as the guest writes them.
+     */
+    SPARSE,
+
+    /**
+     * Only the qcow2 metadata (L1/L2 tables and refcounts) is allocated, so the image never has to grow its
+     * metadata while the guest writes. qcow2 only.
+     */
+    METADATA,
+
+    /**
+     * The whole image is reserved with {@code fallocate} by {@code qemu-img}, on top of the metadata, without
+     * writing the data blocks. qcow2 only.
+     */
+    FALLOC,
+
+    /**
+     * The whole capacity is allocated before the volume is used: libvirt zeroes the file with {@code fallocate} where
+     * the filesystem supports it and by writing zeros otherwise. raw only.
+     */
+    FULL
+}
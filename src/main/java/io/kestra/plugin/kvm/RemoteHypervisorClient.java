@@ -0,0 +1,147 @@
+package io.kestra.plugin.kvm;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+
+import org.libvirt.DomainInfo.DomainState;
+import org.libvirt.Error.ErrorNumber;
+
+import io.kestra.plugin.kvm.remote.RemoteConnection;
+import io.kestra.plugin.kvm.remote.RemoteDomain;
+import io.kestra.plugin.kvm.remote.RemoteException;
+
+/**
+ * {@link HypervisorClient} over the pure-Java {@link RemoteConnection}.
+ *
+ * <p>
+ * Domain states are read by pipelining one state query per domain behind a single listing. Storage pools and guest
+ * addresses are not part of the procedures the remote backend implements, so {@link #pool(String)} and
+ * {@link HypervisorDomain#addresses()} fail with {@code VIR_ERR_NO_SUPPORT}.
+ */
+final class RemoteHypervisorClient implements HypervisorClient {
+    private final RemoteConnection remote;
+
+    RemoteHypervisorClient(RemoteConnection remote) {
+        this.remote = remote;
+    }
+
+    @Override
+    public HypervisorDomain domain(String name) throws HypervisorException {
+        return new RemoteHypervisorDomain(remote, await(remote.lookupByName(name)));
+    }
+
+    @Override
+    public List<String> domainNames() throws HypervisorException {
+        return await(remote.listAllDomains(0)).stream().map(RemoteDomain::name).toList();
+    }
+
+    @Override
+    public Map<String, String> domainUuids() throws HypervisorException {
+        Map<String, String> uuids = new LinkedHashMap<>();
+        for (RemoteDomain domain : await(remote.listAllDomains(0))) {
+            uuids.put(domain.name(), domain.uuid().toString());
+        }
+        return uuids;
+    }
+
+    @Override
+    public Map<String, DomainState> domainStates() throws HypervisorException {
+        List<RemoteDomain> domains = await(remote.listAllDomains(0));
+        List<CompletableFuture<DomainState>> states = new ArrayList<>(domains.size());
+        for (RemoteDomain domain : domains) {
+            states.add(remote.getState(domain));
+        }
+
+        Map<String, DomainState> result = new LinkedHashMap<>();
+        for (int i = 0; i < domains.size(); i++) {
+            try {
+                result.put(domains.get(i).name(), await(states.get(i)));
+            } catch (HypervisorException e) {
+                // Undefined between the listing and the query.
+                if (e.getCode() != ErrorNumber.VIR_ERR_NO_DOMAIN) {
+                    throw e;
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public HypervisorPool pool(String name) throws HypervisorException {
+        throw unsupported("Storage pools");
+    }
+
+    private static <T> T await(CompletableFuture<T> future) throws HypervisorException {
+        try {
+            return RemoteConnection.await(future);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(false);
+            throw new HypervisorException(ErrorNumber.VIR_ERR_OPERATION_ABORTED, "Interrupted while waiting for the libvirt daemon", e);
+        } catch (TimeoutException e) {
+            throw new HypervisorException(ErrorNumber.VIR_ERR_OPERATION_TIMEOUT, e.getMessage(), e);
+        } catch (IOException e) {
+            throw new HypervisorException(ErrorNumber.VIR_ERR_RPC, e.getMessage(), e);
+        } catch (RemoteException e) {
+            throw new HypervisorException(LibvirtErrors.code(e), e.getMessage(), e);
+        } catch (Exception e) {
+            throw new HypervisorException(ErrorNumber.VIR_ERR_INTERNAL_ERROR, e.getMessage(), e);
+        }
+    }
+
+    private static HypervisorException unsupported(String what) {
+        return new HypervisorException(ErrorNumber.VIR_ERR_NO_SUPPORT, what + " are not supported by the REMOTE backend; use the NATIVE backend");
+    }
+
+    private record RemoteHypervisorDomain(RemoteConnection remote, RemoteDomain domain) implements HypervisorDomain {
+        @Override
+        public String name() {
+            return domain.name();
+        }
+
+        @Override
+        public String uuid() {
+            return domain.uuid().toString();
+        }
+
+        @Override
+        public DomainState state() throws HypervisorException {
+            return await(remote.getState(domain));
+        }
+
+        @Override
+        public String xmlDesc(int flags) throws HypervisorException {
+            return await(remote.getXmlDesc(domain, flags));
+        }
+
+        @Override
+        public void create() throws HypervisorException {
+            await(remote.create(domain));
+        }
+
+        @Override
+        public void shutdown() throws HypervisorException {
+            await(remote.shutdown(domain));
+        }
+
+        @Override
+        public void destroy() throws HypervisorException {
+            await(remote.destroy(domain));
+        }
+
+        @Override
+        public void undefine(int flags) throws HypervisorException {
+            await(flags == 0 ? remote.undefine(domain) : remote.undefine(domain, flags));
+        }
+
+        @Override
+        public List<String> addresses() throws HypervisorException {
+            throw unsupported("Guest addresses");
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package io.kestra.plugin.kvm;
+
+import org.libvirt.Connect;
+import org.libvirt.StorageVol;
+
+import io.kestra.core.models.annotations.Example;
+import io.kestra.core.models.annotations.Plugin;
+import io.kestra.core.models.annotations.PluginProperty;
+import io.kestra.core.models.property.Property;
+import io.kestra.core.models.tasks.RunnableTask;
+import io.kestra.core.runners.RunContext;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+import lombok.experimental.SuperBuilder;
+
+/**
+ * Task to resize a storage volume of a KVM host.
+ */
+@SuperBuilder
+@NoArgsConstructor
+@Getter
+@EqualsAndHashCode
+@ToString
+@Plugin(
+    examples = {
+        @Example(
+            title = "Grow a data disk to 200 GiB and preallocate the new space.",
+            full = true,
+            code = """
+                id: kvm_resize_volume
+                namespace: kvmtest.ssh
+
+                tasks:
+                  - id: resize_volume
+                    type: io.kestra.plugin.kvm.ResizeVolume
+                    uri: qemu+ssh://root@167.99.104.163/system
+                    storagePool: default
+                    name: web-01-data.img
+                    capacity: 200GiB
+                    preallocate: true
+                """
+        )
+    }
+)
+@Schema(
+    title = "Resize a storage volume",
+    description = "Changes the capacity of a volume. Growing a volume attached to a running VM does not resize the guest's disk; use `virsh blockresize` or the guest tools for that. Shrinking must be explicitly allowed, as it discards the data past the new capacity."
+)
+public class ResizeVolume extends AbstractKvmTask implements RunnableTask<ResizeVolume.Output> {
+    @Builder.Default
+    @Schema(title = "Storage pool", description = "Default `default`.")
+    @PluginProperty(group = "main")
+    private Property<String> storagePool = Property.ofValue("default");
+
+    @NotNull
+    @Schema(title = "Volume name")
+    @PluginProperty(group = "main")
+    private Property<String> name;
+
+    @NotNull
+    @Schema(title = "New capacity", description = "Size seen by the guest, such as `200GiB`; bytes when no unit is given.")
+    @PluginProperty(group = "main")
+    private Property<String> capacity;
+
+    @Builder.Default
+    @Schema(
+        title = "Preallocate",
+        description = "If true, the space added to the volume is allocated on the host instead of left sparse. Default false."
+    )
+    @PluginProperty(group = "processing")
+    private Property<Boolean> preallocate = Property.ofValue(false);
+
+    @Builder.Default
+    @Schema(
+        title = "Allow shrink",
+        description = "If true, the volume may be shrunk, discarding its data past the new capacity. Default false."
+    )
+    @PluginProperty(group = "advanced")
+    private Property<Boolean> allowShrink = Property.ofValue(false);
+
+    @Override
+    public Output run(RunContext runContext) throws Exception {
+        String rStoragePool = runContext.render(this.storagePool).as(String.class).orElse("default");
+        String rName = runContext.render(this.name).as(String.class).orElseThrow();
+        long rCapacity = StorageVolumes.parseSize(runContext.render(this.capacity).as(String.class).orElseThrow());
+        boolean rPreallocate = runContext.render(this.preallocate).as(Boolean.class).orElse(false);
+        boolean rAllowShrink = runContext.render(this.allowShrink).as(Boolean.class).orElse(false);
+
+        try (LibvirtConnection connection = getConnection(runContext)) {
+            Connect conn = connection.get();
+            StorageVol volume = conn.storagePoolLookupByName(rStoragePool).storageVolLookupByName(rName);
+            long previous = StorageVolumes.describe(rStoragePool, volume).getCapacity();
+
+            if (rCapacity == previous) {
+                runContext.logger().info("Volume {} already has a capacity of {} bytes.", rName, rCapacity);
+            } else {
+                if (rCapacity < previous && !rAllowShrink) {
+                    throw new IllegalArgumentException(
+                        "Refusing to shrink volume " + rName + " from " + previous + " to " + rCapacity + " bytes; set allowShrink to true"
+                    );
+                }
+
+                int flags = (rPreallocate ? StorageVol.ResizeFlags.ALLOCATE : 0)
+                    | (rCapacity < previous ? StorageVol.ResizeFlags.SHRINK : 0);
+                volume.resize(rCapacity, flags);
+                runContext.logger().info("Resized volume {} from {} to {} bytes.", rName, previous, rCapacity);
+            }
+
+            return Output.builder()
+                .volume(StorageVolumes.describe(rStoragePool, volume))
+                .previousCapacity(previous)
+                .build();
+        }
+    }
+
+    /**
+     * Output for the ResizeVolume task.
+     */
+    @Builder
+    @Getter
+    public static class Output implements io.kestra.core.models.tasks.Output {
+        @Schema(title = "Resized volume")
+        private ListVolumes.Volume volume;
+
+        @Schema(title = "Capacity in bytes before the resize")
+        private long previousCapacity;
+    }
+}
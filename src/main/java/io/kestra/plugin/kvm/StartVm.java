@@ -1,10 +1,10 @@
 package io.kestra.plugin.kvm;
 
 import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
 
-import org.libvirt.Connect;
-import org.libvirt.Domain;
-import org.libvirt.DomainInfo;
 import org.libvirt.DomainInfo.DomainState;
 
 import io.kestra.core.models.annotations.Example;
@@ -14,6 +14,7 @@ import io.kestra.core.models.tasks.RunnableTask;
 import io.kestra.core.models.tasks.retrys.Exponential;
 import io.kestra.core.runners.RunContext;
 import io.kestra.core.utils.RetryUtils;
+import io.kestra.plugin.kvm.HypervisorClient.HypervisorDomain;
 
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.validation.constraints.NotNull;
@@ -49,7 +50,7 @@ import io.kestra.core.models.annotations.PluginProperty;
 )
 @Schema(
     title = "Start a KVM domain",
-    description = "Boots a libvirt domain if it isn't already running. Can optionally wait until the domain reaches RUNNING state using exponential retry up to timeToWait (default PT60S). Requires access to the target libvirt URI."
+    description = "Boots a libvirt domain if it isn't already running. Can optionally wait until the domain reaches RUNNING state using exponential retry up to timeToWait (default PT60S). Requires access to the target libvirt URI. Supports the REMOTE backend, except for waitForAddress."
 )
 public class StartVm extends AbstractKvmTask implements RunnableTask<StartVm.Output> {
     @Schema(
@@ -68,32 +69,50 @@ public class StartVm extends AbstractKvmTask implements RunnableTask<StartVm.Out
     @PluginProperty(group = "execution")
     private Property<Boolean> waitForRunning = Property.ofValue(false);
 
+    @Builder.Default
+    @Schema(
+        title = "Wait for an IP address",
+        description = "If true, waits for RUNNING and then polls the guest's addresses, from the DHCP leases of its libvirt networks and then the host's ARP table, until one is known or timeToWait elapses. The addresses are returned in the output. Default false."
+    )
+    @PluginProperty(group = "execution")
+    private Property<Boolean> waitForAddress = Property.ofValue(false);
+
     @Builder.Default
     @Schema(
         title = "Max wait duration",
-        description = "Maximum time to wait for RUNNING when waitForRunning is true. Default PT60S."
+        description = "Maximum time to wait for RUNNING, and for an address when waitForAddress is true. Default PT60S."
     )
     @PluginProperty(group = "execution")
     private Property<Duration> timeToWait = Property.ofValue(Duration.ofSeconds(60));
 
     @Override
     public Output run(RunContext runContext) throws Exception {
+        String rName = runContext.render(this.name).as(String.class).orElseThrow();
+        boolean rWaitForAddress = runContext.render(this.waitForAddress).as(Boolean.class).orElse(false);
+        Duration rWaitDuration = runContext.render(this.timeToWait).as(Duration.class).orElse(Duration.ofSeconds(60));
+        Instant deadline = Instant.now().plus(rWaitDuration);
+
+        Optional<InventoryCache.Entry> cached = cachedDomain(runContext, rName)
+            .filter(entry -> !rWaitForAddress && DomainState.VIR_DOMAIN_RUNNING.toString().equals(entry.state()));
+        if (cached.isPresent()) {
+            runContext.logger().info("VM {} is already running according to the inventory cache. Skipping start.", rName);
+            return Output.builder()
+                .name(rName)
+                .state(cached.get().state())
+                .build();
+        }
+
         try (LibvirtConnection connection = getConnection(runContext)) {
-            Connect conn = connection.get();
-            String rName = runContext.render(this.name).as(String.class).orElseThrow();
-            Domain domain = conn.domainLookupByName(rName);
-            DomainInfo info = domain.getInfo();
+            HypervisorDomain domain = connection.client().domain(rName);
 
-            if (info.state == DomainState.VIR_DOMAIN_RUNNING) {
+            if (domain.state() == DomainState.VIR_DOMAIN_RUNNING) {
                 runContext.logger().info("VM {} is already running. Skipping start.", rName);
             } else {
                 domain.create();
+                invalidateDomain(runContext, rName);
                 runContext.logger().info("VM {} started successfully.", rName);
 
-                if (runContext.render(this.waitForRunning).as(Boolean.class).orElse(false)) {
-                    Duration rWaitDuration = runContext.render(this.timeToWait).as(Duration.class)
-                        .orElse(Duration.ofSeconds(60));
-
+                if (rWaitForAddress || runContext.render(this.waitForRunning).as(Boolean.class).orElse(false)) {
                     RetryUtils.Instance<Boolean, IllegalStateException> retryUtils = RetryUtils.of(
                         Exponential.builder()
                             .delayFactor(2.0)
@@ -110,7 +129,7 @@ public class StartVm extends AbstractKvmTask implements RunnableTask<StartVm.Out
                             IllegalStateException.class,
                             () ->
                             {
-                                DomainState currentState = domain.getInfo().state;
+                                DomainState currentState = domain.state();
 
                                 if (currentState == DomainState.VIR_DOMAIN_RUNNING) {
                                     return true;
@@ -154,13 +173,52 @@ public class StartVm extends AbstractKvmTask implements RunnableTask<StartVm.Out
                 }
             }
 
+            List<String> addresses = null;
+            if (rWaitForAddress) {
+                addresses = waitForAddresses(domain, Duration.between(Instant.now(), deadline), rWaitDuration);
+                runContext.logger().info("VM {} is reachable at {}.", rName, addresses);
+            }
+
             return Output.builder()
-                .name(domain.getName())
-                .state(domain.getInfo().state.toString())
+                .name(domain.name())
+                .state(domain.state().toString())
+                .addresses(addresses)
                 .build();
         }
     }
 
+    private static List<String> waitForAddresses(HypervisorDomain domain, Duration remaining, Duration rWaitDuration) throws Exception {
+        RetryUtils.Instance<List<String>, IllegalStateException> retryUtils = RetryUtils.of(
+            Exponential.builder()
+                .delayFactor(2.0)
+                .interval(Duration.ofMillis(250))
+                .maxInterval(Duration.ofSeconds(2))
+                .maxAttempts(-1)
+                .maxDuration(remaining.isNegative() ? Duration.ZERO : remaining)
+                .build()
+        );
+
+        try {
+            return retryUtils.run(
+                IllegalStateException.class,
+                () -> {
+                    List<String> addresses = domain.addresses();
+                    if (addresses.isEmpty()) {
+                        throw new IllegalStateException("Waiting for VM to get an IP address");
+                    }
+                    return addresses;
+                }
+            );
+        } catch (IllegalStateException e) {
+            throw new Exception("Timeout waiting for VM to get an IP address after " + rWaitDuration.getSeconds() + "s");
+        } catch (Throwable e) {
+            if (e instanceof Exception ex) {
+                throw ex;
+            }
+            throw new Exception(e);
+        }
+    }
+
     /**
      * Output for the StartVm task.
      */
@@ -178,5 +236,11 @@ public class StartVm extends AbstractKvmTask implements RunnableTask<StartVm.Out
             description = "Libvirt domain state after the start attempt."
         )
         private String state;
+
+        @Schema(
+            title = "IP addresses",
+            description = "Addresses of the guest; only set when waitForAddress is true."
+        )
+        private List<String> addresses;
     }
 }
@@ -1,9 +1,8 @@
 package io.kestra.plugin.kvm;
 
 import java.time.Duration;
+import java.util.Optional;
 
-import org.libvirt.Connect;
-import org.libvirt.Domain;
 import org.libvirt.DomainInfo.DomainState;
 
 import io.kestra.core.models.annotations.Example;
@@ -13,6 +12,7 @@ import io.kestra.core.models.tasks.RunnableTask;
 import io.kestra.core.models.tasks.retrys.Exponential;
 import io.kestra.core.runners.RunContext;
 import io.kestra.core.utils.RetryUtils;
+import io.kestra.plugin.kvm.HypervisorClient.HypervisorDomain;
 
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.validation.constraints.NotNull;
@@ -48,7 +48,7 @@ import io.kestra.core.models.annotations.PluginProperty;
 )
 @Schema(
     title = "Stop or shutdown KVM domain",
-    description = "Sends a shutdown or hard power-off (force) to a libvirt domain. Can optionally wait until the domain reaches SHUTOFF using exponential retry up to timeToWait (default PT60S). Requires access to the target libvirt URI."
+    description = "Sends a shutdown or hard power-off (force) to a libvirt domain. Can optionally wait until the domain reaches SHUTOFF using exponential retry up to timeToWait (default PT60S). Requires access to the target libvirt URI. Supports the REMOTE backend."
 )
 public class StopVm extends AbstractKvmTask implements RunnableTask<StopVm.Output> {
     @Schema(
@@ -85,12 +85,22 @@ public class StopVm extends AbstractKvmTask implements RunnableTask<StopVm.Outpu
 
     @Override
     public Output run(RunContext runContext) throws Exception {
+        String rName = runContext.render(this.name).as(String.class).orElseThrow();
+
+        Optional<InventoryCache.Entry> cached = cachedDomain(runContext, rName)
+            .filter(entry -> DomainState.VIR_DOMAIN_SHUTOFF.toString().equals(entry.state()));
+        if (cached.isPresent()) {
+            runContext.logger().info("VM {} is already stopped according to the inventory cache. Skipping stop.", rName);
+            return Output.builder()
+                .name(rName)
+                .state(cached.get().state())
+                .build();
+        }
+
         try (LibvirtConnection connection = getConnection(runContext)) {
-            Connect conn = connection.get();
-            String rName = runContext.render(this.name).as(String.class).orElseThrow();
-            Domain domain = conn.domainLookupByName(rName);
+            HypervisorDomain domain = connection.client().domain(rName);
 
-            if (domain.getInfo().state == DomainState.VIR_DOMAIN_SHUTOFF) {
+            if (domain.state() == DomainState.VIR_DOMAIN_SHUTOFF) {
                 runContext.logger().info("VM {} is already stopped. Skipping stop.", rName);
             } else {
                 // Use destroy() for hard power off or shutdown() for force
@@ -101,6 +111,7 @@ public class StopVm extends AbstractKvmTask implements RunnableTask<StopVm.Outpu
                     runContext.logger().info("Calling shutdown on {}.", rName);
                     domain.shutdown();
                 }
+                invalidateDomain(runContext, rName);
 
                 if (runContext.render(this.waitForStopped).as(Boolean.class).orElse(false)) {
                     Duration rWaitDuration = runContext.render(this.timeToWait).as(Duration.class)
@@ -122,7 +133,7 @@ public class StopVm extends AbstractKvmTask implements RunnableTask<StopVm.Outpu
                             IllegalStateException.class,
                             () ->
                             {
-                                DomainState currentState = domain.getInfo().state;
+                                DomainState currentState = domain.state();
 
                                 if (currentState == DomainState.VIR_DOMAIN_SHUTOFF) {
                                     return true;
@@ -168,8 +179,8 @@ public class StopVm extends AbstractKvmTask implements RunnableTask<StopVm.Outpu
             }
 
             return Output.builder()
-                .name(domain.getName())
-                .state(domain.getInfo().state.toString())
+                .name(domain.name())
+                .state(domain.state().toString())
                 .build();
         }
     }
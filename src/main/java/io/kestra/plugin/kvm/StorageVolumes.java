@@ -0,0 +1,143 @@
+package io.kestra.plugin.kvm;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.xml.xpath.XPath;
+
+import org.libvirt.StoragePool;
+import org.libvirt.StorageVol;
+import org.w3c.dom.Document;
+
+/**
+ * Builds storage volume definitions and reads back their description.
+ *
+ * <p>
+ * libvirt has no preallocation attribute in the volume XML: the allocation element and the
+ * {@code VIR_STORAGE_VOL_CREATE_PREALLOC_METADATA} flag together decide what the storage backend does. For qcow2,
+ * the flag alone makes {@code qemu-img} allocate the metadata, and the flag with an allocation equal to the capacity
+ * makes it {@code fallocate} the image. For raw, an allocation equal to the capacity makes libvirt allocate every
+ * block, with {@code fallocate} where the filesystem supports it and by writing zeros otherwise.
+ */
+final class StorageVolumes {
+    static final int CREATE_PREALLOC_METADATA = StoragePool.VolumeCreateFlags.PREALLOC_METADATA;
+
+    private static final Pattern SIZE = Pattern.compile("^\\s*(\\d+)\\s*([A-Za-z]*)\\s*$");
+
+    private static final long MIN_CLUSTER_SIZE = 512;
+
+    private static final long MAX_CLUSTER_SIZE = 2 * 1024 * 1024;
+
+    private StorageVolumes() {
+    }
+
+    /**
+     * Parses a size such as {@code 20GiB} or {@code 512M} into bytes, following the unit names accepted by libvirt.
+     * A size without a unit is in bytes.
+     */
+    static long parseSize(String size) {
+        Matcher matcher = size == null ? null : SIZE.matcher(size);
+        if (matcher == null || !matcher.matches()) {
+            throw new IllegalArgumentException("Invalid size '" + size + "', expected a number followed by an optional unit such as GiB");
+        }
+
+        long value = Long.parseLong(matcher.group(1));
+        return switch (matcher.group(2)) {
+            case "", "b", "bytes" -> value;
+            case "KB" -> value * 1000;
+            case "k", "K", "KiB" -> value * 1024;
+            case "MB" -> value * 1000 * 1000;
+            case "M", "MiB" -> value * 1024 * 1024;
+            case "GB" -> value * 1000 * 1000 * 1000;
+            case "G", "GiB" -> value * 1024 * 1024 * 1024;
+            case "TB" -> value * 1000 * 1000 * 1000 * 1000;
+            case "T", "TiB" -> value * 1024 * 1024 * 1024 * 1024;
+            default -> throw new IllegalArgumentException("Unsupported size unit '" + matcher.group(2) + "'");
+        };
+    }
+
+    /**
+     * Returns the volume XML for a new volume.
+     *
+     * @param name The volume name.
+     * @param capacity The capacity in bytes.
+     * @param format The target format, such as {@code qcow2} or {@code raw}.
+     * @param preallocation How much of the volume to allocate.
+     * @param clusterSize The qcow2 cluster size in bytes, or null for the qemu default.
+     * @throws IllegalArgumentException If the preallocation mode or cluster size do not apply to the format.
+     */
+    static String volumeXml(String name, long capacity, String format, Preallocation preallocation, Long clusterSize) {
+        boolean qcow2 = "qcow2".equals(format);
+        if (preallocation == Preallocation.METADATA && !qcow2) {
+            throw new IllegalArgumentException("Volume " + name + ": METADATA preallocation only applies to qcow2 volumes");
+        }
+        if (preallocation == Preallocation.FALLOC && !qcow2) {
+            throw new IllegalArgumentException("Volume " + name + ": FALLOC preallocation only applies to qcow2 volumes, use FULL");
+        }
+        if (preallocation == Preallocation.FULL && qcow2) {
+            throw new IllegalArgumentException("Volume " + name + ": libvirt cannot fully preallocate qcow2 volumes, use FALLOC");
+        }
+        if (clusterSize != null) {
+            if (!qcow2) {
+                throw new IllegalArgumentException("Volume " + name + ": cluster size only applies to qcow2 volumes");
+            }
+            if (clusterSize < MIN_CLUSTER_SIZE || clusterSize > MAX_CLUSTER_SIZE || Long.bitCount(clusterSize) != 1) {
+                throw new IllegalArgumentException("Volume " + name + ": cluster size must be a power of two between 512 bytes and 2 MiB");
+            }
+        }
+
+        long allocation = preallocation == Preallocation.FALLOC || preallocation == Preallocation.FULL ? capacity : 0;
+
+        StringBuilder xml = new StringBuilder()
+            .append("<volume><name>").append(escape(name)).append("</name>")
+            .append("<capacity unit='bytes'>").append(capacity).append("</capacity>")
+            .append("<allocation unit='bytes'>").append(allocation).append("</allocation>")
+            .append("<target><format type='").append(escape(format)).append("'/>");
+        if (clusterSize != null) {
+            xml.append("<clusterSize unit='bytes'>").append(clusterSize).append("</clusterSize>");
+        }
+        return xml.append("</target></volume>").toString();
+    }
+
+    /**
+     * Returns the {@code storageVolCreateXML} flags for a new volume.
+     */
+    static int createFlags(String format, Preallocation preallocation) {
+        boolean preallocated = preallocation == Preallocation.METADATA || preallocation == Preallocation.FALLOC;
+        return "qcow2".equals(format) && preallocated ? CREATE_PREALLOC_METADATA : 0;
+    }
+
+    /**
+     * Reads the description of a volume from its XML, which, unlike {@code virStorageVolGetInfo}, also knows the
+     * format and the volume types added after the Java bindings.
+     */
+    static ListVolumes.Volume describe(String pool, StorageVol volume) throws Exception {
+        Document doc = LibvirtXmlParser.parse(volume.getXMLDesc(0));
+        XPath xpath = LibvirtXmlParser.xpath();
+
+        String format = xpath.evaluate("/volume/target/format/@type", doc);
+        return ListVolumes.Volume.builder()
+            .pool(pool)
+            .name(xpath.evaluate("/volume/name", doc))
+            .type(xpath.evaluate("/volume/@type", doc))
+            .path(xpath.evaluate("/volume/target/path", doc))
+            .format(format.isEmpty() ? null : format)
+            .capacity(bytes(xpath.evaluate("/volume/capacity", doc), xpath.evaluate("/volume/capacity/@unit", doc)))
+            .allocation(bytes(xpath.evaluate("/volume/allocation", doc), xpath.evaluate("/volume/allocation/@unit", doc)))
+            .build();
+    }
+
+    private static long bytes(String value, String unit) {
+        if (value.isBlank()) {
+            return 0;
+        }
+        return parseSize(value.trim() + unit);
+    }
+
+    /**
+     * Escapes a value for a text node or a single-quoted attribute of a volume definition.
+     */
+    static String escape(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace("'", "&apos;");
+    }
+}
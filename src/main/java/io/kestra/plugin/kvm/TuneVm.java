@@ -0,0 +1,546 @@
+package io.kestra.plugin.kvm;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.libvirt.Connect;
+import org.libvirt.Domain;
+import org.libvirt.Domain.DeviceModifyFlags;
+import org.libvirt.Domain.VcpuFlags;
+import org.libvirt.DomainInfo;
+import org.libvirt.SchedLongParameter;
+import org.libvirt.SchedParameter;
+import org.libvirt.SchedUlongParameter;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.slf4j.Logger;
+
+import io.kestra.core.models.annotations.Example;
+import io.kestra.core.models.annotations.Plugin;
+import io.kestra.core.models.annotations.PluginProperty;
+import io.kestra.core.models.property.Property;
+import io.kestra.core.models.tasks.RunnableTask;
+import io.kestra.core.runners.RunContext;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.*;
+import lombok.experimental.SuperBuilder;
+import lombok.extern.jackson.Jacksonized;
+
+/**
+ * Task to apply live resource changes to one or many KVM Virtual Machines.
+ */
+@SuperBuilder
+@NoArgsConstructor
+@Getter
+@EqualsAndHashCode
+@ToString
+@Plugin(
+    examples = {
+        @Example(
+            full = true,
+            code = """
+                id: rebalance_noisy_neighbours
+                namespace: kvmtest.ssh
+
+                tasks:
+                  - id: tune_vms
+                    type: io.kestra.plugin.kvm.TuneVm
+                    uri: qemu+ssh://root@167.99.104.163/system
+                    names:
+                      - batch-worker-1
+                      - batch-worker-2
+                    maxParallelism: 2
+                    cpuShares: 256
+                    vcpuQuota: 50000
+                    vcpuPeriod: 100000
+                    blockIoTune:
+                      - device: vda
+                        totalIopsSec: 500
+                        totalBytesSec: 52428800
+                    interfaceBandwidth:
+                      - device: "52:54:00:12:34:56"
+                        outboundAverage: 10240
+                """
+        )
+    }
+)
+@Schema(
+    title = "Tune KVM domain resources live",
+    description = "Applies resource changes to running domains without a restart: vCPU count and pinning, balloon memory target, scheduler parameters (cpu_shares, vcpu_quota, vcpu_period), per-disk block I/O limits and per-interface bandwidth. Works on one or many domains with bounded parallelism and reports before/after values per domain. Inactive domains get the changes in their persistent configuration; pinning only applies to running domains."
+)
+public class TuneVm extends AbstractKvmTask implements RunnableTask<TuneVm.Output> {
+    @Schema(
+        title = "Domain name",
+        description = "Name of a single libvirt domain to tune; combined with names."
+    )
+    @PluginProperty(group = "main")
+    private Property<String> name;
+
+    @Schema(
+        title = "Domain names",
+        description = "Names of the libvirt domains to tune; combined with name."
+    )
+    @PluginProperty(group = "main")
+    private Property<List<String>> names;
+
+    @Schema(
+        title = "Label selector",
+        description = "Tune the domains whose labels, set by CreateVm or UpdateVm, match every comma-separated requirement: `key=value`, `key!=value`, `key` or `!key`. With name or names, only those of them that match are tuned."
+    )
+    @PluginProperty(group = "main")
+    private Property<String> labelSelector;
+
+    @Builder.Default
+    @Schema(
+        title = "Max parallelism",
+        description = "Maximum number of domains tuned concurrently. Default 4."
+    )
+    @PluginProperty(group = "execution")
+    private Property<Integer> maxParallelism = Property.ofValue(4);
+
+    @Schema(
+        title = "vCPU count",
+        description = "Number of active vCPUs; must not exceed the domain's maximum vCPUs."
+    )
+    @PluginProperty(group = "processing")
+    private Property<Integer> vcpus;
+
+    @Schema(
+        title = "vCPU pinning",
+        description = "Map of vCPU index to host cpuset (for example `0: 2-3`). Only applied to running domains."
+    )
+    @PluginProperty(group = "processing")
+    private Property<Map<String, String>> vcpuPinning;
+
+    @Schema(
+        title = "Balloon memory target (MiB)",
+        description = "Target memory set through the balloon driver; must not exceed the domain's maximum memory."
+    )
+    @PluginProperty(group = "processing")
+    private Property<Long> memoryMiB;
+
+    @Schema(
+        title = "CPU shares",
+        description = "Scheduler cpu_shares: relative CPU weight against other domains."
+    )
+    @PluginProperty(group = "processing")
+    private Property<Long> cpuShares;
+
+    @Schema(
+        title = "vCPU quota (µs)",
+        description = "Scheduler vcpu_quota: CPU time each vCPU may use per period; -1 removes the limit."
+    )
+    @PluginProperty(group = "processing")
+    private Property<Long> vcpuQuota;
+
+    @Schema(
+        title = "vCPU period (µs)",
+        description = "Scheduler vcpu_period used with vcpuQuota."
+    )
+    @PluginProperty(group = "processing")
+    private Property<Long> vcpuPeriod;
+
+    @Schema(
+        title = "Block I/O limits",
+        description = "Per-disk IOPS and bytes per second limits, applied by updating the disk device's iotune element."
+    )
+    @PluginProperty(group = "processing")
+    private Property<List<BlockIoTune>> blockIoTune;
+
+    @Schema(
+        title = "Interface bandwidth",
+        description = "Per-interface inbound/outbound bandwidth limits in KiB/s, applied by updating the interface device's bandwidth element."
+    )
+    @PluginProperty(group = "processing")
+    private Property<List<InterfaceBandwidth>> interfaceBandwidth;
+
+    @Builder.Default
+    @Schema(
+        title = "Persist changes",
+        description = "If true, vCPU count, memory target and device limits applied to running domains are also written to the persistent configuration. Default false."
+    )
+    @PluginProperty(group = "destination")
+    private Property<Boolean> persist = Property.ofValue(false);
+
+    @Builder.Default
+    @Schema(
+        title = "Fail on error",
+        description = "If true, the task fails when any domain could not be tuned, after all domains have been processed. Default true."
+    )
+    @PluginProperty(group = "reliability")
+    private Property<Boolean> failOnError = Property.ofValue(true);
+
+    @Override
+    public Output run(RunContext runContext) throws Exception {
+        Set<String> targets = new LinkedHashSet<>();
+        runContext.render(this.name).as(String.class).ifPresent(targets::add);
+        targets.addAll(runContext.render(this.names).asList(String.class));
+        LabelSelector rLabelSelector = renderLabelSelector(runContext, this.labelSelector);
+        if (targets.isEmpty() && rLabelSelector == null) {
+            throw new IllegalArgumentException("Either name, names or labelSelector must be set");
+        }
+
+        Settings settings = new Settings(
+            runContext.render(this.vcpus).as(Integer.class).orElse(null),
+            runContext.render(this.vcpuPinning).asMap(String.class, String.class),
+            runContext.render(this.memoryMiB).as(Long.class).orElse(null),
+            runContext.render(this.cpuShares).as(Long.class).orElse(null),
+            runContext.render(this.vcpuQuota).as(Long.class).orElse(null),
+            runContext.render(this.vcpuPeriod).as(Long.class).orElse(null),
+            runContext.render(this.blockIoTune).asList(BlockIoTune.class),
+            runContext.render(this.interfaceBandwidth).asList(InterfaceBandwidth.class),
+            runContext.render(this.persist).as(Boolean.class).orElse(false)
+        );
+        int rMaxParallelism = runContext.render(this.maxParallelism).as(Integer.class).orElse(4);
+
+        try (LibvirtConnection connection = getConnection(runContext)) {
+            Connect conn = connection.get();
+            Logger logger = runContext.logger();
+            if (rLabelSelector != null) {
+                targets = retainLabelled(targets, selectByLabels(runContext, connection.client(), rLabelSelector, rMaxParallelism));
+            }
+
+            List<DomainResult> results = new ArrayList<>();
+            for (KvmExecutors.Outcome<String, DomainResult> outcome : KvmExecutors.fanOut(
+                List.copyOf(targets),
+                rMaxParallelism,
+                domainName -> tune(conn, domainName, settings, logger)
+            )) {
+                if (outcome.isSuccess()) {
+                    results.add(outcome.value());
+                } else {
+                    logger.error("Failed to tune VM {}: {}", outcome.item(), outcome.error().getMessage());
+                    results.add(
+                        DomainResult.builder()
+                            .name(outcome.item())
+                            .success(false)
+                            .error(outcome.error().getMessage())
+                            .build()
+                    );
+                }
+            }
+
+            long failed = results.stream().filter(r -> !r.isSuccess()).count();
+            if (failed > 0 && runContext.render(this.failOnError).as(Boolean.class).orElse(true)) {
+                throw new Exception("Failed to tune " + failed + " of " + results.size() + " VM(s)");
+            }
+
+            return Output.builder().domains(results).build();
+        }
+    }
+
+    private static DomainResult tune(Connect conn, String domainName, Settings settings, Logger logger) throws Exception {
+        Domain domain = conn.domainLookupByName(domainName);
+        boolean active = domain.isActive() == 1;
+        Map<String, Object> before = snapshot(domain, active);
+
+        int vcpuImpact = active ? VcpuFlags.LIVE | (settings.persist() ? VcpuFlags.CONFIG : 0) : VcpuFlags.CONFIG;
+        int deviceImpact = active ? DeviceModifyFlags.LIVE | (settings.persist() ? DeviceModifyFlags.CONFIG : 0) : DeviceModifyFlags.CONFIG;
+        int memoryImpact = active ? LibvirtNative.AFFECT_LIVE | (settings.persist() ? LibvirtNative.AFFECT_CONFIG : 0) : LibvirtNative.AFFECT_CONFIG;
+
+        if (settings.vcpus() != null) {
+            domain.setVcpusFlags(settings.vcpus(), vcpuImpact);
+        }
+
+        if (settings.memoryMiB() != null) {
+            LibvirtNative.setMemoryFlags(domain, settings.memoryMiB() * 1024, memoryImpact);
+        }
+
+        if (!settings.vcpuPinning().isEmpty()) {
+            if (active) {
+                int length = domain.cpuMapLength(conn.nodeInfo().maxCpus());
+                for (Map.Entry<String, String> pin : settings.vcpuPinning().entrySet()) {
+                    domain.pinVcpu(Integer.parseInt(pin.getKey()), Cpuset.toCpumap(Cpuset.parse(pin.getValue()), length));
+                }
+            } else {
+                logger.warn("VM {} is not running; skipping vCPU pinning.", domainName);
+            }
+        }
+
+        List<SchedParameter> scheduler = new ArrayList<>();
+        if (settings.cpuShares() != null) {
+            scheduler.add(schedUlong("cpu_shares", settings.cpuShares()));
+        }
+        if (settings.vcpuPeriod() != null) {
+            scheduler.add(schedUlong("vcpu_period", settings.vcpuPeriod()));
+        }
+        if (settings.vcpuQuota() != null) {
+            SchedLongParameter quota = new SchedLongParameter(settings.vcpuQuota());
+            quota.field = "vcpu_quota";
+            scheduler.add(quota);
+        }
+        if (!scheduler.isEmpty()) {
+            domain.setSchedulerParameters(scheduler.toArray(SchedParameter[]::new));
+        }
+
+        if (!settings.blockIoTune().isEmpty() || !settings.interfaceBandwidth().isEmpty()) {
+            DomainXmlEditor editor = DomainXmlEditor.of(domain.getXMLDesc(0));
+
+            for (BlockIoTune tune : settings.blockIoTune()) {
+                Element disk = findDevice(editor, "disk", tune.getDevice());
+                Element iotune = editor.child(disk, "iotune");
+                limit(editor, iotune, "total_bytes_sec", tune.getTotalBytesSec());
+                limit(editor, iotune, "read_bytes_sec", tune.getReadBytesSec());
+                limit(editor, iotune, "write_bytes_sec", tune.getWriteBytesSec());
+                limit(editor, iotune, "total_iops_sec", tune.getTotalIopsSec());
+                limit(editor, iotune, "read_iops_sec", tune.getReadIopsSec());
+                limit(editor, iotune, "write_iops_sec", tune.getWriteIopsSec());
+                domain.updateDeviceFlags(LibvirtXmlParser.toXml(disk), deviceImpact);
+            }
+
+            for (InterfaceBandwidth bandwidth : settings.interfaceBandwidth()) {
+                Element iface = findDevice(editor, "interface", bandwidth.getDevice());
+                Element element = editor.child(iface, "bandwidth");
+                rate(editor, element, "inbound", bandwidth.getInboundAverage(), bandwidth.getInboundPeak(), bandwidth.getInboundBurst());
+                rate(editor, element, "outbound", bandwidth.getOutboundAverage(), bandwidth.getOutboundPeak(), bandwidth.getOutboundBurst());
+                domain.updateDeviceFlags(LibvirtXmlParser.toXml(iface), deviceImpact);
+            }
+        }
+
+        logger.info("VM {} tuned.", domainName);
+
+        return DomainResult.builder()
+            .name(domainName)
+            .success(true)
+            .before(before)
+            .after(snapshot(domain, active))
+            .build();
+    }
+
+    private static Map<String, Object> snapshot(Domain domain, boolean active) throws Exception {
+        Map<String, Object> values = new LinkedHashMap<>();
+
+        DomainInfo info = domain.getInfo();
+        values.put("vcpus", info.nrVirtCpu);
+        values.put("memoryKiB", info.memory);
+
+        Map<String, String> scheduler = new LinkedHashMap<>();
+        for (SchedParameter parameter : domain.getSchedulerParameters()) {
+            scheduler.put(parameter.field, parameter.getValueAsString());
+        }
+        values.put("scheduler", scheduler);
+
+        if (active) {
+            int length = domain.cpuMapLength(domain.getConnect().nodeInfo().maxCpus());
+            int[] cpumaps = domain.getVcpusCpuMaps();
+            Map<String, String> pinning = new LinkedHashMap<>();
+            for (int vcpu = 0; vcpu * length < cpumaps.length; vcpu++) {
+                pinning.put(Integer.toString(vcpu), Cpuset.format(Cpuset.fromCpumap(cpumaps, vcpu * length, length)));
+            }
+            values.put("vcpuPinning", pinning);
+        }
+
+        Document doc = LibvirtXmlParser.parse(domain.getXMLDesc(0));
+        DomainXmlEditor reader = new DomainXmlEditor(doc);
+        Element devices = LibvirtXmlParser.firstChild(doc.getDocumentElement(), "devices");
+        if (devices != null) {
+            Map<String, Map<String, String>> iotune = new LinkedHashMap<>();
+            for (Element disk : reader.children(devices, "disk")) {
+                Element element = LibvirtXmlParser.firstChild(disk, "iotune");
+                if (element != null) {
+                    Map<String, String> limits = new LinkedHashMap<>();
+                    for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+                        if (child instanceof Element limit) {
+                            limits.put(limit.getTagName(), limit.getTextContent().trim());
+                        }
+                    }
+                    iotune.put(deviceId(disk), limits);
+                }
+            }
+            values.put("blockIoTune", iotune);
+
+            Map<String, Map<String, String>> bandwidth = new LinkedHashMap<>();
+            for (Element iface : reader.children(devices, "interface")) {
+                Element element = LibvirtXmlParser.firstChild(iface, "bandwidth");
+                if (element != null) {
+                    Map<String, String> limits = new LinkedHashMap<>();
+                    for (String direction : List.of("inbound", "outbound")) {
+                        Element rate = LibvirtXmlParser.firstChild(element, direction);
+                        if (rate != null) {
+                            for (String attribute : List.of("average", "peak", "burst")) {
+                                if (rate.hasAttribute(attribute)) {
+                                    limits.put(direction + "." + attribute, rate.getAttribute(attribute));
+                                }
+                            }
+                        }
+                    }
+                    bandwidth.put(deviceId(iface), limits);
+                }
+            }
+            values.put("interfaceBandwidth", bandwidth);
+        }
+
+        return values;
+    }
+
+    /**
+     * Finds a disk by target device name, or an interface by target device name or MAC address.
+     */
+    private static Element findDevice(DomainXmlEditor editor, String type, String device) {
+        Element devices = LibvirtXmlParser.firstChild(editor.root(), "devices");
+        if (devices != null) {
+            for (Element element : editor.children(devices, type)) {
+                Element target = LibvirtXmlParser.firstChild(element, "target");
+                Element mac = LibvirtXmlParser.firstChild(element, "mac");
+                if (
+                    (target != null && device.equals(target.getAttribute("dev")))
+                        || (mac != null && device.equalsIgnoreCase(mac.getAttribute("address")))
+                ) {
+                    return element;
+                }
+            }
+        }
+
+        throw new IllegalArgumentException("No " + type + " device '" + device + "' found in the domain definition");
+    }
+
+    private static String deviceId(Element device) {
+        Element target = LibvirtXmlParser.firstChild(device, "target");
+        if (target != null && target.hasAttribute("dev")) {
+            return target.getAttribute("dev");
+        }
+        Element mac = LibvirtXmlParser.firstChild(device, "mac");
+        return mac != null ? mac.getAttribute("address") : device.getTagName();
+    }
+
+    private static void limit(DomainXmlEditor editor, Element iotune, String name, Long value) {
+        if (value != null) {
+            editor.text(editor.child(iotune, name), value.toString());
+        }
+    }
+
+    private static void rate(DomainXmlEditor editor, Element bandwidth, String direction, Long average, Long peak, Long burst) {
+        if (average == null && peak == null && burst == null) {
+            return;
+        }
+
+        Element rate = editor.child(bandwidth, direction);
+        if (average != null) {
+            editor.attribute(rate, "average", average.toString());
+        }
+        if (peak != null) {
+            editor.attribute(rate, "peak", peak.toString());
+        }
+        if (burst != null) {
+            editor.attribute(rate, "burst", burst.toString());
+        }
+    }
+
+    private static SchedUlongParameter schedUlong(String field, long value) {
+        SchedUlongParameter parameter = new SchedUlongParameter(value);
+        parameter.field = field;
+        return parameter;
+    }
+
+    private record Settings(
+        Integer vcpus,
+        Map<String, String> vcpuPinning,
+        Long memoryMiB,
+        Long cpuShares,
+        Long vcpuQuota,
+        Long vcpuPeriod,
+        List<BlockIoTune> blockIoTune,
+        List<InterfaceBandwidth> interfaceBandwidth,
+        boolean persist
+    ) {
+    }
+
+    /**
+     * Block I/O limits for one disk.
+     */
+    @Builder
+    @Getter
+    @Jacksonized
+    public static class BlockIoTune {
+        @Schema(title = "Disk target device", description = "Target device name of the disk, for example `vda`.")
+        private String device;
+
+        @Schema(title = "Total bytes per second")
+        private Long totalBytesSec;
+
+        @Schema(title = "Read bytes per second")
+        private Long readBytesSec;
+
+        @Schema(title = "Write bytes per second")
+        private Long writeBytesSec;
+
+        @Schema(title = "Total I/O operations per second")
+        private Long totalIopsSec;
+
+        @Schema(title = "Read I/O operations per second")
+        private Long readIopsSec;
+
+        @Schema(title = "Write I/O operations per second")
+        private Long writeIopsSec;
+    }
+
+    /**
+     * Bandwidth limits for one network interface, in KiB/s (burst in KiB).
+     */
+    @Builder
+    @Getter
+    @Jacksonized
+    public static class InterfaceBandwidth {
+        @Schema(title = "Interface", description = "Target device name (for example `vnet0`) or MAC address of the interface.")
+        private String device;
+
+        @Schema(title = "Inbound average rate (KiB/s)")
+        private Long inboundAverage;
+
+        @Schema(title = "Inbound peak rate (KiB/s)")
+        private Long inboundPeak;
+
+        @Schema(title = "Inbound burst size (KiB)")
+        private Long inboundBurst;
+
+        @Schema(title = "Outbound average rate (KiB/s)")
+        private Long outboundAverage;
+
+        @Schema(title = "Outbound peak rate (KiB/s)")
+        private Long outboundPeak;
+
+        @Schema(title = "Outbound burst size (KiB)")
+        private Long outboundBurst;
+    }
+
+    /**
+     * Output for the TuneVm task.
+     */
+    @Builder
+    @Getter
+    public static class Output implements io.kestra.core.models.tasks.Output {
+        @Schema(
+            title = "Tuned domains",
+            description = "Per-domain result with the values read before and after tuning."
+        )
+        private List<DomainResult> domains;
+    }
+
+    /**
+     * Result of tuning one domain.
+     */
+    @Builder
+    @Getter
+    public static class DomainResult {
+        @Schema(title = "VM Name")
+        private String name;
+
+        @Schema(title = "Tuning succeeded")
+        private boolean success;
+
+        @Schema(title = "Error message", description = "Reason of the failure when success is false.")
+        private String error;
+
+        @Schema(title = "Values before tuning", description = "vCPUs, memory, scheduler parameters, pinning, block I/O and bandwidth limits.")
+        private Map<String, Object> before;
+
+        @Schema(title = "Values after tuning")
+        private Map<String, Object> after;
+    }
+}
@@ -1,8 +1,14 @@
 package io.kestra.plugin.kvm;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
 import org.libvirt.Connect;
 import org.libvirt.Domain;
 import org.libvirt.DomainInfo.DomainState;
+import org.libvirt.Error.ErrorNumber;
+import org.libvirt.LibvirtException;
 
 import io.kestra.core.models.annotations.Example;
 import io.kestra.core.models.annotations.Plugin;
@@ -102,6 +108,36 @@ public class UpdateVm extends AbstractKvmTask implements RunnableTask<UpdateVm.O
     @PluginProperty(group = "advanced")
     private Property<Boolean> restart = Property.ofValue(false);
 
+    @Schema(
+        title = "Performance profile",
+        description = "Preset applied to the rendered XML through a DOM transformation before defineXML: THROUGHPUT, LATENCY or DENSITY, as in CreateVm. The applied changes are returned in profileChanges."
+    )
+    @PluginProperty(group = "advanced")
+    private Property<PerformanceProfile> performanceProfile;
+
+    @Schema(
+        title = "Labels",
+        description = "Key/value labels of the domain, replacing its current ones, as in CreateVm. When not set and the template has no labels element, the current labels of the domain are kept."
+    )
+    @PluginProperty(group = "processing")
+    private Property<Map<String, String>> labels;
+
+    @Builder.Default
+    @Schema(
+        title = "Validate definition",
+        description = "If true, the rendered definition is checked against the cached capabilities of a QEMU host before defineXML, as in CreateVm. Default false."
+    )
+    @PluginProperty(group = "reliability")
+    private Property<Boolean> validateDefinition = Property.ofValue(false);
+
+    @Builder.Default
+    @Schema(
+        title = "Host capabilities TTL",
+        description = "How long the capabilities of a host are cached on the worker for definition validation. Default 10 minutes."
+    )
+    @PluginProperty(group = "advanced")
+    private Property<Duration> capabilitiesCacheTtl = Property.ofValue(HostCapabilities.DEFAULT_TTL);
+
     @Override
     public Output run(RunContext runContext) throws Exception {
         try (LibvirtConnection connection = getConnection(runContext)) {
@@ -110,11 +146,50 @@ public class UpdateVm extends AbstractKvmTask implements RunnableTask<UpdateVm.O
             String rName = runContext.render(this.name).as(String.class).orElseThrow();
 
             Domain domain = conn.domainLookupByName(rName);
-            String existingUuid = domain.getUUIDString();
-            if (!rXml.contains("<uuid>")) {
-                rXml = rXml.replaceFirst("<name>", "<uuid>" + existingUuid + "</uuid>\n<name>");
+            DomainXmlEditor editor = DomainXmlEditor.of(rXml);
+
+            List<String> profileChanges = List.of();
+            PerformanceProfile rProfile = runContext.render(this.performanceProfile).as(PerformanceProfile.class).orElse(null);
+            if (rProfile != null) {
+                rProfile.apply(editor);
+                profileChanges = List.copyOf(editor.changes());
+                runContext.logger().info("Applied {} profile to VM {}: {} change(s).", rProfile, rName, profileChanges.size());
+            }
+
+            List<String> hostDefaults = List.of();
+            if (runContext.render(this.validateDefinition).as(Boolean.class).orElse(false)) {
+                hostDefaults = DomainValidator.apply(
+                    runContext.logger(),
+                    conn,
+                    runContext.render(this.capabilitiesCacheTtl).as(Duration.class).orElse(HostCapabilities.DEFAULT_TTL),
+                    editor
+                );
+            }
+
+            // defineXML replaces the whole metadata element, labels included.
+            Map<String, String> rLabels = runContext.render(this.labels).asMap(String.class, String.class);
+            if (this.labels != null) {
+                DomainLabels.write(editor, rLabels);
+            } else if (!DomainLabels.isPresent(editor)) {
+                Map<String, String> current = DomainLabels.read(domain.getXMLDesc(0));
+                if (!current.isEmpty()) {
+                    DomainLabels.write(editor, current);
+                }
+            }
+
+            if (LibvirtXmlParser.firstChild(editor.root(), "uuid") == null) {
+                editor.prepend(editor.root(), "uuid", domain.getUUIDString());
             }
-            domain = conn.domainDefineXML(rXml);
+            try {
+                domain = conn.domainDefineXML(editor.toXml());
+            } catch (LibvirtException e) {
+                // The host may have changed since its capabilities were cached.
+                if (LibvirtErrors.code(e) == ErrorNumber.VIR_ERR_CONFIG_UNSUPPORTED) {
+                    HostCapabilities.invalidate(conn.getURI());
+                }
+                throw e;
+            }
+            invalidateDomain(runContext, rName);
             runContext.logger().info("Updated definition for VM: {}", rName);
 
             // Handle Restart logic
@@ -138,6 +213,8 @@ public class UpdateVm extends AbstractKvmTask implements RunnableTask<UpdateVm.O
                 .name(domain.getName())
                 .wasRestarted(wasRestarted)
                 .state(domain.getInfo().state.toString())
+                .profileChanges(profileChanges)
+                .hostDefaults(hostDefaults)
                 .build();
         }
     }
@@ -165,5 +242,17 @@ public class UpdateVm extends AbstractKvmTask implements RunnableTask<UpdateVm.O
             description = "Libvirt domain state after the update."
         )
         private String state;
+
+        @Schema(
+            title = "Performance profile changes",
+            description = "Changes made to the definition by performanceProfile, as 'path: change' entries."
+        )
+        private List<String> profileChanges;
+
+        @Schema(
+            title = "Host defaults",
+            description = "Values filled in from the host capabilities by validateDefinition, as 'path: change' entries."
+        )
+        private List<String> hostDefaults;
     }
 }
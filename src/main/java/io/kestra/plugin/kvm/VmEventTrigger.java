@@ -1,26 +1,36 @@
 package io.kestra.plugin.kvm;
 
 import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
-import org.libvirt.Connect;
-import org.libvirt.Domain;
-
+import io.kestra.core.exceptions.IllegalVariableEvaluationException;
+import io.kestra.core.exceptions.InvalidTriggerConfigurationException;
 import io.kestra.core.models.annotations.Example;
 import io.kestra.core.models.annotations.Plugin;
 import io.kestra.core.models.annotations.PluginProperty;
 import io.kestra.core.models.conditions.ConditionContext;
 import io.kestra.core.models.executions.Execution;
+import io.kestra.core.models.executions.metrics.Counter;
+import io.kestra.core.models.executions.metrics.Gauge;
 import io.kestra.core.models.property.Property;
 import io.kestra.core.models.triggers.AbstractTrigger;
 import io.kestra.core.models.triggers.PollingTriggerInterface;
+import io.kestra.core.models.triggers.StatefulTriggerInterface;
+import io.kestra.core.models.triggers.StatefulTriggerService;
 import io.kestra.core.models.triggers.TriggerContext;
 import io.kestra.core.models.triggers.TriggerOutput;
 import io.kestra.core.models.triggers.TriggerService;
 import io.kestra.core.runners.RunContext;
 
 import io.swagger.v3.oas.annotations.media.Schema;
-import jakarta.validation.constraints.NotNull;
 import lombok.*;
 import lombok.experimental.SuperBuilder;
 
@@ -54,23 +64,67 @@ import lombok.experimental.SuperBuilder;
                     name: kestra-worker-nodes
                     interval: PT1M
                 """
+        ),
+        @Example(
+            title = "Start a flow only when a web VM crashes or is shut off.",
+            full = true,
+            code = """
+                id: watch_kvm_fleet
+                namespace: kvmtest.ssh
+
+                tasks:
+                  - id: alert
+                    type: io.kestra.plugin.core.log.Log
+                    message: "{{ trigger.events | json }}"
+
+                triggers:
+                  - id: watch_vms
+                    type: io.kestra.plugin.kvm.VmEventTrigger
+                    uri: qemu+ssh://root@167.99.104.163/system
+                    names:
+                      - web-*
+                    mode: ON_CHANGE
+                    transitions:
+                      - "* -> CRASHED"
+                      - "RUNNING -> SHUTOFF"
+                    interval: PT30S
+                """
         )
     }
 )
 @Schema(
     title = "Poll KVM domain state",
-    description = "Polling trigger that connects to libvirt on the given URI, reads a domain's state on each interval, and emits an execution with the name and current state. Logs and skips when lookup fails."
+    description = "Polling trigger that reads the state of the watched domains on each interval. All triggers of a scheduler watching the same URI share one libvirt connection and its bulk state query: a poll is served the states read by another trigger less than half a poll interval earlier. The connection is closed once none of them polls it anymore. In EVERY_POLL mode it emits an execution with the current states on every poll. In ON_CHANGE mode it keeps the last seen state of each domain in trigger state and only emits when a domain changed state, optionally filtered by transitions. Logs and skips when the host cannot be reached."
 )
-public class VmEventTrigger extends AbstractTrigger implements PollingTriggerInterface, TriggerOutput<VmEventTrigger.Output> {
+public class VmEventTrigger extends AbstractTrigger implements PollingTriggerInterface, StatefulTriggerInterface, TriggerOutput<VmEventTrigger.Output> {
+    private static final String STATE_PREFIX = "VIR_DOMAIN_";
+
+    // States a domain only passes through; polling stays fast until it settles.
+    private static final Set<String> TRANSITIONAL_STATES = Set.of("NOSTATE", "BLOCKED", "PAUSED", "SHUTDOWN");
 
     @Builder.Default
     @Schema(
         title = "Poll interval",
-        description = "Time between state checks. Default PT1M."
+        description = "Time between state checks. With minInterval set, this is the ceiling of the adaptive back-off. Default PT1M."
     )
     @PluginProperty(group = "execution")
     private Duration interval = Duration.ofMinutes(1);
 
+    @Schema(
+        title = "Minimum adaptive interval",
+        description = "Enables adaptive polling: the trigger polls every minInterval while a watched domain is in a transitional state (paused, blocked, shutting down) or has just changed state, then multiplies the interval by backoffMultiplier after each stable poll, up to interval. The effective interval is kept in the memory of the scheduler, and is published with poll counts as metrics."
+    )
+    @PluginProperty(group = "execution")
+    private Property<Duration> minInterval;
+
+    @Builder.Default
+    @Schema(
+        title = "Back-off multiplier",
+        description = "Factor applied to the adaptive interval after each stable poll. Default 2."
+    )
+    @PluginProperty(group = "execution")
+    private Property<Double> backoffMultiplier = Property.ofValue(2.0);
+
     @Schema(
         title = "Libvirt URI",
         description = "Connection URI rendered before use; required to reach the hypervisor."
@@ -81,34 +135,279 @@ public class VmEventTrigger extends AbstractTrigger implements PollingTriggerInt
 
     @Schema(
         title = "Domain name",
-        description = "Name of the libvirt domain to monitor."
+        description = "Name of a single libvirt domain to monitor; combined with names."
     )
-    @NotNull
     @PluginProperty(group = "main")
     private Property<String> name;
 
+    @Schema(
+        title = "Domain names",
+        description = "Names or glob patterns (`*`, `?`) of the domains to monitor; `*` watches every domain of the host. All watched domains are read with one bulk state query per poll, without a call per domain."
+    )
+    @PluginProperty(group = "main")
+    private Property<List<String>> names;
+
+    @Builder.Default
+    @Schema(
+        title = "Emission mode",
+        description = "EVERY_POLL emits an execution with the current states on every poll. ON_CHANGE only emits when at least one domain changed state since the previous poll. Default EVERY_POLL."
+    )
+    @PluginProperty(group = "main")
+    private Property<Mode> mode = Property.ofValue(Mode.EVERY_POLL);
+
+    @Schema(
+        title = "Transition filters",
+        description = "In ON_CHANGE mode, only emit transitions matching one of these `FROM -> TO` conditions, where each side is a state name such as RUNNING, PAUSED, SHUTOFF or CRASHED (with or without the VIR_DOMAIN_ prefix) or `*`. A domain seen for the first time only matches a `*` source state."
+    )
+    @PluginProperty(group = "processing")
+    private Property<List<String>> transitions;
+
+    @Builder.Default
+    @Schema(
+        title = "Events to fire on",
+        description = "In ON_CHANGE mode, UPDATE fires when a known domain changes state, CREATE when a matching domain is seen for the first time, CREATE_OR_UPDATE on both. Default UPDATE."
+    )
+    @PluginProperty(group = "processing")
+    private Property<On> on = Property.ofValue(On.UPDATE);
+
+    @Schema(
+        title = "Coalescing window",
+        description = "Collects events over this window, starting at the first event, and emits them as a single execution with one event per domain carrying its last state and state history. Keeps executions bounded during host reboots or fleet restarts. Pending events are kept in memory only: the events of a batch still open when the scheduler restarts are lost."
+    )
+    @PluginProperty(group = "processing")
+    private Property<Duration> coalesceWindow;
+
+    @Builder.Default
+    @Schema(
+        title = "Max batch size",
+        description = "Number of distinct domains that closes a coalescing batch before its window has elapsed. Default 500."
+    )
+    @PluginProperty(group = "processing")
+    private Property<Integer> maxBatchSize = Property.ofValue(500);
+
+    @Schema(
+        title = "State key",
+        description = "Key of the trigger state that stores the last seen state of each domain. Defaults to a key derived from the namespace, flow and trigger id."
+    )
+    @PluginProperty(group = "advanced")
+    private Property<String> stateKey;
+
+    @Schema(
+        title = "State TTL",
+        description = "How long the last seen state of a domain is kept without changes before it is forgotten."
+    )
+    @PluginProperty(group = "advanced")
+    private Property<Duration> stateTtl;
+
     @Override
     public Optional<Execution> evaluate(ConditionContext conditionContext, TriggerContext context) throws Exception {
         RunContext runContext = conditionContext.getRunContext();
         String rUri = runContext.render(this.uri).as(String.class).orElse(null);
-        String rName = runContext.render(this.name).as(String.class).orElseThrow();
-
-        try (LibvirtConnection connection = new LibvirtConnection(rUri)) {
-            Connect conn = connection.get();
-            Domain domain = conn.domainLookupByName(rName);
-            String currentState = domain.getInfo().state.toString();
 
-            var output = Output.builder()
-                .name(rName)
-                .state(currentState)
-                .build();
-            Execution execution = TriggerService.generateExecution(this, conditionContext, context, output);
+        List<String> rNames = new ArrayList<>();
+        runContext.render(this.name).as(String.class).ifPresent(rNames::add);
+        rNames.addAll(runContext.render(this.names).asList(String.class));
+        DomainSelector selector = DomainSelector.of(rNames);
+        if (selector.isEmpty()) {
+            throw new IllegalArgumentException("Either name or names must be set");
+        }
 
-            return Optional.of(execution);
+        Duration rMinInterval = runContext.render(this.minInterval).as(Duration.class).orElse(this.interval);
+        Map<String, String> states = new LinkedHashMap<>();
+        try {
+            // Triggers of this JVM watching the same host share one connection and one bulk state query per poll.
+            HostWatcher.states(
+                rUri,
+                context.uid(),
+                this.interval.multipliedBy(3),
+                // Serve a snapshot taken by another trigger up to half a poll interval ago.
+                rMinInterval.dividedBy(2)
+            ).forEach((domainName, state) -> {
+                if (selector.matches(domainName)) {
+                    states.put(domainName, state);
+                }
+            });
         } catch (Exception e) {
-            runContext.logger().error("KVM Trigger failed for VM {}: {}", rName, e.getMessage());
+            runContext.logger().error("KVM Trigger failed for VM(s) {}: {}", rNames, e.getMessage());
             return Optional.empty();
         }
+
+        adapt(runContext, context, states);
+
+        if (states.isEmpty()) {
+            runContext.logger().warn("No VM matches {}", rNames);
+            return Optional.empty();
+        }
+
+        List<Event> events = runContext.render(this.mode).as(Mode.class).orElse(Mode.EVERY_POLL) == Mode.ON_CHANGE
+            ? transitions(runContext, context, states)
+            : states.entrySet().stream().map(e -> new Event(e.getKey(), null, e.getValue(), null)).toList();
+
+        Optional<Duration> rCoalesceWindow = runContext.render(this.coalesceWindow).as(Duration.class);
+        if (rCoalesceWindow.isPresent()) {
+            EventCoalescer coalescer = EventCoalescer.of(context.uid());
+            coalescer.add(events);
+            events = coalescer.drainIfDue(rCoalesceWindow.get(), runContext.render(this.maxBatchSize).as(Integer.class).orElse(500));
+        }
+
+        if (events.isEmpty()) {
+            return Optional.empty();
+        }
+
+        Event single = events.size() == 1 ? events.get(0) : null;
+        var output = Output.builder()
+            .name(single != null ? single.getName() : null)
+            .state(single != null ? single.getState() : null)
+            .events(events)
+            .build();
+        Execution execution = TriggerService.generateExecution(this, conditionContext, context, output);
+
+        return Optional.of(execution);
+    }
+
+    @Override
+    public ZonedDateTime nextEvaluationDate(ConditionContext conditionContext, Optional<? extends TriggerContext> last) throws InvalidTriggerConfigurationException {
+        if (conditionContext == null || last.isEmpty()) {
+            return PollingTriggerInterface.super.nextEvaluationDate(conditionContext, last);
+        }
+
+        Optional<Duration> rMinInterval;
+        Optional<Duration> rCoalesceWindow;
+        try {
+            rMinInterval = conditionContext.getRunContext().render(this.minInterval).as(Duration.class);
+            rCoalesceWindow = conditionContext.getRunContext().render(this.coalesceWindow).as(Duration.class);
+        } catch (IllegalVariableEvaluationException e) {
+            throw new InvalidTriggerConfigurationException("Invalid trigger interval configuration", e);
+        }
+
+        String uid = last.get().uid();
+        ZonedDateTime next = rMinInterval.isPresent()
+            ? ZonedDateTime.now().plus(AdaptiveInterval.current(uid).orElse(rMinInterval.get()))
+            : PollingTriggerInterface.super.nextEvaluationDate(conditionContext, last);
+
+        // Evaluate again when a pending batch is due, so its window is not stretched to the next regular poll.
+        if (rCoalesceWindow.isPresent()) {
+            Optional<ZonedDateTime> due = EventCoalescer.deadline(uid, rCoalesceWindow.get())
+                .map(deadline -> deadline.atZone(next.getZone()));
+            if (due.isPresent() && due.get().isBefore(next)) {
+                return due.get();
+            }
+        }
+
+        return next;
+    }
+
+    /**
+     * Records the poll in the adaptive interval of this trigger, when enabled, and publishes polling metrics.
+     */
+    private void adapt(RunContext runContext, TriggerContext context, Map<String, String> states) throws IllegalVariableEvaluationException {
+        runContext.metric(Counter.of("trigger.polls", 1));
+
+        Optional<Duration> rMinInterval = runContext.render(this.minInterval).as(Duration.class);
+        if (rMinInterval.isEmpty()) {
+            return;
+        }
+
+        boolean busy = states.values().stream().map(VmEventTrigger::normalize).anyMatch(TRANSITIONAL_STATES::contains);
+        Duration effective = AdaptiveInterval.of(context.uid()).update(
+            states,
+            busy,
+            rMinInterval.get(),
+            this.interval,
+            runContext.render(this.backoffMultiplier).as(Double.class).orElse(2.0)
+        );
+
+        if (effective.equals(rMinInterval.get())) {
+            runContext.metric(Counter.of("trigger.polls.fast", 1));
+        }
+        runContext.metric(Gauge.of("trigger.interval", effective.toMillis()));
+    }
+
+    /**
+     * Compares the polled states with the last seen states, stores the new ones and returns the matching transitions.
+     */
+    private List<Event> transitions(RunContext runContext, TriggerContext context, Map<String, String> states) throws Exception {
+        String rStateKey = runContext.render(this.stateKey).as(String.class)
+            .orElse(StatefulTriggerService.defaultKey(context.getNamespace(), context.getFlowId(), this.getId()));
+        Optional<Duration> rStateTtl = runContext.render(this.stateTtl).as(Duration.class);
+        On rOn = runContext.render(this.on).as(On.class).orElse(On.UPDATE);
+        List<Transition> rTransitions = runContext.render(this.transitions).asList(String.class).stream()
+            .map(Transition::parse)
+            .toList();
+
+        Map<String, StatefulTriggerService.Entry> lastSeen = StatefulTriggerService.readState(runContext, rStateKey, rStateTtl);
+        Instant now = Instant.now();
+
+        List<Event> events = new ArrayList<>();
+        for (Map.Entry<String, String> state : states.entrySet()) {
+            StatefulTriggerService.Entry previous = lastSeen.get(state.getKey());
+            StatefulTriggerService.StateUpdate update = StatefulTriggerService.computeAndUpdateState(
+                lastSeen,
+                StatefulTriggerService.Entry.candidate(state.getKey(), state.getValue(), now),
+                rOn
+            );
+
+            String from = previous != null ? previous.version() : null;
+            if (update.fire() && (rTransitions.isEmpty() || rTransitions.stream().anyMatch(t -> t.matches(from, state.getValue())))) {
+                events.add(new Event(state.getKey(), from, state.getValue(), null));
+            }
+        }
+
+        StatefulTriggerService.writeState(runContext, rStateKey, lastSeen, rStateTtl);
+        return events;
+    }
+
+    private static String normalize(String state) {
+        String upper = state.trim().toUpperCase(Locale.ROOT);
+        return upper.startsWith(STATE_PREFIX) ? upper.substring(STATE_PREFIX.length()) : upper;
+    }
+
+    /**
+     * A {@code FROM -> TO} condition on a state change, where either side may be {@code *}.
+     */
+    private record Transition(String from, String to) {
+        static Transition parse(String condition) {
+            String[] parts = condition.split("->");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid transition '" + condition + "', expected 'FROM -> TO'");
+            }
+            return new Transition(normalize(parts[0]), normalize(parts[1]));
+        }
+
+        boolean matches(String previous, String current) {
+            boolean fromMatches = "*".equals(from) || (previous != null && from.equals(normalize(previous)));
+            return fromMatches && ("*".equals(to) || to.equals(normalize(current)));
+        }
+    }
+
+    public enum Mode {
+        EVERY_POLL,
+        ON_CHANGE
+    }
+
+    /**
+     * A domain state observed by the trigger.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Event {
+        @Schema(title = "VM Name")
+        private final String name;
+
+        @Schema(
+            title = "Previous state",
+            description = "Last seen state in ON_CHANGE mode, null for a domain seen for the first time or in EVERY_POLL mode."
+        )
+        private final String previousState;
+
+        @Schema(title = "VM State")
+        private final String state;
+
+        @Schema(
+            title = "State history",
+            description = "With coalesceWindow, every state the domain went through during the batch, in order, starting with the state before its first change."
+        )
+        private final List<String> history;
     }
 
     /**
@@ -119,14 +418,20 @@ public class VmEventTrigger extends AbstractTrigger implements PollingTriggerInt
     public static class Output implements io.kestra.core.models.tasks.Output {
         @Schema(
             title = "VM Name",
-            description = "Monitored domain name."
+            description = "Monitored domain name, when the execution is about a single domain."
         )
         private String name;
 
         @Schema(
             title = "VM State",
-            description = "Libvirt domain state at the time of polling."
+            description = "Libvirt domain state at the time of polling, when the execution is about a single domain."
         )
         private String state;
+
+        @Schema(
+            title = "Events",
+            description = "Every domain state emitted by this poll, with the previous state in ON_CHANGE mode."
+        )
+        private List<Event> events;
     }
 }
@@ -0,0 +1,59 @@
+package io.kestra.plugin.kvm.remote;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of fixed-size buffers used to encode calls and decode replies.
+ *
+ * <p>
+ * Almost every libvirt message fits in one pooled buffer, so a busy connection does not allocate per call.
+ * Larger messages, such as big domain XML, get a dedicated buffer that is left to the garbage collector.
+ */
+final class BufferPool {
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    static final BufferPool SHARED = new BufferPool(256);
+
+    private final Queue<ByteBuffer> free = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final int maxPooled;
+
+    BufferPool(int maxPooled) {
+        this.maxPooled = maxPooled;
+    }
+
+    /**
+     * Returns a cleared buffer of at least the given capacity.
+     */
+    ByteBuffer acquire(int capacity) {
+        if (capacity > BUFFER_SIZE) {
+            return ByteBuffer.allocate(capacity);
+        }
+
+        ByteBuffer buffer = free.poll();
+        if (buffer == null) {
+            return ByteBuffer.allocate(BUFFER_SIZE);
+        }
+        size.decrementAndGet();
+        return buffer.clear();
+    }
+
+    /**
+     * Gives a buffer back to the pool; buffers that are not of the pooled size are dropped.
+     */
+    void release(ByteBuffer buffer) {
+        if (buffer.capacity() != BUFFER_SIZE) {
+            return;
+        }
+        if (size.incrementAndGet() > maxPooled) {
+            size.decrementAndGet();
+            return;
+        }
+        free.offer(buffer);
+    }
+}
@@ -0,0 +1,193 @@
+package io.kestra.plugin.kvm.remote;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Message layer of the libvirt remote protocol over one transport.
+ *
+ * <p>
+ * Calls are written as soon as they are issued, without waiting for earlier replies, and each reply is matched
+ * to its call by serial number; many calls can therefore be in flight on a single connection. A daemon thread
+ * reads replies and completes the future of each call, decoding the reply in place so that its buffer goes back
+ * to the pool immediately. Messages that are not replies to this program, such as events, are ignored.
+ */
+final class RemoteClient implements Closeable {
+    private final RemoteTransport transport;
+
+    private final BufferPool pool;
+
+    private final AtomicInteger serials = new AtomicInteger();
+
+    private final Map<Integer, Pending<?>> pending = new ConcurrentHashMap<>();
+
+    private final Object writeLock = new Object();
+
+    private volatile IOException failure;
+
+    RemoteClient(RemoteTransport transport, BufferPool pool, String name) {
+        this.transport = transport;
+        this.pool = pool;
+
+        Thread reader = new Thread(this::readLoop, "kvm-remote-" + name);
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * Sends a call and returns a future completed with its decoded reply.
+     *
+     * @param procedure The procedure number.
+     * @param args Writes the arguments of the call.
+     * @param reply Decodes the body of a successful reply.
+     * @return The future reply; completed exceptionally with a {@link RemoteException} if the daemon reports an
+     * error, or with an {@link IOException} if the connection fails.
+     */
+    <T> CompletableFuture<T> call(int procedure, Encoder args, Decoder<T> reply) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        if (failure != null) {
+            return CompletableFuture.failedFuture(failure);
+        }
+
+        int serial = serials.getAndIncrement();
+        pending.put(serial, new Pending<>(future, reply));
+        // The reader may have failed between the check and the registration, after draining the pending calls.
+        IOException failed = failure;
+        if (failed != null) {
+            pending.remove(serial);
+            future.completeExceptionally(failed);
+            return future;
+        }
+
+        XdrWriter writer = new XdrWriter(pool);
+        try {
+            writer.writeInt(0)
+                .writeInt(RemoteProtocol.PROGRAM)
+                .writeInt(RemoteProtocol.PROTOCOL_VERSION)
+                .writeInt(procedure)
+                .writeInt(RemoteProtocol.TYPE_CALL)
+                .writeInt(serial)
+                .writeInt(RemoteProtocol.STATUS_OK);
+            args.encode(writer);
+            writer.putInt(0, writer.position());
+
+            ByteBuffer message = writer.flip();
+            synchronized (writeLock) {
+                while (message.hasRemaining()) {
+                    transport.out().write(message);
+                }
+            }
+        } catch (IOException e) {
+            pending.remove(serial);
+            future.completeExceptionally(e);
+        } finally {
+            writer.release();
+        }
+
+        return future;
+    }
+
+    boolean isOpen() {
+        return failure == null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        fail(new IOException("Connection closed"));
+        transport.close();
+    }
+
+    private void readLoop() {
+        ByteBuffer length = ByteBuffer.allocate(4);
+        try {
+            while (failure == null) {
+                length.clear();
+                readFully(transport.in(), length);
+                int size = length.flip().getInt() - 4;
+                if (size < RemoteProtocol.HEADER_SIZE - 4 || size > RemoteProtocol.MAX_MESSAGE_SIZE) {
+                    throw new IOException("Invalid message length " + size);
+                }
+
+                ByteBuffer message = pool.acquire(size);
+                try {
+                    message.limit(size);
+                    readFully(transport.in(), message);
+                    dispatch(new XdrReader(message.flip()));
+                } finally {
+                    pool.release(message);
+                }
+            }
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    private void dispatch(XdrReader reader) {
+        int program = reader.readInt();
+        reader.readInt();
+        reader.readInt();
+        int type = reader.readInt();
+        int serial = reader.readInt();
+        int status = reader.readInt();
+
+        if (program != RemoteProtocol.PROGRAM || type != RemoteProtocol.TYPE_REPLY) {
+            return;
+        }
+
+        Pending<?> call = pending.remove(serial);
+        if (call != null) {
+            call.complete(status, reader);
+        }
+    }
+
+    private void fail(IOException e) {
+        if (failure == null) {
+            failure = e;
+        }
+        pending.values().forEach(call -> call.future().completeExceptionally(e));
+        pending.clear();
+    }
+
+    private static void readFully(ReadableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Connection closed by the daemon");
+            }
+        }
+    }
+
+    @FunctionalInterface
+    interface Encoder {
+        Encoder NONE = writer -> { };
+
+        void encode(XdrWriter writer);
+    }
+
+    @FunctionalInterface
+    interface Decoder<T> {
+        Decoder<Void> NONE = reader -> null;
+
+        T decode(XdrReader reader);
+    }
+
+    private record Pending<T>(CompletableFuture<T> future, Decoder<T> decoder) {
+        void complete(int status, XdrReader reader) {
+            try {
+                if (status == RemoteProtocol.STATUS_OK) {
+                    future.complete(decoder.decode(reader));
+                } else {
+                    future.completeExceptionally(RemoteException.read(reader));
+                }
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package io.kestra.plugin.kvm.remote;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.libvirt.DomainInfo.DomainState;
+
+/**
+ * Connection to a libvirt daemon speaking its remote protocol directly, without the native library.
+ *
+ * <p>
+ * Every operation returns a future and can be issued concurrently with others; they are pipelined on the
+ * connection and complete as the daemon replies. Only authentication type {@code none} is supported, which
+ * covers unix sockets and ssh as a privileged user, and TCP or TLS daemons configured without SASL.
+ */
+public final class RemoteConnection implements AutoCloseable {
+    /**
+     * How long {@link #await(CompletableFuture)} waits for a reply, so that a daemon that stops answering without
+     * closing the connection cannot block a task forever.
+     */
+    public static final Duration CALL_TIMEOUT = Duration.ofMinutes(5);
+
+    private final RemoteClient client;
+
+    private RemoteConnection(RemoteClient client) {
+        this.client = client;
+    }
+
+    /**
+     * Connects to the daemon serving a libvirt URI and opens the driver it names.
+     *
+     * @param uri A libvirt URI such as {@code qemu+tcp://host/system} or {@code qemu:///system}.
+     * @return The open connection.
+     * @throws Exception If the daemon cannot be reached, requires authentication, or refuses the driver.
+     */
+    public static RemoteConnection open(String uri) throws Exception {
+        URI parsed = URI.create(uri);
+        RemoteClient client = new RemoteClient(RemoteTransport.open(parsed), BufferPool.SHARED, parsed.getHost() == null ? "local" : parsed.getHost());
+        RemoteConnection connection = new RemoteConnection(client);
+        try {
+            List<Integer> authTypes = await(client.call(RemoteProtocol.PROC_AUTH_LIST, RemoteClient.Encoder.NONE, reader -> {
+                int count = reader.readInt();
+                List<Integer> types = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    types.add(reader.readInt());
+                }
+                return types;
+            }));
+            if (!authTypes.isEmpty() && !authTypes.contains(RemoteProtocol.AUTH_NONE)) {
+                throw new IOException("The daemon requires authentication types " + authTypes + ", which the remote backend does not support");
+            }
+
+            await(client.call(
+                RemoteProtocol.PROC_CONNECT_OPEN,
+                writer -> writer.writeOptionalString(RemoteTransport.driverUri(parsed)).writeInt(0),
+                RemoteClient.Decoder.NONE
+            ));
+            return connection;
+        } catch (Exception e) {
+            client.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Waits up to {@link #CALL_TIMEOUT} for a future of this API and rethrows its failure as is.
+     */
+    public static <T> T await(CompletableFuture<T> future) throws Exception {
+        return await(future, CALL_TIMEOUT);
+    }
+
+    /**
+     * Waits for a future of this API and rethrows its failure as is.
+     *
+     * @throws TimeoutException If the daemon did not reply in time; the future is cancelled and a late reply ignored.
+     */
+    public static <T> T await(CompletableFuture<T> future, Duration timeout) throws Exception {
+        try {
+            return future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        } catch (TimeoutException e) {
+            future.cancel(false);
+            throw new TimeoutException("No reply from the libvirt daemon within " + timeout);
+        }
+    }
+
+    public boolean isOpen() {
+        return client.isOpen();
+    }
+
+    public CompletableFuture<List<RemoteDomain>> listAllDomains(int flags) {
+        return client.call(
+            RemoteProtocol.PROC_CONNECT_LIST_ALL_DOMAINS,
+            writer -> writer.writeInt(1).writeInt(flags),
+            reader -> {
+                int count = reader.readInt();
+                List<RemoteDomain> domains = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    domains.add(RemoteDomain.read(reader));
+                }
+                return domains;
+            }
+        );
+    }
+
+    public CompletableFuture<RemoteDomain> lookupByName(String name) {
+        return client.call(RemoteProtocol.PROC_DOMAIN_LOOKUP_BY_NAME, writer -> writer.writeString(name), RemoteDomain::read);
+    }
+
+    public CompletableFuture<RemoteDomain> lookupByUuid(UUID uuid) {
+        return client.call(RemoteProtocol.PROC_DOMAIN_LOOKUP_BY_UUID, writer -> writer.writeUuid(uuid), RemoteDomain::read);
+    }
+
+    public CompletableFuture<DomainState> getState(RemoteDomain domain) {
+        return client.call(
+            RemoteProtocol.PROC_DOMAIN_GET_STATE,
+            writer -> {
+                domain.write(writer);
+                writer.writeInt(0);
+            },
+            reader -> {
+                int state = reader.readInt();
+                return state >= 0 && state < DomainState.values().length ? DomainState.values()[state] : DomainState.VIR_DOMAIN_NOSTATE;
+            }
+        );
+    }
+
+    public CompletableFuture<String> getXmlDesc(RemoteDomain domain, int flags) {
+        return client.call(
+            RemoteProtocol.PROC_DOMAIN_GET_XML_DESC,
+            writer -> {
+                domain.write(writer);
+                writer.writeInt(flags);
+            },
+            XdrReader::readString
+        );
+    }
+
+    public CompletableFuture<RemoteDomain> defineXml(String xml) {
+        return client.call(RemoteProtocol.PROC_DOMAIN_DEFINE_XML, writer -> writer.writeString(xml), RemoteDomain::read);
+    }
+
+    public CompletableFuture<Void> create(RemoteDomain domain) {
+        return client.call(RemoteProtocol.PROC_DOMAIN_CREATE, domain::write, RemoteClient.Decoder.NONE);
+    }
+
+    public CompletableFuture<Void> shutdown(RemoteDomain domain) {
+        return client.call(RemoteProtocol.PROC_DOMAIN_SHUTDOWN, domain::write, RemoteClient.Decoder.NONE);
+    }
+
+    public CompletableFuture<Void> destroy(RemoteDomain domain) {
+        return client.call(RemoteProtocol.PROC_DOMAIN_DESTROY, domain::write, RemoteClient.Decoder.NONE);
+    }
+
+    public CompletableFuture<Void> undefine(RemoteDomain domain) {
+        return client.call(RemoteProtocol.PROC_DOMAIN_UNDEFINE, domain::write, RemoteClient.Decoder.NONE);
+    }
+
+    public CompletableFuture<Void> undefine(RemoteDomain domain, int flags) {
+        return client.call(
+            RemoteProtocol.PROC_DOMAIN_UNDEFINE_FLAGS,
+            writer -> {
+                domain.write(writer);
+                writer.writeInt(flags);
+            },
+            RemoteClient.Decoder.NONE
+        );
+    }
+
+    @Override
+    public void close() throws Exception {
+        try {
+            if (client.isOpen()) {
+                await(client.call(RemoteProtocol.PROC_CONNECT_CLOSE, RemoteClient.Encoder.NONE, RemoteClient.Decoder.NONE));
+            }
+        } finally {
+            client.close();
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package io.kestra.plugin.kvm.remote;
+
+import java.util.UUID;
+
+/**
+ * A domain handle as exchanged with the daemon ({@code remote_nonnull_domain}).
+ *
+ * @param name The domain name.
+ * @param uuid The domain UUID.
+ * @param id The hypervisor ID of a running domain, or -1.
+ */
+public record RemoteDomain(String name, UUID uuid, int id) {
+    static RemoteDomain read(XdrReader reader) {
+        return new RemoteDomain(reader.readString(), reader.readUuid(), reader.readInt());
+    }
+
+    void write(XdrWriter writer) {
+        writer.writeString(name).writeUuid(uuid).writeInt(id);
+    }
+}
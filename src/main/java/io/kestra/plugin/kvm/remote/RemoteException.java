@@ -0,0 +1,34 @@
+package io.kestra.plugin.kvm.remote;
+
+import lombok.Getter;
+
+/**
+ * An error reported by the libvirt daemon in reply to a call.
+ */
+@Getter
+public class RemoteException extends Exception {
+    /**
+     * {@code VIR_ERR_NO_DOMAIN}: the domain does not exist.
+     */
+    public static final int NO_DOMAIN = 42;
+
+    private final int code;
+
+    private final int domain;
+
+    public RemoteException(int code, int domain, String message) {
+        super(message == null ? "libvirt error " + code : message);
+        this.code = code;
+        this.domain = domain;
+    }
+
+    /**
+     * Reads the leading fields of a {@code remote_error}; the remaining fields are not needed.
+     */
+    static RemoteException read(XdrReader reader) {
+        int code = reader.readInt();
+        int domain = reader.readInt();
+        String message = reader.readOptionalString();
+        return new RemoteException(code, domain, message);
+    }
+}
@@ -0,0 +1,42 @@
+package io.kestra.plugin.kvm.remote;
+
+/**
+ * Constants of the libvirt remote protocol ({@code remote_protocol.x} and {@code virnetprotocol.x}).
+ */
+final class RemoteProtocol {
+    static final int PROGRAM = 0x20008086;
+    static final int PROTOCOL_VERSION = 1;
+
+    /**
+     * Upper bound of a message accepted from the daemon, header included.
+     */
+    static final int MAX_MESSAGE_SIZE = 32 * 1024 * 1024;
+
+    static final int HEADER_SIZE = 28;
+
+    static final int TYPE_CALL = 0;
+    static final int TYPE_REPLY = 1;
+
+    static final int STATUS_OK = 0;
+    static final int STATUS_ERROR = 1;
+
+    static final int AUTH_NONE = 0;
+
+    static final int PROC_CONNECT_OPEN = 1;
+    static final int PROC_CONNECT_CLOSE = 2;
+    static final int PROC_DOMAIN_CREATE = 9;
+    static final int PROC_DOMAIN_DEFINE_XML = 11;
+    static final int PROC_DOMAIN_DESTROY = 12;
+    static final int PROC_DOMAIN_GET_XML_DESC = 14;
+    static final int PROC_DOMAIN_LOOKUP_BY_NAME = 23;
+    static final int PROC_DOMAIN_LOOKUP_BY_UUID = 24;
+    static final int PROC_DOMAIN_SHUTDOWN = 33;
+    static final int PROC_DOMAIN_UNDEFINE = 35;
+    static final int PROC_AUTH_LIST = 66;
+    static final int PROC_DOMAIN_GET_STATE = 212;
+    static final int PROC_DOMAIN_UNDEFINE_FLAGS = 231;
+    static final int PROC_CONNECT_LIST_ALL_DOMAINS = 273;
+
+    private RemoteProtocol() {
+    }
+}
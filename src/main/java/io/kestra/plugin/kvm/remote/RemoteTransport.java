@@ -0,0 +1,201 @@
+package io.kestra.plugin.kvm.remote;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.Socket;
+import java.net.StandardProtocolFamily;
+import java.net.URI;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSocket;
+
+/**
+ * Byte stream to a libvirt daemon, opened from a libvirt URI the same way the C client does.
+ *
+ * <ul>
+ *   <li>{@code driver+tcp://host[:port]/path}: plain TCP, port 16509 by default.</li>
+ *   <li>{@code driver+tls://host[:port]/path}: TLS, port 16514 by default. The daemon's certificate must match the
+ *   host name, and the CA and client certificate are read from libvirt's PKI files as described in
+ *   {@link TlsCredentials}.</li>
+ *   <li>{@code driver+unix:///path} or {@code driver:///path}: the daemon's local unix socket.</li>
+ *   <li>{@code driver+ssh://[user@]host[:port]/path}: the daemon's unix socket on the remote host, through
+ *   {@code nc} over an {@code ssh} process.</li>
+ * </ul>
+ *
+ * The {@code socket}, {@code netcat}, {@code keyfile} and {@code pkipath} query parameters are honoured as in libvirt.
+ */
+interface RemoteTransport extends Closeable {
+    int TCP_PORT = 16509;
+    int TLS_PORT = 16514;
+    String SYSTEM_SOCKET = "/var/run/libvirt/libvirt-sock";
+
+    ReadableByteChannel in();
+
+    WritableByteChannel out();
+
+    static RemoteTransport open(URI uri) throws IOException {
+        String scheme = uri.getScheme();
+        String transport = scheme.contains("+") ? scheme.substring(scheme.indexOf('+') + 1) : (uri.getHost() == null ? "unix" : "tls");
+        Map<String, String> params = params(uri);
+
+        return switch (transport) {
+            case "tcp" -> new StreamTransport(new Socket(uri.getHost(), uri.getPort() > 0 ? uri.getPort() : TCP_PORT));
+            case "tls" -> new StreamTransport(tls(uri.getHost(), uri.getPort() > 0 ? uri.getPort() : TLS_PORT, params));
+            case "unix" -> {
+                SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+                channel.connect(UnixDomainSocketAddress.of(params.getOrDefault("socket", SYSTEM_SOCKET)));
+                yield new ChannelTransport(channel);
+            }
+            case "ssh" -> StreamTransport.ssh(uri, params);
+            default -> throw new IOException("Transport '" + transport + "' is not supported by the remote backend");
+        };
+    }
+
+    /**
+     * Returns the URI sent to the daemon in the open call: the driver and path, without transport, host or
+     * client-side parameters.
+     */
+    static String driverUri(URI uri) {
+        String scheme = uri.getScheme();
+        String driver = scheme.contains("+") ? scheme.substring(0, scheme.indexOf('+')) : scheme;
+        return driver + "://" + (uri.getPath() == null ? "" : uri.getPath());
+    }
+
+    /**
+     * Opens a TLS socket and completes the handshake, verifying that the daemon's certificate names the host.
+     */
+    private static Socket tls(String host, int port, Map<String, String> params) throws IOException {
+        SSLSocket socket = (SSLSocket) TlsCredentials.context(params).getSocketFactory().createSocket(host, port);
+        try {
+            SSLParameters parameters = socket.getSSLParameters();
+            parameters.setEndpointIdentificationAlgorithm("HTTPS");
+            socket.setSSLParameters(parameters);
+            socket.startHandshake();
+            return socket;
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    private static Map<String, String> params(URI uri) {
+        Map<String, String> params = new LinkedHashMap<>();
+        if (uri.getQuery() != null) {
+            for (String pair : uri.getQuery().split("&")) {
+                int separator = pair.indexOf('=');
+                if (separator > 0) {
+                    params.put(pair.substring(0, separator), pair.substring(separator + 1));
+                }
+            }
+        }
+        return params;
+    }
+
+    /**
+     * Transport over a socket channel, which supports concurrent reads and writes.
+     */
+    final class ChannelTransport implements RemoteTransport {
+        private final SocketChannel channel;
+
+        ChannelTransport(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public ReadableByteChannel in() {
+            return channel;
+        }
+
+        @Override
+        public WritableByteChannel out() {
+            return channel;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * Transport over a pair of streams, from a socket or from the standard I/O of a helper process.
+     */
+    final class StreamTransport implements RemoteTransport {
+        private final Closeable resource;
+
+        private final Process process;
+
+        private final ReadableByteChannel in;
+
+        private final WritableByteChannel out;
+
+        StreamTransport(Socket socket) throws IOException {
+            socket.setTcpNoDelay(true);
+            this.resource = socket;
+            this.process = null;
+            this.in = Channels.newChannel(socket.getInputStream());
+            this.out = Channels.newChannel(socket.getOutputStream());
+        }
+
+        private StreamTransport(Process process) {
+            this.resource = null;
+            this.process = process;
+            this.in = Channels.newChannel(process.getInputStream());
+            this.out = Channels.newChannel(process.getOutputStream());
+        }
+
+        static StreamTransport ssh(URI uri, Map<String, String> params) throws IOException {
+            List<String> command = new ArrayList<>(List.of("ssh", "-T", "-e", "none", "-o", "BatchMode=yes"));
+            if (uri.getPort() > 0) {
+                command.addAll(List.of("-p", String.valueOf(uri.getPort())));
+            }
+            if (uri.getUserInfo() != null) {
+                command.addAll(List.of("-l", uri.getUserInfo()));
+            }
+            if (params.containsKey("keyfile")) {
+                command.addAll(List.of("-i", params.get("keyfile")));
+            }
+            command.add(uri.getHost());
+            command.addAll(List.of(params.getOrDefault("netcat", "nc"), "-U", params.getOrDefault("socket", SYSTEM_SOCKET)));
+
+            Process process = new ProcessBuilder(command)
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+            return new StreamTransport(process);
+        }
+
+        @Override
+        public ReadableByteChannel in() {
+            return in;
+        }
+
+        @Override
+        public WritableByteChannel out() {
+            return out;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                in.close();
+                out.close();
+                if (resource != null) {
+                    resource.close();
+                }
+            } finally {
+                if (process != null) {
+                    process.destroy();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package io.kestra.plugin.kvm.remote;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * XDR (RFC 4506) decoder over a received message.
+ */
+final class XdrReader {
+    private final ByteBuffer buffer;
+
+    XdrReader(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    int readInt() {
+        return buffer.getInt();
+    }
+
+    long readUnsignedInt() {
+        return Integer.toUnsignedLong(buffer.getInt());
+    }
+
+    long readHyper() {
+        return buffer.getLong();
+    }
+
+    boolean readBoolean() {
+        return buffer.getInt() != 0;
+    }
+
+    String readString() {
+        return new String(readOpaque(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads a {@code remote_string}: an optional, possibly absent, string.
+     */
+    String readOptionalString() {
+        return readBoolean() ? readString() : null;
+    }
+
+    byte[] readOpaque() {
+        return readFixedOpaque(readInt());
+    }
+
+    byte[] readFixedOpaque(int length) {
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalStateException("Invalid XDR opaque length " + length);
+        }
+        byte[] value = new byte[length];
+        buffer.get(value);
+        buffer.position(buffer.position() + (4 - length % 4) % 4);
+        return value;
+    }
+
+    UUID readUuid() {
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    boolean hasRemaining() {
+        return buffer.hasRemaining();
+    }
+}
@@ -0,0 +1,101 @@
+package io.kestra.plugin.kvm.remote;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * XDR (RFC 4506) encoder writing into a pooled buffer that grows on demand.
+ */
+final class XdrWriter {
+    private final BufferPool pool;
+
+    private ByteBuffer buffer;
+
+    XdrWriter(BufferPool pool) {
+        this.pool = pool;
+        this.buffer = pool.acquire(BufferPool.BUFFER_SIZE);
+    }
+
+    XdrWriter writeInt(int value) {
+        ensure(4);
+        buffer.putInt(value);
+        return this;
+    }
+
+    XdrWriter writeHyper(long value) {
+        ensure(8);
+        buffer.putLong(value);
+        return this;
+    }
+
+    XdrWriter writeBoolean(boolean value) {
+        return writeInt(value ? 1 : 0);
+    }
+
+    XdrWriter writeString(String value) {
+        return writeOpaque(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Writes a {@code remote_string}: an optional, possibly absent, string.
+     */
+    XdrWriter writeOptionalString(String value) {
+        writeBoolean(value != null);
+        return value == null ? this : writeString(value);
+    }
+
+    /**
+     * Writes variable-length opaque data, prefixed by its length and padded to four bytes.
+     */
+    XdrWriter writeOpaque(byte[] value) {
+        writeInt(value.length);
+        return writeFixedOpaque(value);
+    }
+
+    XdrWriter writeFixedOpaque(byte[] value) {
+        int padding = (4 - value.length % 4) % 4;
+        ensure(value.length + padding);
+        buffer.put(value);
+        for (int i = 0; i < padding; i++) {
+            buffer.put((byte) 0);
+        }
+        return this;
+    }
+
+    XdrWriter writeUuid(UUID uuid) {
+        ensure(16);
+        buffer.putLong(uuid.getMostSignificantBits());
+        buffer.putLong(uuid.getLeastSignificantBits());
+        return this;
+    }
+
+    int position() {
+        return buffer.position();
+    }
+
+    void putInt(int index, int value) {
+        buffer.putInt(index, value);
+    }
+
+    /**
+     * Returns the written bytes, ready to be sent.
+     */
+    ByteBuffer flip() {
+        return buffer.flip();
+    }
+
+    void release() {
+        pool.release(buffer);
+        buffer = null;
+    }
+
+    private void ensure(int bytes) {
+        if (buffer.remaining() < bytes) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+            larger.put(buffer.flip());
+            pool.release(buffer);
+            buffer = larger;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package io.kestra.plugin.kvm;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.libvirt.DomainInfo.DomainState;
+
+/**
+ * {@link HypervisorClient} that counts the calls made through another client, one per round trip to the
+ * hypervisor, so that scale runs can report how many calls a task issues.
+ */
+final class CountingHypervisorClient implements HypervisorClient {
+    private final HypervisorClient delegate;
+
+    private final AtomicLong calls = new AtomicLong();
+
+    CountingHypervisorClient(HypervisorClient delegate) {
+        this.delegate = delegate;
+    }
+
+    long calls() {
+        return calls.get();
+    }
+
+    @Override
+    public HypervisorDomain domain(String name) throws HypervisorException {
+        calls.incrementAndGet();
+        return new CountingDomain(delegate.domain(name));
+    }
+
+    @Override
+    public List<String> domainNames() throws HypervisorException {
+        calls.incrementAndGet();
+        return delegate.domainNames();
+    }
+
+    @Override
+    public Map<String, String> domainUuids() throws HypervisorException {
+        calls.incrementAndGet();
+        return delegate.domainUuids();
+    }
+
+    @Override
+    public Map<String, DomainState> domainStates() throws HypervisorException {
+        calls.incrementAndGet();
+        return delegate.domainStates();
+    }
+
+    @Override
+    public HypervisorPool pool(String name) throws HypervisorException {
+        calls.incrementAndGet();
+        HypervisorPool pool = delegate.pool(name);
+        return volume -> {
+            calls.incrementAndGet();
+            pool.deleteVolume(volume);
+        };
+    }
+
+    private final class CountingDomain implements HypervisorDomain {
+        private final HypervisorDomain delegate;
+
+        private CountingDomain(HypervisorDomain delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public String name() {
+            return delegate.name();
+        }
+
+        @Override
+        public String uuid() throws HypervisorException {
+            calls.incrementAndGet();
+            return delegate.uuid();
+        }
+
+        @Override
+        public DomainState state() throws HypervisorException {
+            calls.incrementAndGet();
+            return delegate.state();
+        }
+
+        @Override
+        public String xmlDesc(int flags) throws HypervisorException {
+            calls.incrementAndGet();
+            return delegate.xmlDesc(flags);
+        }
+
+        @Override
+        public void create() throws HypervisorException {
+            calls.incrementAndGet();
+            delegate.create();
+        }
+
+        @Override
+        public void shutdown() throws HypervisorException {
+            calls.incrementAndGet();
+            delegate.shutdown();
+        }
+
+        @Override
+        public void destroy() throws HypervisorException {
+            calls.incrementAndGet();
+            delegate.destroy();
+        }
+
+        @Override
+        public void undefine(int flags) throws HypervisorException {
+            calls.incrementAndGet();
+            delegate.undefine(flags);
+        }
+
+        @Override
+        public List<String> addresses() throws HypervisorException {
+            calls.incrementAndGet();
+            return delegate.addresses();
+        }
+    }
+}
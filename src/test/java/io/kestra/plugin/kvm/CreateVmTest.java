@@ -1,6 +1,25 @@
 package io.kestra.plugin.kvm;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import javax.xml.xpath.XPath;
+
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.libvirt.Domain;
+import org.libvirt.Error.ErrorNumber;
+import org.libvirt.LibvirtException;
+import org.libvirt.StoragePool;
+import org.w3c.dom.Document;
 
 import io.kestra.core.junit.annotations.KestraTest;
 import io.kestra.core.models.property.Property;
@@ -10,14 +29,36 @@ import io.kestra.core.runners.RunContextFactory;
 import jakarta.inject.Inject;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 @KestraTest
 class CreateVmTest {
     @Inject
     private RunContextFactory runContextFactory;
 
+    private static final String CAPABILITIES = "<capabilities>"
+        + "<host><cpu><arch>x86_64</arch></cpu></host>"
+        + "<guest><os_type>hvm</os_type><arch name='x86_64'><emulator>/usr/bin/qemu-system-x86_64</emulator>"
+        + "<machine maxCpus='288'>pc-q35-8.2</machine><machine canonical='pc-q35-8.2' maxCpus='288'>q35</machine>"
+        + "<domain type='qemu'/><domain type='kvm'/></arch></guest>"
+        + "</capabilities>";
+
+    private static final String DOMAIN_CAPABILITIES = "<domainCapabilities>"
+        + "<cpu><mode name='host-passthrough' supported='yes'/>"
+        + "<mode name='custom' supported='yes'><model usable='yes'>Skylake-Server</model><model usable='no'>Sapphire Rapids</model></mode></cpu>"
+        + "<devices><disk supported='yes'><enum name='diskDevice'><value>disk</value><value>cdrom</value></enum>"
+        + "<enum name='bus'><value>virtio</value><value>sata</value></enum></disk>"
+        + "<tpm supported='no'/></devices>"
+        + "</domainCapabilities>";
+
     private static final String XML = "<domain type='test'>"
         + "<name>unit-test-vm</name>"
         + "<memory unit='KiB'>128</memory>"
@@ -44,4 +85,357 @@ class CreateVmTest {
         CreateVm.Output secondOutput = task.run(runContext);
         assertThat(secondOutput.getName(), is("unit-test-vm"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void placement() throws Exception {
+        RunContext runContext = runContextFactory.of();
+
+        CreateVm task = CreateVm.builder()
+            .candidateUris(Property.ofValue(List.of("test:///default", "test:///unreachable-host")))
+            .placementStrategy(Property.ofValue(PlacementStrategy.SPREAD))
+            .name(Property.ofValue("placed-test-vm"))
+            .xmlDefinition(Property.ofValue(XML.replace("unit-test-vm", "placed-test-vm")))
+            .build();
+
+        // The unreachable candidate is skipped, the reachable one is chosen
+        CreateVm.Output output = task.run(runContext);
+        assertThat(output.getName(), is("placed-test-vm"));
+        assertThat(output.getHost(), is("test:///default"));
+    }
+
+    @Test
+    void placementKeepsExistingDomainOnItsHost(@TempDir Path directory) throws Exception {
+        RunContext runContext = runContextFactory.of();
+        String xml = XML.replace("unit-test-vm", "already-placed-vm");
+        // An empty host with far more capacity than test:///default, which placement alone would pick
+        String empty = TestDriverNode.builder().domains(0).pools(0).build().write(directory.resolve("empty.xml"));
+
+        CreateVm.builder()
+            .uri(Property.ofValue("test:///default"))
+            .name(Property.ofValue("already-placed-vm"))
+            .xmlDefinition(Property.ofValue(xml))
+            .build()
+            .run(runContext);
+
+        CreateVm.Output output = CreateVm.builder()
+            .candidateUris(Property.ofValue(List.of(empty, "test:///default")))
+            .name(Property.ofValue("already-placed-vm"))
+            .xmlDefinition(Property.ofValue(xml))
+            .build()
+            .run(runContext);
+
+        assertThat(output.getHost(), is("test:///default"));
+    }
+
+    @Test
+    void numaPlacement() throws Exception {
+        RunContext runContext = runContextFactory.of();
+
+        try (LibvirtConnection connection = new LibvirtConnection("test:///default")) {
+            // An inactive domain takes its pinned CPUs back when it starts, so they are not free either
+            Domain inactive = connection.get().domainDefineXML(
+                XML.replace("unit-test-vm", "numa-pinned-vm").replace("<os>", "<cputune><emulatorpin cpuset='0-7'/></cputune><os>")
+            );
+
+            try {
+                CreateVm task = CreateVm.builder()
+                    .uri(Property.ofValue("test:///default"))
+                    .name(Property.ofValue("numa-test-vm"))
+                    .xmlDefinition(Property.ofValue(XML.replace("unit-test-vm", "numa-test-vm").replace("<os>", "<vcpu>2</vcpu><os>")))
+                    .numaPlacement(Property.ofValue(true))
+                    .build();
+
+                CreateVm.Output output = task.run(runContext);
+                assertThat(output.getNumaNodeset(), notNullValue());
+
+                Document doc = LibvirtXmlParser.parse(connection.get().domainLookupByName("numa-test-vm").getXMLDesc(0));
+                XPath xpath = LibvirtXmlParser.xpath();
+                String first = xpath.evaluate("/domain/cputune/vcpupin[@vcpu='0']/@cpuset", doc);
+                String second = xpath.evaluate("/domain/cputune/vcpupin[@vcpu='1']/@cpuset", doc);
+
+                assertThat(Cpuset.parse(first + "," + second).size(), is(2));
+                assertThat(Cpuset.parse("0-7"), not(hasItem(Integer.parseInt(first))));
+                assertThat(Cpuset.parse("0-7"), not(hasItem(Integer.parseInt(second))));
+                assertThat(Cpuset.parse(xpath.evaluate("/domain/cputune/emulatorpin/@cpuset", doc)), is(Cpuset.parse(first + "," + second)));
+                assertThat(xpath.evaluate("/domain/numatune/memory/@mode", doc), is("strict"));
+                assertThat(xpath.evaluate("/domain/numatune/memory/@nodeset", doc), is(output.getNumaNodeset()));
+            } finally {
+                inactive.undefine();
+            }
+        }
+    }
+
+    @Test
+    void numaPlacementKeepsExistingEmulatorPin() throws Exception {
+        RunContext runContext = runContextFactory.of();
+
+        CreateVm task = CreateVm.builder()
+            .uri(Property.ofValue("test:///default"))
+            .name(Property.ofValue("emulatorpin-test-vm"))
+            .xmlDefinition(Property.ofValue(
+                XML.replace("unit-test-vm", "emulatorpin-test-vm").replace("<os>", "<cputune><emulatorpin cpuset='1'/></cputune><os>")
+            ))
+            .numaPlacement(Property.ofValue(true))
+            .build();
+
+        CreateVm.Output output = task.run(runContext);
+        assertThat(output.getNumaNodeset(), nullValue());
+
+        try (LibvirtConnection connection = new LibvirtConnection("test:///default")) {
+            String xml = connection.get().domainLookupByName("emulatorpin-test-vm").getXMLDesc(0);
+            assertThat(xml, not(containsString("vcpupin")));
+            assertThat(xml, not(containsString("numatune")));
+        }
+    }
+
+    @Test
+    void performanceProfile() throws Exception {
+        RunContext runContext = runContextFactory.of();
+
+        CreateVm task = CreateVm.builder()
+            .uri(Property.ofValue("test:///default"))
+            .name(Property.ofValue("profiled-test-vm"))
+            .xmlDefinition(Property.ofValue(XML.replace("unit-test-vm", "profiled-test-vm")))
+            .performanceProfile(Property.ofValue(PerformanceProfile.THROUGHPUT))
+            .build();
+
+        CreateVm.Output output = task.run(runContext);
+        assertThat(output.getProfileChanges(), hasItem("/domain/cpu/@mode: set 'host-passthrough'"));
+    }
+
+    @Test
+    void throughputOnlyTunesUntouchedFileAndBlockDisks() throws Exception {
+        DomainXmlEditor editor = DomainXmlEditor.of("""
+            <domain type='kvm'>
+              <name>direct-io-vm</name>
+              <devices>
+                <disk type='file' device='disk'><source file='/var/lib/libvirt/images/a.qcow2'/><target dev='vda' bus='virtio'/></disk>
+                <disk type='block' device='disk'><driver name='qemu' cache='writeback'/><source dev='/dev/sdb'/><target dev='vdb' bus='virtio'/></disk>
+                <disk type='network' device='disk'><source protocol='rbd' name='pool/image'/><target dev='vdc' bus='virtio'/></disk>
+              </devices>
+            </domain>
+            """);
+
+        PerformanceProfile.THROUGHPUT.apply(editor);
+
+        assertThat(editor.changes(), hasItem("/domain/devices/disk[1]/driver/@io: set 'native'"));
+        assertThat(editor.changes(), hasItem("/domain/devices/disk[2]/driver: skipped (cache or io already set)"));
+        assertThat(editor.changes(), hasItem("/domain/devices/disk[3]: skipped (direct I/O needs a file or block disk, not 'network')"));
+        String xml = editor.toXml();
+        assertThat(xml, containsString("cache=\"writeback\""));
+        assertThat(xml.split("io=\"native\"", -1).length - 1, is(1));
+    }
+
+    @Test
+    void labelsAreKeptOnUpdateAndSelectable() throws Exception {
+        RunContext runContext = runContextFactory.of();
+        String xml = XML.replace("unit-test-vm", "labelled-test-vm");
+
+        CreateVm.builder()
+            .uri(Property.ofValue("test:///default"))
+            .name(Property.ofValue("labelled-test-vm"))
+            .xmlDefinition(Property.ofValue(xml))
+            .labels(Property.ofValue(Map.of("team", "qa", "suite", "labels")))
+            .build()
+            .run(runContext);
+
+        // Without labels, UpdateVm carries the current ones over to the new definition
+        UpdateVm.builder()
+            .uri(Property.ofValue("test:///default"))
+            .name(Property.ofValue("labelled-test-vm"))
+            .xmlDefinition(Property.ofValue(xml))
+            .build()
+            .run(runContext);
+
+        DeleteVm.Output deleted = DeleteVm.builder()
+            .uri(Property.ofValue("test:///default"))
+            .labelSelector(Property.ofValue("team=qa,suite=labels"))
+            .build()
+            .run(runContext);
+        assertThat(deleted.getDomains().stream().map(DeleteVm.DomainResult::getName).toList(), is(List.of("labelled-test-vm")));
+    }
+
+    @Test
+    void cloudInitSeedImage() throws Exception {
+        byte[] iso = NoCloudSeed.build("#cloud-config\nhostname: web\n", "instance-id: web\n", null, Instant.parse("2026-01-02T03:04:05Z"));
+        ByteBuffer image = ByteBuffer.wrap(iso).order(ByteOrder.LITTLE_ENDIAN);
+
+        // The Joliet supplementary descriptor follows the primary one and carries the real file names
+        int joliet = 17 * 2048;
+        assertThat(image.get(joliet), is((byte) 2));
+        assertThat(new String(iso, joliet + 1, 5, StandardCharsets.US_ASCII), is("CD001"));
+        assertThat(new String(iso, joliet + 40, 12, StandardCharsets.UTF_16BE), is(NoCloudSeed.LABEL));
+
+        Map<String, String> files = new LinkedHashMap<>();
+        int root = image.getInt(joliet + 156 + 2) * 2048;
+        for (int offset = root; iso[offset] != 0; offset += iso[offset]) {
+            int nameLength = iso[offset + 32];
+            if (nameLength > 1) {
+                int extent = image.getInt(offset + 2) * 2048;
+                int length = image.getInt(offset + 10);
+                files.put(
+                    new String(iso, offset + 33, nameLength, StandardCharsets.UTF_16BE),
+                    new String(iso, extent, length, StandardCharsets.UTF_8)
+                );
+            }
+        }
+
+        assertThat(files, is(Map.of("meta-data", "instance-id: web\n", "user-data", "#cloud-config\nhostname: web\n")));
+    }
+
+    @Test
+    void cloudInitSeedIsRemovedWhenDefineFails() throws Exception {
+        CreateVm task = CreateVm.builder()
+            .uri(Property.ofValue("test:///default"))
+            .name(Property.ofValue("seed-leak-vm"))
+            .xmlDefinition(Property.ofValue(XML.replace("unit-test-vm", "seed-leak-vm").replace("type='test'", "type='bogus'")))
+            .cloudInit(Property.ofValue(CreateVm.CloudInit.builder().storagePool("default-pool").build()))
+            .build();
+
+        try (LibvirtConnection connection = new LibvirtConnection("test:///default")) {
+            assertThrows(Exception.class, () -> task.run(runContextFactory.of()));
+
+            LibvirtException e = assertThrows(
+                LibvirtException.class,
+                () -> connection.get().storagePoolLookupByName("default-pool").storageVolLookupByName("seed-leak-vm-cidata.iso")
+            );
+            assertThat(LibvirtErrors.code(e), is(ErrorNumber.VIR_ERR_NO_STORAGE_VOL));
+        }
+    }
+
+    @Test
+    void cloudInitNeverOverwritesAnExistingVolume() throws Exception {
+        CreateVm task = CreateVm.builder()
+            .uri(Property.ofValue("test:///default"))
+            .name(Property.ofValue("seed-taken-vm"))
+            .xmlDefinition(Property.ofValue(XML.replace("unit-test-vm", "seed-taken-vm")))
+            .cloudInit(Property.ofValue(CreateVm.CloudInit.builder().storagePool("default-pool").volumeName("shared-data.img").build()))
+            .build();
+
+        try (LibvirtConnection connection = new LibvirtConnection("test:///default")) {
+            StoragePool pool = connection.get().storagePoolLookupByName("default-pool");
+            pool.storageVolCreateXML("<volume><name>shared-data.img</name><capacity unit='bytes'>4096</capacity></volume>", 0);
+
+            assertThrows(Exception.class, () -> task.run(runContextFactory.of()));
+
+            assertThat(pool.storageVolLookupByName("shared-data.img").getInfo().capacity, is(4096L));
+            assertThrows(LibvirtException.class, () -> connection.get().domainLookupByName("seed-taken-vm"));
+        }
+    }
+
+    @Test
+    void validationCompletesDefaultsFromCapabilities() throws Exception {
+        DomainXmlEditor editor = DomainXmlEditor.of(
+            "<domain type='kvm'><name>web</name><os><type>hvm</type></os>"
+                + "<cpu mode='custom'><model>Skylake-Server</model></cpu>"
+                + "<devices><disk type='file' device='disk'><target dev='vda' bus='virtio'/></disk></devices></domain>"
+        );
+
+        List<String> defaults = DomainValidator.validate(
+            editor,
+            CAPABILITIES,
+            (emulator, arch, machine, virtType) -> new HostCapabilities.DomainCapabilities(DOMAIN_CAPABILITIES, null),
+            new ArrayList<>()
+        );
+
+        assertThat(defaults.size(), is(3));
+        String xml = editor.toXml();
+        assertThat(xml, containsString("arch=\"x86_64\""));
+        assertThat(xml, containsString("machine=\"pc-q35-8.2\""));
+        assertThat(xml, containsString("<emulator>/usr/bin/qemu-system-x86_64</emulator>"));
+    }
+
+    @Test
+    void validationListsEveryUnsupportedValue() throws Exception {
+        DomainXmlEditor editor = DomainXmlEditor.of(
+            "<domain type='kvm'><name>web</name><os><type arch='x86_64' machine='pc-q35-99'>hvm</type></os>"
+                + "<cpu mode='custom'><model>Skylake-Servr</model></cpu>"
+                + "<devices><disk type='file' device='disk'><target dev='sda' bus='scsi'/></disk><tpm model='tpm-crb'/></devices></domain>"
+        );
+
+        List<String> machines = new ArrayList<>();
+        IllegalArgumentException e = assertThrows(
+            IllegalArgumentException.class,
+            () -> DomainValidator.validate(
+                editor,
+                CAPABILITIES,
+                (emulator, arch, machine, virtType) -> {
+                    machines.add(machine);
+                    return new HostCapabilities.DomainCapabilities(DOMAIN_CAPABILITIES, null);
+                },
+                new ArrayList<>()
+            )
+        );
+        // The unknown machine type does not hide the problems found in the default machine's domain capabilities
+        assertThat(e.getMessage(), containsString("/domain/os/type/@machine: 'pc-q35-99'"));
+        assertThat(e.getMessage(), containsString("/domain/cpu/model: 'Skylake-Servr' is unknown"));
+        assertThat(e.getMessage(), containsString("/domain/devices/disk/target/@bus: 'scsi'"));
+        assertThat(e.getMessage(), containsString("tpm devices are not supported"));
+        assertThat(machines, contains((String) null));
+
+        DomainXmlEditor fixed = DomainXmlEditor.of(editor.toXml().replace("pc-q35-99", "q35"));
+        e = assertThrows(
+            IllegalArgumentException.class,
+            () -> DomainValidator.validate(
+                fixed,
+                CAPABILITIES,
+                (emulator, arch, machine, virtType) -> new HostCapabilities.DomainCapabilities(DOMAIN_CAPABILITIES, null),
+                new ArrayList<>()
+            )
+        );
+        assertThat(e.getMessage(), containsString("/domain/cpu/model: 'Skylake-Servr' is unknown"));
+        assertThat(e.getMessage(), containsString("/domain/devices/disk/target/@bus: 'scsi'"));
+        assertThat(e.getMessage(), containsString("tpm devices are not supported"));
+        assertThat(e.getMessage(), not(containsString("@machine")));
+    }
+
+    @Test
+    void unusableCpuModelIsOnlyAWarning() throws Exception {
+        DomainXmlEditor editor = DomainXmlEditor.of(
+            "<domain type='kvm'><name>web</name><os><type arch='x86_64' machine='q35'>hvm</type></os>"
+                + "<cpu mode='custom'><model>Sapphire Rapids</model></cpu></domain>"
+        );
+        List<String> warnings = new ArrayList<>();
+
+        DomainValidator.validate(
+            editor,
+            CAPABILITIES,
+            (emulator, arch, machine, virtType) -> new HostCapabilities.DomainCapabilities(DOMAIN_CAPABILITIES, null),
+            warnings
+        );
+
+        assertThat(warnings, contains("/domain/cpu/model: 'Sapphire Rapids' is reported as not usable on the host CPU"));
+    }
+
+    @Test
+    void onlyUnsupportedDomainCapabilitiesFailuresAreCached() throws Exception {
+        try (LibvirtConnection connection = new LibvirtConnection("test:///default", LibvirtBackend.NATIVE)) {
+            HostCapabilities capabilities = HostCapabilities.get(connection.get(), HostCapabilities.DEFAULT_TTL);
+            String key = "transient-" + UUID.randomUUID();
+
+            HostCapabilities.DomainCapabilities lost = capabilities.domainCapabilities(key, () -> {
+                throw new HypervisorException(ErrorNumber.VIR_ERR_RPC, "connection reset");
+            });
+            assertThat(lost.error(), is("connection reset"));
+            assertThat(capabilities.domainCapabilities(key, () -> DOMAIN_CAPABILITIES).xml(), is(DOMAIN_CAPABILITIES));
+
+            String unsupportedKey = "unsupported-" + UUID.randomUUID();
+            capabilities.domainCapabilities(unsupportedKey, () -> {
+                throw new HypervisorException(ErrorNumber.VIR_ERR_NO_SUPPORT, "this function is not supported");
+            });
+            assertThat(capabilities.domainCapabilities(unsupportedKey, () -> DOMAIN_CAPABILITIES).error(), is("this function is not supported"));
+        }
+    }
+
+    @Test
+    void capabilitiesAreCachedPerHost() throws Exception {
+        try (LibvirtConnection connection = new LibvirtConnection("test:///default", LibvirtBackend.NATIVE)) {
+            HostCapabilities first = HostCapabilities.get(connection.get(), HostCapabilities.DEFAULT_TTL);
+
+            assertThat(HostCapabilities.get(connection.get(), HostCapabilities.DEFAULT_TTL), sameInstance(first));
+
+            HostCapabilities.invalidate(connection.get().getURI());
+            assertThat(HostCapabilities.get(connection.get(), HostCapabilities.DEFAULT_TTL), not(sameInstance(first)));
+        }
+    }
+}
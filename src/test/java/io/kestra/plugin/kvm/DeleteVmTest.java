@@ -1,7 +1,11 @@
 package io.kestra.plugin.kvm;
 
+import java.util.List;
+import java.util.Map;
+
 import org.junit.jupiter.api.Test;
-import org.libvirt.LibvirtException;
+import org.libvirt.DomainInfo.DomainState;
+import org.libvirt.Error.ErrorNumber;
 
 import io.kestra.core.junit.annotations.KestraTest;
 import io.kestra.core.models.property.Property;
@@ -10,6 +14,12 @@ import io.kestra.core.runners.RunContextFactory;
 
 import jakarta.inject.Inject;
 
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
@@ -43,7 +53,203 @@ class DeleteVmTest {
             .failIfNotFound(Property.ofValue(true))
             .build();
 
-        // Should throw LibvirtException (VIR_ERR_NO_DOMAIN)
-        assertThrows(LibvirtException.class, () -> task.run(runContext));
+        HypervisorException e = assertThrows(HypervisorException.class, () -> task.run(runContext));
+        assertThat(e.getCode(), is(ErrorNumber.VIR_ERR_NO_DOMAIN));
+    }
+
+    @Test
+    void deleteStorageContinuesPastFailedVolume() throws Exception {
+        RunContext runContext = runContextFactory.of();
+
+        try (SimulatedHypervisor hypervisor = SimulatedHypervisor.create(42)
+            .domain("web", DomainState.VIR_DOMAIN_SHUTOFF, "default/web-root.qcow2", "default/web-data.qcow2")
+            .fail("deleteVolume:web-root.qcow2", ErrorNumber.VIR_ERR_OPERATION_FAILED, 1)) {
+            DeleteVm task = DeleteVm.builder()
+                .uri(Property.ofValue(hypervisor.uri()))
+                .name(Property.ofValue("web"))
+                .deleteStorage(Property.ofValue(true))
+                .build();
+
+            task.run(runContext);
+
+            assertThat(hypervisor.hasDomain("web"), is(false));
+            assertThat(hypervisor.hasVolume("default", "web-root.qcow2"), is(true));
+            assertThat(hypervisor.hasVolume("default", "web-data.qcow2"), is(false));
+        }
+    }
+
+    @Test
+    void bulkDeleteByPatternAndMetadata() throws Exception {
+        RunContext runContext = runContextFactory.of();
+
+        try (SimulatedHypervisor hypervisor = SimulatedHypervisor.create(42)
+            .domain("ci-1", DomainState.VIR_DOMAIN_RUNNING, "default/ci-1.qcow2")
+            .domain("ci-2", DomainState.VIR_DOMAIN_SHUTOFF, "default/ci-2.qcow2")
+            .domain("ci-3", DomainState.VIR_DOMAIN_RUNNING, "default/ci-3.qcow2")
+            .domain("web", DomainState.VIR_DOMAIN_RUNNING, "default/web.qcow2")
+            .metadata("ci-1", "<ci:job xmlns:ci='https://ci.example.com'>nightly</ci:job>")
+            .metadata("ci-2", "<ci:job xmlns:ci='https://ci.example.com'>manual</ci:job>")
+            .metadata("ci-3", "<ci:job xmlns:ci='https://ci.example.com'>nightly</ci:job>")
+            .metadata("web", "<ci:job xmlns:ci='https://ci.example.com'>nightly</ci:job>")
+            .fail("deleteVolume:ci-3.qcow2", ErrorNumber.VIR_ERR_OPERATION_FAILED, 1)) {
+            DeleteVm task = DeleteVm.builder()
+                .uri(Property.ofValue(hypervisor.uri()))
+                .names(Property.ofValue(List.of("ci-*")))
+                .metadata(Property.ofValue(Map.of("job", "nightly")))
+                .deleteStorage(Property.ofValue(true))
+                .maxParallelism(Property.ofValue(4))
+                .build();
+
+            DeleteVm.Output output = task.run(runContext);
+
+            assertThat(output.isSuccess(), is(true));
+            assertThat(output.getDomains().stream().map(DeleteVm.DomainResult::getName).toList(), containsInAnyOrder("ci-1", "ci-3"));
+            assertThat(output.getDeletedVolumes(), contains("default/ci-1.qcow2"));
+            assertThat(hypervisor.hasDomain("ci-1"), is(false));
+            assertThat(hypervisor.hasDomain("ci-2"), is(true));
+            assertThat(hypervisor.hasDomain("ci-3"), is(false));
+            assertThat(hypervisor.hasDomain("web"), is(true));
+            assertThat(hypervisor.hasVolume("default", "ci-3.qcow2"), is(true));
+        }
+    }
+
+    @Test
+    void bulkDeleteReportsFailuresPerDomain() throws Exception {
+        RunContext runContext = runContextFactory.of();
+
+        try (SimulatedHypervisor hypervisor = SimulatedHypervisor.create(42)
+            .domain("ci-1", DomainState.VIR_DOMAIN_SHUTOFF, "default/ci-1.qcow2")
+            .domain("ci-2", DomainState.VIR_DOMAIN_SHUTOFF, "default/ci-2.qcow2")
+            .fail("undefine:ci-2", ErrorNumber.VIR_ERR_OPERATION_FAILED, 1)) {
+            DeleteVm task = DeleteVm.builder()
+                .uri(Property.ofValue(hypervisor.uri()))
+                .names(Property.ofValue(List.of("ci-1", "ci-2", "ci-missing")))
+                .deleteStorage(Property.ofValue(true))
+                .failIfNotFound(Property.ofValue(false))
+                .failOnError(Property.ofValue(false))
+                .build();
+
+            DeleteVm.Output output = task.run(runContext);
+
+            assertThat(output.isSuccess(), is(false));
+            assertThat(output.getDomains(), hasSize(2));
+            DeleteVm.DomainResult failed = output.getDomains().stream().filter(d -> !d.isDeleted()).findFirst().orElseThrow();
+            assertThat(failed.getName(), is("ci-2"));
+            assertThat(failed.getError(), containsString("undefine"));
+            assertThat(hypervisor.hasVolume("default", "ci-2.qcow2"), is(true));
+            assertThat(hypervisor.hasVolume("default", "ci-1.qcow2"), is(false));
+        }
+    }
+
+    @Test
+    void bulkDeleteByLabelSelectorReusesLabelIndex() throws Exception {
+        RunContext runContext = runContextFactory.of();
+
+        try (SimulatedHypervisor hypervisor = SimulatedHypervisor.create(42)
+            .domain("ci-cpu", DomainState.VIR_DOMAIN_RUNNING)
+            .domain("ci-gpu", DomainState.VIR_DOMAIN_RUNNING)
+            .domain("web", DomainState.VIR_DOMAIN_SHUTOFF)
+            .domain("unlabelled", DomainState.VIR_DOMAIN_SHUTOFF)
+            .metadata("ci-cpu", labels("team", "ci", "pool", "cpu"))
+            .metadata("ci-gpu", labels("team", "ci", "pool", "gpu"))
+            .metadata("web", labels("team", "web"))) {
+            DeleteVm.Output output = DeleteVm.builder()
+                .uri(Property.ofValue(hypervisor.uri()))
+                .labelSelector(Property.ofValue("team=ci,pool!=gpu"))
+                .build()
+                .run(runContext);
+
+            assertThat(output.getDomains().stream().map(DeleteVm.DomainResult::getName).toList(), contains("ci-cpu"));
+            // Every domain is described once for the index, and the selected one again before it is deleted
+            assertThat(hypervisor.calls("xmlDesc"), is(5));
+
+            output = DeleteVm.builder()
+                .uri(Property.ofValue(hypervisor.uri()))
+                .labelSelector(Property.ofValue("team"))
+                .names(Property.ofValue(List.of("web", "unlabelled")))
+                .build()
+                .run(runContext);
+
+            // The second selection is answered from the index; only the selected domain is described again.
+            assertThat(output.getDomains().stream().map(DeleteVm.DomainResult::getName).toList(), contains("web"));
+            assertThat(hypervisor.calls("xmlDesc"), is(6));
+            assertThat(hypervisor.hasDomain("ci-gpu"), is(true));
+            assertThat(hypervisor.hasDomain("unlabelled"), is(true));
+        }
+    }
+
+    @Test
+    void staleLabelsNeverSelectADomain() throws Exception {
+        RunContext runContext = runContextFactory.of();
+
+        try (SimulatedHypervisor hypervisor = SimulatedHypervisor.create(42)
+            .domain("ci-1", DomainState.VIR_DOMAIN_RUNNING)
+            .domain("ci-2", DomainState.VIR_DOMAIN_RUNNING)
+            .domain("web", DomainState.VIR_DOMAIN_RUNNING)
+            .metadata("ci-1", labels("team", "ci"))
+            .metadata("ci-2", labels("team", "ci"))
+            .metadata("web", labels("team", "web"))) {
+            DeleteVm.builder()
+                .uri(Property.ofValue(hypervisor.uri()))
+                .labelSelector(Property.ofValue("team=web"))
+                .build()
+                .run(runContext);
+
+            // Outside Kestra, ci-1 is defined again under the same name and ci-2 is relabelled in place
+            hypervisor.domain("ci-1", DomainState.VIR_DOMAIN_RUNNING).metadata("ci-1", labels("team", "qa"));
+            hypervisor.metadata("ci-2", labels("team", "qa"));
+
+            DeleteVm.Output output = DeleteVm.builder()
+                .uri(Property.ofValue(hypervisor.uri()))
+                .labelSelector(Property.ofValue("team=ci"))
+                .build()
+                .run(runContext);
+
+            assertThat(output.getDomains(), hasSize(0));
+            assertThat(hypervisor.hasDomain("ci-1"), is(true));
+            assertThat(hypervisor.hasDomain("ci-2"), is(true));
+        }
+    }
+
+    @Test
+    void invalidLabelSelectorIsRejected() {
+        DeleteVm task = DeleteVm.builder()
+            .uri(Property.ofValue("test:///default"))
+            .labelSelector(Property.ofValue("team=c i"))
+            .build();
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> task.run(runContextFactory.of()));
+        assertThat(e.getMessage(), containsString("team"));
+    }
+
+    @Test
+    void blankLabelSelectorDeletesNothing() throws Exception {
+        RunContext runContext = runContextFactory.of();
+
+        try (SimulatedHypervisor hypervisor = SimulatedHypervisor.create(42)
+            .domain("ci-1", DomainState.VIR_DOMAIN_RUNNING)
+            .domain("web", DomainState.VIR_DOMAIN_SHUTOFF)) {
+            for (String blank : List.of("", "  ", " , ")) {
+                DeleteVm task = DeleteVm.builder()
+                    .uri(Property.ofValue(hypervisor.uri()))
+                    .labelSelector(Property.ofValue(blank))
+                    .build();
+
+                assertThrows(IllegalArgumentException.class, () -> task.run(runContext));
+            }
+
+            assertThat(hypervisor.hasDomain("ci-1"), is(true));
+            assertThat(hypervisor.hasDomain("web"), is(true));
+            assertThat(hypervisor.calls("domainNames"), is(0));
+            assertThat(hypervisor.calls("domainUuids"), is(0));
+        }
+    }
+
+    private static String labels(String... keyValues) {
+        StringBuilder xml = new StringBuilder("<kestra:labels xmlns:kestra='" + DomainLabels.NAMESPACE + "'>");
+        for (int i = 0; i < keyValues.length; i += 2) {
+            xml.append("<kestra:label key='").append(keyValues[i]).append("'>").append(keyValues[i + 1]).append("</kestra:label>");
+        }
+        return xml.append("</kestra:labels>").toString();
     }
-}
\ No newline at end of file
+}
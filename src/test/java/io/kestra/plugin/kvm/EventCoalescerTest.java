@@ -0,0 +1,78 @@
+package io.kestra.plugin.kvm;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+class EventCoalescerTest {
+    private static final Duration WINDOW = Duration.ofMinutes(1);
+
+    @Test
+    void historyFollowsChangesFromStateBeforeBatch() {
+        EventCoalescer coalescer = EventCoalescer.of(UUID.randomUUID().toString());
+
+        coalescer.add(List.of(event("web", "VIR_DOMAIN_RUNNING", "VIR_DOMAIN_SHUTOFF")));
+        coalescer.add(List.of(event("web", "VIR_DOMAIN_SHUTOFF", "VIR_DOMAIN_RUNNING")));
+
+        List<VmEventTrigger.Event> events = coalescer.drainIfDue(Duration.ZERO, 500);
+        assertThat(events.size(), is(1));
+        assertThat(events.get(0).getPreviousState(), is("VIR_DOMAIN_RUNNING"));
+        assertThat(events.get(0).getState(), is("VIR_DOMAIN_RUNNING"));
+        assertThat(events.get(0).getHistory(), contains("VIR_DOMAIN_RUNNING", "VIR_DOMAIN_SHUTOFF", "VIR_DOMAIN_RUNNING"));
+    }
+
+    @Test
+    void repeatedStatesOfEveryPollAreNotHistory() {
+        EventCoalescer coalescer = EventCoalescer.of(UUID.randomUUID().toString());
+
+        coalescer.add(List.of(event("db", null, "VIR_DOMAIN_RUNNING")));
+        coalescer.add(List.of(event("db", null, "VIR_DOMAIN_RUNNING")));
+        coalescer.add(List.of(event("db", null, "VIR_DOMAIN_SHUTOFF")));
+        coalescer.add(List.of(event("db", null, "VIR_DOMAIN_SHUTOFF")));
+
+        List<VmEventTrigger.Event> events = coalescer.drainIfDue(Duration.ZERO, 500);
+        assertThat(events.get(0).getHistory(), contains("VIR_DOMAIN_RUNNING", "VIR_DOMAIN_SHUTOFF"));
+        assertThat(events.get(0).getPreviousState(), is("VIR_DOMAIN_RUNNING"));
+    }
+
+    @Test
+    void unchangedDomainHasNoPreviousState() {
+        EventCoalescer coalescer = EventCoalescer.of(UUID.randomUUID().toString());
+
+        coalescer.add(List.of(event("db", null, "VIR_DOMAIN_RUNNING"), event("db", null, "VIR_DOMAIN_RUNNING")));
+
+        List<VmEventTrigger.Event> events = coalescer.drainIfDue(Duration.ZERO, 500);
+        assertThat(events.get(0).getHistory(), contains("VIR_DOMAIN_RUNNING"));
+        assertThat(events.get(0).getPreviousState(), nullValue());
+    }
+
+    @Test
+    void batchIsHeldUntilWindowOrSize() {
+        String uid = UUID.randomUUID().toString();
+        EventCoalescer coalescer = EventCoalescer.of(uid);
+        assertThat(EventCoalescer.deadline(uid, WINDOW).isPresent(), is(false));
+
+        coalescer.add(List.of(event("web-1", "VIR_DOMAIN_RUNNING", "VIR_DOMAIN_SHUTOFF")));
+        assertThat(EventCoalescer.deadline(uid, WINDOW).isPresent(), is(true));
+        assertThat(coalescer.drainIfDue(WINDOW, 2), empty());
+
+        // A second distinct domain fills the batch before the window has elapsed
+        coalescer.add(List.of(event("web-2", "VIR_DOMAIN_RUNNING", "VIR_DOMAIN_SHUTOFF")));
+        assertThat(coalescer.drainIfDue(WINDOW, 2).size(), is(2));
+
+        assertThat(EventCoalescer.deadline(uid, WINDOW).isPresent(), is(false));
+        assertThat(coalescer.drainIfDue(Duration.ZERO, 2), empty());
+    }
+
+    private static VmEventTrigger.Event event(String name, String previousState, String state) {
+        return new VmEventTrigger.Event(name, previousState, state, null);
+    }
+}
@@ -0,0 +1,87 @@
+package io.kestra.plugin.kvm;
+
+import org.junit.jupiter.api.Test;
+import org.libvirt.Domain;
+import org.libvirt.LibvirtException;
+
+import io.kestra.core.junit.annotations.KestraTest;
+import io.kestra.core.models.property.Property;
+import io.kestra.core.runners.RunContext;
+import io.kestra.core.runners.RunContextFactory;
+
+import jakarta.inject.Inject;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@KestraTest
+class ExportImportVmsTest {
+    @Inject
+    private RunContextFactory runContextFactory;
+
+    @Test
+    void exportThenImportSkipsIdenticalDomains() throws Exception {
+        RunContext runContext = runContextFactory.of();
+
+        ExportVms export = ExportVms.builder()
+            .uri(Property.ofValue("test:///default"))
+            .build();
+
+        ExportVms.Output exported = export.run(runContext);
+
+        assertThat(exported.getUri(), notNullValue());
+        assertThat(exported.getCount(), greaterThanOrEqualTo(1));
+
+        ImportVms importVms = ImportVms.builder()
+            .uri(Property.ofValue("test:///default"))
+            .from(Property.ofValue(exported.getUri().toString()))
+            .build();
+
+        ImportVms.Output imported = importVms.run(runContext);
+
+        assertThat(imported.getFailures(), empty());
+        // Every exported definition is already present unchanged, so nothing is redefined
+        assertThat(imported.getSkipped(), is(exported.getCount()));
+        assertThat(imported.getDefined(), is(0));
+    }
+
+    @Test
+    void importRestoresUndefinedDomainWithItsAutostartFlag() throws Exception {
+        RunContext runContext = runContextFactory.of();
+
+        // Held open so that the test driver keeps its state between the tasks' own connections
+        try (LibvirtConnection connection = new LibvirtConnection("test:///default")) {
+            Domain domain = connection.get().domainDefineXML(
+                "<domain type='test'><name>dr-test-vm</name><memory unit='KiB'>128</memory><os><type>hvm</type></os></domain>"
+            );
+            domain.setAutostart(true);
+            String uuid = domain.getUUIDString();
+
+            ExportVms.Output exported = ExportVms.builder()
+                .uri(Property.ofValue("test:///default"))
+                .build()
+                .run(runContext);
+
+            domain.undefine();
+            assertThrows(LibvirtException.class, () -> connection.get().domainLookupByName("dr-test-vm"));
+
+            ImportVms.Output imported = ImportVms.builder()
+                .uri(Property.ofValue("test:///default"))
+                .from(Property.ofValue(exported.getUri().toString()))
+                .build()
+                .run(runContext);
+
+            assertThat(imported.getFailures(), empty());
+            assertThat(imported.getDefined(), is(1));
+
+            Domain restored = connection.get().domainLookupByName("dr-test-vm");
+            assertThat(restored.getUUIDString(), is(uuid));
+            assertThat(restored.getAutostart(), is(true));
+            restored.undefine();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package io.kestra.plugin.kvm;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import io.kestra.core.junit.annotations.KestraTest;
+import io.kestra.core.models.property.Property;
+import io.kestra.core.runners.RunContext;
+import io.kestra.core.runners.RunContextFactory;
+
+import jakarta.inject.Inject;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+
+@KestraTest
+class GetVmAddressesTest {
+    @Inject
+    private RunContextFactory runContextFactory;
+
+    @Test
+    void resolveByName() throws Exception {
+        RunContext runContext = runContextFactory.of();
+
+        StartVm.builder()
+            .uri(Property.ofValue("test:///default"))
+            .name(Property.ofValue("test"))
+            .build()
+            .run(runContext);
+
+        GetVmAddresses task = GetVmAddresses.builder()
+            .uri(Property.ofValue("test:///default"))
+            .names(Property.ofValue(List.of("test", "i-do-not-exist")))
+            .sources(Property.ofValue(List.of(AddressSource.LEASE, AddressSource.ARP)))
+            .build();
+
+        GetVmAddresses.Output output = task.run(runContext);
+
+        // The missing domain is skipped; the test driver may or may not report addresses for the running one
+        assertThat(output.getVms(), hasSize(1));
+        assertThat(output.getVms().get(0).getName(), is("test"));
+    }
+}
@@ -0,0 +1,50 @@
+package io.kestra.plugin.kvm;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+
+class GuestAddressesTest {
+    @Test
+    void leasesAreJoinedByMac() {
+        Map<String, List<LibvirtNative.DhcpLease>> leasesByMac = new HashMap<>();
+        GuestAddresses.index(leasesByMac, List.of(
+            new LibvirtNative.DhcpLease("52:54:00:AA:00:01", "192.168.122.10", 24, "web", 0L),
+            new LibvirtNative.DhcpLease("52:54:00:aa:00:02", "192.168.122.11", 24, "db", 0L),
+            new LibvirtNative.DhcpLease("52:54:00:aa:00:03", null, 24, "pending", 0L)
+        ));
+        GuestAddresses.index(leasesByMac, List.of(
+            new LibvirtNative.DhcpLease("52:54:00:aa:00:01", "10.0.0.10", 16, "web", 0L)
+        ));
+
+        List<GuestAddresses.Address> web = GuestAddresses.leaseAddresses(List.of("52:54:00:aa:00:01"), leasesByMac);
+
+        // Upper-case lease MACs match, and a guest gets the leases of every network its interface is on
+        assertThat(web, contains(
+            new GuestAddresses.Address("52:54:00:aa:00:01", "192.168.122.10", 24, AddressSource.LEASE),
+            new GuestAddresses.Address("52:54:00:aa:00:01", "10.0.0.10", 16, AddressSource.LEASE)
+        ));
+    }
+
+    @Test
+    void interfacesWithoutLeaseHaveNoAddress() {
+        Map<String, List<LibvirtNative.DhcpLease>> leasesByMac = new HashMap<>();
+        GuestAddresses.index(leasesByMac, List.of(
+            new LibvirtNative.DhcpLease("52:54:00:aa:00:02", "192.168.122.11", 24, "db", 0L),
+            new LibvirtNative.DhcpLease("52:54:00:aa:00:03", null, 24, "pending", 0L)
+        ));
+
+        assertThat(GuestAddresses.leaseAddresses(List.of("52:54:00:aa:00:03", "52:54:00:aa:00:04"), leasesByMac), empty());
+        assertThat(
+            GuestAddresses.leaseAddresses(List.of("52:54:00:aa:00:04", "52:54:00:aa:00:02"), leasesByMac).get(0).ip(),
+            is("192.168.122.11")
+        );
+    }
+}
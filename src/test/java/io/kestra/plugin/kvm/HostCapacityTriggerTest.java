@@ -0,0 +1,92 @@
+package io.kestra.plugin.kvm;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.kestra.core.junit.annotations.KestraTest;
+import io.kestra.core.models.conditions.ConditionContext;
+import io.kestra.core.models.executions.Execution;
+import io.kestra.core.models.property.Property;
+import io.kestra.core.models.triggers.StatefulTriggerInterface;
+import io.kestra.core.models.triggers.Trigger;
+import io.kestra.core.runners.RunContextFactory;
+import io.kestra.core.utils.TestsUtils;
+
+import jakarta.inject.Inject;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+@KestraTest
+class HostCapacityTriggerTest {
+    @Inject
+    private RunContextFactory runContextFactory;
+
+    @Test
+    void firesOnceThenOnRecovery(@TempDir Path directory) throws Exception {
+        // Each domain of a test driver node runs with 2 vCPUs, so 4 domains on 4 CPUs are overcommitted twice
+        Path node = directory.resolve("host.xml");
+        String uri = TestDriverNode.builder().domains(4).cpus(4).build().write(node);
+
+        HostCapacityTrigger trigger = trigger("recovery", uri)
+            .vcpuOvercommitThreshold(Property.ofValue(1.5))
+            .fireOnRecovery(Property.ofValue(true))
+            .build();
+        Map.Entry<ConditionContext, Trigger> context = TestsUtils.mockTrigger(runContextFactory, trigger);
+
+        List<Map<String, Object>> alerts = alerts(trigger.evaluate(context.getKey(), context.getValue()));
+        assertThat(alerts.size(), is(1));
+        assertThat(alerts.get(0).get("name"), is("vcpu.overcommit"));
+        assertThat(alerts.get(0).get("state"), is("ABOVE"));
+        assertThat(((Number) alerts.get(0).get("value")).doubleValue(), closeTo(2.0, 0.001));
+
+        // Still above: the state remembers the crossing
+        assertThat(trigger.evaluate(context.getKey(), context.getValue()).isPresent(), is(false));
+
+        // The test driver reloads the node file on each connection
+        TestDriverNode.builder().domains(1).cpus(4).build().write(node);
+        alerts = alerts(trigger.evaluate(context.getKey(), context.getValue()));
+        assertThat(alerts.size(), is(1));
+        assertThat(alerts.get(0).get("state"), is("BELOW"));
+    }
+
+    @Test
+    void updateOnlyIgnoresFirstSample(@TempDir Path directory) throws Exception {
+        String uri = TestDriverNode.builder().domains(4).cpus(4).build().write(directory.resolve("host.xml"));
+
+        HostCapacityTrigger trigger = trigger("update-only", uri)
+            .vcpuOvercommitThreshold(Property.ofValue(1.5))
+            .on(Property.ofValue(StatefulTriggerInterface.On.UPDATE))
+            .build();
+        Map.Entry<ConditionContext, Trigger> context = TestsUtils.mockTrigger(runContextFactory, trigger);
+
+        assertThat(trigger.evaluate(context.getKey(), context.getValue()).isPresent(), is(false));
+    }
+
+    @Test
+    void cpuUsageComesFromConsecutiveSamples() {
+        assertThat(HostCapacityTrigger.cpuUsage("1000:800", "2000:1550"), closeTo(0.25, 0.0001));
+        // Counters reset by a host reboot, or not advancing, give no usage
+        assertThat(HostCapacityTrigger.cpuUsage("5000:4000", "1000:800"), nullValue());
+        assertThat(HostCapacityTrigger.cpuUsage("1000:800", "1000:800"), nullValue());
+    }
+
+    private static HostCapacityTrigger.HostCapacityTriggerBuilder<?, ?> trigger(String id, String uri) {
+        return HostCapacityTrigger.builder()
+            .id(id + "-" + Math.abs(uri.hashCode()))
+            .type(HostCapacityTrigger.class.getName())
+            .uri(Property.ofValue(uri));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> alerts(Optional<Execution> execution) {
+        return (List<Map<String, Object>>) execution.orElseThrow().getTrigger().getVariables().get("alerts");
+    }
+}
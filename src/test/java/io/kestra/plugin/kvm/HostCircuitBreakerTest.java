@@ -0,0 +1,101 @@
+package io.kestra.plugin.kvm;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.libvirt.Error.ErrorNumber;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class HostCircuitBreakerTest {
+    private static final HypervisorException UNREACHABLE = new HypervisorException(ErrorNumber.VIR_ERR_NO_CONNECT, "Connection refused");
+
+    @Test
+    void opensAfterConsecutiveTransientFailures() throws Exception {
+        HostCircuitBreaker breaker = new HostCircuitBreaker(new AtomicLong()::get);
+
+        for (int i = 0; i < HostCircuitBreaker.FAILURE_THRESHOLD; i++) {
+            breaker.acquire();
+            breaker.onFailure(UNREACHABLE);
+        }
+
+        assertThat(breaker.state(), is(HostCircuitBreaker.State.OPEN));
+        HypervisorException e = assertThrows(HypervisorException.class, breaker::acquire);
+        assertThat(e.getCode(), is(ErrorNumber.VIR_ERR_NO_CONNECT));
+    }
+
+    @Test
+    void halfOpenLetsASingleProbeThrough() throws Exception {
+        AtomicLong clock = new AtomicLong();
+        HostCircuitBreaker breaker = opened(clock);
+
+        clock.addAndGet(HostCircuitBreaker.OPEN_DURATION.toNanos());
+        breaker.acquire();
+
+        assertThat(breaker.state(), is(HostCircuitBreaker.State.HALF_OPEN));
+        assertThrows(HypervisorException.class, breaker::acquire);
+
+        // A failed probe opens the breaker again for a full period
+        breaker.onFailure(UNREACHABLE);
+        assertThat(breaker.state(), is(HostCircuitBreaker.State.OPEN));
+        clock.addAndGet(HostCircuitBreaker.OPEN_DURATION.toNanos() - 1);
+        assertThrows(HypervisorException.class, breaker::acquire);
+    }
+
+    @Test
+    void successfulProbeResetsTheBreaker() throws Exception {
+        AtomicLong clock = new AtomicLong();
+        HostCircuitBreaker breaker = opened(clock);
+
+        clock.addAndGet(HostCircuitBreaker.OPEN_DURATION.toNanos());
+        breaker.acquire();
+        breaker.onSuccess();
+
+        assertThat(breaker.state(), is(HostCircuitBreaker.State.CLOSED));
+        // The failure count starts over: one more failure does not open it
+        breaker.onFailure(UNREACHABLE);
+        assertDoesNotThrow(breaker::acquire);
+    }
+
+    @Test
+    void nonTransientErrorsCountAsSuccess() throws Exception {
+        HostCircuitBreaker breaker = new HostCircuitBreaker(new AtomicLong()::get);
+
+        for (int i = 0; i < HostCircuitBreaker.FAILURE_THRESHOLD - 1; i++) {
+            breaker.onFailure(UNREACHABLE);
+        }
+        breaker.onFailure(new HypervisorException(ErrorNumber.VIR_ERR_AUTH_FAILED, "Authentication failed"));
+        breaker.onFailure(UNREACHABLE);
+
+        assertThat(breaker.state(), is(HostCircuitBreaker.State.CLOSED));
+        assertDoesNotThrow(breaker::acquire);
+    }
+
+    @Test
+    void idleClosedBreakersAreEvicted() throws Exception {
+        HostCircuitBreaker idle = HostCircuitBreaker.of("test:///idle-breaker");
+        HostCircuitBreaker open = HostCircuitBreaker.of("test:///open-breaker");
+        for (int i = 0; i < HostCircuitBreaker.FAILURE_THRESHOLD; i++) {
+            open.onFailure(UNREACHABLE);
+        }
+
+        HostCircuitBreaker.evictIdle(System.nanoTime() + HostCircuitBreaker.IDLE_EVICTION.toNanos() + 1);
+
+        assertThat(HostCircuitBreaker.of("test:///idle-breaker"), not(sameInstance(idle)));
+        assertThat(HostCircuitBreaker.of("test:///open-breaker"), sameInstance(open));
+    }
+
+    private static HostCircuitBreaker opened(AtomicLong clock) throws Exception {
+        HostCircuitBreaker breaker = new HostCircuitBreaker(clock::get);
+        for (int i = 0; i < HostCircuitBreaker.FAILURE_THRESHOLD; i++) {
+            breaker.acquire();
+            breaker.onFailure(UNREACHABLE);
+        }
+        return breaker;
+    }
+}
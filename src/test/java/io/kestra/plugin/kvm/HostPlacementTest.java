@@ -0,0 +1,129 @@
+package io.kestra.plugin.kvm;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class HostPlacementTest {
+    private static final long GIB_KIB = 1024L * 1024;
+
+    private static final long GIB = 1024L * 1024 * 1024;
+
+    @Test
+    void leastLoadedPicksLowestAllocationRatio() {
+        HostSnapshot busy = host("busy", 16, 64, 48, 12, 6);
+        HostSnapshot idle = host("idle", 16, 64, 16, 4, 2);
+
+        HostSnapshot chosen = HostPlacement.choose(List.of(busy, idle), null, PlacementStrategy.LEAST_LOADED, 2, 2 * GIB_KIB, 0L);
+
+        assertThat(chosen.getUri(), is(idle.getUri()));
+    }
+
+    @Test
+    void binPackFillsFullestHostThatFits() {
+        HostSnapshot full = host("full", 16, 64, 62, 30, 15);
+        HostSnapshot nearlyFull = host("nearly-full", 16, 64, 56, 28, 14);
+        HostSnapshot empty = host("empty", 16, 64, 0, 0, 0);
+
+        HostSnapshot chosen = HostPlacement.choose(List.of(full, nearlyFull, empty), null, PlacementStrategy.BIN_PACK, 2, 4 * GIB_KIB, 0L);
+
+        // The fullest host lacks the 4 GiB of memory, so the next fullest is chosen
+        assertThat(chosen.getUri(), is(nearlyFull.getUri()));
+    }
+
+    @Test
+    void spreadPicksHostRunningFewestDomains() {
+        HostSnapshot crowded = host("crowded", 64, 256, 20, 20, 20);
+        HostSnapshot quiet = host("quiet", 8, 32, 20, 8, 3);
+
+        HostSnapshot chosen = HostPlacement.choose(List.of(crowded, quiet), null, PlacementStrategy.SPREAD, 1, GIB_KIB, 0L);
+
+        assertThat(chosen.getUri(), is(quiet.getUri()));
+    }
+
+    @Test
+    void burstIsSpreadByReservations() {
+        List<HostSnapshot> hosts = List.of(host("a", 16, 64, 0, 0, 0), host("b", 16, 64, 0, 0, 0), host("c", 16, 64, 0, 0, 0));
+
+        List<String> placements = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            placements.add(HostPlacement.choose(hosts, null, PlacementStrategy.SPREAD, 2, 4 * GIB_KIB, 0L).getUri());
+        }
+
+        for (HostSnapshot host : hosts) {
+            assertThat(host.getUri(), placements.stream().filter(host.getUri()::equals).count(), is(2L));
+        }
+    }
+
+    @Test
+    void vcpusMustStayWithinOvercommit() {
+        HostSnapshot small = host("small", 4, 64, 0, 0, 0);
+        HostSnapshot overcommitted = host("overcommitted", 16, 64, 0, 60, 10);
+        HostSnapshot roomy = host("roomy", 16, 64, 48, 8, 4);
+
+        // The small host lacks CPUs for the domain and the overcommitted one would exceed 4 vCPUs per CPU
+        HostSnapshot chosen = HostPlacement.choose(List.of(small, overcommitted, roomy), null, PlacementStrategy.LEAST_LOADED, 8, GIB_KIB, 0L);
+        assertThat(chosen.getUri(), is(roomy.getUri()));
+
+        assertThrows(IllegalStateException.class, () -> HostPlacement.choose(List.of(small), null, PlacementStrategy.SPREAD, 8, GIB_KIB, 0L));
+    }
+
+    @Test
+    void poolMustHoldRequiredBytes() {
+        HostSnapshot small = host("small-pool", 16, 64, 0, 0, 0).toBuilder().poolAvailableBytes(10 * GIB).build();
+        HostSnapshot large = host("large-pool", 16, 64, 32, 8, 4).toBuilder().poolAvailableBytes(100 * GIB).build();
+
+        HostSnapshot chosen = HostPlacement.choose(List.of(small, large), "default", PlacementStrategy.LEAST_LOADED, 2, GIB_KIB, 20 * GIB);
+        assertThat(chosen.getUri(), is(large.getUri()));
+
+        // Only 80 GiB of the large pool are left once the first domain has reserved its space
+        IllegalStateException e = assertThrows(
+            IllegalStateException.class,
+            () -> HostPlacement.choose(List.of(small, large), "default", PlacementStrategy.LEAST_LOADED, 2, GIB_KIB, 90 * GIB)
+        );
+        assertThat(e.getMessage(), containsString("bytes in pool default"));
+    }
+
+    @Test
+    void emptyPoolNeverFits() {
+        HostSnapshot full = host("empty-pool", 16, 64, 0, 0, 0).toBuilder().poolAvailableBytes(0L).build();
+
+        assertThrows(IllegalStateException.class, () -> HostPlacement.choose(List.of(full), "default", PlacementStrategy.SPREAD, 1, GIB_KIB, 0L));
+    }
+
+    @Test
+    void releaseGivesBackTheReservation() {
+        HostSnapshot a = host("release-a", 16, 64, 0, 0, 0);
+        HostSnapshot b = host("release-b", 16, 64, 0, 0, 0);
+
+        HostSnapshot chosen = HostPlacement.choose(List.of(a, b), null, PlacementStrategy.SPREAD, 2, 4 * GIB_KIB, 0L);
+        HostPlacement.release(chosen, null, 2, 4 * GIB_KIB, 0L);
+
+        // Without the release, the other host would now run fewer domains
+        HostSnapshot next = HostPlacement.choose(List.of(a, b), null, PlacementStrategy.SPREAD, 2, 4 * GIB_KIB, 0L);
+        assertThat(next.getUri(), is(chosen.getUri()));
+        assertThat(next.getActiveDomains(), is(0));
+        assertThat(next.getFreeMemoryKiB(), is(64 * GIB_KIB));
+    }
+
+    private static HostSnapshot host(String name, int cpus, long memoryGiB, long allocatedMemoryGiB, int allocatedVcpus, int activeDomains) {
+        return HostSnapshot.builder()
+            .uri("test:///" + name + "-" + UUID.randomUUID())
+            .cpus(cpus)
+            .memoryKiB(memoryGiB * GIB_KIB)
+            .freeMemoryKiB((memoryGiB - allocatedMemoryGiB) * GIB_KIB)
+            .allocatedVcpus(allocatedVcpus)
+            .allocatedMemoryKiB(allocatedMemoryGiB * GIB_KIB)
+            .activeDomains(activeDomains)
+            .capturedAt(Instant.now())
+            .build();
+    }
+}
@@ -0,0 +1,112 @@
+package io.kestra.plugin.kvm;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.libvirt.DomainInfo.DomainState;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.sameInstance;
+
+class HostWatcherTest {
+    private static final Duration LEASE = Duration.ofMinutes(1);
+
+    @Test
+    void subscribersShareOneBulkPoll() throws Exception {
+        try (SimulatedHypervisor hypervisor = fleet(100)) {
+            Map<String, String> first = HostWatcher.states(hypervisor.uri(), "first", LEASE, Duration.ofMinutes(1));
+            Map<String, String> second = HostWatcher.states(hypervisor.uri(), "second", LEASE, Duration.ofMinutes(1));
+
+            assertThat(first.size(), is(100));
+            assertThat(first.get("vm-1"), is("VIR_DOMAIN_RUNNING"));
+            assertThat(second, sameInstance(first));
+            assertThat(hypervisor.calls("domainStates"), is(1));
+            assertThat(hypervisor.calls("state"), is(0));
+        }
+    }
+
+    @Test
+    void staleSnapshotIsPolledAgain() throws Exception {
+        try (SimulatedHypervisor hypervisor = fleet(3)) {
+            HostWatcher.states(hypervisor.uri(), "subscriber", LEASE, Duration.ofMillis(10));
+            hypervisor.domain("vm-1").destroy();
+            Thread.sleep(30);
+
+            Map<String, String> states = HostWatcher.states(hypervisor.uri(), "subscriber", LEASE, Duration.ofMillis(10));
+
+            assertThat(states.get("vm-1"), is("VIR_DOMAIN_SHUTOFF"));
+            assertThat(hypervisor.calls("domainStates"), is(2));
+        }
+    }
+
+    @Test
+    void slowPollBlocksNeitherSweeperNorOtherHosts() throws Exception {
+        try (
+            SimulatedHypervisor slow = fleet(3).latency("domainStates", SimulatedHypervisor.Latency.fixed(Duration.ofMillis(500)));
+            SimulatedHypervisor fast = fleet(3)
+        ) {
+            CompletableFuture<Map<String, String>> polling = CompletableFuture.supplyAsync(() -> states(slow, "poller"));
+            Thread.sleep(100);
+
+            long start = System.nanoTime();
+            HostWatcher.sweep();
+            assertThat(fast.uri(), states(fast, "other").size(), is(3));
+            assertThat(System.nanoTime() - start, lessThan(TimeUnit.MILLISECONDS.toNanos(250)));
+
+            // A second subscriber of the slow host waits for the poll in flight instead of starting another one
+            Map<String, String> shared = states(slow, "waiter");
+            assertThat(shared, sameInstance(polling.get()));
+            assertThat(slow.calls("domainStates"), is(1));
+        }
+    }
+
+    @Test
+    void watcherIsClosedOnceLeasesExpire() throws Exception {
+        try (SimulatedHypervisor hypervisor = fleet(3)) {
+            HostWatcher.states(hypervisor.uri(), "subscriber", Duration.ofMillis(1), Duration.ofMinutes(1));
+            Thread.sleep(10);
+            HostWatcher.sweep();
+
+            // The snapshot went away with the watcher, so the next subscriber polls again
+            HostWatcher.states(hypervisor.uri(), "subscriber", LEASE, Duration.ofMinutes(1));
+            assertThat(hypervisor.calls("domainStates"), is(2));
+        }
+    }
+
+    @Test
+    void expiredLeaseForgetsSubscriberState() throws Exception {
+        try (SimulatedHypervisor hypervisor = fleet(3)) {
+            AdaptiveInterval.of("expiring").update(Map.of("vm-0", "VIR_DOMAIN_RUNNING"), false, Duration.ofSeconds(1), Duration.ofMinutes(1), 2.0);
+            AdaptiveInterval.of("staying").update(Map.of("vm-0", "VIR_DOMAIN_RUNNING"), false, Duration.ofSeconds(1), Duration.ofMinutes(1), 2.0);
+            HostWatcher.states(hypervisor.uri(), "expiring", Duration.ofMillis(1), Duration.ofMinutes(1));
+            HostWatcher.states(hypervisor.uri(), "staying", LEASE, Duration.ofMinutes(1));
+            Thread.sleep(10);
+
+            HostWatcher.sweep();
+
+            assertThat(AdaptiveInterval.current("expiring").isPresent(), is(false));
+            assertThat(AdaptiveInterval.current("staying").isPresent(), is(true));
+        }
+    }
+
+    private static SimulatedHypervisor fleet(int domains) {
+        SimulatedHypervisor hypervisor = SimulatedHypervisor.create(42);
+        for (int i = 0; i < domains; i++) {
+            hypervisor.domain("vm-" + i, DomainState.VIR_DOMAIN_RUNNING);
+        }
+        return hypervisor;
+    }
+
+    private static Map<String, String> states(SimulatedHypervisor hypervisor, String subscriber) {
+        try {
+            return HostWatcher.states(hypervisor.uri(), subscriber, LEASE, Duration.ofMinutes(1));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
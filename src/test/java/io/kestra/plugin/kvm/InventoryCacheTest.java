@@ -0,0 +1,54 @@
+package io.kestra.plugin.kvm;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+class InventoryCacheTest {
+    @Test
+    void entriesExpireAfterTheReaderTtl() throws Exception {
+        String uri = "test:///" + UUID.randomUUID();
+        InventoryCache.put(uri, "web", "VIR_DOMAIN_RUNNING");
+
+        assertThat(InventoryCache.get(uri, "web", Duration.ofMinutes(1)).orElseThrow().state(), is("VIR_DOMAIN_RUNNING"));
+
+        Thread.sleep(20);
+        assertThat(InventoryCache.get(uri, "web", Duration.ofMillis(10)).isPresent(), is(false));
+        // An expired entry is dropped, whatever the TTL of the next reader
+        assertThat(InventoryCache.get(uri, "web", Duration.ofMinutes(1)).isPresent(), is(false));
+    }
+
+    @Test
+    void invalidationIsPerHostAndDomain() {
+        String uri = "test:///" + UUID.randomUUID();
+        String other = "test:///" + UUID.randomUUID();
+        InventoryCache.put(uri, "web", "VIR_DOMAIN_RUNNING");
+        InventoryCache.put(uri, "db", "VIR_DOMAIN_RUNNING");
+        InventoryCache.put(other, "web", "VIR_DOMAIN_RUNNING");
+
+        InventoryCache.invalidate(uri, "web");
+
+        assertThat(InventoryCache.get(uri, "web", Duration.ofMinutes(1)).isPresent(), is(false));
+        assertThat(InventoryCache.get(uri, "db", Duration.ofMinutes(1)).isPresent(), is(true));
+        assertThat(InventoryCache.get(other, "web", Duration.ofMinutes(1)).isPresent(), is(true));
+    }
+
+    @Test
+    void leastRecentlyUsedEntryIsEvicted() {
+        String uri = "test:///" + UUID.randomUUID();
+        for (int i = 0; i < InventoryCache.MAX_ENTRIES_PER_HOST; i++) {
+            InventoryCache.put(uri, "vm-" + i, "VIR_DOMAIN_RUNNING");
+        }
+        // Reading vm-0 makes vm-1 the eldest entry
+        InventoryCache.get(uri, "vm-0", Duration.ofMinutes(1));
+
+        InventoryCache.put(uri, "vm-new", "VIR_DOMAIN_RUNNING");
+
+        assertThat(InventoryCache.get(uri, "vm-0", Duration.ofMinutes(1)).isPresent(), is(true));
+        assertThat(InventoryCache.get(uri, "vm-1", Duration.ofMinutes(1)).isPresent(), is(false));
+    }
+}
@@ -0,0 +1,164 @@
+package io.kestra.plugin.kvm;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class KvmExecutorsTest {
+    @Test
+    void outcomesFollowItemOrder() throws Exception {
+        List<KvmExecutors.Outcome<Integer, Integer>> outcomes = KvmExecutors.fanOut(List.of(3, 0, 2), 3, item -> {
+            Thread.sleep(item * 10L);
+            if (item == 0) {
+                throw new IllegalStateException("zero");
+            }
+            return item * 2;
+        });
+
+        assertThat(outcomes.get(0).value(), is(6));
+        assertThat(outcomes.get(1).isSuccess(), is(false));
+        assertThat(outcomes.get(1).error().getMessage(), is("zero"));
+        assertThat(outcomes.get(2).value(), is(4));
+    }
+
+    @Test
+    void neverExceedsParallelism() throws Exception {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+
+        KvmExecutors.fanOut(IntStream.range(0, 40).boxed().toList(), 4, item -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(5);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+            return item;
+        });
+
+        assertThat(maxInFlight.get(), is(4));
+    }
+
+    @Test
+    void parallelismIsCappedByThePool() throws Exception {
+        int items = KvmExecutors.MAX_NATIVE_THREADS * 2;
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+
+        List<KvmExecutors.Outcome<Integer, Integer>> outcomes = KvmExecutors.fanOut(IntStream.range(0, items).boxed().toList(), items, item -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(20);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+            return item;
+        });
+
+        assertThat(outcomes.stream().allMatch(KvmExecutors.Outcome::isSuccess), is(true));
+        assertThat(maxInFlight.get() <= KvmExecutors.MAX_NATIVE_THREADS, is(true));
+    }
+
+    @Test
+    void interruptCancelsRunningAndQueuedCalls() throws Exception {
+        CountDownLatch started = new CountDownLatch(2);
+        AtomicInteger interrupted = new AtomicInteger();
+        AtomicInteger starts = new AtomicInteger();
+
+        CompletableFuture<Object> result = new CompletableFuture<>();
+        Thread caller = new Thread(() -> {
+            try {
+                result.complete(KvmExecutors.fanOut(List.of(1, 2, 3, 4, 5), 2, item -> {
+                    starts.incrementAndGet();
+                    started.countDown();
+                    try {
+                        Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+                    } catch (InterruptedException e) {
+                        interrupted.incrementAndGet();
+                        throw e;
+                    }
+                    return item;
+                }));
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        });
+        caller.start();
+
+        assertThat(started.await(5, TimeUnit.SECONDS), is(true));
+        caller.interrupt();
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+        assertThat(e.getCause(), instanceOf(InterruptedException.class));
+
+        Thread.sleep(100);
+        assertThat(interrupted.get(), is(2));
+        assertThat(starts.get(), is(2));
+    }
+
+    @Test
+    void nestedFanOutInsideSaturatedFanOutCompletes() {
+        int items = KvmExecutors.MAX_NATIVE_THREADS * 2;
+
+        List<KvmExecutors.Outcome<Integer, Integer>> outcomes = assertTimeoutPreemptively(
+            Duration.ofSeconds(30),
+            () -> KvmExecutors.fanOut(IntStream.range(0, items).boxed().toList(), items, item -> {
+                Thread.sleep(5);
+                return KvmExecutors.fanOut(List.of(1, 2, 3), 3, inner -> inner).stream().mapToInt(KvmExecutors.Outcome::value).sum() + item;
+            })
+        );
+
+        assertThat(outcomes.stream().allMatch(KvmExecutors.Outcome::isSuccess), is(true));
+        assertThat(outcomes.get(items - 1).value(), is(items - 1 + 6));
+    }
+
+    @Test
+    void forkedItemsWaitWithoutHoldingNativeThreads() {
+        int items = KvmExecutors.MAX_NATIVE_THREADS * 2;
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+
+        // Every item monitors a long call and fans out while it runs, as a migration does
+        List<KvmExecutors.Outcome<Integer, Integer>> outcomes = assertTimeoutPreemptively(
+            Duration.ofSeconds(30),
+            () -> KvmExecutors.fork(IntStream.range(0, items).boxed().toList(), items, item -> {
+                Future<Integer> job = KvmExecutors.submit(() -> {
+                    maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                    try {
+                        Thread.sleep(20);
+                    } finally {
+                        inFlight.decrementAndGet();
+                    }
+                    return item;
+                });
+                int inner = KvmExecutors.fanOut(List.of(1, 2), 2, value -> value).size();
+                return job.get() + inner;
+            })
+        );
+
+        assertThat(outcomes.stream().allMatch(KvmExecutors.Outcome::isSuccess), is(true));
+        assertThat(outcomes.get(0).value(), is(2));
+        assertThat(maxInFlight.get() <= KvmExecutors.MAX_NATIVE_THREADS, is(true));
+    }
+
+    @Test
+    void emptyItemsRunNothing() throws Exception {
+        assertThat(KvmExecutors.fanOut(List.<Integer>of(), 4, item -> null).isEmpty(), is(true));
+        assertThat(KvmExecutors.fanOut(List.of(1), 0, item -> null).get(0).value(), nullValue());
+    }
+}
@@ -1,19 +1,33 @@
 package io.kestra.plugin.kvm;
 
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.List;
+import java.util.Map;
+
 import org.junit.jupiter.api.Test;
+import org.libvirt.DomainInfo.DomainState;
+import org.libvirt.Error.ErrorNumber;
 
 import io.kestra.core.junit.annotations.KestraTest;
 import io.kestra.core.models.property.Property;
 import io.kestra.core.runners.RunContext;
 import io.kestra.core.runners.RunContextFactory;
+import io.kestra.core.utils.TestsUtils;
+import io.kestra.plugin.kvm.remote.RemoteConnection;
+import io.kestra.plugin.kvm.remote.RemoteStubServer;
 
 import jakarta.inject.Inject;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 @KestraTest
 class ListVmsTest {
@@ -53,4 +67,117 @@ class ListVmsTest {
         // Verify filter
         output.getVms().forEach(vm -> assertThat(vm.getState(), is("VIR_DOMAIN_RUNNING")));
     }
+
+    @Test
+    void listWithRemoteBackend() throws Exception {
+        RunContext runContext = runContextFactory.of();
+
+        try (RemoteStubServer server = new RemoteStubServer()
+                .domain("remote-web", DomainState.VIR_DOMAIN_RUNNING)
+                .domain("remote-db", DomainState.VIR_DOMAIN_SHUTOFF)) {
+            ListVms task = ListVms.builder()
+                .uri(Property.ofValue(server.uri()))
+                .backend(Property.ofValue(LibvirtBackend.REMOTE))
+                .statusFilter(Property.ofValue("VIR_DOMAIN_SHUTOFF"))
+                .build();
+
+            ListVms.Output output = task.run(runContext);
+
+            assertThat(output.getVms(), hasSize(1));
+            assertThat(output.getVms().get(0).getName(), is("remote-db"));
+        }
+    }
+
+    @Test
+    void deltaReportsVmLeavingFilterAsChanged() throws Exception {
+        try (RemoteStubServer server = new RemoteStubServer()
+                .domain("delta-web-1", DomainState.VIR_DOMAIN_RUNNING)
+                .domain("delta-web-2", DomainState.VIR_DOMAIN_RUNNING)
+                .domain("delta-db", DomainState.VIR_DOMAIN_SHUTOFF)) {
+            ListVms task = ListVms.builder()
+                .uri(Property.ofValue(server.uri()))
+                .backend(Property.ofValue(LibvirtBackend.REMOTE))
+                .statusFilter(Property.ofValue("VIR_DOMAIN_RUNNING"))
+                .delta(Property.ofValue(true))
+                .build();
+            RunContext runContext = TestsUtils.mockRunContext(runContextFactory, task, Map.of());
+
+            ListVms.Output first = task.run(runContext);
+            assertThat(first.getAdded().stream().map(ListVms.VmEntry::getName).toList(), containsInAnyOrder("delta-web-1", "delta-web-2"));
+
+            try (RemoteConnection connection = RemoteConnection.open(server.uri())) {
+                RemoteConnection.await(connection.destroy(RemoteConnection.await(connection.lookupByName("delta-web-2"))));
+            }
+
+            ListVms.Output second = task.run(runContext);
+            assertThat(second.getAdded(), empty());
+            assertThat(second.getRemoved(), empty());
+            assertThat(second.getChanged(), hasSize(1));
+            assertThat(second.getChanged().get(0).getName(), is("delta-web-2"));
+            assertThat(second.getChanged().get(0).getState(), is("VIR_DOMAIN_SHUTOFF"));
+
+            ListVms.Output third = task.run(runContext);
+            assertThat(third.getVms(), empty());
+            assertThat(third.getRemoved(), empty());
+        }
+    }
+
+    @Test
+    void deltaStateIsKeptPerTask() throws Exception {
+        try (RemoteStubServer server = new RemoteStubServer()
+                .domain("per-task-web", DomainState.VIR_DOMAIN_RUNNING)
+                .domain("per-task-db", DomainState.VIR_DOMAIN_SHUTOFF)) {
+            ListVms first = ListVms.builder()
+                .id("inventory_a")
+                .type(ListVms.class.getName())
+                .uri(Property.ofValue(server.uri()))
+                .backend(Property.ofValue(LibvirtBackend.REMOTE))
+                .delta(Property.ofValue(true))
+                .build();
+            ListVms second = ListVms.builder()
+                .id("inventory_b")
+                .type(ListVms.class.getName())
+                .uri(Property.ofValue(server.uri()))
+                .backend(Property.ofValue(LibvirtBackend.REMOTE))
+                .delta(Property.ofValue(true))
+                .build();
+
+            assertThat(first.run(TestsUtils.mockRunContext(runContextFactory, first, Map.of())).getAdded(), hasSize(2));
+            assertThat(second.run(TestsUtils.mockRunContext(runContextFactory, second, Map.of())).getAdded(), hasSize(2));
+            assertThat(first.run(TestsUtils.mockRunContext(runContextFactory, first, Map.of())).getAdded(), empty());
+        }
+    }
+
+    @Test
+    void fingerprintsIgnoreUnexpectedValues() {
+        Map<String, Map<String, String>> fingerprints = ListVms.fingerprints(Map.of(
+            "uuid-1", Map.of("name", "web", "state", "VIR_DOMAIN_RUNNING", "xmlHash", "abc"),
+            "uuid-2", "not a fingerprint"
+        ));
+
+        assertThat(fingerprints, is(Map.of("uuid-1", Map.of("name", "web", "state", "VIR_DOMAIN_RUNNING", "xmlHash", "abc"))));
+        assertThat(ListVms.fingerprints(List.of("unexpected")), is(Map.of()));
+    }
+
+    @Test
+    void failsFastWhileHostIsDown() throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            port = socket.getLocalPort();
+        }
+
+        ListVms task = ListVms.builder()
+            .uri(Property.ofValue("qemu+tcp://127.0.0.1:" + port + "/system"))
+            .backend(Property.ofValue(LibvirtBackend.REMOTE))
+            .build();
+
+        for (int i = 0; i < HostCircuitBreaker.FAILURE_THRESHOLD; i++) {
+            assertThrows(IOException.class, () -> task.run(runContextFactory.of()));
+        }
+
+        HypervisorException e = assertThrows(HypervisorException.class, () -> task.run(runContextFactory.of()));
+        assertThat(e.getCode(), is(ErrorNumber.VIR_ERR_NO_CONNECT));
+        assertThat(e.getMessage(), containsString("Host is unavailable"));
+        assertThat(HostCircuitBreaker.of("qemu+tcp://127.0.0.1:" + port + "/system").state(), is(HostCircuitBreaker.State.OPEN));
+    }
 }
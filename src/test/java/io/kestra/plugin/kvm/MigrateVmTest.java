@@ -0,0 +1,91 @@
+package io.kestra.plugin.kvm;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.kestra.core.junit.annotations.KestraTest;
+import io.kestra.core.models.property.Property;
+import io.kestra.core.runners.RunContext;
+import io.kestra.core.runners.RunContextFactory;
+
+import jakarta.inject.Inject;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@KestraTest
+class MigrateVmTest {
+    @Inject
+    private RunContextFactory runContextFactory;
+
+    @Test
+    void requiresTargets() {
+        RunContext runContext = runContextFactory.of();
+
+        MigrateVm task = MigrateVm.builder()
+            .uri(Property.ofValue("test:///default"))
+            .destinationUris(Property.ofValue(List.of("test:///default")))
+            .build();
+
+        assertThrows(IllegalArgumentException.class, () -> task.run(runContext));
+    }
+
+    @Test
+    void rejectsSourceAsOnlyDestination() {
+        RunContext runContext = runContextFactory.of();
+
+        MigrateVm task = MigrateVm.builder()
+            .uri(Property.ofValue("test:///default"))
+            .destinationUris(Property.ofValue(List.of("test:///default")))
+            .evacuate(Property.ofValue(true))
+            .build();
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> task.run(runContext));
+        assertThat(e.getMessage(), containsString("source host"));
+    }
+
+    @Test
+    void reportsUnsupportedMigration(@TempDir Path directory) throws Exception {
+        RunContext runContext = runContextFactory.of();
+        String destination = TestDriverNode.builder().domains(0).build().write(directory.resolve("destination.xml"));
+
+        // The source is excluded from the destinations, and the test driver does not implement migration, so the
+        // failure is reported per domain with the destination it was attempted on.
+        MigrateVm task = MigrateVm.builder()
+            .uri(Property.ofValue("test:///default"))
+            .destinationUris(Property.ofValue(List.of("test:///default", destination)))
+            .evacuate(Property.ofValue(true))
+            .failOnError(Property.ofValue(false))
+            .build();
+
+        MigrateVm.Output output = task.run(runContext);
+
+        assertThat(output.getMigrations(), hasSize(1));
+        assertThat(output.getMigrations().get(0).getName(), is("test"));
+        assertThat(output.getMigrations().get(0).getDestination(), is(destination));
+        assertThat(output.getMigrations().get(0).isSuccess(), is(false));
+        assertThat(output.getMigrations().get(0).getError(), notNullValue());
+    }
+
+    @Test
+    void failsTaskWhenMigrationFails(@TempDir Path directory) throws Exception {
+        RunContext runContext = runContextFactory.of();
+        String destination = TestDriverNode.builder().domains(0).build().write(directory.resolve("destination.xml"));
+
+        MigrateVm task = MigrateVm.builder()
+            .uri(Property.ofValue("test:///default"))
+            .name(Property.ofValue("test"))
+            .destinationUris(Property.ofValue(List.of(destination)))
+            .build();
+
+        Exception e = assertThrows(Exception.class, () -> task.run(runContext));
+        assertThat(e.getMessage(), is("Failed to migrate 1 of 1 VM(s)"));
+    }
+}
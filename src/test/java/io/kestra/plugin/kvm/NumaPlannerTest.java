@@ -0,0 +1,72 @@
+package io.kestra.plugin.kvm;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class NumaPlannerTest {
+    private static final long GIB_KIB = 1024L * 1024;
+
+    @Test
+    void bestFitKeepsLargerNodeFree() {
+        NumaPlanner.Cell large = new NumaPlanner.Cell(0, List.of(0, 1, 2, 3, 4, 5), 32 * GIB_KIB);
+        NumaPlanner.Cell small = new NumaPlanner.Cell(1, List.of(8, 9, 10), 16 * GIB_KIB);
+
+        NumaPlanner.Plan plan = NumaPlanner.plan(List.of(large, small), 2, 4 * GIB_KIB);
+
+        assertThat(plan.nodes(), contains(1));
+        assertThat(plan.cpus(), contains(8, 9));
+        assertThat(plan.nodeset(), is("1"));
+    }
+
+    @Test
+    void nodeWithoutEnoughMemoryIsSkipped() {
+        NumaPlanner.Cell small = new NumaPlanner.Cell(0, List.of(0, 1), 2 * GIB_KIB);
+        NumaPlanner.Cell large = new NumaPlanner.Cell(1, List.of(8, 9, 10, 11), 32 * GIB_KIB);
+
+        NumaPlanner.Plan plan = NumaPlanner.plan(List.of(small, large), 2, 4 * GIB_KIB);
+
+        assertThat(plan.nodes(), contains(1));
+        assertThat(plan.cpus(), contains(8, 9));
+    }
+
+    @Test
+    void spansFewestNodesWhenNoneFits() {
+        NumaPlanner.Cell first = new NumaPlanner.Cell(0, List.of(0, 1), 8 * GIB_KIB);
+        NumaPlanner.Cell second = new NumaPlanner.Cell(1, List.of(8, 9, 10), 8 * GIB_KIB);
+        NumaPlanner.Cell third = new NumaPlanner.Cell(2, List.of(16), 8 * GIB_KIB);
+
+        NumaPlanner.Plan plan = NumaPlanner.plan(List.of(first, second, third), 5, 12 * GIB_KIB);
+
+        assertThat(plan.nodes(), contains(0, 1));
+        assertThat(plan.cpus(), contains(8, 9, 10, 0, 1));
+        assertThat(plan.nodeset(), is("0,1"));
+    }
+
+    @Test
+    void releaseGivesBackReservedCpus() {
+        NumaPlanner.Plan kept = new NumaPlanner.Plan(List.of(0), List.of(0, 1));
+        NumaPlanner.Plan abandoned = new NumaPlanner.Plan(List.of(0), List.of(2, 3));
+        NumaPlanner.reserve("test:///numa-release", kept);
+        NumaPlanner.reserve("test:///numa-release", abandoned);
+
+        NumaPlanner.release("test:///numa-release", abandoned);
+
+        assertThat(NumaPlanner.reserved("test:///numa-release"), containsInAnyOrder(0, 1));
+    }
+
+    @Test
+    void failsWhenHostHasTooFewFreeCpus() {
+        NumaPlanner.Cell cell = new NumaPlanner.Cell(0, List.of(0, 1), 64 * GIB_KIB);
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> NumaPlanner.plan(List.of(cell), 4, GIB_KIB));
+        assertThat(e.getMessage(), containsString("found 2 CPU(s)"));
+    }
+}
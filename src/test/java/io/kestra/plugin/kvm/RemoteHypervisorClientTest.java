@@ -0,0 +1,67 @@
+package io.kestra.plugin.kvm;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.libvirt.DomainInfo.DomainState;
+import org.libvirt.Error.ErrorNumber;
+
+import io.kestra.plugin.kvm.HypervisorClient.HypervisorDomain;
+import io.kestra.plugin.kvm.remote.RemoteConnection;
+import io.kestra.plugin.kvm.remote.RemoteStubServer;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RemoteHypervisorClientTest {
+    @Test
+    void readsDomainsAndStates() throws Exception {
+        try (RemoteStubServer server = new RemoteStubServer()
+                .domain("web-1", DomainState.VIR_DOMAIN_RUNNING)
+                .domain("db-1", DomainState.VIR_DOMAIN_SHUTOFF);
+             RemoteConnection remote = RemoteConnection.open(server.uri())) {
+            HypervisorClient client = new RemoteHypervisorClient(remote);
+
+            assertThat(client.domainNames(), containsInAnyOrder("web-1", "db-1"));
+            assertThat(client.domainStates(), is(Map.of("web-1", DomainState.VIR_DOMAIN_RUNNING, "db-1", DomainState.VIR_DOMAIN_SHUTOFF)));
+
+            HypervisorDomain db = client.domain("db-1");
+            assertThat(client.domainUuids().get("db-1"), is(db.uuid()));
+            assertThat(db.state(), is(DomainState.VIR_DOMAIN_SHUTOFF));
+        }
+    }
+
+    @Test
+    void changesDomainLifecycle() throws Exception {
+        try (RemoteStubServer server = new RemoteStubServer().domain("web-1", DomainState.VIR_DOMAIN_SHUTOFF);
+             RemoteConnection remote = RemoteConnection.open(server.uri())) {
+            HypervisorClient client = new RemoteHypervisorClient(remote);
+            HypervisorDomain domain = client.domain("web-1");
+
+            domain.create();
+            assertThat(domain.state(), is(DomainState.VIR_DOMAIN_RUNNING));
+
+            domain.destroy();
+            domain.undefine(1);
+
+            HypervisorException e = assertThrows(HypervisorException.class, () -> client.domain("web-1"));
+            assertThat(e.getCode(), is(ErrorNumber.VIR_ERR_NO_DOMAIN));
+        }
+    }
+
+    @Test
+    void unsupportedCallsReportNoSupport() throws Exception {
+        try (RemoteStubServer server = new RemoteStubServer().domain("web-1", DomainState.VIR_DOMAIN_RUNNING);
+             RemoteConnection remote = RemoteConnection.open(server.uri())) {
+            HypervisorClient client = new RemoteHypervisorClient(remote);
+
+            HypervisorException pool = assertThrows(HypervisorException.class, () -> client.pool("default"));
+            HypervisorException addresses = assertThrows(HypervisorException.class, () -> client.domain("web-1").addresses());
+
+            assertThat(pool.getCode(), is(ErrorNumber.VIR_ERR_NO_SUPPORT));
+            assertThat(addresses.getCode(), is(ErrorNumber.VIR_ERR_NO_SUPPORT));
+        }
+    }
+}
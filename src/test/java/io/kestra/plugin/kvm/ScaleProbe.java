@@ -0,0 +1,92 @@
+package io.kestra.plugin.kvm;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.function.LongSupplier;
+
+import io.kestra.core.serializers.JacksonMapper;
+
+/**
+ * Records wall time, peak heap, GC activity and, where the scenario can count them, hypervisor calls of the
+ * scenarios of a scale run, and writes them as JSON.
+ */
+final class ScaleProbe {
+    private static final long MIB = 1024 * 1024;
+
+    private final List<Measurement> measurements = new ArrayList<>();
+
+    /**
+     * Runs one scenario and records its measurement.
+     *
+     * @param scenario The name of the scenario in the report.
+     * @param action The scenario.
+     * @return The result of the scenario.
+     */
+    <T> T measure(String scenario, Callable<T> action) throws Exception {
+        return measure(scenario, null, action);
+    }
+
+    /**
+     * Runs one scenario and records its measurement, with the hypervisor calls it made.
+     *
+     * @param scenario The name of the scenario in the report.
+     * @param calls The running count of hypervisor calls, read before and after the scenario, or null when the
+     * scenario cannot count them.
+     * @param action The scenario.
+     * @return The result of the scenario.
+     */
+    synchronized <T> T measure(String scenario, LongSupplier calls, Callable<T> action) throws Exception {
+        List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+            .filter(pool -> pool.getType() == MemoryType.HEAP)
+            .toList();
+
+        // Start each scenario from a settled heap, so the peak is not inherited from the previous one.
+        System.gc();
+        heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+        long gcCount = gcCount();
+        long gcMillis = gcMillis();
+        long callCount = calls == null ? 0 : calls.getAsLong();
+        long start = System.nanoTime();
+
+        T result = action.call();
+
+        long wallMillis = (System.nanoTime() - start) / 1_000_000;
+        long peakHeap = heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+        Long rpcCalls = calls == null ? null : calls.getAsLong() - callCount;
+        measurements.add(new Measurement(scenario, wallMillis, peakHeap / MIB, gcCount() - gcCount, gcMillis() - gcMillis, rpcCalls));
+
+        return result;
+    }
+
+    List<Measurement> measurements() {
+        return List.copyOf(measurements);
+    }
+
+    void write(Path file) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        JacksonMapper.ofJson().writerWithDefaultPrettyPrinter().writeValue(file.toFile(), measurements);
+    }
+
+    private static long gcCount() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream().mapToLong(GarbageCollectorMXBean::getCollectionCount).sum();
+    }
+
+    private static long gcMillis() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream().mapToLong(GarbageCollectorMXBean::getCollectionTime).sum();
+    }
+
+    /**
+     * One scenario of the report; {@code rpcCalls} is null for scenarios that talk to libvirt through the native
+     * bindings directly, where calls are not counted.
+     */
+    record Measurement(String scenario, long wallMillis, long peakHeapMiB, long gcCount, long gcMillis, Long rpcCalls) {
+    }
+}
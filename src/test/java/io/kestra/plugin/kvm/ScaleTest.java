@@ -0,0 +1,271 @@
+package io.kestra.plugin.kvm;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.libvirt.DomainInfo.DomainState;
+
+import io.kestra.core.junit.annotations.KestraTest;
+import io.kestra.core.models.conditions.ConditionContext;
+import io.kestra.core.models.property.Property;
+import io.kestra.core.models.triggers.Trigger;
+import io.kestra.core.runners.RunContext;
+import io.kestra.core.runners.RunContextFactory;
+import io.kestra.core.utils.TestsUtils;
+import io.kestra.plugin.kvm.remote.RemoteStubServer;
+
+import jakarta.inject.Inject;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Runs every task and trigger against a generated test-driver host of fleet size and reports wall time, peak heap
+ * and GC activity per scenario, and the hypervisor calls of the scenarios that go through a
+ * {@link CountingHypervisorClient} or the remote protocol stub.
+ *
+ * <p>
+ * Excluded from the default test run; use {@code ./gradlew scaleTest}, sized with the {@code kvm.scale.domains},
+ * {@code kvm.scale.disksPerDomain}, {@code kvm.scale.pools} and {@code kvm.scale.volumesPerPool} system
+ * properties. The report is written to {@code kvm.scale.report}. The test driver gives each connection its own
+ * copy of the host, so every scenario starts from the generated state.
+ */
+@KestraTest
+@Tag("scale")
+class ScaleTest {
+    private static final int DOMAINS = Integer.getInteger("kvm.scale.domains", 1000);
+
+    private static final ScaleProbe PROBE = new ScaleProbe();
+
+    private static TestDriverNode host;
+
+    private static Path node;
+
+    private static String uri;
+
+    @Inject
+    private RunContextFactory runContextFactory;
+
+    @BeforeAll
+    static void generateHost() throws Exception {
+        host = TestDriverNode.builder()
+            .domains(DOMAINS)
+            .disksPerDomain(Integer.getInteger("kvm.scale.disksPerDomain", 2))
+            .pools(Integer.getInteger("kvm.scale.pools", 4))
+            .volumesPerPool(Integer.getInteger("kvm.scale.volumesPerPool", 100))
+            .build();
+        node = Files.createTempFile("kvm-scale-", ".xml");
+        uri = host.write(node);
+    }
+
+    @AfterAll
+    static void writeReport() throws Exception {
+        PROBE.write(Path.of(System.getProperty("kvm.scale.report", "build/reports/scale/results.json")));
+        Files.deleteIfExists(node);
+    }
+
+    @Test
+    void listVms() throws Exception {
+        RunContext runContext = runContextFactory.of();
+        ListVms task = ListVms.builder().uri(Property.ofValue(uri)).build();
+
+        ListVms.Output output = PROBE.measure("ListVms", () -> task.run(runContext));
+
+        assertThat(output.getVms(), hasSize(DOMAINS));
+    }
+
+    @Test
+    void listVmsRemote() throws Exception {
+        RunContext runContext = runContextFactory.of();
+
+        try (RemoteStubServer server = new RemoteStubServer()) {
+            allDomains().forEach(name -> server.domain(name, DomainState.VIR_DOMAIN_RUNNING));
+            ListVms task = ListVms.builder()
+                .uri(Property.ofValue(server.uri()))
+                .backend(Property.ofValue(LibvirtBackend.REMOTE))
+                .build();
+
+            ListVms.Output output = PROBE.measure("ListVms (REMOTE)", server::calls, () -> task.run(runContext));
+
+            assertThat(output.getVms(), hasSize(DOMAINS));
+        }
+    }
+
+    @Test
+    void listVmsDelta() throws Exception {
+        RunContext runContext = runContextFactory.of();
+        ListVms task = ListVms.builder()
+            .uri(Property.ofValue(uri))
+            .delta(Property.ofValue(true))
+            .stateKey(Property.ofValue("kvm_scale_inventory"))
+            .build();
+
+        PROBE.measure("ListVms delta (first run)", () -> task.run(runContext));
+        ListVms.Output output = PROBE.measure("ListVms delta (steady state)", () -> task.run(runContext));
+
+        assertThat(output.getVms(), empty());
+    }
+
+    @Test
+    void tuneVm() throws Exception {
+        RunContext runContext = runContextFactory.of();
+        TuneVm task = TuneVm.builder()
+            .uri(Property.ofValue(uri))
+            .names(Property.ofValue(allDomains()))
+            .maxParallelism(Property.ofValue(8))
+            .memoryMiB(Property.ofValue(512L))
+            .build();
+
+        TuneVm.Output output = PROBE.measure("TuneVm (all domains)", () -> task.run(runContext));
+
+        assertThat(output.getDomains(), hasSize(DOMAINS));
+    }
+
+    @Test
+    void stopAndStartVm() throws Exception {
+        RunContext runContext = runContextFactory.of();
+        String name = TestDriverNode.domainName(DOMAINS - 1);
+
+        try (LibvirtConnection connection = new LibvirtConnection(uri)) {
+            CountingHypervisorClient client = new CountingHypervisorClient(connection.client());
+            String countedUri = register(client);
+            try {
+                StopVm stop = StopVm.builder()
+                    .uri(Property.ofValue(countedUri))
+                    .name(Property.ofValue(name))
+                    .force(Property.ofValue(true))
+                    .waitForStopped(Property.ofValue(true))
+                    .build();
+                StartVm start = StartVm.builder()
+                    .uri(Property.ofValue(countedUri))
+                    .name(Property.ofValue(name))
+                    .waitForRunning(Property.ofValue(true))
+                    .build();
+
+                assertThat(PROBE.measure("StopVm", client::calls, () -> stop.run(runContext)).getState(), is("VIR_DOMAIN_SHUTOFF"));
+                assertThat(PROBE.measure("StartVm", client::calls, () -> start.run(runContext)).getState(), is("VIR_DOMAIN_RUNNING"));
+            } finally {
+                HypervisorClients.unregister(countedUri);
+            }
+        }
+    }
+
+    @Test
+    void createVm() throws Exception {
+        RunContext runContext = runContextFactory.of();
+        CreateVm task = CreateVm.builder()
+            .uri(Property.ofValue(uri))
+            .name(Property.ofValue("scale-new-vm"))
+            .xmlDefinition(Property.ofValue(
+                "<domain type='test'><name>scale-new-vm</name><memory unit='KiB'>131072</memory><os><type>hvm</type></os></domain>"
+            ))
+            .build();
+
+        PROBE.measure("CreateVm", () -> task.run(runContext));
+    }
+
+    @Test
+    void updateVm() throws Exception {
+        RunContext runContext = runContextFactory.of();
+        UpdateVm task = UpdateVm.builder()
+            .uri(Property.ofValue(uri))
+            .name(Property.ofValue(TestDriverNode.domainName(0)))
+            .xmlDefinition(Property.ofValue(host.domainXml(0).replace("1048576", "2097152")))
+            .build();
+
+        PROBE.measure("UpdateVm", () -> task.run(runContext));
+    }
+
+    @Test
+    void deleteVmWithStorage() throws Exception {
+        RunContext runContext = runContextFactory.of();
+
+        try (LibvirtConnection connection = new LibvirtConnection(uri)) {
+            CountingHypervisorClient client = new CountingHypervisorClient(connection.client());
+            String countedUri = register(client);
+            try {
+                DeleteVm task = DeleteVm.builder()
+                    .uri(Property.ofValue(countedUri))
+                    .name(Property.ofValue(TestDriverNode.domainName(0)))
+                    .deleteStorage(Property.ofValue(true))
+                    .build();
+
+                PROBE.measure("DeleteVm (with storage)", client::calls, () -> task.run(runContext));
+            } finally {
+                HypervisorClients.unregister(countedUri);
+            }
+        }
+    }
+
+    @Test
+    void exportAndImportVms() throws Exception {
+        RunContext runContext = runContextFactory.of();
+        ExportVms export = ExportVms.builder().uri(Property.ofValue(uri)).build();
+
+        ExportVms.Output exported = PROBE.measure("ExportVms", () -> export.run(runContext));
+
+        ImportVms importVms = ImportVms.builder()
+            .uri(Property.ofValue(uri))
+            .from(Property.ofValue(exported.getUri().toString()))
+            .maxParallelism(Property.ofValue(16))
+            .build();
+
+        ImportVms.Output imported = PROBE.measure("ImportVms (unchanged host)", () -> importVms.run(runContext));
+
+        assertThat(exported.getCount(), is(DOMAINS));
+        assertThat(imported.getSkipped(), is(DOMAINS));
+    }
+
+    @Test
+    void vmEventTrigger() throws Exception {
+        VmEventTrigger trigger = VmEventTrigger.builder()
+            .id("scale-vm-events")
+            .type(VmEventTrigger.class.getName())
+            .uri(Property.ofValue(uri))
+            .names(Property.ofValue(List.of("vm-*")))
+            .mode(Property.ofValue(VmEventTrigger.Mode.ON_CHANGE))
+            .build();
+        Map.Entry<ConditionContext, Trigger> context = TestsUtils.mockTrigger(runContextFactory, trigger);
+
+        PROBE.measure("VmEventTrigger (first poll)", () -> trigger.evaluate(context.getKey(), context.getValue()));
+        PROBE.measure("VmEventTrigger (steady state)", () -> trigger.evaluate(context.getKey(), context.getValue()));
+    }
+
+    @Test
+    void hostCapacityTrigger() throws Exception {
+        HostCapacityTrigger trigger = HostCapacityTrigger.builder()
+            .id("scale-host-capacity")
+            .type(HostCapacityTrigger.class.getName())
+            .uri(Property.ofValue(uri))
+            .memoryOvercommitThreshold(Property.ofValue(1.5))
+            .vcpuOvercommitThreshold(Property.ofValue(4.0))
+            .poolUsageThreshold(Property.ofValue(0.9))
+            .build();
+        Map.Entry<ConditionContext, Trigger> context = TestsUtils.mockTrigger(runContextFactory, trigger);
+
+        PROBE.measure("HostCapacityTrigger", () -> trigger.evaluate(context.getKey(), context.getValue()));
+    }
+
+    /**
+     * Registers a client under a URI of its own, so that tasks ported to {@link HypervisorClient} go through it.
+     */
+    private static String register(HypervisorClient client) {
+        String countedUri = "counted://" + UUID.randomUUID();
+        HypervisorClients.register(countedUri, client);
+        return countedUri;
+    }
+
+    private static List<String> allDomains() {
+        return IntStream.range(0, DOMAINS).mapToObj(TestDriverNode::domainName).toList();
+    }
+}
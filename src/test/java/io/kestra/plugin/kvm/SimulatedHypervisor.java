@@ -0,0 +1,401 @@
+package io.kestra.plugin.kvm;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+
+import org.libvirt.DomainInfo.DomainState;
+import org.libvirt.Error.ErrorNumber;
+
+/**
+ * In-process hypervisor for tests, benchmarks and soak runs, reachable by tasks through its {@link #uri()}.
+ *
+ * <p>
+ * Models domains and storage pools with per-operation latency, slow boots, slow or stuck shutdowns and injected
+ * errors. Latencies and random faults come from a seeded generator, so a run can be replayed. Operations are
+ * named after the {@link HypervisorClient} methods ({@code domain}, {@code domainNames}, {@code domainUuids}, {@code domainStates},
+ * {@code pool}, {@code uuid}, {@code state}, {@code xmlDesc}, {@code create}, {@code shutdown}, {@code destroy}, {@code undefine}, {@code addresses}, {@code deleteVolume});
+ * faults can target one operation, or one operation on one domain or volume as {@code operation:name}.
+ */
+final class SimulatedHypervisor implements HypervisorClient, AutoCloseable {
+    private final String uri = "sim://" + UUID.randomUUID();
+
+    private final Random random;
+
+    private final Map<String, SimulatedDomain> domains = new ConcurrentHashMap<>();
+
+    private final Map<String, Set<String>> pools = new ConcurrentHashMap<>();
+
+    private final Map<String, Latency> latencies = new ConcurrentHashMap<>();
+
+    private final Map<String, Fault> faults = new ConcurrentHashMap<>();
+
+    private final Map<String, AtomicInteger> calls = new ConcurrentHashMap<>();
+
+    private final Set<String> stuckShutdowns = ConcurrentHashMap.newKeySet();
+
+    private volatile Duration bootTime = Duration.ZERO;
+
+    private volatile Duration shutdownTime = Duration.ZERO;
+
+    private volatile Duration addressTime = Duration.ZERO;
+
+    private SimulatedHypervisor(long seed) {
+        this.random = new Random(seed);
+        HypervisorClients.register(uri, this);
+    }
+
+    /**
+     * Creates an empty simulated host and registers it under its URI.
+     */
+    static SimulatedHypervisor create(long seed) {
+        return new SimulatedHypervisor(seed);
+    }
+
+    String uri() {
+        return uri;
+    }
+
+    /**
+     * Adds a domain whose disks are the given volumes, written as {@code pool/volume}; missing pools and volumes are
+     * created.
+     */
+    SimulatedHypervisor domain(String name, DomainState state, String... volumes) {
+        // A domain added again under the same name is a new domain, with a new UUID
+        String uuid = UUID.randomUUID().toString();
+        StringBuilder xml = new StringBuilder("<domain type='kvm'><name>").append(name).append("</name><uuid>").append(uuid).append("</uuid><devices>");
+        for (String volume : volumes) {
+            String pool = volume.substring(0, volume.indexOf('/'));
+            String volumeName = volume.substring(volume.indexOf('/') + 1);
+            pools.computeIfAbsent(pool, p -> ConcurrentHashMap.newKeySet()).add(volumeName);
+            xml.append("<disk type='volume' device='disk'><source pool='").append(pool)
+                .append("' volume='").append(volumeName).append("'/></disk>");
+        }
+        xml.append("</devices><metadata/></domain>");
+
+        domains.put(name, new SimulatedDomain(name, uuid, xml.toString(), state));
+        return this;
+    }
+
+    /**
+     * Sets the custom metadata of a domain, given as the XML elements to put under {@code <metadata>}, replacing any
+     * metadata it had.
+     */
+    SimulatedHypervisor metadata(String name, String elements) {
+        SimulatedDomain domain = domains.get(name);
+        domain.xml = domain.xml.replaceFirst("<metadata/>|<metadata>.*</metadata>", Matcher.quoteReplacement("<metadata>" + elements + "</metadata>"));
+        return this;
+    }
+
+    SimulatedHypervisor latency(String operation, Latency latency) {
+        latencies.put(operation, latency);
+        return this;
+    }
+
+    /**
+     * Time a started domain spends in {@code VIR_DOMAIN_NOSTATE} before it reports running.
+     */
+    SimulatedHypervisor bootTime(Duration bootTime) {
+        this.bootTime = bootTime;
+        return this;
+    }
+
+    /**
+     * Time a domain spends in {@code VIR_DOMAIN_SHUTDOWN} after a graceful shutdown request.
+     */
+    SimulatedHypervisor shutdownTime(Duration shutdownTime) {
+        this.shutdownTime = shutdownTime;
+        return this;
+    }
+
+    /**
+     * Time a running domain takes to get its addresses, like a guest waiting for a DHCP lease.
+     */
+    SimulatedHypervisor addressTime(Duration addressTime) {
+        this.addressTime = addressTime;
+        return this;
+    }
+
+    /**
+     * Sets the IP addresses a domain reports once it has been running for {@link #addressTime(Duration)}.
+     */
+    SimulatedHypervisor addresses(String name, String... ips) {
+        domains.get(name).ips = List.of(ips);
+        return this;
+    }
+
+    /**
+     * Makes a domain ignore graceful shutdown requests, like a guest without ACPI support.
+     */
+    SimulatedHypervisor stuckShutdown(String name) {
+        stuckShutdowns.add(name);
+        return this;
+    }
+
+    /**
+     * Fails the next {@code times} calls of an operation with the given error.
+     */
+    SimulatedHypervisor fail(String operation, ErrorNumber code, int times) {
+        faults.put(operation, new Fault(code, 1.0, new AtomicInteger(times)));
+        return this;
+    }
+
+    /**
+     * Fails calls of an operation with the given error and probability.
+     */
+    SimulatedHypervisor failRandomly(String operation, ErrorNumber code, double probability) {
+        faults.put(operation, new Fault(code, probability, new AtomicInteger(Integer.MAX_VALUE)));
+        return this;
+    }
+
+    int calls(String operation) {
+        AtomicInteger count = calls.get(operation);
+        return count == null ? 0 : count.get();
+    }
+
+    boolean hasDomain(String name) {
+        return domains.containsKey(name);
+    }
+
+    boolean hasVolume(String pool, String volume) {
+        return pools.getOrDefault(pool, Set.of()).contains(volume);
+    }
+
+    @Override
+    public void close() {
+        HypervisorClients.unregister(uri);
+    }
+
+    @Override
+    public HypervisorDomain domain(String name) throws HypervisorException {
+        enter("domain", name);
+        SimulatedDomain domain = domains.get(name);
+        if (domain == null) {
+            throw new HypervisorException(ErrorNumber.VIR_ERR_NO_DOMAIN, "Domain not found: no domain with matching name '" + name + "'");
+        }
+        return domain;
+    }
+
+    @Override
+    public List<String> domainNames() throws HypervisorException {
+        enter("domainNames", "");
+        return List.copyOf(domains.keySet());
+    }
+
+    @Override
+    public Map<String, String> domainUuids() throws HypervisorException {
+        enter("domainUuids", "");
+        Map<String, String> uuids = new LinkedHashMap<>();
+        domains.forEach((name, domain) -> uuids.put(name, domain.uuid));
+        return uuids;
+    }
+
+    @Override
+    public Map<String, DomainState> domainStates() throws HypervisorException {
+        enter("domainStates", "");
+        Map<String, DomainState> states = new LinkedHashMap<>();
+        domains.forEach((name, domain) -> states.put(name, domain.current()));
+        return states;
+    }
+
+    @Override
+    public HypervisorPool pool(String name) throws HypervisorException {
+        enter("pool", name);
+        Set<String> volumes = pools.get(name);
+        if (volumes == null) {
+            throw new HypervisorException(ErrorNumber.VIR_ERR_NO_STORAGE_POOL, "Storage pool not found: no storage pool with matching name '" + name + "'");
+        }
+        return volume -> {
+            enter("deleteVolume", volume);
+            if (!volumes.remove(volume)) {
+                throw new HypervisorException(ErrorNumber.VIR_ERR_NO_STORAGE_VOL, "Storage volume not found: no storage vol with matching name '" + volume + "'");
+            }
+        };
+    }
+
+    private void enter(String operation, String target) throws HypervisorException {
+        calls.computeIfAbsent(operation, o -> new AtomicInteger()).incrementAndGet();
+
+        long nanos;
+        Fault fault;
+        synchronized (random) {
+            nanos = latencies.getOrDefault(operation, Latency.NONE).nanos(random);
+            fault = faults.get(operation + ":" + target);
+            if (fault == null) {
+                fault = faults.get(operation);
+            }
+            if (fault != null && (random.nextDouble() >= fault.probability() || fault.remaining().getAndDecrement() <= 0)) {
+                fault = null;
+            }
+        }
+
+        if (nanos > 0) {
+            try {
+                Thread.sleep(nanos / 1_000_000, (int) (nanos % 1_000_000));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new HypervisorException(ErrorNumber.VIR_ERR_OPERATION_ABORTED, "Interrupted during " + operation);
+            }
+        }
+
+        if (fault != null) {
+            throw new HypervisorException(fault.code(), "Injected failure of " + operation + " on " + target);
+        }
+    }
+
+    /**
+     * Distribution of the latency of one operation.
+     */
+    @FunctionalInterface
+    interface Latency {
+        Latency NONE = random -> 0;
+
+        long nanos(Random random);
+
+        static Latency fixed(Duration latency) {
+            return random -> latency.toNanos();
+        }
+
+        static Latency uniform(Duration min, Duration max) {
+            return random -> min.toNanos() + (long) (random.nextDouble() * (max.toNanos() - min.toNanos()));
+        }
+
+        /**
+         * Log-normal latency around a median, with the long tail typical of remote calls.
+         */
+        static Latency logNormal(Duration median, double sigma) {
+            return random -> (long) (median.toNanos() * Math.exp(sigma * random.nextGaussian()));
+        }
+    }
+
+    private record Fault(ErrorNumber code, double probability, AtomicInteger remaining) {
+    }
+
+    private final class SimulatedDomain implements HypervisorDomain {
+        private final String name;
+
+        private final String uuid;
+
+        private volatile String xml;
+
+        private DomainState state;
+
+        private DomainState pending;
+
+        private long pendingAt;
+
+        private long runningAt = System.nanoTime() - Duration.ofDays(1).toNanos();
+
+        private volatile List<String> ips = List.of();
+
+        private SimulatedDomain(String name, String uuid, String xml, DomainState state) {
+            this.name = name;
+            this.uuid = uuid;
+            this.xml = xml;
+            this.state = state;
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+
+        @Override
+        public String uuid() throws HypervisorException {
+            enter("uuid", name);
+            return uuid;
+        }
+
+        @Override
+        public DomainState state() throws HypervisorException {
+            enter("state", name);
+            return current();
+        }
+
+        @Override
+        public String xmlDesc(int flags) throws HypervisorException {
+            enter("xmlDesc", name);
+            return xml;
+        }
+
+        @Override
+        public void create() throws HypervisorException {
+            enter("create", name);
+            synchronized (this) {
+                if (state == DomainState.VIR_DOMAIN_RUNNING || pending != null) {
+                    throw new HypervisorException(ErrorNumber.VIR_ERR_OPERATION_INVALID, "Requested operation is not valid: domain is already running");
+                }
+                transition(DomainState.VIR_DOMAIN_NOSTATE, DomainState.VIR_DOMAIN_RUNNING, bootTime);
+            }
+        }
+
+        @Override
+        public void shutdown() throws HypervisorException {
+            enter("shutdown", name);
+            synchronized (this) {
+                if (state != DomainState.VIR_DOMAIN_RUNNING) {
+                    throw new HypervisorException(ErrorNumber.VIR_ERR_OPERATION_INVALID, "Requested operation is not valid: domain is not running");
+                }
+                if (!stuckShutdowns.contains(name)) {
+                    transition(DomainState.VIR_DOMAIN_SHUTDOWN, DomainState.VIR_DOMAIN_SHUTOFF, shutdownTime);
+                }
+            }
+        }
+
+        @Override
+        public void destroy() throws HypervisorException {
+            enter("destroy", name);
+            synchronized (this) {
+                state = DomainState.VIR_DOMAIN_SHUTOFF;
+                pending = null;
+            }
+        }
+
+        @Override
+        public void undefine(int flags) throws HypervisorException {
+            enter("undefine", name);
+            domains.remove(name, this);
+        }
+
+        @Override
+        public List<String> addresses() throws HypervisorException {
+            enter("addresses", name);
+            synchronized (this) {
+                boolean ready = current() == DomainState.VIR_DOMAIN_RUNNING && System.nanoTime() - runningAt >= addressTime.toNanos();
+                return ready ? ips : List.of();
+            }
+        }
+
+        private synchronized DomainState current() {
+            if (pending != null && System.nanoTime() >= pendingAt) {
+                state = pending;
+                pending = null;
+                if (state == DomainState.VIR_DOMAIN_RUNNING) {
+                    runningAt = pendingAt;
+                }
+            }
+            return state;
+        }
+
+        private void transition(DomainState during, DomainState after, Duration duration) {
+            if (duration.isZero()) {
+                state = after;
+                pending = null;
+                if (after == DomainState.VIR_DOMAIN_RUNNING) {
+                    runningAt = System.nanoTime();
+                }
+            } else {
+                state = during;
+                pending = after;
+                pendingAt = System.nanoTime() + duration.toNanos();
+            }
+        }
+    }
+}
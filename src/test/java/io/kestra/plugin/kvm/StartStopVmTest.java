@@ -3,6 +3,7 @@ package io.kestra.plugin.kvm;
 import java.time.Duration;
 
 import org.junit.jupiter.api.Test;
+import org.libvirt.DomainInfo.DomainState;
 
 import io.kestra.core.junit.annotations.KestraTest;
 import io.kestra.core.models.property.Property;
@@ -12,7 +13,11 @@ import io.kestra.core.runners.RunContextFactory;
 import jakarta.inject.Inject;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 @KestraTest
 class StartStopVmTest {
@@ -44,4 +49,122 @@ class StartStopVmTest {
         StopVm.Output stopOutput = stopTask.run(runContext);
         assertThat(stopOutput.getState(), is("VIR_DOMAIN_SHUTOFF"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void startWaitsForSlowBoot() throws Exception {
+        RunContext runContext = runContextFactory.of();
+
+        try (SimulatedHypervisor hypervisor = SimulatedHypervisor.create(42)
+            .domain("slow", DomainState.VIR_DOMAIN_SHUTOFF)
+            .bootTime(Duration.ofMillis(800))
+            .latency("state", SimulatedHypervisor.Latency.uniform(Duration.ofMillis(5), Duration.ofMillis(20)))) {
+            StartVm task = StartVm.builder()
+                .uri(Property.ofValue(hypervisor.uri()))
+                .name(Property.ofValue("slow"))
+                .waitForRunning(Property.ofValue(true))
+                .timeToWait(Property.ofValue(Duration.ofSeconds(10)))
+                .build();
+
+            StartVm.Output output = task.run(runContext);
+
+            assertThat(output.getState(), is("VIR_DOMAIN_RUNNING"));
+            assertThat(hypervisor.calls("state"), greaterThan(2));
+        }
+    }
+
+    @Test
+    void stopTimesOutOnStuckShutdown() throws Exception {
+        RunContext runContext = runContextFactory.of();
+
+        try (SimulatedHypervisor hypervisor = SimulatedHypervisor.create(42)
+            .domain("stuck", DomainState.VIR_DOMAIN_RUNNING)
+            .stuckShutdown("stuck")) {
+            StopVm task = StopVm.builder()
+                .uri(Property.ofValue(hypervisor.uri()))
+                .name(Property.ofValue("stuck"))
+                .waitForStopped(Property.ofValue(true))
+                .timeToWait(Property.ofValue(Duration.ofSeconds(1)))
+                .build();
+
+            Exception e = assertThrows(Exception.class, () -> task.run(runContext));
+
+            assertThat(e.getMessage(), containsString("Timeout"));
+            assertThat(hypervisor.calls("shutdown"), is(1));
+        }
+    }
+
+    @Test
+    void startWaitsForAddress() throws Exception {
+        RunContext runContext = runContextFactory.of();
+
+        try (SimulatedHypervisor hypervisor = SimulatedHypervisor.create(42)
+            .domain("web", DomainState.VIR_DOMAIN_SHUTOFF)
+            .addresses("web", "192.168.122.15")
+            .bootTime(Duration.ofMillis(300))
+            .addressTime(Duration.ofMillis(700))) {
+            StartVm task = StartVm.builder()
+                .uri(Property.ofValue(hypervisor.uri()))
+                .name(Property.ofValue("web"))
+                .waitForAddress(Property.ofValue(true))
+                .timeToWait(Property.ofValue(Duration.ofSeconds(10)))
+                .build();
+
+            StartVm.Output output = task.run(runContext);
+
+            assertThat(output.getState(), is("VIR_DOMAIN_RUNNING"));
+            assertThat(output.getAddresses(), contains("192.168.122.15"));
+            assertThat(hypervisor.calls("addresses"), greaterThan(1));
+        }
+    }
+
+    @Test
+    void cachedStateSkipsHypervisorUntilInvalidated() throws Exception {
+        RunContext runContext = runContextFactory.of();
+
+        try (SimulatedHypervisor hypervisor = SimulatedHypervisor.create(42).domain("web", DomainState.VIR_DOMAIN_RUNNING)) {
+            InventoryCache.put(hypervisor.uri(), "web", DomainState.VIR_DOMAIN_RUNNING.toString());
+
+            StartVm start = StartVm.builder()
+                .uri(Property.ofValue(hypervisor.uri()))
+                .name(Property.ofValue("web"))
+                .inventoryCacheTtl(Property.ofValue(Duration.ofMinutes(1)))
+                .build();
+            start.run(runContext);
+            assertThat(hypervisor.calls("domain"), is(0));
+
+            // Stopping the domain drops its entry, so the next start asks the hypervisor again
+            StopVm.builder()
+                .uri(Property.ofValue(hypervisor.uri()))
+                .name(Property.ofValue("web"))
+                .force(Property.ofValue(true))
+                .inventoryCacheTtl(Property.ofValue(Duration.ofMinutes(1)))
+                .build()
+                .run(runContext);
+            assertThat(InventoryCache.get(hypervisor.uri(), "web", Duration.ofMinutes(1)).isPresent(), is(false));
+
+            StartVm.Output output = start.run(runContext);
+            assertThat(output.getState(), is("VIR_DOMAIN_RUNNING"));
+            assertThat(hypervisor.calls("create"), is(1));
+        }
+    }
+
+    @Test
+    void expiredCacheEntryIsNotTrusted() throws Exception {
+        RunContext runContext = runContextFactory.of();
+
+        try (SimulatedHypervisor hypervisor = SimulatedHypervisor.create(42).domain("web", DomainState.VIR_DOMAIN_SHUTOFF)) {
+            // Cached as running, but stopped out of band since
+            InventoryCache.put(hypervisor.uri(), "web", DomainState.VIR_DOMAIN_RUNNING.toString());
+            Thread.sleep(20);
+
+            StartVm.builder()
+                .uri(Property.ofValue(hypervisor.uri()))
+                .name(Property.ofValue("web"))
+                .inventoryCacheTtl(Property.ofValue(Duration.ofMillis(10)))
+                .build()
+                .run(runContext);
+
+            assertThat(hypervisor.calls("create"), is(1));
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package io.kestra.plugin.kvm;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+
+import lombok.Builder;
+
+/**
+ * Generates libvirt test-driver node files, so tests and benchmarks can run against hosts of any size offline.
+ *
+ * <p>
+ * Every domain gets {@code disksPerDomain} volume disks, spread round-robin over {@code pools} directory pools
+ * that also hold the matching volumes, plus {@code volumesPerPool} unattached volumes each. The test driver
+ * starts every domain defined in a node file, and reloads the file on each new connection, so each connection
+ * sees a fresh copy of the host.
+ */
+@Builder
+final class TestDriverNode {
+    @Builder.Default
+    private final int domains = 1;
+
+    @Builder.Default
+    private final int disksPerDomain = 1;
+
+    @Builder.Default
+    private final int pools = 1;
+
+    @Builder.Default
+    private final int volumesPerPool = 0;
+
+    @Builder.Default
+    private final int cpus = 64;
+
+    @Builder.Default
+    private final long memoryKiB = 512L * 1024 * 1024;
+
+    static String domainName(int index) {
+        return String.format("vm-%05d", index);
+    }
+
+    static String poolName(int index) {
+        return String.format("pool-%02d", index);
+    }
+
+    static String volumeName(int domain, int disk) {
+        return domainName(domain) + "-disk-" + disk + ".qcow2";
+    }
+
+    /**
+     * Writes the node file.
+     *
+     * @param file Where to write it.
+     * @return The test driver URI of the node.
+     */
+    String write(Path file) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("<node>\n");
+            writer.write("  <cpu><mhz>3000</mhz><model>x86_64</model><active>" + cpus + "</active><max>" + cpus
+                + "</max><nodes>1</nodes><sockets>1</sockets><cores>" + cpus + "</cores><threads>1</threads></cpu>\n");
+            writer.write("  <memory>" + memoryKiB + "</memory>\n");
+
+            for (int d = 0; d < domains; d++) {
+                writer.write(domainXml(d));
+            }
+
+            for (int p = 0; p < pools; p++) {
+                writer.write(poolXml(p));
+            }
+
+            writer.write("</node>\n");
+        }
+
+        return "test://" + file.toAbsolutePath();
+    }
+
+    /**
+     * Returns the definition of the domain at the given index, as written in the node file.
+     */
+    String domainXml(int index) {
+        String name = domainName(index);
+        StringBuilder xml = new StringBuilder()
+            .append("  <domain type='test'>\n")
+            .append("    <name>").append(name).append("</name>\n")
+            .append("    <uuid>").append(UUID.nameUUIDFromBytes(name.getBytes(StandardCharsets.UTF_8))).append("</uuid>\n")
+            .append("    <memory unit='KiB'>1048576</memory>\n")
+            .append("    <currentMemory unit='KiB'>1048576</currentMemory>\n")
+            .append("    <vcpu placement='static'>2</vcpu>\n")
+            .append("    <os><type arch='x86_64'>hvm</type></os>\n")
+            .append("    <devices>\n");
+
+        for (int disk = 0; disk < disksPerDomain; disk++) {
+            xml.append("      <disk type='volume' device='disk'>")
+                .append("<driver name='qemu' type='qcow2'/>")
+                .append("<source pool='").append(poolName(poolOf(index, disk))).append("' volume='").append(volumeName(index, disk)).append("'/>")
+                .append("<target dev='").append(targetDev(disk)).append("' bus='virtio'/>")
+                .append("</disk>\n");
+        }
+
+        return xml.append("    </devices>\n")
+            .append("  </domain>\n")
+            .toString();
+    }
+
+    private String poolXml(int pool) {
+        String name = poolName(pool);
+        StringBuilder xml = new StringBuilder()
+            .append("  <pool type='dir'>\n")
+            .append("    <name>").append(name).append("</name>\n")
+            .append("    <uuid>").append(UUID.nameUUIDFromBytes(name.getBytes(StandardCharsets.UTF_8))).append("</uuid>\n")
+            .append("    <target><path>/").append(name).append("</path></target>\n");
+
+        for (int d = 0; d < domains; d++) {
+            for (int disk = 0; disk < disksPerDomain; disk++) {
+                if (poolOf(d, disk) == pool) {
+                    String volume = volumeName(d, disk);
+                    xml.append("    <volume type='file'>")
+                        .append("<name>").append(volume).append("</name>")
+                        .append("<capacity unit='GiB'>20</capacity><allocation unit='GiB'>2</allocation>")
+                        .append("<target><path>/").append(name).append('/').append(volume).append("</path><format type='qcow2'/></target>")
+                        .append("</volume>\n");
+                }
+            }
+        }
+
+        for (int v = 0; v < volumesPerPool; v++) {
+            xml.append("    <volume type='file'>")
+                .append("<name>free-").append(v).append(".qcow2</name>")
+                .append("<capacity unit='GiB'>20</capacity><allocation unit='GiB'>0</allocation>")
+                .append("<target><path>/").append(name).append("/free-").append(v).append(".qcow2</path><format type='qcow2'/></target>")
+                .append("</volume>\n");
+        }
+
+        return xml.append("  </pool>\n").toString();
+    }
+
+    private int poolOf(int domain, int disk) {
+        return (domain * disksPerDomain + disk) % Math.max(1, pools);
+    }
+
+    private static String targetDev(int disk) {
+        StringBuilder suffix = new StringBuilder();
+        int n = disk;
+        do {
+            suffix.insert(0, (char) ('a' + n % 26));
+            n = n / 26 - 1;
+        } while (n >= 0);
+        return "vd" + suffix;
+    }
+}
@@ -0,0 +1,81 @@
+package io.kestra.plugin.kvm;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import io.kestra.core.junit.annotations.KestraTest;
+import io.kestra.core.models.property.Property;
+import io.kestra.core.runners.RunContext;
+import io.kestra.core.runners.RunContextFactory;
+
+import jakarta.inject.Inject;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+
+@KestraTest
+class TuneVmTest {
+    @Inject
+    private RunContextFactory runContextFactory;
+
+    @Test
+    void tuneMemory() throws Exception {
+        RunContext runContext = runContextFactory.of();
+
+        TuneVm task = TuneVm.builder()
+            .uri(Property.ofValue("test:///default"))
+            .name(Property.ofValue("test"))
+            .memoryMiB(Property.ofValue(1024L))
+            .build();
+
+        TuneVm.Output output = task.run(runContext);
+
+        assertThat(output.getDomains(), hasSize(1));
+        TuneVm.DomainResult result = output.getDomains().get(0);
+        assertThat(result.isSuccess(), is(true));
+        assertThat(result.getAfter().get("memoryKiB"), is(1024L * 1024));
+    }
+
+    @Test
+    void persistedMemoryReachesInactiveConfiguration() throws Exception {
+        RunContext runContext = runContextFactory.of();
+
+        TuneVm task = TuneVm.builder()
+            .uri(Property.ofValue("test:///default"))
+            .name(Property.ofValue("test"))
+            .memoryMiB(Property.ofValue(512L))
+            .persist(Property.ofValue(true))
+            .build();
+
+        task.run(runContext);
+
+        try (LibvirtConnection connection = new LibvirtConnection("test:///default")) {
+            // VIR_DOMAIN_XML_INACTIVE
+            String inactive = connection.get().domainLookupByName("test").getXMLDesc(2);
+            assertThat(inactive, containsString(">524288</currentMemory>"));
+        }
+    }
+
+    @Test
+    void reportsFailuresPerDomain() throws Exception {
+        RunContext runContext = runContextFactory.of();
+
+        TuneVm task = TuneVm.builder()
+            .uri(Property.ofValue("test:///default"))
+            .names(Property.ofValue(List.of("test", "missing-vm")))
+            .memoryMiB(Property.ofValue(2048L))
+            .failOnError(Property.ofValue(false))
+            .build();
+
+        TuneVm.Output output = task.run(runContext);
+
+        assertThat(output.getDomains(), hasSize(2));
+        assertThat(output.getDomains().get(0).isSuccess(), is(true));
+        assertThat(output.getDomains().get(1).isSuccess(), is(false));
+        assertThat(output.getDomains().get(1).getError(), notNullValue());
+    }
+}
@@ -0,0 +1,243 @@
+package io.kestra.plugin.kvm;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.libvirt.DomainInfo.DomainState;
+
+import io.kestra.core.junit.annotations.KestraTest;
+import io.kestra.core.models.conditions.ConditionContext;
+import io.kestra.core.models.executions.Execution;
+import io.kestra.core.models.property.Property;
+import io.kestra.core.models.triggers.Trigger;
+import io.kestra.core.runners.RunContextFactory;
+import io.kestra.core.utils.TestsUtils;
+
+import jakarta.inject.Inject;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@KestraTest
+class VmEventTriggerTest {
+    // Short enough that every evaluation of a test reads a fresh snapshot of the simulated host.
+    private static final Duration INTERVAL = Duration.ofMillis(20);
+
+    @Inject
+    private RunContextFactory runContextFactory;
+
+    @Test
+    void everyPollEmitsStatesOfNamesAndGlobs() throws Exception {
+        try (SimulatedHypervisor hypervisor = fleet()) {
+            VmEventTrigger trigger = trigger(hypervisor, "every-poll")
+                .name(Property.ofValue("db"))
+                .names(Property.ofValue(List.of("web-*")))
+                .build();
+
+            List<Map<String, Object>> events = events(evaluate(trigger).orElseThrow());
+
+            assertThat(events.stream().map(e -> e.get("name")).toList(), containsInAnyOrder("web-1", "web-2", "db"));
+            assertThat(stateOf(events, "web-2"), is("VIR_DOMAIN_SHUTOFF"));
+            assertThat(hypervisor.calls("state"), is(0));
+        }
+    }
+
+    @Test
+    void singleDomainIsReportedAtTopLevel() throws Exception {
+        try (SimulatedHypervisor hypervisor = fleet()) {
+            VmEventTrigger trigger = trigger(hypervisor, "single").name(Property.ofValue("db")).build();
+
+            Execution execution = evaluate(trigger).orElseThrow();
+
+            assertThat(execution.getTrigger().getVariables().get("name"), is("db"));
+            assertThat(execution.getTrigger().getVariables().get("state"), is("VIR_DOMAIN_RUNNING"));
+        }
+    }
+
+    @Test
+    void onChangeOnlyEmitsMatchingTransitions() throws Exception {
+        try (SimulatedHypervisor hypervisor = fleet()) {
+            VmEventTrigger trigger = trigger(hypervisor, "on-change")
+                .names(Property.ofValue(List.of("web-*")))
+                .mode(Property.ofValue(VmEventTrigger.Mode.ON_CHANGE))
+                .transitions(Property.ofValue(List.of("RUNNING -> SHUTOFF")))
+                .build();
+            Map.Entry<ConditionContext, Trigger> context = TestsUtils.mockTrigger(runContextFactory, trigger);
+
+            // The first poll only records the states
+            assertThat(trigger.evaluate(context.getKey(), context.getValue()).isPresent(), is(false));
+
+            hypervisor.domain("web-1").destroy();
+            hypervisor.domain("web-2").create();
+            Thread.sleep(INTERVAL.multipliedBy(2).toMillis());
+
+            List<Map<String, Object>> events = events(trigger.evaluate(context.getKey(), context.getValue()).orElseThrow());
+            assertThat(events.size(), is(1));
+            assertThat(events.get(0).get("name"), is("web-1"));
+            assertThat(events.get(0).get("previousState"), is("VIR_DOMAIN_RUNNING"));
+            assertThat(events.get(0).get("state"), is("VIR_DOMAIN_SHUTOFF"));
+
+            Thread.sleep(INTERVAL.multipliedBy(2).toMillis());
+            assertThat(trigger.evaluate(context.getKey(), context.getValue()).isPresent(), is(false));
+        }
+    }
+
+    @Test
+    void stateKeyIsSharedBetweenTriggers() throws Exception {
+        try (SimulatedHypervisor hypervisor = fleet()) {
+            String stateKey = "kvm-state-" + hypervisor.uri().hashCode();
+            VmEventTrigger first = trigger(hypervisor, "first")
+                .name(Property.ofValue("db"))
+                .mode(Property.ofValue(VmEventTrigger.Mode.ON_CHANGE))
+                .stateKey(Property.ofValue(stateKey))
+                .build();
+            VmEventTrigger second = trigger(hypervisor, "second")
+                .name(Property.ofValue("db"))
+                .mode(Property.ofValue(VmEventTrigger.Mode.ON_CHANGE))
+                .stateKey(Property.ofValue(stateKey))
+                .build();
+
+            assertThat(evaluate(first).isPresent(), is(false));
+
+            hypervisor.domain("db").destroy();
+            Thread.sleep(INTERVAL.multipliedBy(2).toMillis());
+
+            // The second trigger has never polled, but reads the states the first one stored under the same key
+            Execution execution = evaluate(second).orElseThrow();
+            assertThat(events(execution).get(0).get("previousState"), is("VIR_DOMAIN_RUNNING"));
+        }
+    }
+
+    @Test
+    void unknownNamesEmitNothing() throws Exception {
+        try (SimulatedHypervisor hypervisor = fleet()) {
+            VmEventTrigger trigger = trigger(hypervisor, "unknown").names(Property.ofValue(List.of("cache-*"))).build();
+
+            assertThat(evaluate(trigger).isPresent(), is(false));
+        }
+    }
+
+    @Test
+    void nameOrNamesIsRequired() throws Exception {
+        try (SimulatedHypervisor hypervisor = fleet()) {
+            VmEventTrigger trigger = trigger(hypervisor, "no-selector").build();
+
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> evaluate(trigger));
+            assertThat(e.getMessage(), is("Either name or names must be set"));
+        }
+    }
+
+    @Test
+    void invalidTransitionIsRejected() throws Exception {
+        try (SimulatedHypervisor hypervisor = fleet()) {
+            VmEventTrigger trigger = trigger(hypervisor, "bad-transition")
+                .name(Property.ofValue("db"))
+                .mode(Property.ofValue(VmEventTrigger.Mode.ON_CHANGE))
+                .transitions(Property.ofValue(List.of("RUNNING")))
+                .build();
+
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> evaluate(trigger));
+            assertThat(e.getMessage(), containsString("FROM -> TO"));
+        }
+    }
+
+    @Test
+    void adaptiveIntervalSpeedsUpOnChangeAndBacksOffWhenStable() throws Exception {
+        try (SimulatedHypervisor hypervisor = fleet()) {
+            Duration min = Duration.ofMillis(100);
+            VmEventTrigger trigger = trigger(hypervisor, "adaptive")
+                .names(Property.ofValue(List.of("web-*")))
+                .interval(Duration.ofMinutes(1))
+                .minInterval(Property.ofValue(min))
+                .build();
+            Map.Entry<ConditionContext, Trigger> context = TestsUtils.mockTrigger(runContextFactory, trigger);
+
+            trigger.evaluate(context.getKey(), context.getValue());
+            assertThat(delay(trigger, context), lessThanOrEqualTo(min));
+
+            // Stable poll: the interval doubles
+            Thread.sleep(min.toMillis());
+            trigger.evaluate(context.getKey(), context.getValue());
+            assertThat(delay(trigger, context), greaterThan(min));
+            assertThat(delay(trigger, context), lessThanOrEqualTo(min.multipliedBy(2)));
+
+            // A state change brings it back to the fast interval
+            hypervisor.domain("web-1").destroy();
+            Thread.sleep(min.toMillis());
+            trigger.evaluate(context.getKey(), context.getValue());
+            assertThat(delay(trigger, context), lessThanOrEqualTo(min));
+        }
+    }
+
+    @Test
+    void fixedIntervalWithoutMinInterval() throws Exception {
+        try (SimulatedHypervisor hypervisor = fleet()) {
+            VmEventTrigger trigger = trigger(hypervisor, "fixed").name(Property.ofValue("db")).interval(Duration.ofMinutes(1)).build();
+            Map.Entry<ConditionContext, Trigger> context = TestsUtils.mockTrigger(runContextFactory, trigger);
+
+            trigger.evaluate(context.getKey(), context.getValue());
+
+            assertThat(delay(trigger, context), greaterThan(Duration.ofSeconds(50)));
+        }
+    }
+
+    @Test
+    void pendingBatchBringsNextEvaluationForward() throws Exception {
+        try (SimulatedHypervisor hypervisor = fleet()) {
+            VmEventTrigger trigger = trigger(hypervisor, "batch")
+                .name(Property.ofValue("db"))
+                .interval(Duration.ofMinutes(1))
+                .coalesceWindow(Property.ofValue(Duration.ofSeconds(1)))
+                .build();
+            Map.Entry<ConditionContext, Trigger> context = TestsUtils.mockTrigger(runContextFactory, trigger);
+
+            // The event opens a batch that is not due yet
+            assertThat(trigger.evaluate(context.getKey(), context.getValue()).isPresent(), is(false));
+
+            assertThat(delay(trigger, context), lessThanOrEqualTo(Duration.ofSeconds(1)));
+        }
+    }
+
+    private static Duration delay(VmEventTrigger trigger, Map.Entry<ConditionContext, Trigger> context) throws Exception {
+        ZonedDateTime next = trigger.nextEvaluationDate(context.getKey(), Optional.of(context.getValue()));
+        return Duration.between(ZonedDateTime.now(), next);
+    }
+
+    private static SimulatedHypervisor fleet() {
+        return SimulatedHypervisor.create(42)
+            .domain("web-1", DomainState.VIR_DOMAIN_RUNNING)
+            .domain("web-2", DomainState.VIR_DOMAIN_SHUTOFF)
+            .domain("db", DomainState.VIR_DOMAIN_RUNNING);
+    }
+
+    private static VmEventTrigger.VmEventTriggerBuilder<?, ?> trigger(SimulatedHypervisor hypervisor, String id) {
+        return VmEventTrigger.builder()
+            .id(id + "-" + Math.abs(hypervisor.uri().hashCode()))
+            .type(VmEventTrigger.class.getName())
+            .uri(Property.ofValue(hypervisor.uri()))
+            .interval(INTERVAL);
+    }
+
+    private Optional<Execution> evaluate(VmEventTrigger trigger) throws Exception {
+        Map.Entry<ConditionContext, Trigger> context = TestsUtils.mockTrigger(runContextFactory, trigger);
+        return trigger.evaluate(context.getKey(), context.getValue());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> events(Execution execution) {
+        return (List<Map<String, Object>>) execution.getTrigger().getVariables().get("events");
+    }
+
+    private static Object stateOf(List<Map<String, Object>> events, String name) {
+        return events.stream().filter(e -> name.equals(e.get("name"))).map(e -> e.get("state")).findFirst().orElse(null);
+    }
+}
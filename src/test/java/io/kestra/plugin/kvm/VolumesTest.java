@@ -0,0 +1,148 @@
+package io.kestra.plugin.kvm;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import io.kestra.core.junit.annotations.KestraTest;
+import io.kestra.core.models.property.Property;
+import io.kestra.core.runners.RunContext;
+import io.kestra.core.runners.RunContextFactory;
+
+import jakarta.inject.Inject;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasItems;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@KestraTest
+class VolumesTest {
+    private static final String POOL = "default-pool";
+
+    @Inject
+    private RunContextFactory runContextFactory;
+
+    @Test
+    void createThenListVolumes() throws Exception {
+        RunContext runContext = runContextFactory.of();
+
+        CreateVolumes create = CreateVolumes.builder()
+            .uri(Property.ofValue("test:///default"))
+            .storagePool(Property.ofValue(POOL))
+            .volumes(Property.ofValue(List.of(
+                CreateVolumes.VolumeSpec.builder()
+                    .name("kestra-system.qcow2")
+                    .capacity("2GiB")
+                    .format("qcow2")
+                    .clusterSize("64KiB")
+                    .build(),
+                CreateVolumes.VolumeSpec.builder()
+                    .name("kestra-data.img")
+                    .capacity("1GiB")
+                    .format("raw")
+                    .preallocation(Preallocation.FULL)
+                    .build()
+            )))
+            .build();
+
+        CreateVolumes.Output created = create.run(runContext);
+
+        assertThat(created.getFailures(), empty());
+        assertThat(created.getVolumes(), hasSize(2));
+        ListVolumes.Volume data = created.getVolumes().get(1);
+        assertThat(data.getCapacity(), is(1024L * 1024 * 1024));
+        assertThat(data.getAllocation(), is(data.getCapacity()));
+
+        ListVolumes list = ListVolumes.builder()
+            .uri(Property.ofValue("test:///default"))
+            .pools(Property.ofValue(List.of(POOL)))
+            .fetch(Property.ofValue(true))
+            .build();
+
+        ListVolumes.Output listed = list.run(runContext);
+
+        assertThat(listed.getUri(), notNullValue());
+        assertThat(listed.getCount(), is(listed.getVolumes().size()));
+        assertThat(
+            listed.getVolumes().stream().map(ListVolumes.Volume::getName).toList(),
+            hasItems("kestra-system.qcow2", "kestra-data.img")
+        );
+        assertThat(listed.getCapacity(), greaterThanOrEqualTo(3L * 1024 * 1024 * 1024));
+
+        CreateVolumes.Output again = create.run(runContext);
+
+        assertThat(again.getVolumes(), empty());
+        assertThat(again.getSkipped(), is(2));
+    }
+
+    @Test
+    void rejectsPreallocationNotSupportedByFormat() throws Exception {
+        CreateVolumes create = CreateVolumes.builder()
+            .uri(Property.ofValue("test:///default"))
+            .storagePool(Property.ofValue(POOL))
+            .volumes(Property.ofValue(List.of(
+                CreateVolumes.VolumeSpec.builder()
+                    .name("kestra-metadata.img")
+                    .capacity("1GiB")
+                    .format("raw")
+                    .preallocation(Preallocation.METADATA)
+                    .build()
+            )))
+            .failOnError(Property.ofValue(false))
+            .build();
+
+        CreateVolumes.Output output = create.run(runContextFactory.of());
+
+        assertThat(output.getVolumes(), empty());
+        assertThat(output.getFailures(), hasSize(1));
+        assertThat(output.getFailures().get(0).getError(), containsString("qcow2"));
+    }
+
+    @Test
+    void fallocAndFullPreallocationMatchTheirFormat() {
+        long capacity = 1024L * 1024 * 1024;
+
+        assertThat(StorageVolumes.volumeXml("falloc.qcow2", capacity, "qcow2", Preallocation.FALLOC, null), containsString("<allocation unit='bytes'>" + capacity + "</allocation>"));
+        assertThat(StorageVolumes.createFlags("qcow2", Preallocation.FALLOC), is(StorageVolumes.CREATE_PREALLOC_METADATA));
+        assertThat(StorageVolumes.volumeXml("full.img", capacity, "raw", Preallocation.FULL, null), containsString("<allocation unit='bytes'>" + capacity + "</allocation>"));
+        assertThat(StorageVolumes.createFlags("raw", Preallocation.FULL), is(0));
+
+        IllegalArgumentException falloc = assertThrows(IllegalArgumentException.class, () -> StorageVolumes.volumeXml("falloc.img", capacity, "raw", Preallocation.FALLOC, null));
+        IllegalArgumentException full = assertThrows(IllegalArgumentException.class, () -> StorageVolumes.volumeXml("full.qcow2", capacity, "qcow2", Preallocation.FULL, null));
+        assertThat(falloc.getMessage(), containsString("use FULL"));
+        assertThat(full.getMessage(), containsString("use FALLOC"));
+    }
+
+    @Test
+    void resizeRefusesToShrink() throws Exception {
+        RunContext runContext = runContextFactory.of();
+
+        CreateVolumes.builder()
+            .uri(Property.ofValue("test:///default"))
+            .storagePool(Property.ofValue(POOL))
+            .volumes(Property.ofValue(List.of(
+                CreateVolumes.VolumeSpec.builder()
+                    .name("kestra-shrink.qcow2")
+                    .capacity("2GiB")
+                    .build()
+            )))
+            .build()
+            .run(runContext);
+
+        ResizeVolume resize = ResizeVolume.builder()
+            .uri(Property.ofValue("test:///default"))
+            .storagePool(Property.ofValue(POOL))
+            .name(Property.ofValue("kestra-shrink.qcow2"))
+            .capacity(Property.ofValue("1GiB"))
+            .build();
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> resize.run(runContext));
+        assertThat(e.getMessage(), containsString("allowShrink"));
+    }
+}
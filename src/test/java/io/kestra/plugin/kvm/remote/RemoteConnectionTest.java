@@ -0,0 +1,107 @@
+package io.kestra.plugin.kvm.remote;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.Test;
+import org.libvirt.DomainInfo.DomainState;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RemoteConnectionTest {
+    @Test
+    void listsDomainsAndStates() throws Exception {
+        try (RemoteStubServer server = new RemoteStubServer()
+                .domain("web-1", DomainState.VIR_DOMAIN_RUNNING)
+                .domain("db-1", DomainState.VIR_DOMAIN_SHUTOFF);
+             RemoteConnection connection = RemoteConnection.open(server.uri())) {
+            List<RemoteDomain> domains = RemoteConnection.await(connection.listAllDomains(0));
+
+            assertThat(domains.stream().map(RemoteDomain::name).toList(), containsInAnyOrder("web-1", "db-1"));
+
+            RemoteDomain db = RemoteConnection.await(connection.lookupByName("db-1"));
+            assertThat(RemoteConnection.await(connection.getState(db)), is(DomainState.VIR_DOMAIN_SHUTOFF));
+            assertThat(RemoteConnection.await(connection.getXmlDesc(db, 0)), containsString("<name>db-1</name>"));
+        }
+    }
+
+    @Test
+    void pipelinesCallsOnOneConnection() throws Exception {
+        try (RemoteStubServer server = new RemoteStubServer()) {
+            for (int i = 0; i < 100; i++) {
+                server.domain("vm-" + i, i % 2 == 0 ? DomainState.VIR_DOMAIN_RUNNING : DomainState.VIR_DOMAIN_SHUTOFF);
+            }
+
+            try (RemoteConnection connection = RemoteConnection.open(server.uri())) {
+                List<CompletableFuture<DomainState>> states = new ArrayList<>();
+                for (int i = 0; i < 100; i++) {
+                    states.add(connection.lookupByName("vm-" + i).thenCompose(connection::getState));
+                }
+
+                for (int i = 0; i < 100; i++) {
+                    DomainState expected = i % 2 == 0 ? DomainState.VIR_DOMAIN_RUNNING : DomainState.VIR_DOMAIN_SHUTOFF;
+                    assertThat(RemoteConnection.await(states.get(i)), is(expected));
+                }
+            }
+
+            assertThat(server.maxInFlight(), greaterThan(1));
+        }
+    }
+
+    @Test
+    void reportsDaemonErrors() throws Exception {
+        try (RemoteStubServer server = new RemoteStubServer();
+             RemoteConnection connection = RemoteConnection.open(server.uri())) {
+            RemoteException e = assertThrows(RemoteException.class, () -> RemoteConnection.await(connection.lookupByName("missing-vm")));
+
+            assertThat(e.getCode(), is(RemoteException.NO_DOMAIN));
+            assertThat(e.getMessage(), containsString("missing-vm"));
+            assertThat(connection.isOpen(), is(true));
+        }
+    }
+
+    @Test
+    void changesDomainLifecycle() throws Exception {
+        try (RemoteStubServer server = new RemoteStubServer();
+             RemoteConnection connection = RemoteConnection.open(server.uri())) {
+            RemoteDomain domain = RemoteConnection.await(connection.defineXml("<domain type='kvm'><name>new-vm</name></domain>"));
+
+            RemoteConnection.await(connection.create(domain));
+            assertThat(RemoteConnection.await(connection.getState(domain)), is(DomainState.VIR_DOMAIN_RUNNING));
+
+            RemoteConnection.await(connection.destroy(domain));
+            RemoteConnection.await(connection.undefine(domain));
+            assertThrows(RemoteException.class, () -> RemoteConnection.await(connection.lookupByName("new-vm")));
+        }
+    }
+
+    @Test
+    void callsAfterCloseFailImmediately() throws Exception {
+        try (RemoteStubServer server = new RemoteStubServer().domain("web-1", DomainState.VIR_DOMAIN_RUNNING)) {
+            RemoteConnection connection = RemoteConnection.open(server.uri());
+            connection.close();
+
+            CompletableFuture<RemoteDomain> lookup = connection.lookupByName("web-1");
+
+            assertThat(lookup.isCompletedExceptionally(), is(true));
+            assertThrows(IOException.class, () -> RemoteConnection.await(lookup));
+        }
+    }
+
+    @Test
+    void awaitGivesUpAfterTimeout() {
+        CompletableFuture<Void> unanswered = new CompletableFuture<>();
+
+        assertThrows(TimeoutException.class, () -> RemoteConnection.await(unanswered, Duration.ofMillis(50)));
+        assertThat(unanswered.isCancelled(), is(true));
+    }
+}
@@ -0,0 +1,247 @@
+package io.kestra.plugin.kvm.remote;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.libvirt.DomainInfo.DomainState;
+
+/**
+ * In-process libvirt daemon speaking the subset of the remote protocol used by {@link RemoteConnection}.
+ *
+ * <p>
+ * Calls are answered on a thread pool after a small random delay, so replies come back out of order, as they can
+ * from a real daemon serving pipelined calls.
+ */
+public final class RemoteStubServer implements Closeable {
+    private static final Pattern NAME = Pattern.compile("<name>([^<]+)</name>");
+
+    private final ServerSocket server;
+
+    private final ExecutorService workers = Executors.newFixedThreadPool(8);
+
+    private final Map<String, StubDomain> domains = new ConcurrentHashMap<>();
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    public RemoteStubServer() throws IOException {
+        this.server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+
+        Thread acceptor = new Thread(this::acceptLoop, "remote-stub-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * Adds a domain to the stub host.
+     */
+    public RemoteStubServer domain(String name, DomainState state) {
+        domains.put(name, new StubDomain(name, UUID.nameUUIDFromBytes(name.getBytes(StandardCharsets.UTF_8)), state,
+            "<domain type='kvm'><name>" + name + "</name></domain>"));
+        return this;
+    }
+
+    public String uri() {
+        return "qemu+tcp://127.0.0.1:" + server.getLocalPort() + "/system";
+    }
+
+    public int calls() {
+        return calls.get();
+    }
+
+    public int maxInFlight() {
+        return maxInFlight.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        workers.shutdownNow();
+        server.close();
+    }
+
+    private void acceptLoop() {
+        while (!server.isClosed()) {
+            try {
+                Socket socket = server.accept();
+                Thread reader = new Thread(() -> serve(socket), "remote-stub-connection");
+                reader.setDaemon(true);
+                reader.start();
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket; DataInputStream in = new DataInputStream(socket.getInputStream())) {
+            OutputStream out = socket.getOutputStream();
+            while (true) {
+                byte[] message = new byte[in.readInt() - 4];
+                in.readFully(message);
+
+                calls.incrementAndGet();
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                workers.submit(() -> {
+                    try {
+                        Thread.sleep(ThreadLocalRandom.current().nextInt(3));
+                        byte[] reply = handle(new XdrReader(ByteBuffer.wrap(message)));
+                        synchronized (out) {
+                            out.write(reply);
+                            out.flush();
+                        }
+                    } catch (Exception ignored) {
+                        // The client went away.
+                    } finally {
+                        inFlight.decrementAndGet();
+                    }
+                });
+            }
+        } catch (IOException ignored) {
+            // The client closed the connection.
+        }
+    }
+
+    private byte[] handle(XdrReader reader) {
+        reader.readInt();
+        reader.readInt();
+        int procedure = reader.readInt();
+        reader.readInt();
+        int serial = reader.readInt();
+        reader.readInt();
+
+        XdrWriter body = new XdrWriter(new BufferPool(0));
+        int status = RemoteProtocol.STATUS_OK;
+        try {
+            switch (procedure) {
+                case RemoteProtocol.PROC_AUTH_LIST -> body.writeInt(1).writeInt(RemoteProtocol.AUTH_NONE);
+                case RemoteProtocol.PROC_CONNECT_OPEN, RemoteProtocol.PROC_CONNECT_CLOSE -> {
+                }
+                case RemoteProtocol.PROC_CONNECT_LIST_ALL_DOMAINS -> {
+                    List<StubDomain> all = new ArrayList<>(domains.values());
+                    body.writeInt(all.size());
+                    for (StubDomain domain : all) {
+                        domain.handle().write(body);
+                    }
+                    body.writeInt(all.size());
+                }
+                case RemoteProtocol.PROC_DOMAIN_LOOKUP_BY_NAME -> find(reader.readString()).handle().write(body);
+                case RemoteProtocol.PROC_DOMAIN_LOOKUP_BY_UUID -> {
+                    UUID uuid = reader.readUuid();
+                    domains.values().stream()
+                        .filter(domain -> domain.uuid.equals(uuid))
+                        .findFirst()
+                        .orElseThrow(() -> new StubError(RemoteException.NO_DOMAIN, "Domain not found: no domain with matching uuid"))
+                        .handle().write(body);
+                }
+                case RemoteProtocol.PROC_DOMAIN_GET_STATE -> body.writeInt(domain(reader).state.ordinal()).writeInt(0);
+                case RemoteProtocol.PROC_DOMAIN_GET_XML_DESC -> body.writeString(domain(reader).xml);
+                case RemoteProtocol.PROC_DOMAIN_CREATE -> domain(reader).state = DomainState.VIR_DOMAIN_RUNNING;
+                case RemoteProtocol.PROC_DOMAIN_SHUTDOWN, RemoteProtocol.PROC_DOMAIN_DESTROY -> domain(reader).state = DomainState.VIR_DOMAIN_SHUTOFF;
+                case RemoteProtocol.PROC_DOMAIN_UNDEFINE, RemoteProtocol.PROC_DOMAIN_UNDEFINE_FLAGS -> domains.remove(domain(reader).name);
+                case RemoteProtocol.PROC_DOMAIN_DEFINE_XML -> {
+                    String xml = reader.readString();
+                    Matcher matcher = NAME.matcher(xml);
+                    if (!matcher.find()) {
+                        throw new StubError(27, "XML error: missing name");
+                    }
+                    String name = matcher.group(1);
+                    StubDomain domain = domains.computeIfAbsent(name, n -> new StubDomain(n, UUID.randomUUID(), DomainState.VIR_DOMAIN_SHUTOFF, xml));
+                    domain.xml = xml;
+                    domain.handle().write(body);
+                }
+                default -> throw new StubError(1, "Unsupported procedure " + procedure);
+            }
+        } catch (StubError e) {
+            status = RemoteProtocol.STATUS_ERROR;
+            body.release();
+            body = new XdrWriter(new BufferPool(0))
+                .writeInt(e.code)
+                .writeInt(0)
+                .writeOptionalString(e.getMessage())
+                .writeInt(2)
+                .writeBoolean(false)
+                .writeOptionalString(null)
+                .writeOptionalString(null)
+                .writeOptionalString(null)
+                .writeInt(0)
+                .writeInt(0)
+                .writeBoolean(false);
+        }
+
+        ByteBuffer payload = body.flip();
+        ByteBuffer reply = ByteBuffer.allocate(RemoteProtocol.HEADER_SIZE + payload.remaining())
+            .putInt(RemoteProtocol.HEADER_SIZE + payload.remaining())
+            .putInt(RemoteProtocol.PROGRAM)
+            .putInt(RemoteProtocol.PROTOCOL_VERSION)
+            .putInt(procedure)
+            .putInt(RemoteProtocol.TYPE_REPLY)
+            .putInt(serial)
+            .putInt(status)
+            .put(payload);
+        return reply.array();
+    }
+
+    private StubDomain domain(XdrReader reader) {
+        RemoteDomain handle = RemoteDomain.read(reader);
+        return find(handle.name());
+    }
+
+    private StubDomain find(String name) {
+        StubDomain domain = domains.get(name);
+        if (domain == null) {
+            throw new StubError(RemoteException.NO_DOMAIN, "Domain not found: no domain with matching name '" + name + "'");
+        }
+        return domain;
+    }
+
+    private static final class StubDomain {
+        private final String name;
+
+        private final UUID uuid;
+
+        private volatile DomainState state;
+
+        private volatile String xml;
+
+        private StubDomain(String name, UUID uuid, DomainState state, String xml) {
+            this.name = name;
+            this.uuid = uuid;
+            this.state = state;
+            this.xml = xml;
+        }
+
+        private RemoteDomain handle() {
+            return new RemoteDomain(name, uuid, state == DomainState.VIR_DOMAIN_RUNNING ? 1 : -1);
+        }
+    }
+
+    private static final class StubError extends RuntimeException {
+        private final int code;
+
+        private StubError(int code, String message) {
+            super(message);
+            this.code = code;
+        }
+    }
+}